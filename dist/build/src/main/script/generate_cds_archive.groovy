@@ -0,0 +1,102 @@
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.TimeUnit
+
+/*
+ * Generates a dynamic AppCDS archive for the distribution.
+ *
+ * The archive is dumped at the exit of a training run of the launcher script, so that the JVM options and the class
+ * path match the later runs of the launcher. The training run lists the history of a copy of the distribution's own
+ * installation metadata, which loads the CLI, the installation metadata and the history storage classes.
+ *
+ * The archive can only be used by the JVM that created it. The version of the JVM is recorded next to the archive
+ * and the launcher ignores the archive if it is started with a different JVM. The archive also records the absolute
+ * class path, so it can only be used by the distribution in the build directory (e.g. by startup_benchmark.sh) and is
+ * not packaged. An installed distribution generates its own archive with PROSPERO_CDS=generate.
+ *
+ * After the training run, the archive is verified by running the launcher again with -Xshare:on, which fails if the
+ * JVM cannot use the archive.
+ */
+
+def distDir = Path.of(properties['distDir'])
+def distName = properties['distName']
+def skip = Boolean.parseBoolean(properties['skip'])
+
+if (skip) {
+    println("Skipping the class data sharing archive generation")
+    return
+}
+if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+    // the windows launcher runs a copy of jboss-modules.jar, the class path never matches the archive
+    println("Class data sharing archive is not generated on Windows")
+    return
+}
+
+def javaHome = Path.of(System.getProperty("java.home"))
+def release = javaHome.resolve("release")
+if (!Files.exists(release)) {
+    println("Unable to determine the version of the JVM, skipping the class data sharing archive generation")
+    return
+}
+
+def archive = distDir.resolve("bin").resolve(distName + ".jsa")
+def versionFile = distDir.resolve("bin").resolve(distName + ".jsa.version")
+Files.deleteIfExists(archive)
+Files.deleteIfExists(versionFile)
+
+def runLauncher = { Path workDir, String cds, String javaOpts, String outputName ->
+    def launcher = distDir.resolve("bin").resolve(distName + ".sh")
+    def process = new ProcessBuilder("sh", launcher.toString(), "history", "--dir", workDir.resolve("installation").toString())
+            .directory(workDir.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(workDir.resolve(outputName).toFile())
+    process.environment().put("JAVA", javaHome.resolve("bin").resolve("java").toString())
+    process.environment().put("PROSPERO_CDS", cds)
+    process.environment().put("JAVA_OPTS", javaOpts + " -Dorg.wildfly.prospero.log.file=" + workDir.resolve("training.log"))
+    process.environment().remove("JAVA_HOME")
+
+    def run = process.start()
+    if (!run.waitFor(5, TimeUnit.MINUTES)) {
+        run.destroyForcibly()
+        throw new IllegalStateException("The class data sharing training run did not finish in time")
+    }
+    return run.exitValue()
+}
+
+def workDir = Files.createTempDirectory("prospero-cds")
+try {
+    // the training run creates the history storage, use a copy of the metadata to keep the distribution unchanged
+    def installation = workDir.resolve("installation")
+    [".installation", ".galleon"].each { dir ->
+        def source = distDir.resolve(dir)
+        Files.walk(source).withCloseable { paths ->
+            paths.filter { !source.relativize(it).toString().startsWith(".git") }.each { path ->
+                def target = installation.resolve(dir).resolve(source.relativize(path).toString())
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(target)
+                } else {
+                    Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING)
+                }
+            }
+        }
+    }
+
+    runLauncher(workDir, "generate", "", "training.out")
+    if (!Files.exists(archive) || !Files.exists(versionFile)) {
+        println(Files.readString(workDir.resolve("training.out")))
+        throw new IllegalStateException("The class data sharing training run didn't create the archive " + archive)
+    }
+
+    if (runLauncher(workDir, "false", "-XX:SharedArchiveFile=" + archive + " -Xshare:on", "verification.out") != 0) {
+        println(Files.readString(workDir.resolve("verification.out")))
+        Files.deleteIfExists(archive)
+        Files.deleteIfExists(versionFile)
+        throw new IllegalStateException("The class data sharing archive " + archive + " cannot be used by the distribution")
+    }
+
+    def version = Files.readString(versionFile).trim()
+    println("Generated class data sharing archive " + archive + " for " + version.replace("\n", ", "))
+} finally {
+    workDir.toFile().deleteDir()
+}
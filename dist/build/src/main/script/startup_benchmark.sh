@@ -0,0 +1,70 @@
+#!/bin/sh
+#
+# Copyright 2024 Red Hat, Inc. and/or its affiliates
+# and other contributors as indicated by the @author tags.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#   http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Compares the startup time of the distribution with and without the class data sharing archive.
+#
+# Usage: startup_benchmark.sh <distribution-dir> [iterations]
+#
+# Runs `--help` and `history` on a copy of the distribution's installation metadata, and prints the average wall
+# clock time of each command in milliseconds. Requires GNU date.
+
+if [ "x$1" = "x" ]; then
+    echo "Usage: $0 <distribution-dir> [iterations]"
+    exit 1
+fi
+
+GREP="grep"
+DIST_DIR=`cd "$1"; pwd`
+ITERATIONS=${2:-10}
+LAUNCHER=`ls "$DIST_DIR"/bin/*.sh | $GREP -v common.sh | head -n 1`
+
+if [ ! -r "$DIST_DIR/bin/`basename "$LAUNCHER" .sh`.jsa" ]; then
+    echo "WARNING: the distribution doesn't contain a class data sharing archive, both runs will use the same settings"
+fi
+
+WORK_DIR=`mktemp -d`
+trap 'rm -rf "$WORK_DIR"' EXIT
+mkdir -p "$WORK_DIR/installation"
+cp -r "$DIST_DIR/.galleon" "$WORK_DIR/installation/"
+mkdir -p "$WORK_DIR/installation/.installation"
+find "$DIST_DIR/.installation" -maxdepth 1 -type f -exec cp {} "$WORK_DIR/installation/.installation/" \;
+
+# keeps the log out of the distribution
+JAVA_OPTS="$JAVA_OPTS -Dorg.wildfly.prospero.log.file=$WORK_DIR/benchmark.log"
+export JAVA_OPTS
+
+measure() {
+    CDS=$1
+    shift
+    # warm up the file system cache
+    PROSPERO_CDS=$CDS sh "$LAUNCHER" "$@" > /dev/null 2>&1
+    TOTAL=0
+    i=0
+    while [ $i -lt $ITERATIONS ]; do
+        START=`date +%s%N`
+        PROSPERO_CDS=$CDS sh "$LAUNCHER" "$@" > /dev/null 2>&1
+        END=`date +%s%N`
+        TOTAL=$((TOTAL + (END - START) / 1000000))
+        i=$((i + 1))
+    done
+    echo $((TOTAL / ITERATIONS))
+}
+
+printf "%-10s %15s %15s\n" "command" "no CDS [ms]" "CDS [ms]"
+printf "%-10s %15s %15s\n" "--help" `measure false --help` `measure true --help`
+printf "%-10s %15s %15s\n" "history" `measure false history --dir "$WORK_DIR/installation"` `measure true history --dir "$WORK_DIR/installation"`
@@ -59,6 +59,31 @@ fi
 setDefaultModularJvmOptions $JAVA_OPTS
 JAVA_OPTS="$JAVA_OPTS $DEFAULT_MODULAR_JVM_OPTIONS"
 
+# Use the class data sharing archive if it was generated by the same JVM. The archive records the location of the
+# distribution, run any command with PROSPERO_CDS=generate to generate it after the distribution is installed.
+# Set PROSPERO_CDS=false to disable.
+CDS_ARCHIVE="$PROSPERO_HOME/bin/${prospero.dist.name}.jsa"
+CDS_CONF=`echo $JAVA_OPTS | $GREP "SharedArchiveFile\|ArchiveClassesAtExit\|Xshare"`
+if [ "x$PROSPERO_CDS" != "xfalse" ] && [ "x$CDS_CONF" = "x" ]; then
+    JAVA_BIN=`command -v "$JAVA"`
+    if [ "x$JAVA_BIN" != "x" ]; then
+        JAVA_BIN=`readlink -f "$JAVA_BIN" 2>/dev/null || echo "$JAVA_BIN"`
+        JAVA_RELEASE="`dirname "$JAVA_BIN"`/../release"
+        if [ -r "$JAVA_RELEASE" ]; then
+            JAVA_RELEASE_VERSION=`$GREP "^IMPLEMENTOR=\|^JAVA_RUNTIME_VERSION=" "$JAVA_RELEASE"`
+            if [ "x$PROSPERO_CDS" = "xgenerate" ]; then
+                # the archive is written when the command finishes
+                rm -f "$CDS_ARCHIVE" "$CDS_ARCHIVE.version"
+                echo "$JAVA_RELEASE_VERSION" > "$CDS_ARCHIVE.version"
+                JAVA_OPTS="$JAVA_OPTS -XX:ArchiveClassesAtExit=\"$CDS_ARCHIVE\""
+            elif [ -r "$CDS_ARCHIVE" ] && [ -r "$CDS_ARCHIVE.version" ] && [ "$JAVA_RELEASE_VERSION" = "`cat "$CDS_ARCHIVE.version"`" ]; then
+                # the JVM logs a warning and loads the classes without the archive if it doesn't match the distribution
+                JAVA_OPTS="$JAVA_OPTS -XX:SharedArchiveFile=\"$CDS_ARCHIVE\" -Xshare:auto"
+            fi
+        fi
+    fi
+fi
+
 # For Cygwin, switch paths to Windows format before running java
 if $cygwin; then
     PROSPERO_HOME=`cygpath --path --windows "$PROSPERO_HOME"`
@@ -37,6 +37,7 @@ import org.wildfly.prospero.test.MetadataTestUtils;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -47,6 +48,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @SuppressWarnings("OptionalGetWithoutIsPresent")
 public class InstallationRestoreActionTest extends WfCoreTestBase {
@@ -80,8 +82,39 @@ public class InstallationRestoreActionTest extends WfCoreTestBase {
         assertEquals(BASE_VERSION, wildflyCliArtifact.get().getVersion());
     }
 
+    @Test
+    public void restoreInstallationWithReplicas() throws Exception {
+        final Path channelsFile = MetadataTestUtils.prepareChannel(CHANNEL_BASE_CORE_19);
+
+        final ProvisioningDefinition provisioningDefinition = defaultWfCoreDefinition()
+                .setChannelCoordinates(channelsFile.toString())
+                .build();
+        new ProvisioningAction(outputPath, mavenOptions, new AcceptingConsole())
+                .provision(provisioningDefinition.toProvisioningConfig(),
+                        provisioningDefinition.resolveChannels(CHANNELS_RESOLVER_FACTORY));
+
+        prepareInstallerConfig(CHANNEL_COMPONENT_UPDATES, CHANNEL_BASE_CORE_19);
+
+        new InstallationExportAction(outputPath).export(Paths.get("target/bundle.zip"));
+
+        final Path replicasDir = temp.newFolder().toPath();
+        final List<Path> replicas = List.of(replicasDir.resolve("replica-1"), replicasDir.resolve("replica-2"));
+        new InstallationRestoreAction(restoredServerDir, mavenOptions, new AcceptingConsole())
+                .restore(Paths.get("target/bundle.zip"), Collections.emptyList(), replicas, true);
+
+        for (Path replica : replicas) {
+            assertEquals(BASE_VERSION, readArtifactFromManifest(replica, "org.wildfly.core", "wildfly-cli").get().getVersion());
+            assertTrue(Files.isRegularFile(replica.resolve("standalone/configuration/standalone.xml")));
+            assertTrue(Files.isDirectory(replica.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(".git")));
+        }
+    }
+
     private Optional<Artifact> readArtifactFromManifest(String groupId, String artifactId) throws IOException, MetadataException {
-        final File manifestFile = restoredServerDir.resolve(MetadataTestUtils.MANIFEST_FILE_PATH).toFile();
+        return readArtifactFromManifest(restoredServerDir, groupId, artifactId);
+    }
+
+    private Optional<Artifact> readArtifactFromManifest(Path serverDir, String groupId, String artifactId) throws IOException, MetadataException {
+        final File manifestFile = serverDir.resolve(MetadataTestUtils.MANIFEST_FILE_PATH).toFile();
         return ManifestYamlSupport.parse(manifestFile).getStreams()
                 .stream().filter((a) -> a.getGroupId().equals(groupId) && a.getArtifactId().equals(artifactId))
                 .findFirst()
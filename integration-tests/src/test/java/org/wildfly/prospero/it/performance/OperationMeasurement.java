@@ -0,0 +1,237 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.it.performance;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.wildfly.prospero.api.OperationTimer;
+import org.wildfly.prospero.api.TransferMetrics;
+
+/**
+ * Resource usage of a single operation.
+ *
+ * The bytes read and written by the process are taken from {@code /proc/self/io} and are not available on systems
+ * without it. They don't include the I/O of child processes, e.g. of an embedded server forked to generate the server
+ * configurations.
+ *
+ * The peak heap is the highest heap usage observed during the operation, either by sampling the used heap every
+ * {@link #HEAP_SAMPLING_MS} milliseconds, or just before a garbage collection. The peaks of the individual memory pools
+ * are not used, because they are reached at different times and their sum overestimates the usage.
+ */
+public class OperationMeasurement {
+
+    static final Path IO_STATISTICS = Paths.get("/proc/self/io");
+    static final long HEAP_SAMPLING_MS = 10;
+
+    private final String operation;
+    private final long wallTimeMs;
+    private final OptionalLong bytesRead;
+    private final OptionalLong bytesWritten;
+    private final long peakHeapBytes;
+    private final long resolverRequests;
+
+    OperationMeasurement(String operation, long wallTimeMs, OptionalLong bytesRead, OptionalLong bytesWritten,
+                         long peakHeapBytes, long resolverRequests) {
+        this.operation = operation;
+        this.wallTimeMs = wallTimeMs;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.peakHeapBytes = peakHeapBytes;
+        this.resolverRequests = resolverRequests;
+    }
+
+    /**
+     * executes {@code action} as operation {@code operation} and measures it.
+     *
+     * @param operation - name of the operation
+     * @param action - the measured action
+     * @param results - the measurement is added to the results
+     * @return result of the action
+     */
+    public static <T> T measure(String operation, Callable<T> action, List<OperationMeasurement> results) throws Exception {
+        // start from a clean heap, so that the garbage of previous operations doesn't count towards the peak
+        System.gc();
+        final long[] ioBefore = readIoStatistics();
+        final long start = System.nanoTime();
+
+        final T result;
+        final TransferMetrics.RepositoryStatistics transfers;
+        final long peakHeap;
+        try (HeapSampler heap = new HeapSampler(); OperationTimer timer = OperationTimer.start(operation)) {
+            result = action.call();
+            transfers = timer.getTransferMetrics().getTotals();
+            peakHeap = heap.getPeak();
+        }
+
+        final long wallTimeMs = (System.nanoTime() - start) / 1_000_000;
+        final long[] ioAfter = readIoStatistics();
+
+        results.add(new OperationMeasurement(operation, wallTimeMs,
+                ioBefore == null || ioAfter == null ? OptionalLong.empty() : OptionalLong.of(ioAfter[0] - ioBefore[0]),
+                ioBefore == null || ioAfter == null ? OptionalLong.empty() : OptionalLong.of(ioAfter[1] - ioBefore[1]),
+                peakHeap,
+                transfers.getTransfers() + transfers.getNotFound() + transfers.getFailures()));
+        return result;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getWallTimeMs() {
+        return wallTimeMs;
+    }
+
+    public OptionalLong getBytesRead() {
+        return bytesRead;
+    }
+
+    public OptionalLong getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    /**
+     * @return number of artifacts and metadata requested from the Maven repositories, including the missing ones
+     */
+    public long getResolverRequests() {
+        return resolverRequests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d ms, read %s B, written %s B, peak heap %d MB, %d resolver requests", operation,
+                wallTimeMs, format(bytesRead), format(bytesWritten), peakHeapBytes / (1024 * 1024), resolverRequests);
+    }
+
+    private static String format(OptionalLong value) {
+        return value.isPresent() ? Long.toString(value.getAsLong()) : "n/a";
+    }
+
+    /*
+     * rchar and wchar count all the bytes passed to read and write calls, including the ones served from the page
+     * cache, which makes them repeatable between runs
+     */
+    private static long[] readIoStatistics() {
+        if (!Files.isReadable(IO_STATISTICS)) {
+            return null;
+        }
+        try {
+            long read = -1;
+            long written = -1;
+            for (String line : Files.readAllLines(IO_STATISTICS)) {
+                if (line.startsWith("rchar:")) {
+                    read = Long.parseLong(line.substring("rchar:".length()).trim());
+                } else if (line.startsWith("wchar:")) {
+                    written = Long.parseLong(line.substring("wchar:".length()).trim());
+                }
+            }
+            return read < 0 || written < 0 ? null : new long[]{read, written};
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /*
+     * records the highest used heap seen by the sampling thread or reported by the garbage collectors before a collection
+     */
+    private static class HeapSampler implements NotificationListener, AutoCloseable {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong peak = new AtomicLong();
+        private final List<NotificationEmitter> collectors = new ArrayList<>();
+        private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        HeapSampler() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+                    collectors.add((NotificationEmitter) collector);
+                }
+            }
+            sample();
+            sampler.scheduleAtFixedRate(this::sample, HEAP_SAMPLING_MS, HEAP_SAMPLING_MS, TimeUnit.MILLISECONDS);
+        }
+
+        long getPeak() {
+            sample();
+            return peak.get();
+        }
+
+        private void sample() {
+            peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                // the usage before the collection includes the non-heap pools as well
+                long beforeGc = 0;
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    final MemoryUsage usage = info.getGcInfo().getMemoryUsageBeforeGc().get(pool.getName());
+                    if (usage != null && pool.getType() == MemoryType.HEAP) {
+                        beforeGc += usage.getUsed();
+                    }
+                }
+                peak.accumulateAndGet(beforeGc, Math::max);
+            }
+        }
+
+        @Override
+        public void close() {
+            sampler.shutdownNow();
+            for (NotificationEmitter collector : collectors) {
+                try {
+                    collector.removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // already removed
+                }
+            }
+        }
+    }
+}
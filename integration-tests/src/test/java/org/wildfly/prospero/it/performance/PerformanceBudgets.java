@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.it.performance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Limits of the resources the operations are allowed to use, loaded from a properties file.
+ *
+ * The budget of each operation is defined by properties {@code <operation>.wallTimeMs}, {@code <operation>.bytesRead},
+ * {@code <operation>.bytesWritten}, {@code <operation>.peakHeapMb} and {@code <operation>.resolverRequests}. Missing
+ * properties are not checked. All the budgets are multiplied by the {@link #TOLERANCE_PROPERTY} system property,
+ * to allow running the tests on slower machines.
+ */
+public class PerformanceBudgets {
+
+    public static final String TOLERANCE_PROPERTY = "prospero.performance.tolerance";
+
+    static final String WALL_TIME = "wallTimeMs";
+    static final String BYTES_READ = "bytesRead";
+    static final String BYTES_WRITTEN = "bytesWritten";
+    static final String PEAK_HEAP = "peakHeapMb";
+    static final String RESOLVER_REQUESTS = "resolverRequests";
+    /**
+     * the suggested budgets are this many times the measured values
+     */
+    static final int SUGGESTED_BUDGET_FACTOR = 2;
+    /**
+     * the suggested wall time budgets are at least this long, so that short operations don't fail on a timing jitter
+     */
+    static final long MIN_SUGGESTED_WALL_TIME_MS = 1000;
+
+    private final Properties budgets;
+    private final double tolerance;
+
+    PerformanceBudgets(Properties budgets, double tolerance) {
+        this.budgets = budgets;
+        this.tolerance = tolerance;
+    }
+
+    public static PerformanceBudgets load(String resource) throws IOException {
+        final Properties budgets = new Properties();
+        try (InputStream is = PerformanceBudgets.class.getClassLoader().getResourceAsStream(resource)) {
+            if (is == null) {
+                throw new IllegalArgumentException("Budgets " + resource + " not found");
+            }
+            budgets.load(is);
+        }
+        return new PerformanceBudgets(budgets, Double.parseDouble(System.getProperty(TOLERANCE_PROPERTY, "1.0")));
+    }
+
+    /**
+     * @return descriptions of the budgets exceeded by the {@code measurement}, or empty list if all were met
+     */
+    public List<String> findViolations(OperationMeasurement measurement) {
+        final List<String> violations = new ArrayList<>();
+        check(measurement.getOperation(), WALL_TIME, measurement.getWallTimeMs(), violations);
+        if (measurement.getBytesRead().isPresent()) {
+            check(measurement.getOperation(), BYTES_READ, measurement.getBytesRead().getAsLong(), violations);
+        }
+        if (measurement.getBytesWritten().isPresent()) {
+            check(measurement.getOperation(), BYTES_WRITTEN, measurement.getBytesWritten().getAsLong(), violations);
+        }
+        check(measurement.getOperation(), PEAK_HEAP, measurement.getPeakHeapBytes() / (1024 * 1024), violations);
+        check(measurement.getOperation(), RESOLVER_REQUESTS, measurement.getResolverRequests(), violations);
+        return violations;
+    }
+
+    /**
+     * writes the {@code measurements} in the same format as the budgets, so that they can be used to update them.
+     */
+    public static void writeResults(List<OperationMeasurement> measurements, Path file) throws IOException {
+        write(measurements, file, 1, 0);
+    }
+
+    /**
+     * writes budgets of {@link #SUGGESTED_BUDGET_FACTOR} times the {@code measurements}. When run on the reference
+     * machine, the file can replace the checked-in budgets.
+     */
+    public static void writeSuggestedBudgets(List<OperationMeasurement> measurements, Path file) throws IOException {
+        write(measurements, file, SUGGESTED_BUDGET_FACTOR, MIN_SUGGESTED_WALL_TIME_MS);
+    }
+
+    private static void write(List<OperationMeasurement> measurements, Path file, int factor, long minWallTime) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (OperationMeasurement measurement : measurements) {
+                final String operation = measurement.getOperation();
+                writer.write(operation + "." + WALL_TIME + "=" + Math.max(minWallTime, measurement.getWallTimeMs() * factor) + "\n");
+                if (measurement.getBytesRead().isPresent()) {
+                    writer.write(operation + "." + BYTES_READ + "=" + measurement.getBytesRead().getAsLong() * factor + "\n");
+                }
+                if (measurement.getBytesWritten().isPresent()) {
+                    writer.write(operation + "." + BYTES_WRITTEN + "=" + measurement.getBytesWritten().getAsLong() * factor + "\n");
+                }
+                writer.write(operation + "." + PEAK_HEAP + "=" + measurement.getPeakHeapBytes() / (1024 * 1024) * factor + "\n");
+                writer.write(operation + "." + RESOLVER_REQUESTS + "=" + measurement.getResolverRequests() * factor + "\n");
+            }
+        }
+    }
+
+    private void check(String operation, String metric, long actual, List<String> violations) {
+        final String budget = budgets.getProperty(operation + "." + metric);
+        if (budget == null) {
+            return;
+        }
+        final long limit = (long) (Long.parseLong(budget.trim()) * tolerance);
+        if (actual > limit) {
+            violations.add(String.format("%s.%s: %d exceeds budget of %d", operation, metric, actual, limit));
+        }
+    }
+}
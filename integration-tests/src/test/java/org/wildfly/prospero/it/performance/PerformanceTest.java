@@ -0,0 +1,143 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.it.performance;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.channel.Repository;
+import org.wildfly.prospero.actions.ApplyCandidateAction;
+import org.wildfly.prospero.actions.InstallationHistoryAction;
+import org.wildfly.prospero.actions.ProvisioningAction;
+import org.wildfly.prospero.actions.UpdateAction;
+import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.ProvisioningDefinition;
+import org.wildfly.prospero.api.SavedState;
+import org.wildfly.prospero.it.AcceptingConsole;
+import org.wildfly.prospero.it.commonapi.WfCoreTestBase;
+import org.wildfly.prospero.test.MetadataTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the resources used by the installation, update, history and revert operations against the budgets in
+ * {@value #BUDGETS}.
+ *
+ * All the artifacts are resolved from a local file repository into an empty local cache, so that the results don't
+ * depend on the network. The measured values are saved in {@value #RESULTS}, and budgets of twice the measured values
+ * are saved in {@value #SUGGESTED_BUDGETS}.
+ */
+public class PerformanceTest extends WfCoreTestBase {
+
+    static final String BUDGETS = "performance/budgets.properties";
+    static final String RESULTS = "target/performance-results.properties";
+    static final String SUGGESTED_BUDGETS = "target/performance-budgets.properties";
+
+    private final List<OperationMeasurement> measurements = new ArrayList<>();
+    private MavenOptions offlineOptions;
+    private Path channelsFile;
+    private Path testManifestPath;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        final URL mirror = mockTemporaryRepo(false);
+
+        testManifestPath = temp.newFile().toPath();
+        channelsFile = temp.newFile().toPath();
+        MetadataTestUtils.copyManifest("manifests/wfcore-base.yaml", testManifestPath);
+        MetadataTestUtils.prepareChannel(channelsFile, List.of(testManifestPath.toUri().toURL()),
+                List.of(new Repository("mirror", mirror.toExternalForm())));
+
+        offlineOptions = MavenOptions.builder()
+                .setLocalCachePath(temp.newFolder().toPath())
+                .setOffline(true)
+                .build();
+    }
+
+    @Test
+    public void operationsWithinBudgets() throws Exception {
+        final AcceptingConsole console = new AcceptingConsole();
+
+        final ProvisioningDefinition provisioningDefinition = defaultWfCoreDefinition()
+                .setChannelCoordinates(channelsFile.toString())
+                .setOverrideRepositories(Collections.emptyList())
+                .build();
+        OperationMeasurement.measure("install", () -> {
+            new ProvisioningAction(outputPath, offlineOptions, console).provision(provisioningDefinition.toProvisioningConfig(),
+                    provisioningDefinition.resolveChannels(CHANNELS_RESOLVER_FACTORY));
+            return null;
+        }, measurements);
+
+        MetadataTestUtils.upgradeStreamInManifest(testManifestPath, resolvedUpgradeArtifact);
+        final Path updateCandidate = temp.newFolder().toPath();
+        final boolean updatesFound = OperationMeasurement.measure("update-prepare", () ->
+                new UpdateAction(outputPath, Collections.emptyList(), offlineOptions, console).buildUpdate(updateCandidate),
+                measurements);
+        assertTrue("Update candidate should be prepared", updatesFound);
+
+        OperationMeasurement.measure("update-apply", () ->
+                new ApplyCandidateAction(outputPath, updateCandidate).applyUpdate(ApplyCandidateAction.Type.UPDATE),
+                measurements);
+        assertTrue("Updated jar should be present in module", modulePath().resolve(UPGRADE_JAR).toFile().exists());
+
+        final InstallationHistoryAction historyAction = new InstallationHistoryAction(outputPath, console);
+        final List<SavedState> revisions = OperationMeasurement.measure("history", () -> {
+            historyAction.getRevisionChangesSince(null);
+            return historyAction.getRevisions();
+        }, measurements);
+        assertThat(revisions)
+                .map(SavedState::getType)
+                .containsExactly(SavedState.Type.UPDATE, SavedState.Type.INSTALL);
+
+        final Path revertCandidate = temp.newFolder().toPath();
+        OperationMeasurement.measure("revert-prepare", () -> {
+            historyAction.prepareRevert(revisions.get(1), offlineOptions, Collections.emptyList(), revertCandidate);
+            return null;
+        }, measurements);
+
+        OperationMeasurement.measure("revert-apply", () ->
+                new ApplyCandidateAction(outputPath, revertCandidate).applyUpdate(ApplyCandidateAction.Type.REVERT),
+                measurements);
+        assertTrue("Reverted jar should be present in module", modulePath().resolve(BASE_JAR).toFile().exists());
+
+        PerformanceBudgets.writeResults(measurements, Paths.get(RESULTS));
+        PerformanceBudgets.writeSuggestedBudgets(measurements, Paths.get(SUGGESTED_BUDGETS));
+        final PerformanceBudgets budgets = PerformanceBudgets.load(BUDGETS);
+        final List<String> violations = measurements.stream()
+                .flatMap(m -> budgets.findViolations(m).stream())
+                .collect(Collectors.toList());
+        assertThat(violations)
+                .withFailMessage("Operations exceeded their budgets:%n%s%nMeasured:%n%s",
+                        String.join(System.lineSeparator(), violations),
+                        measurements.stream().map(OperationMeasurement::toString).collect(Collectors.joining(System.lineSeparator())))
+                .isEmpty();
+    }
+
+    private Path modulePath() {
+        return outputPath.resolve(Paths.get("modules", "system", "layers", "base", "org", "jboss", "as", "cli", "main"));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.galleon.Constants;
+import org.jboss.galleon.ProvisioningManager;
+import org.jboss.galleon.creator.FeaturePackCreator;
+import org.jboss.galleon.creator.PackageBuilder;
+import org.jboss.galleon.repo.RepositoryArtifactResolver;
+import org.jboss.galleon.universe.FeaturePackLocation;
+import org.jboss.galleon.universe.maven.repo.SimplisticMavenRepoManager;
+import org.jboss.galleon.util.IoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestCoordinate;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.ChannelMapper;
+import org.wildfly.channel.Repository;
+import org.wildfly.prospero.actions.ApplyCandidateAction;
+import org.wildfly.prospero.api.FileConflict;
+import org.wildfly.prospero.galleon.ArtifactCache;
+import org.wildfly.prospero.installation.git.GitStorage;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+import org.wildfly.prospero.updates.MarkerFile;
+
+/**
+ * Applies an update candidate to an installation of {@code files} generated files. The update changes every tenth
+ * file and the installation has every hundredth file modified by the user.
+ *
+ * Applying the candidate modifies the installation, so every measurement works on a fresh copy of the pristine
+ * installation and candidate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ApplyCandidateBenchmark {
+
+    private static final String FPL_100 = "org.wildfly.prospero.synthetic:pack:1.0.0:zip";
+    private static final String FPL_101 = "org.wildfly.prospero.synthetic:pack:1.0.1:zip";
+
+    @Param({"10000"})
+    public int files;
+
+    @Param({"FULL", "JOURNAL"})
+    public ApplyCandidateAction.BackupMode backupMode;
+
+    private Path workDir;
+    private Path pristineInstallation;
+    private Path pristineCandidate;
+    private Path installation;
+    private Path candidate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("prospero-bench-apply");
+        final Path repositoryDir = workDir.resolve("repository");
+        final RepositoryArtifactResolver repo = SimplisticMavenRepoManager.getInstance(repositoryDir);
+        final FeaturePackCreator creator = FeaturePackCreator.getInstance().addArtifactResolver(repo);
+        final PackageBuilder base = creator.newFeaturePack(FeaturePackLocation.fromString(FPL_100).getFPID())
+                .newPackage("p1", true);
+        final PackageBuilder update = creator.newFeaturePack(FeaturePackLocation.fromString(FPL_101).getFPID())
+                .newPackage("p1", true);
+        for (int i = 0; i < files; i++) {
+            base.writeContent(path(i), "content " + i + " 1.0.0");
+            update.writeContent(path(i), i % 10 == 0 ? "content " + i + " 1.0.1" : "content " + i + " 1.0.0");
+        }
+        creator.install();
+
+        pristineInstallation = workDir.resolve("installation");
+        pristineCandidate = workDir.resolve("candidate");
+        install(repo, repositoryDir, pristineInstallation, FPL_100);
+        install(repo, repositoryDir, pristineCandidate, FPL_101);
+        try (GitStorage gitStorage = new GitStorage(pristineInstallation)) {
+            final String revision = gitStorage.getRevisions().get(0).getName();
+            new MarkerFile(revision, ApplyCandidateAction.Type.UPDATE).write(pristineCandidate);
+        }
+
+        for (int i = 0; i < files; i += 100) {
+            Files.writeString(pristineInstallation.resolve(path(i)), "user change " + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        IoUtils.recursiveDelete(workDir);
+    }
+
+    @Setup(Level.Iteration)
+    public void copyPristine() throws Exception {
+        final Path iterationDir = Files.createTempDirectory(workDir, "iteration");
+        installation = iterationDir.resolve("installation");
+        candidate = iterationDir.resolve("candidate");
+        IoUtils.copy(pristineInstallation, installation);
+        IoUtils.copy(pristineCandidate, candidate);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCopies() {
+        ArtifactCache.cleanInstancesCache();
+        IoUtils.recursiveDelete(installation.getParent());
+    }
+
+    @Benchmark
+    public List<FileConflict> applyUpdate() throws Exception {
+        return new ApplyCandidateAction(installation, candidate, backupMode).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+    }
+
+    private static String path(int index) {
+        return String.format("modules/dir-%03d/file-%05d.txt", index / 100, index);
+    }
+
+    private static void install(RepositoryArtifactResolver repo, Path repositoryDir, Path path, String fpl) throws Exception {
+        final HashMap<String, String> options = new HashMap<>();
+        options.put(Constants.EXPORT_SYSTEM_PATHS, "true");
+        try (ProvisioningManager provisioningManager = ProvisioningManager.builder()
+                .addArtifactResolver(repo)
+                .setInstallationHome(path)
+                .setRecordState(true)
+                .build()) {
+            provisioningManager.install(FeaturePackLocation.fromString(fpl), options);
+        }
+
+        // the installation metadata only needs to be recorded in the history
+        final Path metadataPath = path.resolve(ProsperoMetadataUtils.METADATA_DIR);
+        Files.createDirectories(metadataPath);
+        Files.writeString(metadataPath.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME),
+                ChannelManifestMapper.toYaml(new ChannelManifest("manifest " + fpl, null, null, List.of())));
+        Files.writeString(metadataPath.resolve(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME),
+                ChannelMapper.toYaml(new Channel("synthetic", null, null,
+                        List.of(new Repository("local", repositoryDir.toUri().toString())),
+                        new ChannelManifestCoordinate(SyntheticChannel.GROUP_ID, "manifest"),
+                        null, null)));
+        try (GitStorage gitStorage = new GitStorage(path)) {
+            gitStorage.record();
+        }
+        Files.createDirectories(path.resolve(ArtifactCache.CACHE_FOLDER));
+    }
+}
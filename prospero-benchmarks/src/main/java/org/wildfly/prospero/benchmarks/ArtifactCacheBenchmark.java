@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.galleon.util.IoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.MavenArtifact;
+import org.wildfly.prospero.galleon.ArtifactCache;
+
+/**
+ * Records and looks up artifacts in an {@link ArtifactCache} of an installation with {@code artifacts} cached jars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ArtifactCacheBenchmark {
+
+    @Param({"100", "1000"})
+    public int artifacts;
+
+    private Path installationDir;
+    private ArtifactCache cache;
+    private List<MavenArtifact> cached;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        installationDir = Files.createTempDirectory("prospero-bench-cache");
+        Files.createDirectories(installationDir.resolve(ArtifactCache.CACHE_FOLDER));
+        final Path modules = Files.createDirectories(installationDir.resolve("modules"));
+
+        final Random random = new Random(artifacts);
+        cached = new ArrayList<>(artifacts);
+        cache = ArtifactCache.getInstance(installationDir);
+        for (int i = 0; i < artifacts; i++) {
+            final Path file = modules.resolve(SyntheticChannel.artifactId(i) + ".jar");
+            Files.write(file, SyntheticChannel.randomContent(random, 16 * 1024));
+            final MavenArtifact artifact = new MavenArtifact(SyntheticChannel.GROUP_ID, SyntheticChannel.artifactId(i),
+                    "jar", "", SyntheticChannel.BASE_VERSION, file.toFile());
+            cache.record(artifact, file);
+            cached.add(artifact);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ArtifactCache.cleanInstancesCache();
+        IoUtils.recursiveDelete(installationDir);
+    }
+
+    /**
+     * re-records one of the cached artifacts, which rewrites the whole cache descriptor.
+     */
+    @Benchmark
+    public void record() throws IOException {
+        final MavenArtifact artifact = nextArtifact();
+        cache.record(artifact, artifact.getFile().toPath());
+    }
+
+    /**
+     * finds a cached artifact, verifying its hash.
+     */
+    @Benchmark
+    public Optional<File> lookup() {
+        final MavenArtifact artifact = nextArtifact();
+        return cache.getArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(),
+                artifact.getClassifier(), artifact.getVersion());
+    }
+
+    /**
+     * looks up an artifact that is not cached.
+     */
+    @Benchmark
+    public Optional<File> lookupMiss() {
+        final MavenArtifact artifact = nextArtifact();
+        return cache.getArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(),
+                artifact.getClassifier(), SyntheticChannel.UPDATE_VERSION);
+    }
+
+    private MavenArtifact nextArtifact() {
+        next = (next + 1) % cached.size();
+        return cached.get(next);
+    }
+}
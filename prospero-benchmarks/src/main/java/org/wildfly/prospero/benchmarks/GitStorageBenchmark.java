@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.galleon.util.IoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.Stream;
+import org.wildfly.prospero.api.SavedState;
+import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.installation.git.GitStorage;
+import org.wildfly.prospero.metadata.ManifestVersionRecord;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+
+/**
+ * Reads the history of an installation with {@code commits} recorded updates. Every update changes a version of one
+ * of the streams in the manifest. After the first read the revisions are served from the history index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GitStorageBenchmark {
+
+    private static final int STREAMS = 200;
+
+    @Param({"2000"})
+    public int commits;
+
+    private Path installationDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, MetadataException {
+        installationDir = Files.createTempDirectory("prospero-bench-history");
+        final Path metadataDir = Files.createDirectories(installationDir.resolve(ProsperoMetadataUtils.METADATA_DIR));
+        final SyntheticChannel channel = SyntheticChannel.create(Files.createDirectories(installationDir.resolve("channel")), STREAMS);
+        ProsperoMetadataUtils.writeChannelsConfiguration(metadataDir.resolve(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME),
+                List.<Channel>of(channel.getChannel()));
+
+        final List<Stream> streams = new ArrayList<>(channel.getStreams());
+        try (GitStorage gitStorage = new GitStorage(installationDir)) {
+            for (int i = 0; i < commits; i++) {
+                final Stream updated = streams.get(i % STREAMS);
+                streams.set(i % STREAMS, new Stream(updated.getGroupId(), updated.getArtifactId(), "1.0." + i));
+                ProsperoMetadataUtils.writeManifest(metadataDir.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME),
+                        new ChannelManifest("synthetic", null, null, streams));
+                ProsperoMetadataUtils.writeVersionRecord(metadataDir.resolve(ProsperoMetadataUtils.CURRENT_VERSION_FILE),
+                        new ManifestVersionRecord("1.0.0",
+                                List.of(new ManifestVersionRecord.MavenManifest(SyntheticChannel.GROUP_ID, "manifest", "1.0." + i, "Update " + i)),
+                                List.of(), List.of()));
+                gitStorage.record();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        IoUtils.recursiveDelete(installationDir);
+    }
+
+    @Benchmark
+    public List<SavedState> getRevisions() throws MetadataException {
+        try (GitStorage gitStorage = new GitStorage(installationDir)) {
+            return gitStorage.getRevisions();
+        }
+    }
+
+    /**
+     * reads the first page of the history, as the history command does by default.
+     */
+    @Benchmark
+    public List<SavedState> getRevisionsPage() throws MetadataException {
+        try (GitStorage gitStorage = new GitStorage(installationDir)) {
+            return gitStorage.getRevisions(0, 20);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.galleon.universe.maven.MavenArtifact;
+import org.jboss.galleon.util.IoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.prospero.galleon.MavenArtifactMapper;
+
+/**
+ * Maps {@code artifacts} Galleon artifacts to channel coordinates and applies the resolved versions back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MavenArtifactMapperBenchmark {
+
+    @Param({"1000", "10000"})
+    public int artifacts;
+
+    private Path workDir;
+    private List<MavenArtifact> galleonArtifacts;
+    private List<org.wildfly.channel.MavenArtifact> channelArtifacts;
+    private MavenArtifactMapper mapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("prospero-bench-mapper");
+        final SyntheticChannel channel = SyntheticChannel.create(workDir, artifacts);
+        galleonArtifacts = channel.newGalleonArtifacts();
+        channelArtifacts = channel.newChannelArtifacts();
+        mapper = new MavenArtifactMapper(galleonArtifacts);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        IoUtils.recursiveDelete(workDir);
+    }
+
+    @Benchmark
+    public List<org.wildfly.channel.ArtifactCoordinate> construct() {
+        return new MavenArtifactMapper(galleonArtifacts).toChannelArtifacts();
+    }
+
+    @Benchmark
+    public Collection<MavenArtifact> applyResolution() {
+        return mapper.applyResolution(channelArtifacts);
+    }
+}
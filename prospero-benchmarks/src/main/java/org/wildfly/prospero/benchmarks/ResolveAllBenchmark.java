@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.galleon.universe.maven.MavenArtifact;
+import org.jboss.galleon.universe.maven.MavenUniverseException;
+import org.jboss.galleon.util.IoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.ChannelSession;
+import org.wildfly.prospero.galleon.ChannelMavenArtifactRepositoryManager;
+
+/**
+ * Resolves all the artifacts of a synthetic channel in bulk, as Galleon does when provisioning a feature pack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ResolveAllBenchmark {
+
+    @Param({"1000", "5000"})
+    public int artifacts;
+
+    private Path workDir;
+    private SyntheticChannel channel;
+    private ChannelSession session;
+    private ChannelMavenArtifactRepositoryManager repositoryManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("prospero-bench-resolve");
+        channel = SyntheticChannel.create(workDir, artifacts);
+        session = channel.newSession();
+        repositoryManager = new ChannelMavenArtifactRepositoryManager(session);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.close();
+        IoUtils.recursiveDelete(workDir);
+    }
+
+    @Benchmark
+    public List<MavenArtifact> resolveAll() throws MavenUniverseException {
+        // resolution sets the versions of the artifacts, so it needs new ones every time
+        final List<MavenArtifact> requested = channel.newGalleonArtifacts();
+        repositoryManager.resolveAll(requested);
+        return requested;
+    }
+}
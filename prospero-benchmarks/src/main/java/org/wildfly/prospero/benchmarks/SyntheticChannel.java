@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.wildfly.channel.ArtifactCoordinate;
+import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestCoordinate;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.ChannelMetadataCoordinate;
+import org.wildfly.channel.ChannelSession;
+import org.wildfly.channel.MavenArtifact;
+import org.wildfly.channel.Repository;
+import org.wildfly.channel.Stream;
+import org.wildfly.channel.spi.MavenVersionsResolver;
+
+/**
+ * A channel with a generated manifest, stored in a local directory.
+ *
+ * Every stream in the manifest is available in versions {@link #BASE_VERSION} and {@link #UPDATE_VERSION} and the
+ * manifest points at the update version. All the artifacts resolve to the same placeholder file, so that the benchmarks
+ * measure prospero's own processing rather than the Maven resolution.
+ */
+public class SyntheticChannel {
+
+    public static final String GROUP_ID = "org.wildfly.prospero.synthetic";
+    public static final String BASE_VERSION = "1.0.0";
+    public static final String UPDATE_VERSION = "1.0.1";
+
+    private final List<Stream> streams;
+    private final Channel channel;
+    private final File artifactFile;
+
+    private SyntheticChannel(List<Stream> streams, Channel channel, File artifactFile) {
+        this.streams = streams;
+        this.channel = channel;
+        this.artifactFile = artifactFile;
+    }
+
+    /**
+     * generates a channel with {@code size} streams in {@code directory}.
+     */
+    public static SyntheticChannel create(Path directory, int size) throws IOException {
+        final List<Stream> streams = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            streams.add(new Stream(GROUP_ID, artifactId(i), UPDATE_VERSION));
+        }
+
+        final Path manifest = directory.resolve("manifest.yaml");
+        Files.writeString(manifest, ChannelManifestMapper.toYaml(new ChannelManifest("synthetic", null, null, streams)));
+
+        final Path artifactFile = directory.resolve("artifact.jar");
+        Files.write(artifactFile, randomContent(new Random(size), 16 * 1024));
+
+        final Channel channel = new Channel("synthetic", null, null,
+                List.of(new Repository("synthetic", directory.toUri().toString())),
+                new ChannelManifestCoordinate(manifest.toUri().toURL()),
+                null, null);
+        return new SyntheticChannel(Collections.unmodifiableList(streams), channel, artifactFile.toFile());
+    }
+
+    public static String artifactId(int index) {
+        return String.format("artifact-%05d", index);
+    }
+
+    public static byte[] randomContent(Random random, int size) {
+        final byte[] content = new byte[size];
+        random.nextBytes(content);
+        return content;
+    }
+
+    public List<Stream> getStreams() {
+        return streams;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public File getArtifactFile() {
+        return artifactFile;
+    }
+
+    /**
+     * @return Galleon artifacts for all the streams, without versions, as requested by a feature pack
+     */
+    public List<org.jboss.galleon.universe.maven.MavenArtifact> newGalleonArtifacts() {
+        final List<org.jboss.galleon.universe.maven.MavenArtifact> artifacts = new ArrayList<>(streams.size());
+        for (Stream stream : streams) {
+            artifacts.add(new org.jboss.galleon.universe.maven.MavenArtifact()
+                    .setGroupId(stream.getGroupId())
+                    .setArtifactId(stream.getArtifactId())
+                    .setExtension("jar")
+                    .setClassifier(""));
+        }
+        return artifacts;
+    }
+
+    /**
+     * @return channel artifacts for all the streams, as resolved by a channel session
+     */
+    public List<MavenArtifact> newChannelArtifacts() {
+        return streams.stream()
+                .map(s -> new MavenArtifact(s.getGroupId(), s.getArtifactId(), "jar", "", s.getVersion(), artifactFile))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return a new session resolving artifacts from this channel
+     */
+    public ChannelSession newSession() {
+        return new ChannelSession(List.of(channel), new ResolverFactory());
+    }
+
+    private class ResolverFactory implements MavenVersionsResolver.Factory {
+        @Override
+        public MavenVersionsResolver create(Collection<Repository> repositories) {
+            return new Resolver();
+        }
+    }
+
+    private class Resolver implements MavenVersionsResolver {
+        @Override
+        public Set<String> getAllVersions(String groupId, String artifactId, String extension, String classifier) {
+            return Set.of(BASE_VERSION, UPDATE_VERSION);
+        }
+
+        @Override
+        public File resolveArtifact(String groupId, String artifactId, String extension, String classifier, String version) {
+            return artifactFile;
+        }
+
+        @Override
+        public List<File> resolveArtifacts(List<ArtifactCoordinate> coordinates) {
+            return Collections.nCopies(coordinates.size(), artifactFile);
+        }
+
+        @Override
+        public List<URL> resolveChannelMetadata(List<? extends ChannelMetadataCoordinate> coordinates) {
+            return coordinates.stream()
+                    .map(ChannelMetadataCoordinate::getUrl)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public String getMetadataReleaseVersion(String groupId, String artifactId) {
+            return UPDATE_VERSION;
+        }
+
+        @Override
+        public String getMetadataLatestVersion(String groupId, String artifactId) {
+            return UPDATE_VERSION;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.installation.git;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.prospero.api.SavedState;
+import org.wildfly.prospero.metadata.ManifestVersionRecord;
+
+/**
+ * Parses a history record listing {@code manifests} manifest versions. The benchmark lives in the
+ * {@code installation.git} package, because the {@link SavedStateParser} is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SavedStateParserBenchmark {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef01234567";
+
+    @Param({"1", "10"})
+    public int manifests;
+
+    private SavedStateParser parser;
+    private String record;
+    private Instant timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        parser = new SavedStateParser();
+        final List<ManifestVersionRecord.MavenManifest> versions = new ArrayList<>(manifests);
+        for (int i = 0; i < manifests; i++) {
+            versions.add(new ManifestVersionRecord.MavenManifest("org.wildfly.prospero.synthetic", "manifest-" + i,
+                    "1.0." + i, "Update " + i));
+        }
+        record = parser.write(SavedState.Type.UPDATE, new ManifestVersionRecord("1.0.0", versions,
+                Collections.emptyList(), Collections.emptyList()));
+        timestamp = Instant.now();
+    }
+
+    @Benchmark
+    public SavedState read() throws IOException {
+        return parser.read(HASH, timestamp, record);
+    }
+}
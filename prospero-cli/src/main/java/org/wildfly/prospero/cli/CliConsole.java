@@ -19,10 +19,11 @@ package org.wildfly.prospero.cli;
 
 import java.io.InputStream;
 import java.io.PrintStream;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.wildfly.prospero.api.Console;
@@ -94,7 +95,7 @@ public class CliConsole implements Console {
         }
     }
 
-    private static HashMap<String, ProgressLogger> loggers = new HashMap<>();
+    private static Map<String, ProgressLogger> loggers = new ConcurrentHashMap<>();
 
     public CliConsole() {
         loggers.put(TRACK_LAYOUT_BUILD, new ProgressLogger(CliMessages.MESSAGES.resolvingFeaturePack(), CliMessages.MESSAGES.featurePacksResolved()));
@@ -106,14 +107,22 @@ public class CliConsole implements Console {
         loggers.put(TRACK_RESOLVING_VERSIONS, new ProgressLogger(CliMessages.MESSAGES.resolvingVersions(), CliMessages.MESSAGES.versionsResolved()));
     }
 
-    private Cli cli = new Cli(getStdOut());
+    // created lazily, so that the subclasses can override the output stream
+    private Cli cli;
+
+    private synchronized Cli cli() {
+        if (cli == null) {
+            cli = new Cli(getStdOut());
+        }
+        return cli;
+    }
 
     @Override
     public void progressUpdate(ProvisioningProgressEvent update) {
         ProgressLogger logger = loggers.get(update.getStage());
 
         if (update.getEventType() == ProvisioningProgressEvent.EventType.STARTING) {
-            cli.print(logger.starting());
+            cli().print(logger.starting());
         }
 
         if (update.getEventType() == ProvisioningProgressEvent.EventType.UPDATE) {
@@ -145,10 +154,10 @@ public class CliConsole implements Console {
                 text = logger.progress() + progressMsg + details;
             }
 
-            cli.print(text);
+            cli().print(text);
         }
         if (update.getEventType() == ProvisioningProgressEvent.EventType.COMPLETED) {
-            cli.println(logger.completed());
+            cli().println(logger.completed());
         }
     }
 
@@ -28,6 +28,7 @@ import org.wildfly.prospero.cli.commands.ChannelCommand;
 import org.wildfly.prospero.cli.commands.CliConstants;
 import org.wildfly.prospero.cli.commands.CloneCommand;
 import org.wildfly.prospero.cli.commands.CompletionCommand;
+import org.wildfly.prospero.cli.commands.DaemonCommand;
 import org.wildfly.prospero.cli.commands.FeaturesCommand;
 import org.wildfly.prospero.cli.commands.HistoryCommand;
 import org.wildfly.prospero.cli.commands.InstallCommand;
@@ -39,9 +40,11 @@ import org.wildfly.prospero.cli.commands.channel.ChannelAddCommand;
 import org.wildfly.prospero.cli.commands.channel.ChannelInitializeCommand;
 import org.wildfly.prospero.cli.commands.channel.ChannelPromoteCommand;
 import org.wildfly.prospero.cli.commands.channel.ChannelRemoveCommand;
+import org.wildfly.prospero.cli.daemon.DaemonClient;
 import picocli.CommandLine;
 
 import java.util.Arrays;
+import java.util.Optional;
 
 public class CliMain {
 
@@ -58,6 +61,11 @@ public class CliMain {
     static final Logger logger = Logger.getLogger(CliMain.class);
 
     public static void main(String[] args) {
+        final Optional<Integer> forwardedExitCode = DaemonClient.forward(args);
+        if (forwardedExitCode.isPresent()) {
+            System.exit(forwardedExitCode.get());
+        }
+
         final boolean isDebug = Arrays.stream(args).anyMatch(CliConstants.DEBUG::equals);
         if (isDebug) {
             enableDebugLogging();
@@ -93,6 +101,10 @@ public class CliMain {
         revertCommand.addSubCommands(commandLine);
         commandLine.addSubcommand(new ChannelCommand(console, actionFactory));
         commandLine.addSubcommand(new CompletionCommand());
+        commandLine.addSubcommand(new DaemonCommand(console, actionFactory));
+
+        commandLine.getSubcommands().get(CliConstants.Commands.HISTORY)
+                .addSubcommand(new HistoryCommand.CompactCommand(console, actionFactory));
 
         CommandLine channelCmd = commandLine.getSubcommands().get(CliConstants.Commands.CHANNEL);
         channelCmd.addSubcommand(new ChannelAddCommand(console, actionFactory));
@@ -115,7 +127,8 @@ public class CliMain {
         final CommandLine.IParameterExceptionHandler rootParameterExceptionHandler = commandLine.getParameterExceptionHandler();
         commandLine.setExecutionExceptionHandler(new ExecutionExceptionHandler(console, isVerbose));
 
-        commandLine.setParameterExceptionHandler(new UnknownCommandParameterExceptionHandler(rootParameterExceptionHandler, System.err, isVerbose));
+        commandLine.setParameterExceptionHandler(new UnknownCommandParameterExceptionHandler(rootParameterExceptionHandler, console.getErrOut(), isVerbose));
+        commandLine.setExecutionStrategy(new TimedExecutionStrategy(console, isVerbose));
 
         return commandLine;
     }
@@ -22,6 +22,7 @@ import org.jboss.galleon.Constants;
 import org.jboss.logging.annotations.Cause;
 import org.wildfly.prospero.DistributionInfo;
 import org.wildfly.prospero.actions.ApplyCandidateAction;
+import org.wildfly.prospero.api.HistoryStatistics;
 import org.wildfly.prospero.api.exceptions.OperationException;
 import org.wildfly.prospero.cli.commands.CliConstants;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
@@ -500,6 +501,94 @@ public interface CliMessages {
         return format(bundle.getString("prospero.updates.build.candidate.complete"), candidateDirectory.toAbsolutePath());
     }
 
+    default String updateCandidateArchived(Path candidateArchive) {
+        return format(bundle.getString("prospero.updates.build.candidate.archived"), candidateArchive.toAbsolutePath());
+    }
+
+    default String historyStatistics(HistoryStatistics statistics) {
+        return format(bundle.getString("prospero.history.statistics"), statistics.getRevisions(),
+                statistics.getPackedObjects(), statistics.getPackFiles(), statistics.getLooseObjects(),
+                statistics.getSizeInBytes());
+    }
+
+    default String historyCompacted(int removed) {
+        return format(bundle.getString("prospero.history.compacted"), removed);
+    }
+
+    default ArgumentParsingException invalidHistoryOffset(int offset) {
+        return new ArgumentParsingException(format(bundle.getString("prospero.history.invalid_offset"), offset, CliConstants.OFFSET));
+    }
+
+    default ArgumentParsingException invalidHistoryLimit(int limit) {
+        return new ArgumentParsingException(format(bundle.getString("prospero.history.invalid_limit"), limit, CliConstants.LIMIT));
+    }
+
+    default ArgumentParsingException invalidHistoryKeep(int keep) {
+        return new ArgumentParsingException(format(bundle.getString("prospero.history.compact.invalid_keep"), keep, CliConstants.KEEP));
+    }
+
+    default String daemonStarted(Path socket, int idleTimeout) {
+        return format(bundle.getString("prospero.daemon.started"), socket, idleTimeout);
+    }
+
+    default String daemonStopped() {
+        return bundle.getString("prospero.daemon.stopped");
+    }
+
+    default ArgumentParsingException daemonAlreadyRunning(Path socket) {
+        return new ArgumentParsingException(format(bundle.getString("prospero.daemon.already_running"), socket));
+    }
+
+    default ArgumentParsingException invalidDaemonIdleTimeout(int idleTimeout) {
+        return new ArgumentParsingException(format(bundle.getString("prospero.daemon.invalid_idle_timeout"), idleTimeout, CliConstants.IDLE_TIMEOUT));
+    }
+
+    default String daemonCommandNotForwarded() {
+        return bundle.getString("prospero.daemon.nested");
+    }
+
+    default String daemonConnectionLost() {
+        return bundle.getString("prospero.daemon.connection_lost");
+    }
+
+    default String unableToRestrictDaemonSocket(Path socket) {
+        return format(bundle.getString("prospero.daemon.unrestricted_socket"), socket);
+    }
+
+    default String unableToWriteTimings(Path file, String reason) {
+        return format(bundle.getString("prospero.timings.write_error"), file, reason);
+    }
+
+    default String transfersHeader() {
+        return bundle.getString("prospero.transfers.header");
+    }
+
+    default String transfersTotal() {
+        return bundle.getString("prospero.transfers.total");
+    }
+
+    default String transfersRepository(String repository, long transfers, String size, String rate, long retries,
+                                       long checksumFailures, long notFound, long cacheHits) {
+        return format(bundle.getString("prospero.transfers.repository"), repository, transfers, size, rate, retries,
+                checksumFailures, notFound, cacheHits);
+    }
+
+    default String transfersSlowestHeader() {
+        return bundle.getString("prospero.transfers.slowest.header");
+    }
+
+    default String transfersSlowest(String resource, String repository, long durationMs, String size) {
+        return format(bundle.getString("prospero.transfers.slowest"), resource, repository, durationMs, size);
+    }
+
+    default String transfersResolvedElsewhereHeader() {
+        return bundle.getString("prospero.transfers.resolved_elsewhere.header");
+    }
+
+    default String transfersResolvedElsewhere(String resource, String missingIn, String resolvedFrom) {
+        return format(bundle.getString("prospero.transfers.resolved_elsewhere"), resource, missingIn, resolvedFrom);
+    }
+
     default String checkUpdatesHeader(Path installationDir) {
         return format(bundle.getString("prospero.updates.list.header"), installationDir.toAbsolutePath());
     }
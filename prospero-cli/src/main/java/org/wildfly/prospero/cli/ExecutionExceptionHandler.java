@@ -25,6 +25,7 @@ import org.wildfly.channel.ChannelMetadataCoordinate;
 import org.wildfly.channel.Repository;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.ArtifactUtils;
+import org.wildfly.prospero.api.RepositoryUtils;
 import org.wildfly.prospero.api.exceptions.ApplyCandidateException;
 import org.wildfly.prospero.api.exceptions.ArtifactResolutionException;
 import org.wildfly.prospero.api.exceptions.ChannelDefinitionException;
@@ -39,8 +40,6 @@ import picocli.CommandLine;
 
 import javax.net.ssl.SSLHandshakeException;
 import javax.xml.stream.XMLStreamException;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.List;
 import java.util.Set;
@@ -210,12 +209,8 @@ public class ExecutionExceptionHandler implements CommandLine.IExecutionExceptio
         if (!offline) {
             return false;
         } else {
-            try {
-                return !OFFLINE_REPOSITORIES.contains(new URL(repository.getUrl()).getProtocol());
-            } catch (MalformedURLException e) {
-                // ignore
-                return true;
-            }
+            // use the protocol as parsed by the resolver, e.g. jar:file for repository archives
+            return !OFFLINE_REPOSITORIES.contains(RepositoryUtils.toRemoteRepository(repository).getProtocol());
         }
     }
 }
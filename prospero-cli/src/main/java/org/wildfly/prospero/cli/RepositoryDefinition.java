@@ -115,8 +115,9 @@ public class RepositoryDefinition {
     }
 
     private static Path normalizeLocalPath(Path path, boolean checkPathExists) throws ArgumentParsingException {
-        Path normalized = path.toAbsolutePath().normalize();
-        if (checkPathExists && !Files.exists(path)) {
+        // relative paths are relative to the client's working directory when executed by the daemon
+        Path normalized = WorkingDirectory.get().resolve(path).normalize();
+        if (checkPathExists && !Files.exists(normalized)) {
             throw CliMessages.MESSAGES.nonExistingFilePath(normalized);
         }
         return normalized;
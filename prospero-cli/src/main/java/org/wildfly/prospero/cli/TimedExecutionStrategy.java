@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.api.OperationTimer;
+import org.wildfly.prospero.api.TransferMetrics;
+import org.wildfly.prospero.cli.commands.CliConstants;
+import org.wildfly.prospero.cli.printers.TransferMetricsPrinter;
+import picocli.CommandLine;
+
+/**
+ * Executes the command with an {@link OperationTimer} and writes the timings to the file specified by
+ * {@link CliConstants#TIMINGS}.
+ *
+ * If any artifacts were transferred, a summary of the transfers is logged, and printed if the command is verbose.
+ */
+class TimedExecutionStrategy implements CommandLine.IExecutionStrategy {
+
+    private static final Logger logger = Logger.getLogger(TimedExecutionStrategy.class);
+
+    private final CliConsole console;
+    private final boolean verbose;
+    private final CommandLine.IExecutionStrategy delegate = new CommandLine.RunLast();
+
+    TimedExecutionStrategy(CliConsole console, boolean verbose) {
+        this.console = console;
+        this.verbose = verbose;
+    }
+
+    @Override
+    public int execute(CommandLine.ParseResult parseResult) throws CommandLine.ExecutionException, CommandLine.ParameterException {
+        CommandLine.ParseResult command = parseResult;
+        while (command.hasSubcommand()) {
+            command = command.subcommand();
+        }
+        final Optional<Path> timingsFile = command.matchedOptionValue(CliConstants.TIMINGS, Optional.empty());
+
+        final OperationTimer timer = OperationTimer.start(command.commandSpec().qualifiedName(" "));
+        try {
+            return delegate.execute(parseResult);
+        } finally {
+            timer.close();
+            if (!timer.getTransferMetrics().isEmpty()) {
+                printTransfers(timer.getTransferMetrics());
+            }
+            if (timingsFile.isPresent()) {
+                try {
+                    timer.write(timingsFile.get());
+                } catch (IOException e) {
+                    console.getErrOut().println(CliMessages.MESSAGES.unableToWriteTimings(timingsFile.get(), e.getMessage()));
+                }
+            }
+        }
+    }
+
+    private void printTransfers(TransferMetrics metrics) {
+        for (String line : new TransferMetricsPrinter().format(metrics)) {
+            logger.info(line);
+            if (verbose) {
+                console.println(line);
+            }
+        }
+    }
+}
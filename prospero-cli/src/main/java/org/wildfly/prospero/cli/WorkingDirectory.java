@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Directory the commands executed by the current thread are relative to.
+ *
+ * By default, it is the working directory of the JVM. Commands executed by the daemon on behalf of a client are
+ * relative to the working directory of the client instead.
+ */
+public final class WorkingDirectory {
+
+    private static final ThreadLocal<Path> CURRENT = new ThreadLocal<>();
+
+    private WorkingDirectory() {
+    }
+
+    /**
+     * @return absolute path of the working directory
+     */
+    public static Path get() {
+        final Path current = CURRENT.get();
+        return current == null ? Paths.get(".").toAbsolutePath() : current;
+    }
+
+    /**
+     * resolves {@code path} against the working directory. Absolute paths are returned unchanged.
+     *
+     * @param path - relative or absolute path
+     * @return resolved path
+     */
+    public static Path resolve(String path) {
+        final Path current = CURRENT.get();
+        return current == null ? Paths.get(path) : current.resolve(path);
+    }
+
+    /**
+     * overrides the working directory for the current thread, until {@link #clear()} is called.
+     *
+     * @param directory - absolute path of the working directory
+     */
+    public static void set(Path directory) {
+        CURRENT.set(directory.toAbsolutePath());
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
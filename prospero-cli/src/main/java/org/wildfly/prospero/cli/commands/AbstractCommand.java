@@ -19,7 +19,6 @@ package org.wildfly.prospero.cli.commands;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 
@@ -29,6 +28,7 @@ import org.wildfly.prospero.cli.ActionFactory;
 import org.wildfly.prospero.cli.ArgumentParsingException;
 import org.wildfly.prospero.cli.CliConsole;
 import org.wildfly.prospero.cli.CliMessages;
+import org.wildfly.prospero.cli.WorkingDirectory;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import picocli.CommandLine;
 
@@ -60,6 +60,15 @@ public abstract class AbstractCommand implements Callable<Integer> {
     )
     boolean debug;
 
+    // the report is written by the TimedExecutionStrategy
+    @SuppressWarnings("unused")
+    @CommandLine.Option(
+            names = {CliConstants.TIMINGS},
+            paramLabel = CliConstants.PATH,
+            order = 103
+    )
+    Optional<Path> timings;
+
     public AbstractCommand(CliConsole console, ActionFactory actionFactory) {
         this.console = console;
         this.actionFactory = actionFactory;
@@ -100,7 +109,7 @@ public abstract class AbstractCommand implements Callable<Integer> {
     }
 
     static Path currentDir() {
-        return Paths.get(".").toAbsolutePath();
+        return WorkingDirectory.get();
     }
 
     protected static void verifyTargetDirectoryIsEmpty(Path path) {
@@ -21,7 +21,6 @@ import org.wildfly.channel.Repository;
 import org.wildfly.prospero.api.MavenOptions;
 import org.wildfly.prospero.api.ProvisioningDefinition;
 import org.wildfly.prospero.api.RepositoryUtils;
-import org.wildfly.prospero.api.TemporaryFilesManager;
 import org.wildfly.prospero.api.exceptions.InvalidRepositoryArchiveException;
 import org.wildfly.prospero.cli.ActionFactory;
 import org.wildfly.prospero.cli.ArgumentParsingException;
@@ -89,10 +88,10 @@ public abstract class AbstractInstallCommand extends AbstractCommand {
         return mavenOptions.build();
     }
 
-    protected ProvisioningDefinition.Builder buildDefinition(TemporaryFilesManager temporaryFiles)
+    protected ProvisioningDefinition.Builder buildDefinition()
             throws ArgumentParsingException, InvalidRepositoryArchiveException {
-        final List<Repository> repositories = RepositoryUtils.unzipArchives(
-                RepositoryDefinition.from(remoteRepositories), temporaryFiles);
+        final List<Repository> repositories = RepositoryUtils.mapArchives(
+                RepositoryDefinition.from(remoteRepositories));
         return ProvisioningDefinition.builder()
                 .setFpl(featurePackOrDefinition.fpl.orElse(null))
                 .setProfile(featurePackOrDefinition.profile.orElse(null))
@@ -38,9 +38,11 @@ public final class CliConstants {
         public static final String APPLY = "apply";
         public static final String CHANNEL = "channel";
         public static final String CLONE = "clone";
+        public static final String COMPACT = "compact";
         public static final String CUSTOMIZATION_INIT_CHANNEL = "init";
         public static final String CUSTOMIZATION_INITIALIZE_CHANNEL = "initialize";
         public static final String CUSTOMIZATION_PROMOTE = "promote";
+        public static final String DAEMON = "daemon";
         public static final String EXPORT = "export";
         public static final String FEATURE_PACKS = "feature-pack";
         public static final String FEATURE_PACKS_ALIAS = "fp";
@@ -62,7 +64,9 @@ public final class CliConstants {
     public static final String ACCEPT_AGREEMENTS = "--accept-license-agreements";
     public static final String ALL = "--all";
     public static final String ARG_PATH = "--path";
+    public static final String CANDIDATE_ARCHIVE = "--candidate-archive";
     public static final String CANDIDATE_DIR = "--candidate-dir";
+    public static final String CHANGES = "--changes";
     public static final String CHANNEL = "--channel";
     public static final String CHANNEL_NAME = "--channel-name";
     public static final String CHANNELS = "--channels";
@@ -80,28 +84,39 @@ public final class CliConstants {
     public static final String FULL = "--full";
     public static final String H = "-h";
     public static final String HELP = "--help";
+    public static final String IDLE_TIMEOUT = "--idle-timeout";
+    public static final String KEEP = "--keep";
     public static final String LAYERS = "--layers";
+    public static final String LIMIT = "--limit";
+    public static final String LINK_ARTIFACTS = "--link-artifacts";
     public static final String LIST_PROFILES = "--list-profiles";
     public static final String LOCAL_CACHE = "--local-cache";
     public static final String OFFLINE = "--offline";
+    public static final String OFFSET = "--offset";
     public static final String PACKAGE_STABILITY_LEVEL = "--package-stability-level";
     public static final String PATH = "<path>";
     public static final String PRODUCT = "--product";
     public static final String PROFILE = "--profile";
     public static final String PROFILE_REFERENCE = "<installation-profile>";
     public static final String REMOVE = "--rm";
+    public static final String REPLICAS = "--replicas";
     public static final String REPO_URL = "<repo-url>";
     public static final String REPOSITORIES = "--repositories";
     public static final String REVISION = "--revision";
     public static final String SELF = "--self";
+    public static final String SINCE = "--since";
+    public static final String SOCKET = "--socket";
     public static final String SHADE_REPOSITORIES = "--shade-repositories";
+    public static final String SPARSE = "--sparse";
     public static final String STABILITY_LEVEL = "--stability-level";
     public static final String USE_LOCAL_MAVEN_CACHE = "--use-default-local-cache";
     public static final String TARGET_CONFIG = "--target-config";
+    public static final String TIMINGS = "--timings";
     public static final String V = "-v";
     public static final String VERBOSE = "--verbose";
     public static final String VERSION = "--version";
     public static final String VV = "-vv";
+    public static final String WITH_ARTIFACTS = "--with-artifacts";
     public static final String Y = "-y";
     public static final String YES = "--yes";
     public static final String NO_CONFLICTS_ONLY = "--no-conflicts-only";
@@ -29,7 +29,6 @@ import org.wildfly.prospero.cli.CliConsole;
 import org.wildfly.prospero.cli.CliMessages;
 import org.wildfly.prospero.cli.RepositoryDefinition;
 import org.wildfly.prospero.cli.ReturnCodes;
-import org.wildfly.prospero.api.TemporaryFilesManager;
 import org.wildfly.prospero.cli.commands.options.LocalRepoOptions;
 import org.wildfly.prospero.cli.printers.ChannelPrinter;
 import picocli.CommandLine;
@@ -39,6 +38,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.jboss.galleon.api.config.GalleonFeaturePackConfig;
 
 @CommandLine.Command(name = CliConstants.Commands.CLONE)
@@ -72,6 +72,9 @@ public class CloneCommand extends AbstractCommand {
         @CommandLine.Option(names = CliConstants.ARG_PATH, required = true, paramLabel = CliConstants.PATH, order = 2)
         Path outPath;
 
+        @CommandLine.Option(names = CliConstants.WITH_ARTIFACTS, order = 3)
+        boolean withArtifacts;
+
         CloneExportCommand(CliConsole console, ActionFactory actionFactory) {
             super(console, actionFactory);
         }
@@ -86,7 +89,7 @@ public class CloneCommand extends AbstractCommand {
             console.println(CliMessages.MESSAGES.exportInstallationDetailsHeader(installationDir, outPath));
             actionFactory
               .exportAction(installationDir)
-              .export(outPath);
+              .export(outPath, withArtifacts);
 
             console.println(CliMessages.MESSAGES.exportInstallationDetailsDone());
             return ReturnCodes.SUCCESS;
@@ -113,6 +116,12 @@ public class CloneCommand extends AbstractCommand {
         @CommandLine.Option(names = CliConstants.OFFLINE, order = 5)
         Optional<Boolean> offline = Optional.empty();
 
+        @CommandLine.Option(names = CliConstants.REPLICAS, paramLabel = CliConstants.PATH, split = ",", order = 6)
+        List<Path> replicas = new ArrayList<>();
+
+        @CommandLine.Option(names = CliConstants.LINK_ARTIFACTS, order = 7)
+        boolean linkArtifacts;
+
         CloneRecreateCommand(CliConsole console, ActionFactory actionFactory) {
             super(console, actionFactory);
         }
@@ -143,18 +152,17 @@ public class CloneCommand extends AbstractCommand {
             }
             console.println("");
 
-            try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                List<Repository> repositories = RepositoryDefinition.from(remoteRepositories);
-                actionFactory
-                        .restoreAction(installationDirectory, mavenOptions.build(), console)
-                        .restore(inPath, RepositoryUtils.unzipArchives(repositories, temporaryFiles));
-
-                console.println("");
-                console.println(CliMessages.MESSAGES.installationMetaRestored());
-                final float totalTime = (System.currentTimeMillis() - startTime) / 1000f;
-                console.println(CliMessages.MESSAGES.operationCompleted(totalTime));
-                return ReturnCodes.SUCCESS;
-            }
+            List<Repository> repositories = RepositoryDefinition.from(remoteRepositories);
+            actionFactory
+                    .restoreAction(installationDirectory, mavenOptions.build(), console)
+                    .restore(inPath, RepositoryUtils.mapArchives(repositories),
+                            replicas.stream().map(Path::toAbsolutePath).collect(Collectors.toList()), linkArtifacts);
+
+            console.println("");
+            console.println(CliMessages.MESSAGES.installationMetaRestored());
+            final float totalTime = (System.currentTimeMillis() - startTime) / 1000f;
+            console.println(CliMessages.MESSAGES.operationCompleted(totalTime));
+            return ReturnCodes.SUCCESS;
         }
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.commands;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+import org.wildfly.prospero.cli.ActionFactory;
+import org.wildfly.prospero.cli.CliConsole;
+import org.wildfly.prospero.cli.CliMessages;
+import org.wildfly.prospero.cli.ReturnCodes;
+import org.wildfly.prospero.cli.daemon.DaemonClient;
+import org.wildfly.prospero.cli.daemon.DaemonServer;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+        name = CliConstants.Commands.DAEMON,
+        sortOptions = false
+)
+public class DaemonCommand extends AbstractCommand {
+
+    static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+    @CommandLine.Option(names = CliConstants.SOCKET)
+    Optional<Path> socket;
+
+    @CommandLine.Option(names = CliConstants.IDLE_TIMEOUT)
+    Optional<Integer> idleTimeout;
+
+    public DaemonCommand(CliConsole console, ActionFactory actionFactory) {
+        super(console, actionFactory);
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        final int minutes = idleTimeout.orElse(DEFAULT_IDLE_TIMEOUT);
+        if (minutes < 1) {
+            throw CliMessages.MESSAGES.invalidDaemonIdleTimeout(minutes);
+        }
+        final Path socketPath = socket.orElse(DaemonClient.defaultSocket()).toAbsolutePath();
+
+        console.println(CliMessages.MESSAGES.daemonStarted(socketPath, minutes));
+        new DaemonServer(socketPath, Duration.ofMinutes(minutes)).run();
+        console.println(CliMessages.MESSAGES.daemonStopped());
+
+        return ReturnCodes.SUCCESS;
+    }
+}
@@ -88,8 +88,8 @@ public class FeaturesCommand extends AbstractParentCommand {
             final MavenOptions mavenOptions = parseMavenOptions();
 
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                final List<Repository> repositories = RepositoryUtils.unzipArchives(
-                        RepositoryDefinition.from(temporaryRepositories), temporaryFiles);
+                final List<Repository> repositories = RepositoryUtils.mapArchives(
+                        RepositoryDefinition.from(temporaryRepositories));
 
                 console.println(CliMessages.MESSAGES.featuresAddHeader(fpl, installationDir));
 
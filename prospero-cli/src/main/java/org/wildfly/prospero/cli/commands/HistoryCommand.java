@@ -19,6 +19,7 @@ package org.wildfly.prospero.cli.commands;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.wildfly.prospero.actions.InstallationHistoryAction;
@@ -43,50 +44,127 @@ public class HistoryCommand extends AbstractCommand {
     @CommandLine.Option(names = CliConstants.REVISION)
     Optional<String> revision;
 
+    @CommandLine.Option(names = CliConstants.LIMIT)
+    Optional<Integer> limit;
+
+    @CommandLine.Option(names = CliConstants.OFFSET)
+    Optional<Integer> offset;
+
+    @CommandLine.ArgGroup(exclusive = false)
+    ChangesGroup changes;
+
+    static class ChangesGroup {
+        @CommandLine.Option(names = CliConstants.CHANGES, required = true)
+        boolean changes;
+
+        @CommandLine.Option(names = CliConstants.SINCE)
+        Optional<String> since = Optional.empty();
+    }
+
     public HistoryCommand(CliConsole console, ActionFactory actionFactory) {
         super(console, actionFactory);
     }
 
     @Override
     public Integer call() throws Exception {
+        if (changes != null && revision.isPresent()) {
+            throw CliMessages.MESSAGES.exclusiveOptions(CliConstants.CHANGES, CliConstants.REVISION);
+        }
+
         Path installationDirectory = determineInstallationDirectory(directory);
         InstallationHistoryAction historyAction = actionFactory.history(installationDirectory, console);
 
-        if (revision.isEmpty()) {
-            List<SavedState> revisions = historyAction.getRevisions();
+        if (changes != null) {
+            final Map<SavedState, InstallationChanges> revisionChanges = historyAction.getRevisionChangesSince(
+                    changes.since.map(SavedState::new).orElse(null));
+            boolean needsLineBreak = false;
+            for (Map.Entry<SavedState, InstallationChanges> entry : revisionChanges.entrySet()) {
+                if (needsLineBreak) {
+                    console.println("");
+                }
+                console.println(entry.getKey().shortDescription());
+                printChanges(entry.getValue());
+                needsLineBreak = true;
+            }
+        } else if (revision.isEmpty()) {
+            final List<SavedState> revisions;
+            if (offset.isPresent() && offset.get() < 0) {
+                throw CliMessages.MESSAGES.invalidHistoryOffset(offset.get());
+            }
+            if (limit.isPresent() && limit.get() < 1) {
+                throw CliMessages.MESSAGES.invalidHistoryLimit(limit.get());
+            }
+            if (limit.isPresent() || offset.isPresent()) {
+                revisions = historyAction.getRevisions(offset.orElse(0), limit.orElse(Integer.MAX_VALUE));
+            } else {
+                revisions = historyAction.getRevisions();
+            }
             for (SavedState savedState : revisions) {
                 console.println(savedState.shortDescription());
             }
         } else {
-            InstallationChanges changes = historyAction.getRevisionChanges(new SavedState(revision.get()));
-            if (changes.isEmpty()) {
-                console.println(CliMessages.MESSAGES.noChangesFound());
-            } else {
-                final DiffPrinter diffPrinter = new DiffPrinter(console, "  ");
-                boolean needsLineBreak = false;
-                if (!changes.getArtifactChanges().isEmpty()) {
-                    console.println(CliMessages.MESSAGES.diffUpdates()+ ":");
-                    changes.getArtifactChanges().forEach(diffPrinter::print);
-                    needsLineBreak = true;
-                }
-                if (!changes.getChannelChanges().isEmpty()) {
-                    if (needsLineBreak) {
-                        console.println("");
-                    }
-                    console.println(CliMessages.MESSAGES.diffConfigChanges()+ ":");
-                    changes.getChannelChanges().forEach(diffPrinter::print);
-                    needsLineBreak = true;
+            printChanges(historyAction.getRevisionChanges(new SavedState(revision.get())));
+        }
+
+        return ReturnCodes.SUCCESS;
+    }
+
+    @CommandLine.Command(name = CliConstants.Commands.COMPACT, sortOptions = false)
+    public static class CompactCommand extends AbstractCommand {
+
+        @CommandLine.Option(names = CliConstants.DIR)
+        Optional<Path> directory;
+
+        @CommandLine.Option(names = CliConstants.KEEP)
+        Optional<Integer> keep;
+
+        public CompactCommand(CliConsole console, ActionFactory actionFactory) {
+            super(console, actionFactory);
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            if (keep.isPresent() && keep.get() < 1) {
+                throw CliMessages.MESSAGES.invalidHistoryKeep(keep.get());
+            }
+            final Path installationDirectory = determineInstallationDirectory(directory);
+            final InstallationHistoryAction historyAction = actionFactory.history(installationDirectory, console);
+
+            console.println(CliMessages.MESSAGES.historyStatistics(historyAction.getHistoryStatistics()));
+            final int removed = historyAction.compactHistory(keep.orElse(Integer.MAX_VALUE));
+            console.println(CliMessages.MESSAGES.historyCompacted(removed));
+            console.println(CliMessages.MESSAGES.historyStatistics(historyAction.getHistoryStatistics()));
+
+            return ReturnCodes.SUCCESS;
+        }
+    }
+
+    private void printChanges(InstallationChanges changes) {
+        if (changes.isEmpty()) {
+            console.println(CliMessages.MESSAGES.noChangesFound());
+        } else {
+            final DiffPrinter diffPrinter = new DiffPrinter(console, "  ");
+            boolean needsLineBreak = false;
+            if (!changes.getArtifactChanges().isEmpty()) {
+                console.println(CliMessages.MESSAGES.diffUpdates()+ ":");
+                changes.getArtifactChanges().forEach(diffPrinter::print);
+                needsLineBreak = true;
+            }
+            if (!changes.getChannelChanges().isEmpty()) {
+                if (needsLineBreak) {
+                    console.println("");
                 }
-                if (!changes.getFeatureChanges().isEmpty()) {
-                    if (needsLineBreak) {
-                        console.println("");
-                    }
-                    console.println(CliMessages.MESSAGES.diffFeaturesChanges() + ":");
-                    changes.getFeatureChanges().forEach(diffPrinter::print);
+                console.println(CliMessages.MESSAGES.diffConfigChanges()+ ":");
+                changes.getChannelChanges().forEach(diffPrinter::print);
+                needsLineBreak = true;
+            }
+            if (!changes.getFeatureChanges().isEmpty()) {
+                if (needsLineBreak) {
+                    console.println("");
                 }
+                console.println(CliMessages.MESSAGES.diffFeaturesChanges() + ":");
+                changes.getFeatureChanges().forEach(diffPrinter::print);
             }
         }
-
-        return ReturnCodes.SUCCESS;
     }
 }
@@ -200,7 +200,7 @@ public class InstallCommand extends AbstractInstallCommand {
 
         verifyTargetDirectoryIsEmpty(directory);
         try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-            final ProvisioningDefinition provisioningDefinition = buildDefinition(temporaryFiles)
+            final ProvisioningDefinition provisioningDefinition = buildDefinition()
                     .setStabilityLevel(stabilityLevels.stabilityLevel == null ? null : stabilityLevels.stabilityLevel.toLowerCase(Locale.ROOT))
                     .setPackageStabilityLevel(stabilityLevels.packageStabilityLevel == null ? null : stabilityLevels.packageStabilityLevel.toLowerCase(Locale.ROOT))
                     .setConfigStabilityLevel(stabilityLevels.configStabilityLevel == null ? null : stabilityLevels.configStabilityLevel.toLowerCase(Locale.ROOT))
@@ -209,7 +209,7 @@ public class InstallCommand extends AbstractInstallCommand {
             final GalleonProvisioningConfig provisioningConfig = provisioningDefinition.toProvisioningConfig();
             final List<Channel> channels = ChannelUtils.resolveChannels(provisioningDefinition, mavenOptions);
             List<Repository> repositories = RepositoryDefinition.from(this.shadowRepositories);
-            final List<Repository> shadowRepositories = RepositoryUtils.unzipArchives(repositories, temporaryFiles);
+            final List<Repository> shadowRepositories = RepositoryUtils.mapArchives(repositories);
 
             final ProvisioningAction provisioningAction = actionFactory.install(directory.toAbsolutePath(), mavenOptions,
                     console);
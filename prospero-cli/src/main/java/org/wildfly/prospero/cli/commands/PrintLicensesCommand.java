@@ -50,7 +50,7 @@ public class PrintLicensesCommand extends AbstractInstallCommand {
     public Integer call() throws Exception {
 
         try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-            final ProvisioningDefinition provisioningDefinition = buildDefinition(temporaryFiles).build();
+            final ProvisioningDefinition provisioningDefinition = buildDefinition().build();
             final MavenOptions mavenOptions = getMavenOptions();
             final GalleonProvisioningConfig provisioningConfig = provisioningDefinition.toProvisioningConfig();
             final List<Channel> channels = ChannelUtils.resolveChannels(provisioningDefinition, mavenOptions);
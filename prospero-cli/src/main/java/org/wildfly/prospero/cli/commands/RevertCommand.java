@@ -117,7 +117,7 @@ public class RevertCommand extends AbstractParentCommand {
 
             final List<Repository> repositories = RepositoryDefinition.from(temporaryRepositories);
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                final List<Repository> overrideRepositories = RepositoryUtils.unzipArchives(repositories, temporaryFiles);
+                final List<Repository> overrideRepositories = RepositoryUtils.mapArchives(repositories);
 
                 InstallationHistoryAction historyAction = actionFactory.history(installationDirectory, console);
 
@@ -218,7 +218,7 @@ public class RevertCommand extends AbstractParentCommand {
 
             try(TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
                 final List<Repository> repositories = RepositoryDefinition.from(temporaryRepositories);
-                final List<Repository> overrideRepositories = RepositoryUtils.unzipArchives(repositories, temporaryFiles);
+                final List<Repository> overrideRepositories = RepositoryUtils.mapArchives(repositories);
 
                 console.println(CliMessages.MESSAGES.buildRevertCandidateHeader(installationDirectory));
 
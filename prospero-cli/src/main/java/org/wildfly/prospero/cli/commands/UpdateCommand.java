@@ -52,6 +52,7 @@ import org.wildfly.prospero.api.FileConflict;
 import org.wildfly.prospero.api.InstallationMetadata;
 import org.wildfly.prospero.api.InstallationProfilesManager;
 import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.MetadataContext;
 import org.wildfly.prospero.api.RepositoryUtils;
 import org.wildfly.prospero.api.TemporaryRepositoriesHandler;
 import org.wildfly.prospero.api.exceptions.MetadataException;
@@ -69,6 +70,7 @@ import org.wildfly.prospero.galleon.FeaturePackLocationParser;
 import org.wildfly.prospero.galleon.GalleonUtils;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import org.wildfly.prospero.model.InstallationProfile;
+import org.wildfly.prospero.updates.CandidateArchive;
 import org.wildfly.prospero.updates.ChannelsUpdateResult;
 import org.wildfly.prospero.updates.UpdateSet;
 import picocli.CommandLine;
@@ -118,8 +120,8 @@ public class UpdateCommand extends AbstractParentCommand {
 
             final MavenOptions mavenOptions = parseMavenOptions();
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                final List<Repository> repositories = RepositoryUtils.unzipArchives(
-                        RepositoryDefinition.from(temporaryRepositories), temporaryFiles);
+                final List<Repository> repositories = RepositoryUtils.mapArchives(
+                        RepositoryDefinition.from(temporaryRepositories));
 
                 log.tracef("Perform full update");
 
@@ -151,7 +153,7 @@ public class UpdateCommand extends AbstractParentCommand {
             Path targetDir = null;
             try {
                 targetDir = Files.createTempDirectory("update-candidate");
-                if (buildUpdate(updateAction, targetDir, console::confirmUpdates)) {
+                if (buildUpdate(updateAction, targetDir, false, console::confirmUpdates)) {
                     console.println("");
                     console.buildUpdatesComplete();
 
@@ -178,6 +180,7 @@ public class UpdateCommand extends AbstractParentCommand {
                 throw ProsperoLogger.ROOT_LOGGER.unableToCreateTemporaryDirectory(e);
             } finally {
                 if (targetDir != null) {
+                    MetadataContext.release(targetDir);
                     FileUtils.deleteQuietly(targetDir.toFile());
                 }
             }
@@ -193,6 +196,12 @@ public class UpdateCommand extends AbstractParentCommand {
         @CommandLine.Option(names = CliConstants.CANDIDATE_DIR, required = true)
         Path candidateDirectory;
 
+        @CommandLine.Option(names = CliConstants.SPARSE)
+        boolean sparse;
+
+        @CommandLine.Option(names = CliConstants.CANDIDATE_ARCHIVE)
+        Optional<Path> candidateArchive;
+
         public PrepareCommand(CliConsole console, ActionFactory actionFactory) {
             super(console, actionFactory);
         }
@@ -204,8 +213,8 @@ public class UpdateCommand extends AbstractParentCommand {
 
             final MavenOptions mavenOptions = parseMavenOptions();
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                final List<Repository> repositories = RepositoryUtils.unzipArchives(
-                        RepositoryDefinition.from(temporaryRepositories), temporaryFiles);
+                final List<Repository> repositories = RepositoryUtils.mapArchives(
+                        RepositoryDefinition.from(temporaryRepositories));
 
                 log.tracef("Generate update in %s", candidateDirectory);
 
@@ -225,10 +234,14 @@ public class UpdateCommand extends AbstractParentCommand {
 
                 try (UpdateAction updateAction = actionFactory.update(installationDir, overrideChannels,
                         mavenOptions, console)) {
-                    if (buildUpdate(updateAction, candidateDirectory, console::confirmBuildUpdates)) {
+                    if (buildUpdate(updateAction, candidateDirectory, sparse, console::confirmBuildUpdates)) {
                         console.println("");
                         console.buildUpdatesComplete();
                         console.println(CliMessages.MESSAGES.updateCandidateGenerated(candidateDirectory));
+                        if (candidateArchive.isPresent()) {
+                            CandidateArchive.create(candidateDirectory, candidateArchive.get());
+                            console.println(CliMessages.MESSAGES.updateCandidateArchived(candidateArchive.get()));
+                        }
                     }
                 }
             }
@@ -246,8 +259,8 @@ public class UpdateCommand extends AbstractParentCommand {
         @CommandLine.Option(names = CliConstants.DIR)
         Optional<Path> directory;
 
-        @CommandLine.Option(names = CliConstants.CANDIDATE_DIR, required = true)
-        Path candidateDir;
+        @CommandLine.ArgGroup(exclusive = true, multiplicity = "1")
+        CandidateGroup candidate;
 
         @CommandLine.Option(names = CliConstants.REMOVE)
         boolean remove;
@@ -261,6 +274,14 @@ public class UpdateCommand extends AbstractParentCommand {
         @CommandLine.Option(names = {CliConstants.DRY_RUN})
         boolean dryRun;
 
+        static class CandidateGroup {
+            @CommandLine.Option(names = CliConstants.CANDIDATE_DIR)
+            Path candidateDir;
+
+            @CommandLine.Option(names = CliConstants.CANDIDATE_ARCHIVE)
+            Path candidateArchive;
+        }
+
         public ApplyCommand(CliConsole console, ActionFactory actionFactory) {
             super(console, actionFactory);
         }
@@ -271,6 +292,21 @@ public class UpdateCommand extends AbstractParentCommand {
 
             final Path installationDir = determineInstallationDirectory(directory);
 
+            if (candidate.candidateArchive == null) {
+                return apply(installationDir, candidate.candidateDir, startTime);
+            }
+
+            if (!Files.isRegularFile(candidate.candidateArchive)) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(candidate.candidateArchive, "file not found");
+            }
+            try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
+                final Path candidateDir = temporaryFiles.createTempDirectory("update-candidate");
+                CandidateArchive.extract(candidate.candidateArchive, candidateDir);
+                return apply(installationDir, candidateDir, startTime);
+            }
+        }
+
+        private Integer apply(Path installationDir, Path candidateDir, long startTime) throws Exception {
             if(!verifyDirectoryContainsInstallation(candidateDir)){
                 throw CliMessages.MESSAGES.invalidInstallationDir(candidateDir);
             }
@@ -339,8 +375,8 @@ public class UpdateCommand extends AbstractParentCommand {
             final MavenOptions mavenOptions = parseMavenOptions();
 
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                final List<Repository> repositories = RepositoryUtils.unzipArchives(
-                        RepositoryDefinition.from(temporaryRepositories), temporaryFiles);
+                final List<Repository> repositories = RepositoryUtils.mapArchives(
+                        RepositoryDefinition.from(temporaryRepositories));
                 console.println(CliMessages.MESSAGES.checkUpdatesHeader(installationDir));
                 final List<Channel> overrideChannels;
                 try (InstallationMetadata im = InstallationMetadata.loadInstallation(installationDir)) {
@@ -380,8 +416,8 @@ public class UpdateCommand extends AbstractParentCommand {
             final MavenOptions mavenOptions = parseMavenOptions();
 
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                final List<Repository> repositories = RepositoryUtils.unzipArchives(
-                        RepositoryDefinition.from(temporaryRepositories), temporaryFiles);
+                final List<Repository> repositories = RepositoryUtils.mapArchives(
+                        RepositoryDefinition.from(temporaryRepositories));
                 console.println(CliMessages.MESSAGES.checkUpdatesHeader(installationDir));
                 final List<Channel> overrideChannels;
                 try (InstallationMetadata im = InstallationMetadata.loadInstallation(installationDir)) {
@@ -442,8 +478,8 @@ public class UpdateCommand extends AbstractParentCommand {
             log.debugf("Will generate FeaturePackLocation %s.", loc.toString());
 
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                final List<Repository> repositories = RepositoryUtils.unzipArchives(
-                        RepositoryDefinition.from(temporaryRepositories), temporaryFiles);
+                final List<Repository> repositories = RepositoryUtils.mapArchives(
+                        RepositoryDefinition.from(temporaryRepositories));
                 final List<Channel> tempChannels = TemporaryRepositoriesHandler.overrideRepositories(channels, repositories);
 
                 SubscribeNewServerAction subscribeNewServerAction = actionFactory.subscribeNewServerAction(parseMavenOptions(), console);
@@ -541,7 +577,7 @@ public class UpdateCommand extends AbstractParentCommand {
             super(console, actionFactory);
         }
 
-        protected boolean buildUpdate(UpdateAction updateAction, Path updateDirectory,
+        protected boolean buildUpdate(UpdateAction updateAction, Path updateDirectory, boolean sparse,
                                            Supplier<Boolean> confirmation) throws OperationException, ProvisioningException {
             // Log version overrides being applied
             if (!versions.isEmpty()) {
@@ -592,7 +628,7 @@ public class UpdateCommand extends AbstractParentCommand {
                 return false;
             }
 
-            updateAction.buildUpdate(updateDirectory.toAbsolutePath());
+            updateAction.buildUpdate(updateDirectory.toAbsolutePath(), sparse);
 
             return true;
         }
@@ -26,7 +26,6 @@ import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.actions.MetadataAction;
 import org.wildfly.prospero.api.ArtifactUtils;
 import org.wildfly.prospero.api.RepositoryUtils;
-import org.wildfly.prospero.api.TemporaryFilesManager;
 import org.wildfly.prospero.api.exceptions.OperationException;
 import org.wildfly.prospero.cli.ArgumentParsingException;
 import org.wildfly.prospero.cli.CliConsole;
@@ -84,10 +83,8 @@ public class ChannelAddCommand extends AbstractCommand {
             channel = readChannelFromDefinition();
         } else {
             final ChannelManifestCoordinate manifest = ArtifactUtils.manifestCoordFromString(channelOptions.channelGroup.manifestLocation);
-            try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
-                final List<Repository> repositories = RepositoryUtils.unzipArchives(RepositoryDefinition.from(channelOptions.channelGroup.repositoryDefs), temporaryFiles);
-                channel = new Channel(channelName, null, null, repositories, manifest, null, null);
-            }
+            final List<Repository> repositories = RepositoryUtils.mapArchives(RepositoryDefinition.from(channelOptions.channelGroup.repositoryDefs));
+            channel = new Channel(channelName, null, null, repositories, manifest, null, null);
         }
 
         console.println(CliMessages.MESSAGES.subscribeChannel(installationDirectory, channelName));
@@ -21,18 +21,12 @@ package org.wildfly.prospero.cli.commands.options;
 import org.wildfly.prospero.api.InstallationProfilesManager;
 
 import java.util.Iterator;
-import java.util.Set;
 
 public class InstallationProfilesCandidates implements Iterable<String> {
 
-    private final Set<String> names;
-
-    public InstallationProfilesCandidates() {
-        names = InstallationProfilesManager.getNames();
-    }
-
+    // the candidates are created for every command line, the profiles are only read if the candidates are listed
     @Override
     public Iterator<String> iterator() {
-        return names.iterator();
+        return InstallationProfilesManager.getNames().iterator();
     }
 }
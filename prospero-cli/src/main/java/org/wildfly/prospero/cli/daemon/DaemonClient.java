@@ -0,0 +1,178 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.wildfly.prospero.cli.CliMessages;
+import org.wildfly.prospero.cli.ReturnCodes;
+import org.wildfly.prospero.cli.commands.CliConstants;
+
+/**
+ * Forwards commands to a running {@link DaemonServer}.
+ *
+ * The client only relays the arguments, the streams and the exit code, so it doesn't need to load any of the classes
+ * used to execute the command.
+ */
+public final class DaemonClient {
+
+    /**
+     * System property overriding the location of the daemon socket.
+     */
+    public static final String SOCKET_PROPERTY = "org.wildfly.prospero.daemon.socket";
+    /**
+     * Environment variable overriding the location of the daemon socket. The system property takes precedence.
+     */
+    public static final String SOCKET_ENV = "PROSPERO_DAEMON_SOCKET";
+
+    private DaemonClient() {
+    }
+
+    /**
+     * @return location of the daemon socket
+     */
+    public static Path defaultSocket() {
+        String location = System.getProperty(SOCKET_PROPERTY);
+        if (location == null) {
+            location = System.getenv(SOCKET_ENV);
+        }
+        if (location == null) {
+            return Paths.get(System.getProperty("user.home"), ".prospero", "daemon.sock");
+        }
+        return Paths.get(location);
+    }
+
+    /**
+     * forwards the command to the daemon listening on the {@link #defaultSocket()}, using the standard streams of this
+     * process.
+     *
+     * @param args - command arguments
+     * @return exit code of the command, or empty if no daemon is running or the daemon cannot execute the command
+     */
+    public static Optional<Integer> forward(String[] args) {
+        if (args.length > 0 && CliConstants.Commands.DAEMON.equals(args[0])) {
+            return Optional.empty();
+        }
+        final Path socket = defaultSocket();
+        if (!Files.exists(socket)) {
+            return Optional.empty();
+        }
+        return execute(socket, Paths.get(".").toAbsolutePath(), args, System.in, System.out, System.err);
+    }
+
+    /**
+     * executes the command in the daemon.
+     *
+     * The commands with the {@code --debug} option are not forwarded, because the daemon cannot change the log level of
+     * a single command.
+     *
+     * @param socket - socket the daemon listens on
+     * @param workingDirectory - directory relative paths in the command are resolved against
+     * @param args - command arguments
+     * @param in - standard input of the command
+     * @param out - standard output of the command
+     * @param err - error output of the command
+     * @return exit code of the command, or empty if the daemon is not running or rejected the command
+     */
+    public static Optional<Integer> execute(Path socket, Path workingDirectory, String[] args,
+                                            InputStream in, PrintStream out, PrintStream err) {
+        if (Arrays.asList(args).contains(CliConstants.DEBUG)) {
+            return Optional.empty();
+        }
+        final SocketChannel channel;
+        try {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        } catch (IOException | UnsupportedOperationException e) {
+            return Optional.empty();
+        }
+
+        try (channel) {
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socket));
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+
+            final OutputStream requestStream = new BufferedOutputStream(DaemonProtocol.outputStream(channel));
+            new DaemonProtocol.Request(workingDirectory, args, DaemonProtocol.commandProperties())
+                    .write(new DataOutputStream(requestStream));
+
+            final DataInputStream response = new DataInputStream(new BufferedInputStream(DaemonProtocol.inputStream(channel)));
+            if (response.readByte() == DaemonProtocol.REJECTED) {
+                // the daemon runs with different settings, the command has to be executed by this process
+                return Optional.empty();
+            }
+            // the input is relayed only after the command was accepted, so that a rejected command can still read it
+            startInputPump(in, requestStream, channel);
+
+            while (true) {
+                final byte type = response.readByte();
+                if (type == DaemonProtocol.EXIT) {
+                    out.flush();
+                    err.flush();
+                    return Optional.of(response.readInt());
+                }
+                final byte[] data = new byte[response.readInt()];
+                response.readFully(data);
+                final PrintStream target = type == DaemonProtocol.STDERR ? err : out;
+                target.write(data, 0, data.length);
+                target.flush();
+            }
+        } catch (EOFException e) {
+            err.println(CliMessages.MESSAGES.daemonConnectionLost());
+            return Optional.of(ReturnCodes.PROCESSING_ERROR);
+        } catch (IOException e) {
+            err.println(CliMessages.MESSAGES.daemonConnectionLost() + " " + e.getMessage());
+            return Optional.of(ReturnCodes.PROCESSING_ERROR);
+        }
+    }
+
+    private static void startInputPump(InputStream in, OutputStream target, SocketChannel channel) {
+        final Thread pump = new Thread(() -> {
+            final byte[] buffer = new byte[8192];
+            try {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    target.write(buffer, 0, read);
+                    target.flush();
+                }
+                channel.shutdownOutput();
+            } catch (IOException e) {
+                // the command finished without reading the whole input
+            }
+        }, "prospero-daemon-input");
+        pump.setDaemon(true);
+        pump.start();
+    }
+}
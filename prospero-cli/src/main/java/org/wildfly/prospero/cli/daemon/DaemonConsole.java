@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+
+import org.wildfly.prospero.cli.CliConsole;
+
+/**
+ * Console writing to and reading from the client connected to the daemon.
+ */
+class DaemonConsole extends CliConsole {
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final InputStream in;
+
+    DaemonConsole(PrintStream out, PrintStream err, InputStream in) {
+        this.out = out;
+        this.err = err;
+        this.in = in;
+    }
+
+    @Override
+    public PrintStream getStdOut() {
+        return out;
+    }
+
+    @Override
+    public PrintStream getErrOut() {
+        return err;
+    }
+
+    @Override
+    public InputStream getInput() {
+        return in;
+    }
+}
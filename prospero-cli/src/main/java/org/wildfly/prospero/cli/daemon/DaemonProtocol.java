@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Wire format used between the {@link DaemonClient} and the {@link DaemonServer}.
+ *
+ * The client sends the protocol version, its working directory, the command arguments and the system properties
+ * affecting the commands. The server replies whether it accepts the command - the command is rejected if the system
+ * properties of the client are different from those of the daemon. Anything written by the client after the command is
+ * accepted is the standard input of the command. The server replies with frames of the standard and error output, each
+ * prefixed with its type and length, and finishes with an exit code frame.
+ */
+final class DaemonProtocol {
+
+    static final int VERSION = 2;
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+    static final byte EXIT = 3;
+    static final byte ACCEPTED = 4;
+    static final byte REJECTED = 5;
+
+    // system properties used to configure the commands, e.g. the cache locations or the backup mode
+    private static final List<String> COMMAND_PROPERTY_PREFIXES = List.of("org.wildfly.prospero.", "maven.", "http.", "https.");
+    // properties that don't change the result of the commands
+    private static final Set<String> IGNORED_PROPERTIES = Set.of(DaemonClient.SOCKET_PROPERTY, "org.wildfly.prospero.log.file");
+
+    private DaemonProtocol() {
+    }
+
+    static final class Request {
+        private final Path workingDirectory;
+        private final String[] args;
+        private final Map<String, String> properties;
+
+        Request(Path workingDirectory, String[] args, Map<String, String> properties) {
+            this.workingDirectory = workingDirectory;
+            this.args = args;
+            this.properties = properties;
+        }
+
+        Path getWorkingDirectory() {
+            return workingDirectory;
+        }
+
+        String[] getArgs() {
+            return args;
+        }
+
+        Map<String, String> getProperties() {
+            return properties;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(VERSION);
+            out.writeUTF(workingDirectory.toAbsolutePath().toString());
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.writeInt(properties.size());
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                out.writeUTF(property.getKey());
+                out.writeUTF(property.getValue());
+            }
+            out.flush();
+        }
+
+        static Request read(DataInputStream in) throws IOException {
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported protocol version " + version);
+            }
+            final Path workingDirectory = Paths.get(in.readUTF());
+            final String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+            final Map<String, String> properties = new TreeMap<>();
+            final int propertyCount = in.readInt();
+            for (int i = 0; i < propertyCount; i++) {
+                properties.put(in.readUTF(), in.readUTF());
+            }
+            return new Request(workingDirectory, args, properties);
+        }
+    }
+
+    /**
+     * Writes everything as frames of one type. The frames are flushed immediately, so that prompts written without
+     * a line break reach the client.
+     */
+    static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream target;
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream target, byte type) {
+            this.target = target;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (target) {
+                target.writeByte(type);
+                target.writeInt(len);
+                target.write(b, off, len);
+                target.flush();
+            }
+        }
+    }
+
+    /**
+     * @return the system properties of this JVM that can change the behaviour of the commands
+     */
+    static Map<String, String> commandProperties() {
+        final Map<String, String> properties = new TreeMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (!IGNORED_PROPERTIES.contains(name) && COMMAND_PROPERTY_PREFIXES.stream().anyMatch(name::startsWith)) {
+                properties.put(name, System.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    static void writeStatus(DataOutputStream target, byte status) throws IOException {
+        synchronized (target) {
+            target.writeByte(status);
+            target.flush();
+        }
+    }
+
+    static void writeExitCode(DataOutputStream target, int exitCode) throws IOException {
+        synchronized (target) {
+            target.writeByte(EXIT);
+            target.writeInt(exitCode);
+            target.flush();
+        }
+    }
+
+    // Channels.newInputStream/newOutputStream serialize reads and writes on the same channel, a command waiting for
+    // the user input would block its own output. The socket channel itself allows one concurrent reader and writer.
+    static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                final byte[] b = new byte[1];
+                final int read = read(b, 0, 1);
+                return read < 0 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                return channel.read(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    static OutputStream outputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.api.MetadataContext;
+import org.wildfly.prospero.cli.ArgumentParsingException;
+import org.wildfly.prospero.cli.CliMain;
+import org.wildfly.prospero.cli.CliMessages;
+import org.wildfly.prospero.cli.ReturnCodes;
+import org.wildfly.prospero.cli.WorkingDirectory;
+import org.wildfly.prospero.cli.commands.CliConstants;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+import org.wildfly.prospero.wfchannel.MavenSessionManager;
+import picocli.CommandLine;
+
+/**
+ * Executes commands sent by {@link DaemonClient}s in a long-running JVM.
+ *
+ * The daemon keeps the resolved classes, the Maven repository system and the installation metadata between commands.
+ * The metadata of an installation is released when no command used it for the installation idle timeout. Commands are
+ * executed concurrently, but only one command at a time can operate on an installation, and only one provisioning at
+ * a time can run in the daemon (see {@link org.wildfly.prospero.galleon.GalleonUtils#executeGalleon}). The daemon
+ * stops when no command is received for the idle timeout.
+ *
+ * The commands are executed with the system properties of the daemon, so the commands of clients using different
+ * properties are rejected and the clients execute them themselves.
+ *
+ * The socket is created in a new folder accessible only by the owner of the daemon, and the configured socket location
+ * is a link to it. If the access cannot be restricted, the daemon doesn't start.
+ */
+public class DaemonServer {
+
+    private static final Logger logger = Logger.getLogger(DaemonServer.class);
+
+    static final Duration INSTALLATION_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    private static final String SOCKET_DIR_PREFIX = ".prospero-daemon-";
+    private static final String SOCKET_NAME = "daemon.sock";
+
+    private final Path socket;
+    private final Duration idleTimeout;
+    private final Duration installationIdleTimeout;
+    private final Map<String, String> properties = DaemonProtocol.commandProperties();
+    private final Map<Path, Installation> installations = new ConcurrentHashMap<>();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private volatile long lastActivity;
+    private volatile ServerSocketChannel server;
+    private volatile boolean stopped;
+
+    public DaemonServer(Path socket, Duration idleTimeout) {
+        this(socket, idleTimeout, INSTALLATION_IDLE_TIMEOUT);
+    }
+
+    DaemonServer(Path socket, Duration idleTimeout, Duration installationIdleTimeout) {
+        this.socket = socket.toAbsolutePath();
+        this.idleTimeout = idleTimeout;
+        this.installationIdleTimeout = installationIdleTimeout;
+    }
+
+    /**
+     * listens for commands until the daemon is idle for longer than the idle timeout, or {@link #stop()} is called.
+     *
+     * @throws ArgumentParsingException - if another daemon is listening on the socket
+     * @throws IOException - if unable to create the socket or to restrict its access
+     */
+    public void run() throws ArgumentParsingException, IOException {
+        prepareSocket();
+
+        MavenSessionManager.shareRepositorySystem();
+        final ExecutorService workers = Executors.newCachedThreadPool();
+        final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        Path socketDir = null;
+        boolean linked = false;
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            socketDir = createSocketDir();
+            final Path boundSocket = socketDir.resolve(SOCKET_NAME);
+            server.bind(UnixDomainSocketAddress.of(boundSocket));
+            restrictPermissions(boundSocket);
+            // clients connect through the link, the folder permissions prevent other users from following it
+            Files.createSymbolicLink(socket, boundSocket);
+            linked = true;
+            this.server = server;
+            if (stopped) {
+                return;
+            }
+
+            lastActivity = System.nanoTime();
+            final long checkPeriod = Math.max(1, Math.min(idleTimeout.toMillis(), 1000));
+            watchdog.scheduleWithFixedDelay(this::checkIdle, checkPeriod, checkPeriod, TimeUnit.MILLISECONDS);
+            logger.debugf("Daemon listening on %s", socket);
+
+            while (true) {
+                final SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                activeRequests.incrementAndGet();
+                workers.submit(() -> handle(channel));
+            }
+        } finally {
+            watchdog.shutdownNow();
+            workers.shutdown();
+            try {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Installation installation : installations.values()) {
+                installation.context.close();
+            }
+            installations.clear();
+            if (linked) {
+                Files.deleteIfExists(socket);
+            }
+            if (socketDir != null) {
+                FileUtils.deleteQuietly(socketDir.toFile());
+            }
+            logger.debugf("Daemon listening on %s stopped", socket);
+        }
+    }
+
+    /**
+     * stops accepting new commands. The commands in progress are finished before {@link #run()} returns.
+     */
+    public void stop() {
+        stopped = true;
+        final ServerSocketChannel server = this.server;
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                logger.debug("Unable to close the daemon socket", e);
+            }
+        }
+    }
+
+    Set<Path> openInstallations() {
+        return Set.copyOf(installations.keySet());
+    }
+
+    private void checkIdle() {
+        if (activeRequests.get() == 0 && System.nanoTime() - lastActivity >= idleTimeout.toNanos()) {
+            logger.debugf("No commands received in %s, stopping the daemon", idleTimeout);
+            stop();
+            return;
+        }
+        evictIdleInstallations();
+    }
+
+    private void evictIdleInstallations() {
+        for (Map.Entry<Path, Installation> entry : installations.entrySet()) {
+            final Installation installation = entry.getValue();
+            // an installation used by a command is locked
+            if (!installation.isIdle(installationIdleTimeout) || !installation.lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (installation.isIdle(installationIdleTimeout)) {
+                    logger.debugf("Releasing the metadata of idle installation %s", entry.getKey());
+                    installation.evicted = true;
+                    installations.remove(entry.getKey(), installation);
+                    installation.context.close();
+                }
+            } finally {
+                installation.lock.unlock();
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            final InputStream in = new BufferedInputStream(DaemonProtocol.inputStream(channel));
+            final DaemonProtocol.Request request = DaemonProtocol.Request.read(new DataInputStream(in));
+            final DataOutputStream target = new DataOutputStream(new BufferedOutputStream(DaemonProtocol.outputStream(channel)));
+            if (!properties.equals(request.getProperties())) {
+                logger.debugf("Rejecting a command with system properties %s different from the daemon properties %s",
+                        request.getProperties(), properties);
+                DaemonProtocol.writeStatus(target, DaemonProtocol.REJECTED);
+                return;
+            }
+            DaemonProtocol.writeStatus(target, DaemonProtocol.ACCEPTED);
+
+            final PrintStream out = new PrintStream(new DaemonProtocol.FrameOutputStream(target, DaemonProtocol.STDOUT), true, StandardCharsets.UTF_8);
+            final PrintStream err = new PrintStream(new DaemonProtocol.FrameOutputStream(target, DaemonProtocol.STDERR), true, StandardCharsets.UTF_8);
+
+            final int exitCode = execute(request, out, err, in);
+            out.flush();
+            err.flush();
+            DaemonProtocol.writeExitCode(target, exitCode);
+        } catch (IOException e) {
+            logger.debug("Unable to communicate with the daemon client", e);
+        } finally {
+            lastActivity = System.nanoTime();
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private int execute(DaemonProtocol.Request request, PrintStream out, PrintStream err, InputStream in) {
+        final String[] args = request.getArgs();
+        if (args.length > 0 && CliConstants.Commands.DAEMON.equals(args[0])) {
+            err.println(CliMessages.MESSAGES.daemonCommandNotForwarded());
+            return ReturnCodes.INVALID_ARGUMENTS;
+        }
+
+        final Installation installation = lockInstallation(installationKey(request.getWorkingDirectory(), args));
+        WorkingDirectory.set(request.getWorkingDirectory());
+        try (MetadataContext ignored = installation.context.attach()) {
+            final CommandLine commandLine = CliMain.createCommandLine(new DaemonConsole(out, err, in), args);
+            // relative paths are relative to the client, not the daemon
+            commandLine.registerConverter(Path.class, WorkingDirectory::resolve);
+            commandLine.setOut(new PrintWriter(out, true));
+            commandLine.setErr(new PrintWriter(err, true));
+            return commandLine.execute(args);
+        } catch (Exception e) {
+            err.println(CliMessages.MESSAGES.errorWhenProcessingCommand() + e.getMessage());
+            logger.error(CliMessages.MESSAGES.errorWhenProcessingCommand(), e);
+            return ReturnCodes.PROCESSING_ERROR;
+        } finally {
+            WorkingDirectory.clear();
+            installation.lastUsed = System.nanoTime();
+            installation.lock.unlock();
+        }
+    }
+
+    private Installation lockInstallation(Path key) {
+        while (true) {
+            final Installation installation = installations.computeIfAbsent(key, k -> new Installation());
+            installation.lock.lock();
+            if (!installation.evicted) {
+                return installation;
+            }
+            // the installation was evicted while waiting for the lock, use a new one
+            installation.lock.unlock();
+        }
+    }
+
+    /**
+     * finds the installation the command operates on - either the {@code --dir} argument, or the first parent of the
+     * working directory containing an installation. Symbolic links are resolved, so that all the commands operating on
+     * the same installation use the same key.
+     */
+    static Path installationKey(Path workingDirectory, String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(CliConstants.DIR) && i + 1 < args.length) {
+                return toRealPath(workingDirectory.resolve(args[i + 1]));
+            } else if (args[i].startsWith(CliConstants.DIR + "=")) {
+                return toRealPath(workingDirectory.resolve(args[i].substring(CliConstants.DIR.length() + 1)));
+            }
+        }
+        for (Path dir = workingDirectory.normalize(); dir != null; dir = dir.getParent()) {
+            if (Files.isDirectory(dir.resolve(ProsperoMetadataUtils.METADATA_DIR))) {
+                return toRealPath(dir);
+            }
+        }
+        return toRealPath(workingDirectory);
+    }
+
+    /*
+     * resolves the links in the longest existing part of the path, the installation might not exist yet
+     */
+    private static Path toRealPath(Path path) {
+        final Path normalized = path.toAbsolutePath().normalize();
+        for (Path existing = normalized; existing != null; existing = existing.getParent()) {
+            try {
+                return existing.toRealPath().resolve(existing.relativize(normalized));
+            } catch (IOException e) {
+                // try the parent
+            }
+        }
+        return normalized;
+    }
+
+    private void prepareSocket() throws ArgumentParsingException, IOException {
+        if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            try (SocketChannel ignored = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+                throw CliMessages.MESSAGES.daemonAlreadyRunning(socket);
+            } catch (IOException e) {
+                // nobody is listening, the socket was left over by a daemon that didn't stop cleanly
+                deleteLeftoverSocket();
+            }
+        } else if (socket.getParent() != null) {
+            Files.createDirectories(socket.getParent());
+        }
+    }
+
+    private void deleteLeftoverSocket() throws IOException {
+        if (Files.isSymbolicLink(socket)) {
+            final Path target = Files.readSymbolicLink(socket);
+            final Path targetDir = target.getParent();
+            if (targetDir != null && targetDir.getFileName().toString().startsWith(SOCKET_DIR_PREFIX)) {
+                FileUtils.deleteQuietly(targetDir.toFile());
+            }
+        }
+        Files.delete(socket);
+    }
+
+    private Path createSocketDir() throws IOException {
+        try {
+            return Files.createTempDirectory(socket.getParent(), SOCKET_DIR_PREFIX,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (UnsupportedOperationException e) {
+            throw new IOException(CliMessages.MESSAGES.unableToRestrictDaemonSocket(socket), e);
+        }
+    }
+
+    private void restrictPermissions(Path boundSocket) throws IOException {
+        // the daemon executes commands with the permissions of its owner, nobody else can be allowed to connect
+        try {
+            Files.setPosixFilePermissions(boundSocket, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException e) {
+            throw new IOException(CliMessages.MESSAGES.unableToRestrictDaemonSocket(socket), e);
+        }
+    }
+
+    private static class Installation {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final MetadataContext context = MetadataContext.create();
+        private volatile long lastUsed = System.nanoTime();
+        // guarded by lock
+        private boolean evicted;
+
+        boolean isIdle(Duration timeout) {
+            return System.nanoTime() - lastUsed >= timeout.toNanos();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.printers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.wildfly.prospero.api.TransferMetrics;
+import org.wildfly.prospero.cli.CliMessages;
+
+/**
+ * Formats a summary of {@link TransferMetrics} - the statistics of each repository, the slowest transfers and the
+ * artifacts that had to be resolved from another repository.
+ */
+public class TransferMetricsPrinter {
+
+    public List<String> format(TransferMetrics metrics) {
+        final List<String> lines = new ArrayList<>();
+        lines.add(CliMessages.MESSAGES.transfersHeader());
+        for (TransferMetrics.RepositoryStatistics statistics : metrics.getRepositories().values()) {
+            lines.add("  " + format(statistics.getRepositoryId(), statistics));
+        }
+        lines.add("  " + format(CliMessages.MESSAGES.transfersTotal(), metrics.getTotals()));
+
+        if (!metrics.getSlowestTransfers().isEmpty()) {
+            lines.add(CliMessages.MESSAGES.transfersSlowestHeader());
+            for (TransferMetrics.Transfer transfer : metrics.getSlowestTransfers()) {
+                lines.add("  " + CliMessages.MESSAGES.transfersSlowest(transfer.getResource(), transfer.getRepositoryId(),
+                        transfer.getDuration().toMillis(), FileUtils.byteCountToDisplaySize(transfer.getBytes())));
+            }
+        }
+
+        if (!metrics.getResolvedElsewhere().isEmpty()) {
+            lines.add(CliMessages.MESSAGES.transfersResolvedElsewhereHeader());
+            for (TransferMetrics.ResolvedElsewhere resolved : metrics.getResolvedElsewhere()) {
+                lines.add("  " + CliMessages.MESSAGES.transfersResolvedElsewhere(resolved.getResource(),
+                        String.join(", ", resolved.getMissingIn()), resolved.getResolvedFrom()));
+            }
+        }
+        return lines;
+    }
+
+    private static String format(String name, TransferMetrics.RepositoryStatistics statistics) {
+        return CliMessages.MESSAGES.transfersRepository(name, statistics.getTransfers(),
+                FileUtils.byteCountToDisplaySize(statistics.getBytes()),
+                FileUtils.byteCountToDisplaySize(statistics.getBytesPerSecond()),
+                statistics.getRetries(), statistics.getChecksumFailures(), statistics.getNotFound(),
+                statistics.getCacheHits());
+    }
+}
@@ -21,7 +21,9 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.assertj.core.api.Assertions;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.wildfly.channel.Repository;
 
 import java.io.File;
@@ -37,6 +39,9 @@ import static org.wildfly.prospero.cli.RepositoryDefinition.from;
 
 public class RepositoryDefinitionTest {
 
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
     private String tempRepoUrlNoHostForm;
     private String tempRepoUrlEmptyHostForm;
 
@@ -182,6 +187,21 @@ public class RepositoryDefinitionTest {
                         Path.of("idontexist").toAbsolutePath()));
     }
 
+    @Test
+    public void relativePathsAreResolvedAgainstWorkingDirectory() throws Exception {
+        final Path workingDirectory = temp.getRoot().toPath();
+        final Path repository = temp.newFolder("repo").toPath();
+        WorkingDirectory.set(workingDirectory);
+        try {
+            assertThat(RepositoryDefinition.parseRepositoryLocation("repo", true))
+                    .isEqualTo(repository.toUri().toURL().toExternalForm());
+            assertThat(RepositoryDefinition.parseRepositoryLocation("file:repo", true))
+                    .isEqualTo(repository.toUri().toURL().toExternalForm());
+        } finally {
+            WorkingDirectory.clear();
+        }
+    }
+
     @Test
     public void testNormalization() throws Exception {
         String cwdPath = Path.of(System.getProperty("user.dir")).toUri().getPath();
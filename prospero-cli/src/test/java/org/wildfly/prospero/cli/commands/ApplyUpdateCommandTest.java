@@ -23,6 +23,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -34,6 +35,7 @@ import org.wildfly.prospero.cli.ActionFactory;
 import org.wildfly.prospero.cli.CliMessages;
 import org.wildfly.prospero.cli.ReturnCodes;
 import org.wildfly.prospero.test.MetadataTestUtils;
+import org.wildfly.prospero.updates.CandidateArchive;
 import org.wildfly.prospero.updates.MarkerFile;
 import org.wildfly.prospero.updates.UpdateSet;
 
@@ -85,8 +87,38 @@ public class ApplyUpdateCommandTest extends AbstractConsoleTest {
     public void requireUpdateDirPresent() throws Exception {
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY);
         Assert.assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
-        assertTrue(getErrorOutput().contains(String.format("Missing required option: '%s",
-                CliConstants.CANDIDATE_DIR)));
+        assertTrue(getErrorOutput().contains("Missing required argument"));
+        assertTrue(getErrorOutput().contains(CliConstants.CANDIDATE_DIR));
+    }
+
+    @Test
+    public void candidateDirAndArchiveAreExclusive() throws Exception {
+        final Path updatePath = mockInstallation("update");
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY,
+                CliConstants.CANDIDATE_DIR, updatePath.toString(),
+                CliConstants.CANDIDATE_ARCHIVE, temp.newFile("candidate.zip").toString());
+
+        Assert.assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
+    }
+
+    @Test
+    public void callUpdateActionWithCandidateArchive() throws Exception {
+        final Path updatePath = mockInstallation("update");
+        final Path targetPath = mockInstallation("target");
+        final Path archive = temp.getRoot().toPath().resolve("candidate.zip");
+        CandidateArchive.create(updatePath, archive);
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY,
+                CliConstants.CANDIDATE_ARCHIVE, archive.toString(),
+                CliConstants.DIR, targetPath.toString());
+
+        Assert.assertEquals(getErrorOutput(), ReturnCodes.SUCCESS, exitCode);
+        final ArgumentCaptor<Path> candidateCaptor = ArgumentCaptor.forClass(Path.class);
+        verify(actionFactory).applyUpdate(any(), candidateCaptor.capture());
+        assertThat(candidateCaptor.getValue()).isNotEqualTo(updatePath);
+        verify(applyCandidateAction).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+        // the extracted candidate is removed after the operation
+        assertThat(candidateCaptor.getValue()).doesNotExist();
     }
 
     @Test
@@ -17,11 +17,14 @@
 
 package org.wildfly.prospero.cli.commands;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.junit.Assert;
@@ -35,6 +38,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.wildfly.prospero.api.Console;
 import org.wildfly.prospero.actions.InstallationHistoryAction;
 import org.wildfly.prospero.api.ArtifactChange;
+import org.wildfly.prospero.api.HistoryStatistics;
 import org.wildfly.prospero.api.InstallationChanges;
 import org.wildfly.prospero.api.SavedState;
 import org.wildfly.prospero.cli.AbstractConsoleTest;
@@ -43,10 +47,13 @@ import org.wildfly.prospero.cli.CliMessages;
 import org.wildfly.prospero.cli.ReturnCodes;
 import org.wildfly.prospero.test.MetadataTestUtils;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -99,6 +106,104 @@ public class HistoryCommandTest extends AbstractConsoleTest {
         assertTrue(getStandardOutput().contains("abcd"));
     }
 
+    @Test
+    public void writeTimingsReport() throws Exception {
+        when(historyAction.getRevisions()).thenReturn(Collections.emptyList());
+        final Path timingsFile = tempDir.getRoot().toPath().resolve("timings").resolve("report.json");
+
+        int exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.DIR, installationDir.toString(),
+                CliConstants.TIMINGS, timingsFile.toString());
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        assertThat(Files.readString(timingsFile))
+                .contains("\"operation\" : \"prospero history\"")
+                .contains("\"phases\" : [ ]");
+    }
+
+    @Test
+    public void displayChangesInEachStateSinceRevision() throws Exception {
+        final Map<SavedState, InstallationChanges> changes = new LinkedHashMap<>();
+        changes.put(new SavedState("efgh", Instant.ofEpochSecond(System.currentTimeMillis()), SavedState.Type.UPDATE,
+                        null, Collections.emptyList()),
+                new InstallationChanges(Arrays.asList(ArtifactChange.updated(
+                        new DefaultArtifact("foo", "bar", "jar", "1.1"),
+                        new DefaultArtifact("foo", "bar", "jar", "1.2"))), Collections.emptyList(), Collections.emptyList()));
+        when(historyAction.getRevisionChangesSince(new SavedState("abcd"))).thenReturn(changes);
+
+        int exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.DIR, installationDir.toString(),
+                CliConstants.CHANGES, CliConstants.SINCE, "abcd");
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        assertThat(getStandardOutput())
+                .contains("efgh")
+                .contains("foo:bar")
+                .contains("1.1")
+                .contains("1.2");
+    }
+
+    @Test
+    public void changesAndRevisionAreExclusive() throws Exception {
+        int exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.DIR, installationDir.toString(),
+                CliConstants.CHANGES, CliConstants.REVISION, "abcd");
+        assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
+        verify(historyAction, never()).getRevisionChangesSince(any());
+        verify(historyAction, never()).getRevisionChanges(any());
+    }
+
+    @Test
+    public void sinceRequiresChanges() throws Exception {
+        int exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.DIR, installationDir.toString(),
+                CliConstants.SINCE, "abcd");
+        assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
+    }
+
+    @Test
+    public void displayPageOfStates() throws Exception {
+        when(historyAction.getRevisions(2, 1)).thenReturn(Arrays.asList(
+                new SavedState("abcd", Instant.ofEpochSecond(System.currentTimeMillis()), SavedState.Type.INSTALL,
+                        null, Collections.emptyList())));
+
+        int exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.DIR, installationDir.toString(),
+                CliConstants.OFFSET, "2", CliConstants.LIMIT, "1");
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        verify(historyAction).getRevisions(2, 1);
+        assertTrue(getStandardOutput().contains("abcd"));
+    }
+
+    @Test
+    public void compactHistoryKeepingLatestStates() throws Exception {
+        when(historyAction.getHistoryStatistics()).thenReturn(
+                new HistoryStatistics(5, 0, 20, 20, 1000),
+                new HistoryStatistics(2, 0, 8, 1, 400));
+        when(historyAction.compactHistory(2)).thenReturn(3);
+
+        int exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.Commands.COMPACT,
+                CliConstants.DIR, installationDir.toString(), CliConstants.KEEP, "2");
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        verify(historyAction).compactHistory(2);
+        assertThat(getStandardOutput())
+                .contains(CliMessages.MESSAGES.historyCompacted(3))
+                .contains(CliMessages.MESSAGES.historyStatistics(new HistoryStatistics(2, 0, 8, 1, 400)));
+    }
+
+    @Test
+    public void pageOfStatesRequiresValidOffsetAndLimit() throws Exception {
+        int exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.DIR, installationDir.toString(),
+                CliConstants.OFFSET, "-1");
+        assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
+
+        exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.DIR, installationDir.toString(),
+                CliConstants.LIMIT, "0");
+        assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
+        verify(historyAction, never()).getRevisions(anyInt(), anyInt());
+    }
+
+    @Test
+    public void compactHistoryRequiresPositiveKeep() throws Exception {
+        int exitCode = commandLine.execute(CliConstants.Commands.HISTORY, CliConstants.Commands.COMPACT,
+                CliConstants.DIR, installationDir.toString(), CliConstants.KEEP, "0");
+        assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
+        verify(historyAction, never()).compactHistory(anyInt());
+    }
+
     @Test
     public void displayDetailsOfStateIfRevisionSet() throws Exception {
 
@@ -456,20 +456,20 @@ public class InstallCommandTest extends AbstractMavenCommandTest {
 
         assertEquals(ReturnCodes.SUCCESS, exitCode);
 
-        // provisionAction.getPendingLicenses() should have been called with channels containing unzipped repo
+        // provisionAction.getPendingLicenses() should have been called with channels containing the repository within the archive
         Mockito.verify(provisionAction).getPendingLicenses(configCaptor.capture(), channelCaptor.capture());
         assertThat(channelCaptor.getValue().get(0).getRepositories())
                 .satisfies(list -> {
                     assertThat(list.size()).isEqualTo(1);
-                    assertThat(list.get(0).getUrl()).endsWith(REPOSITORY_ZIP_PATH); // Expect unzipped path, not the zip file path
+                    assertThat(list.get(0).getUrl()).endsWith(REPOSITORY_ZIP_PATH); // Expect the repository path within the archive, not the zip file path
                 });
 
-        // provisionAction.provision() should have been called with channels containing unzipped repo
+        // provisionAction.provision() should have been called with channels containing the repository within the archive
         Mockito.verify(provisionAction).provisionWithChannels(configCaptor.capture(), channelCaptor.capture(), any());
         assertThat(channelCaptor.getValue().get(0).getRepositories())
                 .satisfies(list -> {
                     assertThat(list.size()).isEqualTo(1);
-                    assertThat(list.get(0).getUrl()).endsWith(REPOSITORY_ZIP_PATH); // Expect unzipped path, not the zip file path
+                    assertThat(list.get(0).getUrl()).endsWith(REPOSITORY_ZIP_PATH); // Expect the repository path within the archive, not the zip file path
                 });
     }
 
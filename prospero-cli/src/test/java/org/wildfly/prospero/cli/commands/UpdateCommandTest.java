@@ -61,6 +61,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -128,12 +129,12 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     @Test
     public void callUpdate() throws Exception {
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PERFORM,
                 CliConstants.DIR, installationDir.toString());
 
         assertEquals(ReturnCodes.SUCCESS, exitCode);
-        Mockito.verify(updateAction).buildUpdate(any());
+        Mockito.verify(updateAction).buildUpdate(any(), anyBoolean());
         Mockito.verify(applyCandidateAction).applyUpdate(ApplyCandidateAction.Type.UPDATE);
     }
 
@@ -149,13 +150,13 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     public void selfUpdatePassesModulePathAsDir() throws Exception {
         System.setProperty(UpdateCommand.JBOSS_MODULE_PATH, installationDir.resolve(MODULES_DIR).toString());
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
 
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PERFORM, CliConstants.SELF);
 
         assertEquals(ReturnCodes.SUCCESS, exitCode);
         Mockito.verify(actionFactory).update(eq(installationDir.toAbsolutePath()), anyList(), any(), any());
-        Mockito.verify(updateAction).buildUpdate(any());
+        Mockito.verify(updateAction).buildUpdate(any(), anyBoolean());
         Mockito.verify(applyCandidateAction).applyUpdate(ApplyCandidateAction.Type.UPDATE);
     }
 
@@ -163,14 +164,14 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     public void dirParameterOverridesModulePathInSelfUpdate() throws Exception {
         System.setProperty(UpdateCommand.JBOSS_MODULE_PATH, installationDir.toString());
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
 
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PERFORM, CliConstants.SELF,
                 CliConstants.DIR, installationDir.toAbsolutePath().toString());
 
         assertEquals(ReturnCodes.SUCCESS, exitCode);
         Mockito.verify(actionFactory).update(eq(installationDir.toAbsolutePath()), anyList(), any(), any());
-        Mockito.verify(updateAction).buildUpdate(any());
+        Mockito.verify(updateAction).buildUpdate(any(), anyBoolean());
         Mockito.verify(applyCandidateAction).applyUpdate(ApplyCandidateAction.Type.UPDATE);
     }
 
@@ -215,7 +216,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     public void testConfirmedConfirmation() throws Exception {
         System.setProperty(UpdateCommand.JBOSS_MODULE_PATH, installationDir.toString());
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
 
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PERFORM, CliConstants.SELF,
                 CliConstants.DIR, installationDir.toAbsolutePath().toString());
@@ -223,7 +224,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
         assertEquals(ReturnCodes.SUCCESS, exitCode);
         Mockito.verify(actionFactory).update(eq(installationDir.toAbsolutePath()), anyList(), any(), any());
         assertEquals(1, getAskedConfirmation());
-        Mockito.verify(updateAction).buildUpdate(any());
+        Mockito.verify(updateAction).buildUpdate(any(), anyBoolean());
         Mockito.verify(applyCandidateAction).applyUpdate(ApplyCandidateAction.Type.UPDATE);
     }
 
@@ -277,7 +278,39 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
         assertEquals(ReturnCodes.SUCCESS, exitCode);
         Mockito.verify(actionFactory).update(eq(installationDir.toAbsolutePath()), anyList(), any(), any());
         assertEquals(1, getAskedConfirmation());
-        Mockito.verify(updateAction).buildUpdate(updatePath);
+        Mockito.verify(updateAction).buildUpdate(updatePath, false);
+    }
+
+    @Test
+    public void testBuildSparseUpdate() throws Exception {
+        System.setProperty(UpdateCommand.JBOSS_MODULE_PATH, installationDir.toString());
+        when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
+        final Path updatePath = tempFolder.newFolder().toPath();
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PREPARE, CliConstants.CANDIDATE_DIR, updatePath.toString(),
+                CliConstants.DIR, installationDir.toAbsolutePath().toString(), CliConstants.SPARSE);
+
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        Mockito.verify(updateAction).buildUpdate(updatePath, true);
+    }
+
+    @Test
+    public void testBuildUpdateCandidateArchive() throws Exception {
+        System.setProperty(UpdateCommand.JBOSS_MODULE_PATH, installationDir.toString());
+        when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
+        final Path updatePath = tempFolder.newFolder().toPath();
+        final Path archive = tempFolder.getRoot().toPath().resolve("candidate.zip");
+        when(updateAction.buildUpdate(updatePath, false)).then(inv -> {
+            Files.writeString(updatePath.resolve("test.txt"), "test");
+            return true;
+        });
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PREPARE, CliConstants.CANDIDATE_DIR, updatePath.toString(),
+                CliConstants.DIR, installationDir.toAbsolutePath().toString(), CliConstants.CANDIDATE_ARCHIVE, archive.toString());
+
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        assertThat(archive).isRegularFile();
+        assertThat(getStandardOutput()).contains(CliMessages.MESSAGES.updateCandidateArchived(archive));
     }
 
     @Test
@@ -292,7 +325,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
         assertEquals(ReturnCodes.SUCCESS, exitCode);
         Mockito.verify(actionFactory).update(eq(installationDir.toAbsolutePath()), anyList(), any(), any());
         assertEquals(0, getAskedConfirmation());
-        Mockito.verify(updateAction, never()).buildUpdate(updatePath);
+        Mockito.verify(updateAction, never()).buildUpdate(updatePath, false);
     }
 
     @Test
@@ -336,7 +369,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     @Test
     public void noConflictArgumentFailsCommand_WhenConflictsAreFound() throws Exception {
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
         when(applyCandidateAction.getConflicts()).thenReturn(List.of(mock(FileConflict.class)));
 
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PERFORM,
@@ -353,7 +386,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     @Test
     public void noConflictArgumentHasNoEffect_WhenNoConflictsAreFound() throws Exception {
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
         when(applyCandidateAction.getConflicts()).thenReturn(Collections.emptyList());
 
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PERFORM,
@@ -367,7 +400,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     @Test
     public void versionStringWithChannelNameAndVersionIsAppliedToAChannel() throws Exception {
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
         when(applyCandidateAction.getConflicts()).thenReturn(Collections.emptyList());
 
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PERFORM,
@@ -486,7 +519,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     @Test
     public void versionArgumentTrimsWhitespaceAroundValidValues() throws Exception {
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
         when(applyCandidateAction.getConflicts()).thenReturn(Collections.emptyList());
 
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PERFORM,
@@ -503,7 +536,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     @Test
     public void multipleVersionOverrideAreApplied() throws Exception {
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
         when(applyCandidateAction.getConflicts()).thenReturn(Collections.emptyList());
 
         final Path channelCfg = generateTwoChannelConfiguration();
@@ -543,7 +576,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     @Test
     public void urlChannelIsOverrideByVersionArgument() throws Exception {
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
         when(applyCandidateAction.getConflicts()).thenReturn(Collections.emptyList());
 
         final Path channelCfg = generateUrlChannelConfiguration();
@@ -563,7 +596,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     @Test
     public void urlChannelIsOverrideByVersionArgumentWithLocalFileUrl() throws Exception {
         when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
-        when(updateAction.buildUpdate(any())).thenReturn(true);
+        when(updateAction.buildUpdate(any(), anyBoolean())).thenReturn(true);
         when(applyCandidateAction.getConflicts()).thenReturn(Collections.emptyList());
 
         final Path channelCfg = generateUrlChannelConfiguration();
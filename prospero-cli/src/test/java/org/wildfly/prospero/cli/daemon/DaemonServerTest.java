@@ -0,0 +1,255 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.prospero.cli.ReturnCodes;
+import org.wildfly.prospero.cli.commands.CliConstants;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+import org.wildfly.prospero.test.MetadataTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DaemonServerTest {
+
+    private static final String TEST_PROPERTY = "org.wildfly.prospero.test.daemon-property";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path socket;
+    private DaemonServer server;
+    private CompletableFuture<Void> serverRun;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Before
+    public void setUp() throws Exception {
+        socket = temp.getRoot().toPath().resolve("daemon.sock");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.stop();
+            serverRun.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void noDaemonRunning() {
+        assertThat(execute(temp.getRoot().toPath(), "history")).isEmpty();
+    }
+
+    @Test
+    public void forwardsOutputAndExitCode() throws Exception {
+        final Path installation = temp.newFolder("server").toPath();
+        MetadataTestUtils.createInstallationMetadata(installation).close();
+        MetadataTestUtils.createGalleonProvisionedState(installation);
+        startServer(Duration.ofMinutes(1));
+
+        // relative --dir is resolved against the client working directory
+        assertThat(execute(temp.getRoot().toPath(), CliConstants.Commands.HISTORY, CliConstants.DIR, "server"))
+                .contains(ReturnCodes.SUCCESS);
+        assertThat(output()).isNotBlank();
+
+        out.reset();
+        assertThat(execute(installation, "foo")).contains(ReturnCodes.INVALID_ARGUMENTS);
+        assertThat(errorOutput()).contains("foo");
+    }
+
+    @Test
+    public void workingDirectoryIsUsedWithoutDirArgument() throws Exception {
+        final Path installation = temp.newFolder("server").toPath();
+        MetadataTestUtils.createInstallationMetadata(installation).close();
+        MetadataTestUtils.createGalleonProvisionedState(installation);
+        startServer(Duration.ofMinutes(1));
+
+        final Path subFolder = Files.createDirectories(installation.resolve("bin"));
+        assertThat(execute(subFolder, CliConstants.Commands.HISTORY)).contains(ReturnCodes.SUCCESS);
+
+        assertThat(execute(temp.getRoot().toPath(), CliConstants.Commands.HISTORY))
+                .contains(ReturnCodes.INVALID_ARGUMENTS);
+    }
+
+    @Test
+    public void daemonCommandIsNotForwarded() throws Exception {
+        startServer(Duration.ofMinutes(1));
+
+        assertThat(execute(temp.getRoot().toPath(), CliConstants.Commands.DAEMON))
+                .contains(ReturnCodes.INVALID_ARGUMENTS);
+    }
+
+    @Test
+    public void stopsAfterIdleTimeout() throws Exception {
+        startServer(Duration.ofMillis(200));
+
+        serverRun.get(10, TimeUnit.SECONDS);
+        server = null;
+
+        assertThat(socket).doesNotExist();
+        assertThat(execute(temp.getRoot().toPath(), CliConstants.Commands.HISTORY)).isEmpty();
+    }
+
+    @Test
+    public void socketIsAccessibleOnlyByOwner() throws Exception {
+        startServer(Duration.ofMinutes(1));
+
+        assertThat(Files.isSymbolicLink(socket)).isTrue();
+        final Path boundSocket = Files.readSymbolicLink(socket);
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(boundSocket.getParent())))
+                .isEqualTo("rwx------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(boundSocket)))
+                .isEqualTo("rw-------");
+
+        server.stop();
+        serverRun.get(10, TimeUnit.SECONDS);
+        server = null;
+
+        assertThat(socket).doesNotExist();
+        assertThat(boundSocket.getParent()).doesNotExist();
+    }
+
+    @Test
+    public void replacesLeftoverSocket() throws Exception {
+        final Path leftoverDir = Files.createDirectory(temp.getRoot().toPath().resolve(".prospero-daemon-leftover"));
+        Files.createSymbolicLink(socket, leftoverDir.resolve("daemon.sock"));
+
+        startServer(Duration.ofMinutes(1));
+
+        assertThat(leftoverDir).doesNotExist();
+        assertThat(execute(temp.getRoot().toPath(), CliConstants.Commands.DAEMON))
+                .contains(ReturnCodes.INVALID_ARGUMENTS);
+    }
+
+    @Test
+    public void commandWithDifferentSystemPropertiesIsRejected() throws Exception {
+        startServer(Duration.ofMinutes(1));
+
+        System.setProperty(TEST_PROPERTY, "client");
+        try {
+            assertThat(execute(temp.getRoot().toPath(), CliConstants.Commands.DAEMON)).isEmpty();
+        } finally {
+            System.clearProperty(TEST_PROPERTY);
+        }
+        assertThat(execute(temp.getRoot().toPath(), CliConstants.Commands.DAEMON))
+                .contains(ReturnCodes.INVALID_ARGUMENTS);
+    }
+
+    @Test
+    public void debugCommandIsNotForwarded() throws Exception {
+        startServer(Duration.ofMinutes(1));
+
+        assertThat(execute(temp.getRoot().toPath(), CliConstants.Commands.HISTORY, CliConstants.DEBUG)).isEmpty();
+    }
+
+    @Test
+    public void idleInstallationIsReleased() throws Exception {
+        final Path installation = temp.newFolder("server").toPath();
+        MetadataTestUtils.createInstallationMetadata(installation).close();
+        MetadataTestUtils.createGalleonProvisionedState(installation);
+        startServer(Duration.ofMinutes(1), Duration.ofMillis(200));
+
+        assertThat(execute(installation, CliConstants.Commands.HISTORY)).contains(ReturnCodes.SUCCESS);
+        assertThat(server.openInstallations()).containsExactly(installation.toRealPath());
+
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (!server.openInstallations().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(server.openInstallations()).isEmpty();
+
+        assertThat(execute(installation, CliConstants.Commands.HISTORY)).contains(ReturnCodes.SUCCESS);
+    }
+
+    @Test
+    public void installationKeyResolvesLinks() throws Exception {
+        final Path installation = temp.newFolder("server").toPath();
+        final Path link = Files.createSymbolicLink(temp.getRoot().toPath().resolve("link"), installation);
+
+        assertThat(DaemonServer.installationKey(link, new String[]{CliConstants.Commands.HISTORY}))
+                .isEqualTo(installation.toRealPath());
+        assertThat(DaemonServer.installationKey(temp.getRoot().toPath(), new String[]{CliConstants.Commands.INSTALL,
+                CliConstants.DIR, "link/new"}))
+                .isEqualTo(installation.toRealPath().resolve("new"));
+    }
+
+    @Test
+    public void installationKeyUsesDirArgumentOrParentInstallation() throws Exception {
+        final Path root = temp.getRoot().toPath();
+        final Path installation = temp.newFolder("server").toPath().toRealPath();
+        Files.createDirectories(installation.resolve(ProsperoMetadataUtils.METADATA_DIR));
+        final Path subFolder = Files.createDirectories(installation.resolve("bin"));
+
+        assertThat(DaemonServer.installationKey(root, new String[]{CliConstants.Commands.HISTORY, CliConstants.DIR, "server"}))
+                .isEqualTo(installation);
+        assertThat(DaemonServer.installationKey(root, new String[]{CliConstants.Commands.HISTORY, CliConstants.DIR + "=server/"}))
+                .isEqualTo(installation);
+        assertThat(DaemonServer.installationKey(subFolder, new String[]{CliConstants.Commands.HISTORY}))
+                .isEqualTo(installation);
+    }
+
+    private void startServer(Duration idleTimeout) throws Exception {
+        startServer(idleTimeout, DaemonServer.INSTALLATION_IDLE_TIMEOUT);
+    }
+
+    private void startServer(Duration idleTimeout, Duration installationIdleTimeout) throws Exception {
+        server = new DaemonServer(socket, idleTimeout, installationIdleTimeout);
+        serverRun = CompletableFuture.runAsync(() -> {
+            try {
+                server.run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while (!Files.exists(socket) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(socket).exists();
+    }
+
+    private Optional<Integer> execute(Path workingDirectory, String... args) {
+        return DaemonClient.execute(socket, workingDirectory, args, new ByteArrayInputStream(new byte[0]),
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String output() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private String errorOutput() {
+        return err.toString(StandardCharsets.UTF_8);
+    }
+}
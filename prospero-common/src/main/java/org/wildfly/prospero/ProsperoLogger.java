@@ -166,6 +166,26 @@ public interface ProsperoLogger extends BasicLogger {
     @Message(id = 31, value = "Server provisioned into %s")
     void provisioningComplete(Path installDir);
 
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 32, value = "Found a journal of an interrupted apply operation in %s. Rolling back the partially applied changes.")
+    void rollingBackInterruptedApply(Path installDir);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 34, value = "Compacting history of %s, keeping %d latest states")
+    void compactingHistory(Path installDir, int keep);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 35, value = "Restoring the installation using artifacts bundled in %s")
+    void restoringFromBundledArtifacts(Path bundle);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 36, value = "Replicating the installation %s to %s")
+    void replicatingInstallation(Path source, Path target);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 37, value = "The following artifacts were not found in the installation cache or the local Maven repository and are not included in the bundle: %s")
+    void artifactsNotBundled(String artifacts);
+
 
     // 200+ - errors
     @Message(id = 200, value = "Aborting update - the server appears to be running.")
@@ -272,7 +292,7 @@ public interface ProsperoLogger extends BasicLogger {
     @Message(id = 233, value = "File already exists [%s]")
     IllegalArgumentException fileAlreadyExists(Path path);
 
-    @Message(id = 234, value = "Promoting to non-file repositories is not currently supported")
+    @Message(id = 234, value = "Promoting is only supported to file and HTTP(S) repositories")
     IllegalArgumentException unsupportedPromotionTarget();
 
     @Message(id = 235, value = "Wrong format of custom channel version [%s]")
@@ -406,4 +426,25 @@ public interface ProsperoLogger extends BasicLogger {
     @Message(id = 276, value = "Unable to resolve version information for channel %s with coordinates %s:%s in repositories %s")
     MetadataException unableToResolveChannelVersionInformation(String channelName, String groupId, String artifactId, String repos, @Cause Exception e);
 
+    @Message(id = 277, value = "Invalid candidate archive [%s]: %s")
+    InvalidUpdateCandidateException invalidCandidateArchive(Path archive, String reason);
+
+    @Message(id = 278, value = "The content of [%s] in the candidate archive [%s] doesn't match the recorded hash.")
+    InvalidUpdateCandidateException candidateArchiveHashMismatch(String path, Path archive);
+
+    @Message(id = 279, value = "Unable to replicate the installation %s to %s.")
+    ProvisioningException unableToReplicateInstallation(Path source, Path target, @Cause Throwable e);
+
+    @Message(id = 280, value = "The checksum of the repository archive %s doesn't match the published checksum. Expected %s, but was %s.")
+    IOException repositoryArchiveChecksumMismatch(URL url, String expected, String actual);
+
+    @Message(id = 281, value = "Unable to download the repository archive %s: %s")
+    IOException unableToDownloadRepositoryArchive(URL url, String reason);
+
+    @Message(id = 282, value = "Invalid backup mode [%s] set in %s. Valid backup modes are: %s.")
+    IllegalArgumentException invalidBackupMode(String mode, String property, String validModes);
+
+    @Message(id = 283, value = "The replica directory %s overlaps with %s. Each replica has to be separate from the installation and from the other replicas.")
+    ProvisioningException overlappingReplicaDir(Path replica, Path other);
+
 }
@@ -33,7 +33,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -47,6 +46,8 @@ import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.ArtifactChange;
 import org.wildfly.prospero.api.FileConflict;
 import org.wildfly.prospero.api.InstallationMetadata;
+import org.wildfly.prospero.api.MetadataContext;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.SavedState;
 import org.wildfly.prospero.api.exceptions.ApplyCandidateException;
 import org.wildfly.prospero.api.exceptions.InvalidUpdateCandidateException;
@@ -73,7 +74,11 @@ import org.jboss.galleon.util.IoUtils;
 import org.jboss.galleon.util.PathsUtils;
 import org.wildfly.prospero.galleon.ArtifactCache;
 import org.wildfly.prospero.galleon.GalleonUtils;
+import org.wildfly.prospero.installation.StateDigest;
 import org.wildfly.prospero.installation.git.GitStorage;
+import org.wildfly.prospero.jfr.JfrSupport;
+import org.wildfly.prospero.jfr.ApplyEvent;
+import org.wildfly.prospero.jfr.BackupEvent;
 import org.wildfly.prospero.licenses.LicenseManager;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import org.wildfly.prospero.updates.CandidateProperties;
@@ -89,9 +94,15 @@ public class ApplyCandidateAction {
     public static final Path STANDALONE_STARTUP_MARKER = Path.of("standalone", "tmp", "startup-marker");
     public static final Path DOMAIN_STARTUP_MARKER = Path.of("domain", "tmp", "startup-marker");
     public static final String CANDIDATE_CHANNEL_NAME_LIST = "candidate_properties.yaml";
+    /**
+     * system property used to select the default {@link BackupMode}
+     */
+    public static final String BACKUP_MODE_PROPERTY = "org.wildfly.prospero.apply.backup-mode";
     private final Path updateDir;
     private final Path installationDir;
     private final SystemPaths systemPaths;
+    private final BackupMode backupMode;
+    private final SparseCandidate sparseCandidate;
 
     private static final Logger log = Logger.getLogger(ApplyCandidateAction.class);
 
@@ -122,13 +133,48 @@ public class ApplyCandidateAction {
         }
     }
 
+    /**
+     * Defines how the server files are preserved while the candidate is applied.
+     */
+    public enum BackupMode {
+        /**
+         * all server-managed files and metadata are recorded before the changes are applied.
+         */
+        FULL,
+        /**
+         * only files that are overwritten or removed are recorded in a journal, just before they are changed. If the
+         * apply operation is interrupted, the journal is used to recover the server with {@link #recoverInterruptedApply(Path)}.
+         */
+        JOURNAL;
+
+        static BackupMode getDefault() {
+            final String mode = System.getProperty(BACKUP_MODE_PROPERTY);
+            if (mode == null) {
+                return FULL;
+            }
+            try {
+                return BackupMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidBackupMode(mode, BACKUP_MODE_PROPERTY,
+                        Arrays.stream(values()).map(m -> m.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", ")));
+            }
+        }
+    }
+
     public ApplyCandidateAction(Path installationDir, Path updateDir)
             throws ProvisioningException, OperationException {
+        this(installationDir, updateDir, BackupMode.getDefault());
+    }
+
+    public ApplyCandidateAction(Path installationDir, Path updateDir, BackupMode backupMode)
+            throws ProvisioningException, OperationException {
         this.updateDir = InstallFolderUtils.toRealPath(updateDir);
         this.installationDir = InstallFolderUtils.toRealPath(installationDir);
+        this.backupMode = backupMode;
 
         try {
             this.systemPaths = SystemPaths.load(this.updateDir);
+            this.sparseCandidate = SparseCandidate.load(this.updateDir);
         } catch (IOException ex) {
             throw new ProvisioningException(ex);
         }
@@ -148,6 +194,8 @@ public class ApplyCandidateAction {
      * Any update files from {@code updateDir} are copied to {@code installationDir}. If any of the updates
      * (apart from {@code system-paths}) conflict with user changes, the user changes are preserved and the updated file
      * is added with {@code'.glnew'} suffix.
+     * <p>
+     * If the candidate is sparse, files omitted from the candidate are treated as unchanged by the update.
      *
      *
      * @return list of solved {@code FileConflict}s
@@ -156,6 +204,16 @@ public class ApplyCandidateAction {
      * @throws MetadataException - if unable to read or write the installation of update metadata
      */
     public List<FileConflict> applyUpdate(Type operation) throws ProvisioningException, OperationException {
+        // the installation and candidate metadata is read several times during the operation, open it only once
+        try (MetadataContext ignored = MetadataContext.open()) {
+            return applyCandidate(operation);
+        }
+    }
+
+    private List<FileConflict> applyCandidate(Type operation) throws ProvisioningException, OperationException {
+        // changes left by an interrupted apply would make the candidate look stale
+        recoverInterruptedApply(installationDir);
+
         ValidationResult validationResult = verifyCandidate(operation);
         if (operation == Type.REVERT && ValidationResult.NO_CHANGES == validationResult) {
             final InvalidUpdateCandidateException ex = ProsperoLogger.ROOT_LOGGER.noChangesAvailable(updateDir, installationDir);
@@ -176,19 +234,44 @@ public class ApplyCandidateAction {
         }
 
         final FsDiff diffs = GalleonUtils.findChanges(installationDir);
-        ApplyStageBackup backup = null;
+        ApplyStageRecord backup = null;
         try {
-            backup = new ApplyStageBackup(installationDir, updateDir);
-            backup.recordAll();
+            if (backupMode == BackupMode.JOURNAL) {
+                backup = new ApplyStageJournal(installationDir, updateDir, operation);
+            } else {
+                backup = new ApplyStageBackup(installationDir, updateDir);
+            }
+            final BackupEvent backupEvent = JfrSupport.isAvailable() ? new BackupEvent() : null;
+            if (backupEvent != null) {
+                backupEvent.begin();
+            }
+            try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.BACKUP)) {
+                backup.prepare();
+            } finally {
+                if (backupEvent != null) {
+                    backupEvent.mode = backupMode.name();
+                    backupEvent.finish(installationDir);
+                }
+            }
 
-            ProsperoLogger.ROOT_LOGGER.debug("Update backup generated in " + installationDir.resolve(ApplyStageBackup.BACKUP_FOLDER));
+            ProsperoLogger.ROOT_LOGGER.debug("Update backup generated in " + backup.getLocation());
 
             ProsperoLogger.ROOT_LOGGER.applyingCandidate(operation.text.toLowerCase(Locale.ROOT), updateDir);
             ProsperoLogger.ROOT_LOGGER.candidateChanges(
                     findUpdates().getArtifactUpdates().stream().map(ArtifactChange::prettyPrint).collect(Collectors.joining("; "))
             );
 
-            final List<FileConflict> conflicts = doApplyUpdate(diffs);
+            final ApplyEvent applyEvent = JfrSupport.isAvailable() ? new ApplyEvent() : null;
+            if (applyEvent != null) {
+                applyEvent.begin();
+            }
+            final List<FileConflict> conflicts;
+            try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.APPLY)) {
+                conflicts = doApplyUpdate(diffs, backup);
+            }
+            if (applyEvent != null) {
+                applyEvent.conflicts = conflicts.size();
+            }
 
             if (conflicts.isEmpty()) {
                 ProsperoLogger.ROOT_LOGGER.noCandidateConflicts();
@@ -201,7 +284,15 @@ public class ApplyCandidateAction {
                 }
             }
 
-            updateMetadata(operation);
+            try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.APPLY)) {
+                updateMetadata(operation, backup);
+            }
+            if (applyEvent != null) {
+                applyEvent.candidate = updateDir.toString();
+                applyEvent.type = operation.name();
+                applyEvent.finish(installationDir);
+            }
+            backup.commit();
             ProsperoLogger.ROOT_LOGGER.candidateApplied(operation.text, installationDir);
 
             // remove the backup if the apply operation was successful
@@ -221,10 +312,38 @@ public class ApplyCandidateAction {
             }
             final String msg = ex.getLocalizedMessage() == null ? ex.getMessage() : ex.getLocalizedMessage();
             throw new ApplyCandidateException(ProsperoLogger.ROOT_LOGGER.failedToApplyCandidate(msg),
-                    backupRestored, installationDir.resolve(ApplyStageBackup.BACKUP_FOLDER), ex);
+                    backupRestored, installationDir.resolve(backupMode == BackupMode.JOURNAL ? ApplyStageJournal.JOURNAL_FOLDER : ApplyStageBackup.BACKUP_FOLDER), ex);
         }
     }
 
+    /**
+     * Recovers the server at {@code installationDir} if an apply operation using {@link BackupMode#JOURNAL} was
+     * interrupted. If the interrupted operation has already applied all the changes, the journal is removed. Otherwise,
+     * the partially applied changes are rolled back. The candidate can be applied again afterwards.
+     *
+     * @param installationDir - root folder of the server
+     * @return true if an interrupted apply operation was found
+     * @throws OperationException - if unable to recover the server
+     */
+    public static boolean recoverInterruptedApply(Path installationDir) throws OperationException {
+        if (!ApplyStageJournal.exists(installationDir)) {
+            return false;
+        }
+
+        try {
+            if (ApplyStageJournal.isCommitted(installationDir)) {
+                ApplyStageJournal.discard(installationDir);
+                return true;
+            }
+
+            ProsperoLogger.ROOT_LOGGER.rollingBackInterruptedApply(installationDir);
+            ApplyStageJournal.rollback(installationDir);
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToWriteFile(installationDir.resolve(ApplyStageJournal.JOURNAL_FOLDER), e);
+        }
+        return true;
+    }
+
     public enum ValidationResult {
         OK, NOT_CANDIDATE, STALE, WRONG_TYPE, NO_CHANGES;
     }
@@ -249,7 +368,8 @@ public class ApplyCandidateAction {
             marker = MarkerFile.read(updateDir);
             final String hash = marker.getState();
             try(InstallationMetadata metadata = InstallationMetadata.loadInstallation(installationDir)) {
-                if (!metadata.getRevisions().get(0).getName().equals(hash)) {
+                final SavedState latestRevision = metadata.getLatestRevision();
+                if (latestRevision == null || !latestRevision.getName().equals(metadata.getCurrentRevisionName(hash))) {
                     if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                         ProsperoLogger.ROOT_LOGGER.debugf("The installation state has changed from the candidate [%s].", updateDir);
                     }
@@ -392,7 +512,7 @@ public class ApplyCandidateAction {
      */
     public SavedState getCandidateRevision() throws MetadataException {
         try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(updateDir)) {
-            return metadata.getRevisions().get(0);
+            return metadata.getLatestRevision();
         }
     }
 
@@ -400,45 +520,72 @@ public class ApplyCandidateAction {
         return Files.exists(installationDir.resolve(STANDALONE_STARTUP_MARKER)) || Files.exists(installationDir.resolve(DOMAIN_STARTUP_MARKER));
     }
 
-    private void updateMetadata(Type operation) throws IOException, MetadataException {
+    private void updateMetadata(Type operation, ApplyStageRecord record) throws IOException, MetadataException {
         // add all files in .installation folder to the backup set
-        copyCurrentVersions();
+        copyCurrentVersions(record);
         Path installationGalleonPath = PathsUtils.getProvisionedStateDir(installationDir);
         Path updateGalleonPath = PathsUtils.getProvisionedStateDir(updateDir);
         // add all files in .galleon folder to the backup set
+        record.beforeReplace(installationDir.relativize(installationGalleonPath));
         IoUtils.recursiveDelete(installationGalleonPath);
         IoUtils.copy(updateGalleonPath, installationGalleonPath, true);
+        record.beforeWrite(StateDigest.DIGEST_FILE);
+        recordStateDigest();
         // after the galleon data is copied, persist a copy of provisioning.xml and record it
+        record.beforeWrite(Path.of(METADATA_DIR, ProsperoMetadataUtils.PROVISIONING_RECORD_XML));
         ProsperoMetadataUtils.recordProvisioningDefinition(installationDir);
-        writeProsperoMetadata(operation);
-        updateInstallationCache();
-        updateAcceptedLicences();
+        writeProsperoMetadata(operation, record);
+        updateInstallationCache(record);
+        updateAcceptedLicences(record);
     }
 
-    private void updateAcceptedLicences() throws MetadataException {
+    private void recordStateDigest() {
+        // the Galleon hashes have been replaced by the candidate's, so the candidate's digest describes the new state.
+        // It is written after the hashes were copied, so that it matches the fingerprint of the copied hashes
+        final Path installationDigest = installationDir.resolve(StateDigest.DIGEST_FILE);
         try {
+            StateDigest.load(updateDir).write(installationDir);
+        } catch (IOException e) {
+            ProsperoLogger.ROOT_LOGGER.debug("Unable to record the installation state digest", e);
+            FileUtils.deleteQuietly(installationDigest.toFile());
+        }
+    }
+
+    private void updateAcceptedLicences(ApplyStageRecord record) throws MetadataException {
+        try {
+            final Path updateLicenses = updateDir.resolve(METADATA_DIR).resolve(LicenseManager.LICENSES_FOLDER);
+            if (Files.exists(updateLicenses)) {
+                // the licenses are merged into the existing folder, so record each file separately
+                try (Stream<Path> files = Files.walk(updateLicenses)) {
+                    for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                        record.beforeWrite(updateDir.relativize(file));
+                    }
+                }
+            }
             new LicenseManager().copyIfExists(updateDir, installationDir);
         } catch (IOException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToWriteFile(installationDir.resolve(LicenseManager.LICENSES_FOLDER), e);
         }
     }
 
-    private void copyCurrentVersions() throws IOException {
+    private void copyCurrentVersions(ApplyStageRecord record) throws IOException {
         Path sourceVersions = updateDir.resolve(METADATA_DIR).resolve(CURRENT_VERSION_FILE);
         if (Files.exists(sourceVersions)) {
+            record.beforeWrite(Path.of(METADATA_DIR, CURRENT_VERSION_FILE));
             Files.copy(sourceVersions, installationDir.resolve(METADATA_DIR).resolve(CURRENT_VERSION_FILE), StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
-    private void writeProsperoMetadata(Type operation) throws MetadataException, IOException {
+    private void writeProsperoMetadata(Type operation, ApplyStageRecord record) throws MetadataException, IOException {
         Path updateMetadataDir = updateDir.resolve(METADATA_DIR);
         Path updateManifest = updateMetadataDir.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME);
 
         Path installationMetadataDir = installationDir.resolve(METADATA_DIR);
         Path installationManifest = installationMetadataDir.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME);
+        record.beforeWrite(installationDir.relativize(installationManifest));
         copyFiles(updateManifest, installationManifest);
 
-        try (GitStorage git = new GitStorage(installationDir)) {
+        try (GitStorage git = MetadataContext.openGitStorage(installationDir)) {
             switch (operation) {
                 case UPDATE:
                     git.recordChange(SavedState.Type.UPDATE);
@@ -448,6 +595,7 @@ public class ApplyCandidateAction {
 
                     final Path updateChannels = updateMetadataDir.resolve(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME);
                     final Path installationChannels = installationMetadataDir.resolve(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME);
+                    record.beforeWrite(installationDir.relativize(installationChannels));
                     copyFiles(updateChannels, installationChannels);
 
                     break;
@@ -466,11 +614,12 @@ public class ApplyCandidateAction {
         IoUtils.copy(source, target);
     }
 
-    private void updateInstallationCache() throws IOException {
+    private void updateInstallationCache(ApplyStageRecord record) throws IOException {
         Path updateCacheDir = updateDir.resolve(ArtifactCache.CACHE_FOLDER);
 
 
         Path installationCacheDir = installationDir.resolve(ArtifactCache.CACHE_FOLDER);
+        record.beforeReplace(ArtifactCache.CACHE_FOLDER);
         if (Files.exists(installationCacheDir)) {
             IoUtils.recursiveDelete(installationCacheDir);
         }
@@ -598,6 +747,11 @@ public class ApplyCandidateAction {
                             }
                         }
                     }
+                } else if (sparseCandidate.isOmitted(Paths.get(installation.getRelativePath()))) {
+                    // The file was not changed by the update, we keep the user changes
+                    if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                        ProsperoLogger.ROOT_LOGGER.debug(formatMessage(MODIFIED, installation.getRelativePath(), "Modified file is not changed in the update"));
+                    }
                 } else {
                     // The file doesn't exist in the update, we keep the file in the installation
                     if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
@@ -619,14 +773,14 @@ public class ApplyCandidateAction {
         return Collections.unmodifiableList(conflicts);
     }
 
-    private List<FileConflict> doApplyUpdate(FsDiff fsDiff) throws IOException, ProvisioningException {
+    private List<FileConflict> doApplyUpdate(FsDiff fsDiff, ApplyStageRecord record) throws IOException, ProvisioningException {
         List<FileConflict> conflicts = new ArrayList<>();
         // Handles user added/removed/modified files
         conflicts.addAll(handleRemovedFiles(fsDiff));
         conflicts.addAll(handleAddedFiles(fsDiff));
         conflicts.addAll(handleModifiedFiles(fsDiff));
 
-        resolveFileConflicts(conflicts);
+        resolveFileConflicts(conflicts, record);
 
         // Handles files added/removed/modified in the update.
         Path skipUpdateGalleon = PathsUtils.getProvisionedStateDir(updateDir);
@@ -651,6 +805,7 @@ public class ApplyCandidateAction {
                         if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                             ProsperoLogger.ROOT_LOGGER.debug("Copying updated file " + relative + " to the installation");
                         }
+                        record.beforeWrite(relative);
                         copyFiles(file, installationFile);
                     }
                 }
@@ -695,10 +850,12 @@ public class ApplyCandidateAction {
                 Path relative = installationDir.relativize(file);
                 Path updateFile = updateDir.resolve(relative);
                 final String fsDiffKey = getFsDiffKey(relative, false);
-                if (isNotAddedOrModified(fsDiffKey, fsDiff) && fileNotPresent(updateFile) && !Files.isSymbolicLink(file)) {
+                if (isNotAddedOrModified(fsDiffKey, fsDiff) && fileNotPresent(updateFile) && !sparseCandidate.isOmitted(relative)
+                        && !Files.isSymbolicLink(file)) {
                     if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                         ProsperoLogger.ROOT_LOGGER.debug("Deleting the file " + relative + " that doesn't exist in the update");
                     }
+                    record.beforeDelete(relative);
                     IoUtils.recursiveDelete(file);
                 }
                 return FileVisitResult.CONTINUE;
@@ -712,7 +869,8 @@ public class ApplyCandidateAction {
 
             @Override
             public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                if (dir.equals(skipInstallationGalleon) || dir.equals(skipInstallationInstallation) || dir.equals(installationDir.resolve(ApplyStageBackup.BACKUP_FOLDER))) {
+                if (dir.equals(skipInstallationGalleon) || dir.equals(skipInstallationInstallation) || dir.equals(installationDir.resolve(ApplyStageBackup.BACKUP_FOLDER))
+                        || dir.equals(installationDir.resolve(ApplyStageJournal.JOURNAL_FOLDER))) {
                     return FileVisitResult.SKIP_SUBTREE;
                 }
                 if (!Files.isReadable(dir)) {
@@ -736,15 +894,16 @@ public class ApplyCandidateAction {
             }
 
             @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
                 if (!dir.equals(installationDir)) {
                     Path relative = installationDir.relativize(dir);
                     Path target = updateDir.resolve(relative);
                     String pathKey = getFsDiffKey(relative, true);
-                    if (!isAdded(pathKey, fsDiff) && !Files.exists(target) && isEmpty(dir)) {
+                    if (!isAdded(pathKey, fsDiff) && !Files.exists(target) && !sparseCandidate.isOmitted(relative) && isEmpty(dir)) {
                         if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                             ProsperoLogger.ROOT_LOGGER.debug("Deleting the directory " + relative + " that doesn't exist in the update");
                         }
+                        record.beforeDelete(relative);
                         IoUtils.recursiveDelete(dir);
                         return FileVisitResult.SKIP_SUBTREE;
                     }
@@ -758,7 +917,7 @@ public class ApplyCandidateAction {
                     Path relative = installationDir.relativize(file);
                     Path target = updateDir.resolve(relative);
                     // TODO: check it's not in the Galleon hashes
-                    if (Files.exists(target)) {
+                    if (Files.exists(target) || sparseCandidate.isOmitted(relative)) {
                         throw exc;
                     }
                     return FileVisitResult.SKIP_SUBTREE;
@@ -770,7 +929,7 @@ public class ApplyCandidateAction {
         return Collections.unmodifiableList(conflicts);
     }
 
-    private void resolveFileConflicts(List<FileConflict> conflicts) throws IOException, ProvisioningException {
+    private void resolveFileConflicts(List<FileConflict> conflicts, ApplyStageRecord record) throws IOException, ProvisioningException {
         // apply conflict resolution
         for (FileConflict conflict : conflicts) {
             final Path target = updateDir.resolve(conflict.getRelativePath());
@@ -779,28 +938,29 @@ public class ApplyCandidateAction {
                 if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.trace("Resolving file conflict: restoring files removed by the user: " + conflict);
                 }
+                record.beforeWrite(installationDir.relativize(current));
                 Files.createDirectories(current.getParent());
                 IoUtils.copy(target, current);
             } else if (conflict.getUpdateChange() == FileConflict.Change.ADDED && conflict.getResolution() == FileConflict.Resolution.UPDATE) {
                 if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.trace("Resolving file conflict: backing up user changes and applying update changes: " + conflict);
                 }
-                glold(current, target);
+                glold(current, target, record);
             } else if (conflict.getUpdateChange() == FileConflict.Change.ADDED && conflict.getResolution() == FileConflict.Resolution.USER) {
                 if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.trace("Resolving file conflict: preserving user changes and backing up update changes: " + conflict);
                 }
-                glnew(target, current);
+                glnew(target, current, record);
             } else if (conflict.getUpdateChange() == FileConflict.Change.MODIFIED && conflict.getResolution() == FileConflict.Resolution.UPDATE) {
                 if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.trace("Resolving file conflict: backing up user changes and applying update changes: " + conflict);
                 }
-                glold(current, target);
+                glold(current, target, record);
             } else if (conflict.getUpdateChange() == FileConflict.Change.MODIFIED && conflict.getResolution() == FileConflict.Resolution.USER) {
                 if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.trace("Resolving file conflict: preserving user changes and backing up update changes: " + conflict);
                 }
-                glnew(target, current);
+                glnew(target, current, record);
             } else {
                 ProsperoLogger.ROOT_LOGGER.debug("Unknown conflict type: " + conflict);
             }
@@ -834,19 +994,22 @@ public class ApplyCandidateAction {
 
 
 
-    private static void glnew(final Path updateFile, Path installationFile) throws ProvisioningException {
+    private void glnew(final Path updateFile, Path installationFile, ApplyStageRecord record) throws ProvisioningException {
         final Path glnewFile = installationFile.getParent().resolve(installationFile.getFileName() + Constants.DOT_GLNEW);
         try {
+            record.beforeWrite(installationDir.relativize(glnewFile));
             copyFiles(updateFile, glnewFile);
         } catch (IOException e) {
             throw new ProvisioningException("Failed to persist " + glnewFile, e);
         }
     }
 
-    private static void glold(Path installationFile, final Path target) throws ProvisioningException {
+    private void glold(Path installationFile, final Path target, ApplyStageRecord record) throws ProvisioningException {
         final Path gloldFile = installationFile.getParent().resolve(installationFile.getFileName() + Constants.DOT_GLOLD);
         try {
+            record.beforeWrite(installationDir.relativize(gloldFile));
             copyFiles(installationFile, gloldFile);
+            record.beforeWrite(installationDir.relativize(installationFile));
             copyFiles(target, installationFile);
         } catch (IOException e) {
             throw new ProvisioningException("Failed to persist " + gloldFile, e);
@@ -854,44 +1017,18 @@ public class ApplyCandidateAction {
     }
 
     private static boolean compareContent(Path installationDir, Path updateDir) throws IOException {
-        Path instGalleonHashPath = PathsUtils.getProvisionedStateDir(installationDir).resolve(Constants.HASHES);
-        Path updateGalleonHashPath = PathsUtils.getProvisionedStateDir(updateDir).resolve(Constants.HASHES);
-
-        Set<Path> instDirsPaths;
-        try (Stream<Path> instDirs = Files.walk(instGalleonHashPath)) {
-            instDirsPaths = instDirs.map(instGalleonHashPath::relativize).collect(Collectors.toUnmodifiableSet());
-        }
-
-        Set<Path> updateDirsPaths;
-        try (Stream<Path> instDirs = Files.walk(updateGalleonHashPath)) {
-            updateDirsPaths = instDirs.map(updateGalleonHashPath::relativize).collect(Collectors.toUnmodifiableSet());
-        }
-
-        if (instDirsPaths.size() != updateDirsPaths.size() || !instDirsPaths.containsAll(updateDirsPaths)) {
-            return false;
-        }
+        final StateDigest installationState = StateDigest.load(installationDir);
+        final StateDigest candidateState = StateDigest.load(updateDir);
 
-        for (Path path : instDirsPaths) {
-            Path sourcePath = instGalleonHashPath.resolve(path);
-            if (Files.isRegularFile(sourcePath)) {
-                Path targetPath = updateGalleonHashPath.resolve(path);
-                if (!FileUtils.contentEquals(sourcePath.toFile(), targetPath.toFile())) {
-                    return false;
-                }
-            }
-        }
-        Path instConfPath = ProsperoMetadataUtils.configurationPath(installationDir);
-        Path updatePath = ProsperoMetadataUtils.configurationPath(updateDir);
-
-        if (!Files.exists(instConfPath) && Files.exists(updatePath)
-                || Files.exists(instConfPath) && !Files.exists(updatePath)) {
-            return false;
+        if (installationState.getRoot().equals(candidateState.getRoot())) {
+            return true;
         }
 
-        if (Files.exists(instConfPath) && Files.exists(updatePath)) {
-            return FileUtils.contentEquals(instConfPath.toFile(), updatePath.toFile());
+        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+            ProsperoLogger.ROOT_LOGGER.debugf("Installation state [%s] differs from the candidate state [%s]. Changed directories: %s, changed channels: %s",
+                    installationState.getRoot(), candidateState.getRoot(),
+                    installationState.differingDirectories(candidateState), installationState.channelsDiffer(candidateState));
         }
-
-        return true;
+        return false;
     }
 }
\ No newline at end of file
@@ -16,16 +16,28 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A temporary record of all files modified, removed or added during applying a candidate server.
+ *
+ * The paths changed by the apply operation are tracked via the {@code before*} callbacks. If any changes were tracked,
+ * {@link #restore()} only visits those paths and the installation history, otherwise the whole server is compared with
+ * the backup.
  */
-class ApplyStageBackup implements AutoCloseable {
+class ApplyStageBackup implements ApplyStageRecord {
 
     protected static final String BACKUP_FOLDER = ".update.old";
+    private static final Path HISTORY_DIR = Path.of(ProsperoMetadataUtils.METADATA_DIR, ".git");
     private final Path backupRoot;
     private final Path serverRoot;
     private final Path candidateRoot;
+    private final Set<Path> touchedPaths = new LinkedHashSet<>();
 
     /**
      * create a record for server at {@code serverRoot}. The recorded files will be stored in {@tempRoot}
@@ -67,6 +79,49 @@ class ApplyStageBackup implements AutoCloseable {
         }
     }
 
+    @Override
+    public void prepare() throws IOException {
+        recordAll();
+    }
+
+    @Override
+    public Path getLocation() {
+        return backupRoot;
+    }
+
+    @Override
+    public void beforeWrite(Path relativePath) throws IOException {
+        track(relativePath);
+    }
+
+    @Override
+    public void beforeDelete(Path relativePath) throws IOException {
+        track(relativePath);
+    }
+
+    @Override
+    public void beforeReplace(Path relativePath) throws IOException {
+        track(relativePath);
+    }
+
+    private void track(Path relativePath) throws IOException {
+        touchedPaths.add(relativePath);
+        if (isMetadataPath(relativePath)) {
+            // metadata folders are copied as a whole in recordAll
+            return;
+        }
+
+        // the file might not have been recorded if it is not managed by the server or the candidate (e.g. .glnew files)
+        final Path serverPath = serverRoot.resolve(relativePath);
+        final Path backupPath = backupRoot.resolve(relativePath);
+        if (Files.isRegularFile(serverPath) && !Files.exists(backupPath)) {
+            Files.createDirectories(backupPath.getParent());
+            backupFile(serverPath, backupPath);
+        } else if (Files.isDirectory(serverPath) && !Files.exists(backupPath)) {
+            Files.createDirectories(backupPath);
+        }
+    }
+
     /**
      * add all the server-managed files in the server to cache
      *
@@ -164,7 +219,8 @@ class ApplyStageBackup implements AutoCloseable {
         try {
             Files.createLink(backupPath, serverPath);
         } catch (UnsupportedOperationException | FileSystemException e) {
-            Files.copy(serverPath, backupPath);
+            // preserve the timestamps so that unchanged files can be detected without reading the content on restore
+            Files.copy(serverPath, backupPath, StandardCopyOption.COPY_ATTRIBUTES);
         }
     }
 
@@ -181,6 +237,7 @@ class ApplyStageBackup implements AutoCloseable {
      *
      * @throws IOException - if unable to perform operations of the filesystem
      */
+    @Override
     public void restore() throws IOException {
         if (backupRoot.toFile().listFiles() == null || backupRoot.toFile().listFiles().length == 0) {
             return;
@@ -194,6 +251,11 @@ class ApplyStageBackup implements AutoCloseable {
             throw new RuntimeException("Backup root doesn't exist.");
         }
 
+        if (!touchedPaths.isEmpty()) {
+            restoreTouchedPaths();
+            return;
+        }
+
         // copy backed-up files back into the server
         Files.walkFileTree(backupRoot, restoreModifiedFiles());
 
@@ -201,6 +263,113 @@ class ApplyStageBackup implements AutoCloseable {
         Files.walkFileTree(serverRoot, deleteNewFiles());
     }
 
+    private void restoreTouchedPaths() throws IOException {
+        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+            ProsperoLogger.ROOT_LOGGER.debug("Restoring " + touchedPaths.size() + " paths changed by the apply operation.");
+        }
+
+        // the history is changed by the apply operation without being reported, restore it as a whole
+        restoreDirectory(HISTORY_DIR);
+
+        // deepest paths first, so that added directories are empty by the time they are removed
+        final List<Path> paths = new ArrayList<>(touchedPaths);
+        Collections.reverse(paths);
+        paths.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+        for (Path relativePath : paths) {
+            if (isMetadataPath(relativePath) && Files.isDirectory(backupRoot.resolve(relativePath))) {
+                // metadata folders are replaced as a whole
+                restoreDirectory(relativePath);
+                continue;
+            }
+            final Path backupPath = backupRoot.resolve(relativePath);
+            final Path serverPath = serverRoot.resolve(relativePath);
+            if (Files.isDirectory(backupPath)) {
+                if (!Files.exists(serverPath)) {
+                    if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                        ProsperoLogger.ROOT_LOGGER.trace("Recreating removed directory " + relativePath);
+                    }
+                    Files.createDirectories(serverPath);
+                }
+            } else if (Files.exists(backupPath)) {
+                final Path parentDir = serverPath.getParent();
+                if (!Files.exists(parentDir)) {
+                    if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                        ProsperoLogger.ROOT_LOGGER.trace("Recreating removed directory " + serverRoot.relativize(parentDir));
+                    }
+                    Files.createDirectories(parentDir);
+                }
+                if (fileChanged(backupPath, serverPath)) {
+                    if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                        ProsperoLogger.ROOT_LOGGER.trace("Restoring changed file " + relativePath);
+                    }
+                    Files.copy(backupPath, serverPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else if (Files.exists(serverPath)) {
+                if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                    ProsperoLogger.ROOT_LOGGER.trace("Removing added file " + relativePath);
+                }
+                FileUtils.forceDelete(serverPath.toFile());
+                removeAddedParents(relativePath);
+            }
+        }
+    }
+
+    private void restoreDirectory(Path relativePath) throws IOException {
+        final Path backupDir = backupRoot.resolve(relativePath);
+        final Path serverDir = serverRoot.resolve(relativePath);
+        if (!Files.isDirectory(backupDir)) {
+            return;
+        }
+
+        Files.walkFileTree(backupDir, restoreModifiedFiles());
+
+        // remove files added to the folder
+        Files.walkFileTree(serverDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!Files.exists(backupRoot.resolve(serverRoot.relativize(file)))) {
+                    if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                        ProsperoLogger.ROOT_LOGGER.trace("Removing added file " + serverRoot.relativize(file));
+                    }
+                    Files.delete(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (!Files.exists(backupRoot.resolve(serverRoot.relativize(dir)))) {
+                    Files.delete(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void removeAddedParents(Path relativePath) throws IOException {
+        Path parent = relativePath.getParent();
+        while (parent != null && !Files.exists(backupRoot.resolve(parent))) {
+            final Path serverDir = serverRoot.resolve(parent);
+            final String[] children = serverDir.toFile().list();
+            if (children == null || children.length > 0) {
+                return;
+            }
+            if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.trace("Removing added directory " + parent);
+            }
+            Files.delete(serverDir);
+            parent = parent.getParent();
+        }
+    }
+
+    private static boolean isMetadataPath(Path relativePath) {
+        if (relativePath.getNameCount() == 0) {
+            return false;
+        }
+        final String root = relativePath.getName(0).toString();
+        return root.equals(Constants.PROVISIONED_STATE_DIR) || root.equals(ProsperoMetadataUtils.METADATA_DIR);
+    }
+
     private SimpleFileVisitor<Path> deleteNewFiles() {
         return new SimpleFileVisitor<>() {
 
@@ -301,6 +470,20 @@ class ApplyStageBackup implements AutoCloseable {
             return true;
         }
 
+        final BasicFileAttributes backupAttrs = Files.readAttributes(file, BasicFileAttributes.class);
+        final BasicFileAttributes targetAttrs = Files.readAttributes(targetFile, BasicFileAttributes.class);
+        // the backup is a hardlink to the file that was not replaced
+        if (backupAttrs.fileKey() != null && backupAttrs.fileKey().equals(targetAttrs.fileKey())) {
+            return false;
+        }
+        if (backupAttrs.size() != targetAttrs.size()) {
+            return true;
+        }
+        // the backup copy preserves the timestamps of the original
+        if (backupAttrs.lastModifiedTime().equals(targetAttrs.lastModifiedTime())) {
+            return false;
+        }
+
         try (FileInputStream fis1 = new FileInputStream(targetFile.toFile());
              FileInputStream fis2 = new FileInputStream(file.toFile())){
             return !IOUtils.contentEquals(fis1, fis2);
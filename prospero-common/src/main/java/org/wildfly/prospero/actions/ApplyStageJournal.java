@@ -0,0 +1,402 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.apache.commons.io.FileUtils;
+import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.MetadataContext;
+import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.installation.git.GitStorage;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A write-ahead journal of files modified, removed or added during applying a candidate server.
+ *
+ * Unlike {@link ApplyStageBackup}, the journal doesn't copy the server up-front. Instead, an entry is appended to the
+ * journal just before each file is changed, and the original content of modified or removed files is preserved in
+ * the journal folder. Directories replaced as a whole (e.g. {@code .galleon}) are moved into the journal, and the history
+ * is restored by resetting it to the revision recorded when the journal was started.
+ *
+ * The journal is written to disk before each operation, so if the apply is interrupted, the journal left in
+ * {@code JOURNAL_FOLDER} can be used to roll back the partial changes. The journal is removed when the apply succeeds.
+ */
+class ApplyStageJournal implements ApplyStageRecord {
+
+    protected static final String JOURNAL_FOLDER = ".update.journal";
+    static final String JOURNAL_FILE = "journal.txt";
+    static final String FILES_FOLDER = "files";
+    static final String SEPARATOR = "::";
+
+    enum Entry {
+        /** the candidate folder and operation being applied */
+        CANDIDATE,
+        /** the revision of the history before the apply started */
+        HISTORY,
+        /** a file or directory that didn't exist before the apply */
+        CREATED,
+        /** a file or directory that existed before the apply, the original is preserved in the journal */
+        MODIFIED,
+        /** a file or empty directory that was removed, the original is preserved in the journal */
+        DELETED,
+        /** a directory that was moved into the journal and re-created */
+        REPLACED,
+        /** all changes were applied */
+        COMMITTED
+    }
+
+    private final Path serverRoot;
+    private final Path journalRoot;
+    private final Path candidateRoot;
+    private final ApplyCandidateAction.Type operation;
+    private final Map<String, Entry> recorded = new HashMap<>();
+    private FileChannel journal;
+
+    /**
+     * create a journal for server at {@code serverRoot}. The journal is stored in {@code serverRoot}/{@code JOURNAL_FOLDER}.
+     *
+     * @param serverRoot - root folder of the server that will be updated
+     * @param candidateRoot - root folder of the candidate being applied
+     * @param operation - type of the candidate
+     */
+    ApplyStageJournal(Path serverRoot, Path candidateRoot, ApplyCandidateAction.Type operation) {
+        this.serverRoot = serverRoot;
+        this.candidateRoot = candidateRoot;
+        this.operation = operation;
+        this.journalRoot = serverRoot.resolve(JOURNAL_FOLDER);
+    }
+
+    /**
+     * checks if there is a journal of an interrupted apply in the server
+     *
+     * @param serverRoot - root folder of the server
+     * @return true if the journal exists
+     */
+    static boolean exists(Path serverRoot) {
+        return Files.exists(serverRoot.resolve(JOURNAL_FOLDER).resolve(JOURNAL_FILE));
+    }
+
+    /**
+     * checks if the interrupted journal recorded all changes being applied.
+     *
+     * @param serverRoot - root folder of the server
+     * @return true if the journal has been committed
+     * @throws IOException - if unable to read the journal
+     */
+    static boolean isCommitted(Path serverRoot) throws IOException {
+        return readJournal(serverRoot.resolve(JOURNAL_FOLDER)).stream()
+                .anyMatch(line -> Entry.valueOf(line[0]) == Entry.COMMITTED);
+    }
+
+    /**
+     * removes the journal without restoring the server.
+     *
+     * @param serverRoot - root folder of the server
+     */
+    static void discard(Path serverRoot) {
+        FileUtils.deleteQuietly(serverRoot.resolve(JOURNAL_FOLDER).toFile());
+    }
+
+    /**
+     * rolls back changes recorded in an interrupted journal and removes the journal.
+     *
+     * @param serverRoot - root folder of the server
+     * @throws IOException - if unable to restore the server
+     */
+    static void rollback(Path serverRoot) throws IOException {
+        final ApplyStageJournal journal = new ApplyStageJournal(serverRoot, null, null);
+        journal.restore();
+        journal.close();
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+            ProsperoLogger.ROOT_LOGGER.debug("Creating apply journal in " + journalRoot);
+        }
+
+        if (Files.exists(journalRoot)) {
+            // an interrupted journal has to be recovered before starting a new one
+            throw new IllegalStateException(String.format("Unable to create apply journal in %s. The journal already exists.", journalRoot));
+        }
+        Files.createDirectories(journalRoot.resolve(FILES_FOLDER));
+
+        journal = FileChannel.open(journalRoot.resolve(JOURNAL_FILE),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        append(Entry.CANDIDATE, operation.getText() + SEPARATOR + candidateRoot.toAbsolutePath());
+        final Path historyDir = Path.of(ProsperoMetadataUtils.METADATA_DIR, ".git");
+        if (!Files.exists(serverRoot.resolve(historyDir))) {
+            // the history will be created when the changes are recorded
+            beforeWrite(historyDir);
+        } else {
+            try (GitStorage git = MetadataContext.openGitStorage(serverRoot)) {
+                final String head = git.getHeadRevision();
+                if (head != null) {
+                    append(Entry.HISTORY, head);
+                }
+            } catch (MetadataException e) {
+                throw new IOException("Unable to read the installation history", e);
+            }
+        }
+    }
+
+    @Override
+    public void beforeWrite(Path relativePath) throws IOException {
+        final String key = toKey(relativePath);
+        if (isRecorded(key)) {
+            return;
+        }
+
+        final Path serverPath = serverRoot.resolve(relativePath);
+        if (Files.exists(serverPath)) {
+            preserve(serverPath, key);
+            append(Entry.MODIFIED, key);
+        } else {
+            // record the top-most directory that will be created, so that the whole subtree is removed on rollback
+            Path created = relativePath;
+            while (created.getParent() != null && !Files.exists(serverRoot.resolve(created.getParent()))) {
+                created = created.getParent();
+            }
+            append(Entry.CREATED, toKey(created));
+        }
+    }
+
+    @Override
+    public void beforeDelete(Path relativePath) throws IOException {
+        final String key = toKey(relativePath);
+        final Path serverPath = serverRoot.resolve(relativePath);
+        if (isRecorded(key) || !Files.exists(serverPath)) {
+            return;
+        }
+
+        preserve(serverPath, key);
+        append(Entry.DELETED, key);
+    }
+
+    @Override
+    public void beforeReplace(Path relativePath) throws IOException {
+        final String key = toKey(relativePath);
+        final Path serverPath = serverRoot.resolve(relativePath);
+        if (isRecorded(key)) {
+            return;
+        }
+        if (!Files.exists(serverPath)) {
+            append(Entry.CREATED, key);
+            return;
+        }
+
+        // the directory is going to be removed anyway, moving it is cheaper than copying it
+        final Path journalPath = journalRoot.resolve(FILES_FOLDER).resolve(relativePath);
+        Files.createDirectories(journalPath.getParent());
+        append(Entry.REPLACED, key);
+        Files.move(serverPath, journalPath);
+    }
+
+    @Override
+    public void commit() throws IOException {
+        append(Entry.COMMITTED, "");
+    }
+
+    /**
+     * rolls back the changes recorded in the journal. The entries are processed in reverse order.
+     *
+     * @throws IOException - if unable to restore the files
+     */
+    @Override
+    public void restore() throws IOException {
+        closeJournal();
+        if (!Files.exists(journalRoot.resolve(JOURNAL_FILE))) {
+            return;
+        }
+
+        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+            ProsperoLogger.ROOT_LOGGER.debug("Restoring server from the apply journal " + journalRoot);
+        }
+
+        final List<String[]> entries = readJournal(journalRoot);
+
+        // reset the history first, the restored files take precedence over files checked out from history
+        for (String[] entry : entries) {
+            if (Entry.valueOf(entry[0]) == Entry.HISTORY) {
+                try (GitStorage git = MetadataContext.openGitStorage(serverRoot)) {
+                    git.reset(entry[1]);
+                } catch (MetadataException e) {
+                    throw new IOException("Unable to restore the installation history", e);
+                }
+            }
+        }
+
+        Collections.reverse(entries);
+        for (String[] entry : entries) {
+            final Path serverPath = serverRoot.resolve(entry[1]);
+            final Path journalPath = journalRoot.resolve(FILES_FOLDER).resolve(entry[1]);
+            switch (Entry.valueOf(entry[0])) {
+                case CREATED:
+                    if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                        ProsperoLogger.ROOT_LOGGER.trace("Removing added file " + entry[1]);
+                    }
+                    FileUtils.deleteQuietly(serverPath.toFile());
+                    break;
+                case MODIFIED:
+                case DELETED:
+                    if (Files.exists(journalPath)) {
+                        if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                            ProsperoLogger.ROOT_LOGGER.trace("Restoring changed file " + entry[1]);
+                        }
+                        restoreFile(journalPath, serverPath);
+                    }
+                    break;
+                case REPLACED:
+                    if (Files.exists(journalPath)) {
+                        if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                            ProsperoLogger.ROOT_LOGGER.trace("Restoring replaced directory " + entry[1]);
+                        }
+                        FileUtils.deleteQuietly(serverPath.toFile());
+                        Files.createDirectories(serverPath.getParent());
+                        Files.move(journalPath, serverPath);
+                    }
+                    break;
+                default:
+                    // not a file change
+            }
+        }
+    }
+
+    @Override
+    public Path getLocation() {
+        return journalRoot;
+    }
+
+    /**
+     * removes the journal
+     */
+    @Override
+    public void close() {
+        try {
+            closeJournal();
+        } catch (IOException e) {
+            ProsperoLogger.ROOT_LOGGER.debug("Unable to close the apply journal", e);
+        }
+        FileUtils.deleteQuietly(journalRoot.toFile());
+    }
+
+    private boolean isRecorded(String key) {
+        if (recorded.containsKey(key)) {
+            return true;
+        }
+        // files created or replaced as part of a parent directory are removed with it
+        String parent = key;
+        int idx;
+        while ((idx = parent.lastIndexOf('/')) > 0) {
+            parent = parent.substring(0, idx);
+            final Entry entry = recorded.get(parent);
+            if (entry == Entry.CREATED || entry == Entry.REPLACED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void preserve(Path serverPath, String key) throws IOException {
+        final Path journalPath = journalRoot.resolve(FILES_FOLDER).resolve(key);
+        Files.createDirectories(journalPath.getParent());
+        if (Files.isDirectory(serverPath)) {
+            FileUtils.copyDirectory(serverPath.toFile(), journalPath.toFile());
+        } else {
+            // the original has to be copied - some operations (e.g. history record) change files in place
+            Files.copy(serverPath, journalPath, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void restoreFile(Path journalPath, Path serverPath) throws IOException {
+        Files.createDirectories(serverPath.getParent());
+        if (Files.isDirectory(journalPath)) {
+            if (Files.exists(serverPath) && !Files.isDirectory(serverPath)) {
+                Files.delete(serverPath);
+            }
+            FileUtils.copyDirectory(journalPath.toFile(), serverPath.toFile());
+        } else if (Files.exists(journalPath)) {
+            if (Files.isDirectory(serverPath)) {
+                FileUtils.deleteDirectory(serverPath.toFile());
+            }
+            Files.copy(journalPath, serverPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private void append(Entry entry, String value) throws IOException {
+        recorded.putIfAbsent(value, entry);
+        final byte[] line = (entry.name() + SEPARATOR + value + "\n").getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        // make sure the entry is on disk before the operation is performed
+        journal.force(false);
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private static List<String[]> readJournal(Path journalRoot) throws IOException {
+        final Path journalFile = journalRoot.resolve(JOURNAL_FILE);
+        final List<String[]> entries = new ArrayList<>();
+        if (!Files.exists(journalFile)) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(journalFile, StandardCharsets.UTF_8)) {
+            final String[] split = line.split(SEPARATOR, 2);
+            // ignore partially written last line
+            if (split.length == 2 && isEntry(split[0])) {
+                entries.add(split);
+            }
+        }
+        return entries;
+    }
+
+    private static boolean isEntry(String name) {
+        for (Entry entry : Entry.values()) {
+            if (entry.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String toKey(Path relativePath) {
+        return relativePath.toString().replace(File.separatorChar, '/');
+    }
+}
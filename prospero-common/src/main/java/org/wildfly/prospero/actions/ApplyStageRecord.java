@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A record of changes made to the server while applying a candidate, used to restore the server if the apply fails.
+ *
+ * The {@code before*} methods are called by {@link ApplyCandidateAction} just before the server file at
+ * {@code relativePath} is changed.
+ */
+interface ApplyStageRecord extends AutoCloseable {
+
+    /**
+     * prepares the record before any changes are made to the server.
+     *
+     * @throws IOException - if unable to create the record
+     */
+    void prepare() throws IOException;
+
+    /**
+     * called before a file or a directory is created or overwritten.
+     *
+     * @param relativePath - path relative to the server root
+     * @throws IOException - if unable to record the file
+     */
+    default void beforeWrite(Path relativePath) throws IOException {
+    }
+
+    /**
+     * called before a file or an empty directory is deleted.
+     *
+     * @param relativePath - path relative to the server root
+     * @throws IOException - if unable to record the file
+     */
+    default void beforeDelete(Path relativePath) throws IOException {
+    }
+
+    /**
+     * called before a directory is removed with all its content and re-created from the candidate.
+     *
+     * @param relativePath - path relative to the server root
+     * @throws IOException - if unable to record the directory
+     */
+    default void beforeReplace(Path relativePath) throws IOException {
+    }
+
+    /**
+     * called when all the changes were applied successfully.
+     *
+     * @throws IOException - if unable to update the record
+     */
+    default void commit() throws IOException {
+    }
+
+    /**
+     * restores the server to the state before the changes were applied.
+     *
+     * @throws IOException - if unable to restore the server
+     */
+    void restore() throws IOException;
+
+    /**
+     * location of the record
+     *
+     * @return path to the record
+     */
+    Path getLocation();
+
+    /**
+     * removes the record
+     */
+    @Override
+    void close();
+}
@@ -1,7 +1,6 @@
 package org.wildfly.prospero.actions;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 import org.jboss.galleon.ProvisioningException;
@@ -44,7 +43,8 @@ abstract class GalleonHashesFileWalker {
                 continue;
             }
 
-            if (Files.isDirectory(rootPath.resolve(child.getRelativePath()))) {
+            // use the recorded type, the directory might be missing from a sparse candidate
+            if (child.isDir()) {
                 visitDirectory(Path.of(child.getRelativePath()));
                 doWalk(child);
             } else {
@@ -17,16 +17,31 @@
 
 package org.wildfly.prospero.actions;
 
+import org.wildfly.channel.MavenArtifact;
+import org.wildfly.channel.Stream;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.InstallationMetadata;
 import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.galleon.ArtifactCache;
+import org.wildfly.prospero.wfchannel.MavenSessionManager;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class InstallationExportAction {
 
+    // the manifest streams don't define the type of the artifact, installed artifacts are either jars or feature packs
+    private static final List<String> LOCAL_REPOSITORY_EXTENSIONS = List.of("jar", "zip");
+
     private final Path installationDir;
 
     public InstallationExportAction(Path installationDir) {
@@ -41,6 +56,23 @@ public class InstallationExportAction {
     }
 
     public void export(Path exportPath) throws IOException, MetadataException {
+        export(exportPath, false);
+    }
+
+    /**
+     * exports the installation metadata to a bundle that can be used to restore the installation.
+     *
+     * If {@code withArtifacts} is set, the bundle includes a Maven repository with the artifacts listed in the installation
+     * manifest, allowing to restore the installation without access to remote repositories. The artifacts are taken from
+     * the installation's artifact cache, or if not cached, from the local Maven repository. Each artifact is stored only once.
+     * Artifacts not found in either location are listed in a warning.
+     *
+     * @param exportPath - path of the created bundle
+     * @param withArtifacts - include the installed artifacts in the bundle
+     * @throws IOException - if unable to write the bundle
+     * @throws MetadataException - if unable to read the installation metadata
+     */
+    public void export(Path exportPath, boolean withArtifacts) throws IOException, MetadataException {
         if (!installationDir.toFile().exists()) {
             throw ProsperoLogger.ROOT_LOGGER.installationDirDoesNotExist(installationDir);
         }
@@ -49,7 +81,73 @@ public class InstallationExportAction {
 
         try (InstallationMetadata metadataBundle = InstallationMetadata.loadInstallation(installationDir)) {
 
-            metadataBundle.exportMetadataBundle(exportPath);
+            if (withArtifacts) {
+                metadataBundle.exportMetadataBundle(exportPath, findArtifacts(metadataBundle));
+            } else {
+                metadataBundle.exportMetadataBundle(exportPath);
+            }
+        }
+    }
+
+    private Map<String, Path> findArtifacts(InstallationMetadata metadata) throws IOException {
+        final Map<String, String> streams = new HashMap<>();
+        for (Stream stream : metadata.getManifest().getStreams()) {
+            streams.put(stream.getGroupId() + ":" + stream.getArtifactId(), stream.getVersion());
+        }
+
+        final Map<String, Path> artifacts = new HashMap<>();
+        final Set<String> found = new HashSet<>();
+        for (MavenArtifact artifact : ArtifactCache.getInstance(installationDir).listArtifacts()) {
+            final String ga = artifact.getGroupId() + ":" + artifact.getArtifactId();
+            if (artifact.getVersion().equals(streams.get(ga))) {
+                artifacts.putIfAbsent(toRepositoryPath(artifact), artifact.getFile().toPath());
+                found.add(ga);
+            }
+        }
+
+        // streams not available in the cache might have been resolved into the local repository
+        final Path localRepository = metadata.getProsperoConfig().getMavenOptions().overridesLocalCache()
+                ? metadata.getProsperoConfig().getMavenOptions().getLocalCache()
+                : MavenSessionManager.LOCAL_MAVEN_REPO;
+        final List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, String> stream : streams.entrySet()) {
+            if (found.contains(stream.getKey())) {
+                continue;
+            }
+            final String[] ga = stream.getKey().split(":");
+            final String versionDir = ga[0].replace('.', '/') + "/" + ga[1] + "/" + stream.getValue();
+            boolean foundLocally = false;
+            for (String extension : LOCAL_REPOSITORY_EXTENSIONS) {
+                // only the main artifact, without classifier
+                final String fileName = ga[1] + "-" + stream.getValue() + "." + extension;
+                final Path file = localRepository.resolve(versionDir).resolve(fileName);
+                if (Files.isRegularFile(file)) {
+                    artifacts.putIfAbsent(versionDir + "/" + fileName, file);
+                    foundLocally = true;
+                }
+            }
+            if (!foundLocally) {
+                missing.add(stream.getKey() + ":" + stream.getValue());
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            // the manifest can list streams not used by the installation, so the export is not aborted
+            Collections.sort(missing);
+            ProsperoLogger.ROOT_LOGGER.artifactsNotBundled(String.join(", ", missing));
+        }
+        return artifacts;
+    }
+
+    private static String toRepositoryPath(MavenArtifact artifact) {
+        final StringBuilder sb = new StringBuilder()
+                .append(artifact.getGroupId().replace('.', '/')).append('/')
+                .append(artifact.getArtifactId()).append('/')
+                .append(artifact.getVersion()).append('/')
+                .append(artifact.getArtifactId()).append('-').append(artifact.getVersion());
+        if (artifact.getClassifier() != null && !artifact.getClassifier().isEmpty()) {
+            sb.append('-').append(artifact.getClassifier());
         }
+        return sb.append('.').append(artifact.getExtension()).toString();
     }
 }
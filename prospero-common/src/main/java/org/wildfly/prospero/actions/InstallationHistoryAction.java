@@ -22,8 +22,10 @@ import org.jboss.galleon.util.PathsUtils;
 import org.wildfly.channel.Repository;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.Console;
+import org.wildfly.prospero.api.HistoryStatistics;
 import org.wildfly.prospero.api.InstallationChanges;
 import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.MetadataContext;
 import org.wildfly.prospero.api.TemporaryRepositoriesHandler;
 import org.wildfly.prospero.api.exceptions.OperationException;
 import org.wildfly.prospero.api.InstallationMetadata;
@@ -39,7 +41,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import org.jboss.galleon.api.config.GalleonProvisioningConfig;
 
@@ -64,16 +66,33 @@ public class InstallationHistoryAction {
      */
     public InstallationChanges getRevisionChanges(SavedState savedState) throws MetadataException {
         ProsperoLogger.ROOT_LOGGER.historyDetails(savedState.getName(), installation);
-        final InstallationMetadata installationMetadata = InstallationMetadata.loadInstallation(installation);
-        verifyStateExists(savedState, installationMetadata);
-        return installationMetadata.getChangesIn(savedState);
+        try (InstallationMetadata installationMetadata = InstallationMetadata.loadInstallation(installation)) {
+            verifyStateExists(savedState, installationMetadata);
+            return installationMetadata.getChangesIn(savedState);
+        }
     }
 
     public InstallationChanges getChangesSinceRevision(SavedState savedState) throws MetadataException {
         ProsperoLogger.ROOT_LOGGER.historyDetails(savedState.getName(), installation);
-        final InstallationMetadata installationMetadata = InstallationMetadata.loadInstallation(installation);
-        verifyStateExists(savedState, installationMetadata);
-        return installationMetadata.getChangesToCurrent(savedState);
+        try (InstallationMetadata installationMetadata = InstallationMetadata.loadInstallation(installation)) {
+            verifyStateExists(savedState, installationMetadata);
+            return installationMetadata.getChangesToCurrent(savedState);
+        }
+    }
+
+    /**
+     * lists changes in each installation state recorded after {@code since}. Unlike calling {@link #getRevisionChanges(SavedState)}
+     * for each state, the history is read only once.
+     *
+     * @param since - the state to list changes after, or {@code null} to list changes in all states
+     * @return installation states and changes in them, latest state first
+     * @throws MetadataException - if unable to read the history
+     */
+    public Map<SavedState, InstallationChanges> getRevisionChangesSince(SavedState since) throws MetadataException {
+        ProsperoLogger.ROOT_LOGGER.listHistory(installation);
+        try (InstallationMetadata installationMetadata = InstallationMetadata.loadInstallation(installation)) {
+            return installationMetadata.getChangesInEachSince(since);
+        }
     }
 
     public List<SavedState> getRevisions() throws MetadataException {
@@ -83,9 +102,52 @@ public class InstallationHistoryAction {
         }
     }
 
+    /**
+     * lists a page of the installation history, latest state first.
+     *
+     * @param offset - number of the latest states to skip
+     * @param limit - maximum number of states to return
+     * @return list of installation states
+     * @throws MetadataException - if unable to read the history
+     */
+    public List<SavedState> getRevisions(int offset, int limit) throws MetadataException {
+        ProsperoLogger.ROOT_LOGGER.listHistory(installation);
+        try(InstallationMetadata installationMetadata = InstallationMetadata.loadInstallation(installation)) {
+            return installationMetadata.getRevisions(offset, limit);
+        }
+    }
+
+    /**
+     * size of the repository storing the installation history.
+     *
+     * @return statistics of the history repository
+     * @throws MetadataException - if unable to read the history
+     */
+    public HistoryStatistics getHistoryStatistics() throws MetadataException {
+        try (InstallationMetadata installationMetadata = InstallationMetadata.loadInstallation(installation)) {
+            return installationMetadata.getHistoryStatistics();
+        }
+    }
+
+    /**
+     * removes all but the latest {@code keep} installation states from the history. The kept states can still be
+     * reverted to, but their names change.
+     *
+     * @param keep - number of the latest states to keep, at least 1
+     * @return number of removed states
+     * @throws MetadataException - if unable to access the history
+     */
+    public int compactHistory(int keep) throws MetadataException {
+        ProsperoLogger.ROOT_LOGGER.compactingHistory(installation, keep);
+        try (InstallationMetadata installationMetadata = InstallationMetadata.loadInstallation(installation)) {
+            return installationMetadata.compactHistory(keep);
+        }
+    }
+
     public void rollback(SavedState savedState, MavenOptions mavenOptions, List<Repository> overrideRepositories) throws OperationException, ProvisioningException {
         Path tempDirectory = null;
-        try {
+        // share the installation metadata between the prepare and apply steps
+        try (MetadataContext ignored = MetadataContext.open()) {
             ProsperoLogger.ROOT_LOGGER.revertStarted(installation, savedState.getName());
             tempDirectory = Files.createTempDirectory("revert-candidate");
             if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
@@ -98,6 +160,7 @@ public class InstallationHistoryAction {
             throw ProsperoLogger.ROOT_LOGGER.unableToCreateTemporaryDirectory(e);
         } finally {
             if (tempDirectory != null) {
+                MetadataContext.release(tempDirectory);
                 FileUtils.deleteQuietly(tempDirectory.toFile());
             }
         }
@@ -159,8 +222,8 @@ public class InstallationHistoryAction {
     }
 
     private static void verifyStateIsNotTip(SavedState savedState, InstallationMetadata metadata) throws MetadataException {
-        Optional<SavedState> first = metadata.getRevisions().stream().findFirst();
-        if (first.isPresent() && first.get().getName().equals(savedState.getName())) {
+        final SavedState latest = metadata.getLatestRevision();
+        if (latest != null && latest.getName().equals(savedState.getName())) {
             throw ProsperoLogger.ROOT_LOGGER.cannotRevertToTip(savedState.getName());
         }
     }
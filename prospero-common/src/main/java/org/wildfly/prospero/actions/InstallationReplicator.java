@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.wildfly.channel.MavenArtifact;
+import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.galleon.ArtifactCache;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Copies a provisioned installation into another directory.
+ *
+ * The history of the installation is not copied - each copy has to record its own history. If {@code linkArtifacts} is
+ * enabled, the artifacts recorded in the installation's artifact cache are hardlinked instead of copied. Only the
+ * artifacts that have not been modified since they were provisioned are linked. Everything else, including the server
+ * configuration, is always copied, so the copies can be modified independently. If a link cannot be created (e.g. the
+ * target is on a different file store), the file is copied instead.
+ */
+class InstallationReplicator {
+
+    private static final Path HISTORY_DIR = Path.of(ProsperoMetadataUtils.METADATA_DIR, ".git");
+
+    private final Path source;
+    private final Set<Path> artifacts;
+
+    InstallationReplicator(Path source, boolean linkArtifacts) throws IOException {
+        this.source = source.toAbsolutePath().normalize();
+        if (linkArtifacts) {
+            this.artifacts = new HashSet<>();
+            for (MavenArtifact artifact : ArtifactCache.getInstance(this.source).listArtifacts()) {
+                artifacts.add(artifact.getFile().toPath().toAbsolutePath().normalize());
+            }
+        } else {
+            this.artifacts = Collections.emptySet();
+        }
+    }
+
+    /**
+     * copies the installation to {@code target}.
+     *
+     * @param target - directory to copy the installation into. The directory must not exist.
+     * @throws IOException - if unable to copy the files
+     */
+    void replicate(Path target) throws IOException {
+        ProsperoLogger.ROOT_LOGGER.replicatingInstallation(source, target);
+        final Path historyDir = source.resolve(HISTORY_DIR);
+
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.equals(historyDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final Path targetFile = target.resolve(source.relativize(file).toString());
+                if (artifacts.contains(file) && link(targetFile, file)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean link(Path link, Path existing) {
+        try {
+            Files.createLink(link, existing);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.debugf(e, "Unable to link %s, copying the file instead", existing);
+            }
+            return false;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.wildfly.prospero.actions;
 
+import org.apache.commons.io.FileUtils;
 import org.wildfly.channel.Channel;
 import org.wildfly.channel.ChannelManifest;
 import org.wildfly.channel.Repository;
@@ -36,13 +37,22 @@ import org.wildfly.prospero.wfchannel.MavenSessionManager;
 import org.jboss.galleon.ProvisioningException;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class InstallationRestoreAction {
 
+    private static final String BUNDLED_REPOSITORY_ID = "bundled-repository";
+
     private final Path installDir;
     private final Console console;
     private final MavenSessionManager mavenSessionManager;
@@ -55,16 +65,50 @@ public class InstallationRestoreAction {
 
     public void restore(Path metadataBundleZip, List<Repository> remoteRepositories)
             throws ProvisioningException, IOException, OperationException {
+        restore(metadataBundleZip, remoteRepositories, Collections.emptyList(), false);
+    }
+
+    /**
+     * restores the installation from the metadata bundle and creates copies of it in {@code replicaDirs}.
+     *
+     * The channels, artifacts and configuration are resolved only once, when the installation is provisioned. The
+     * provisioned files are then copied into the replica directories in parallel, and each replica records its own
+     * installation metadata and history.
+     *
+     * @param metadataBundleZip - the metadata bundle created by the export
+     * @param remoteRepositories - repositories overriding the channel repositories
+     * @param replicaDirs - additional directories to create copies of the installation in
+     * @param linkArtifacts - hardlink the unmodified installed artifacts into the replicas instead of copying them
+     */
+    public void restore(Path metadataBundleZip, List<Repository> remoteRepositories, List<Path> replicaDirs, boolean linkArtifacts)
+            throws ProvisioningException, IOException, OperationException {
         if (installDir.toFile().exists()) {
             throw ProsperoLogger.ROOT_LOGGER.installationDirAlreadyExists(installDir);
         }
+        final List<Path> replicas = verifyReplicaDirs(replicaDirs);
 
+        Path bundledRepository = null;
         try (InstallationMetadata metadataBundle = InstallationMetadata.fromMetadataBundle(metadataBundleZip)) {
             final ProsperoConfig prosperoConfig = metadataBundle.getProsperoConfig();
             List<Channel> originalChannels = new ArrayList<>(prosperoConfig.getChannels());
-            if (remoteRepositories != null && !remoteRepositories.isEmpty()) {
+
+            final List<Repository> repositories = new ArrayList<>();
+            if (InstallationMetadata.hasBundledRepository(metadataBundleZip)) {
+                bundledRepository = Files.createTempDirectory("installer-restore-repository");
+                InstallationMetadata.extractBundledRepository(metadataBundleZip, bundledRepository);
+                ProsperoLogger.ROOT_LOGGER.restoringFromBundledArtifacts(metadataBundleZip);
+                repositories.add(new Repository(BUNDLED_REPOSITORY_ID, bundledRepository.toUri().toString()));
+                if (remoteRepositories == null || remoteRepositories.isEmpty()) {
+                    // the bundle contains the installed artifacts, no need to access remote repositories
+                    mavenSessionManager.setOffline(true);
+                }
+            }
+            if (remoteRepositories != null) {
+                repositories.addAll(remoteRepositories);
+            }
+            if (!repositories.isEmpty()) {
                 prosperoConfig.getChannels().clear();
-                prosperoConfig.getChannels().addAll(TemporaryRepositoriesHandler.overrideRepositories(originalChannels, remoteRepositories));
+                prosperoConfig.getChannels().addAll(TemporaryRepositoriesHandler.overrideRepositories(originalChannels, repositories));
             }
             try (GalleonEnvironment galleonEnv = GalleonEnvironment
                     .builder(installDir, prosperoConfig.getChannels(), mavenSessionManager, false)
@@ -72,18 +116,106 @@ public class InstallationRestoreAction {
                     .setRestoreManifest(metadataBundle.getManifest())
                     .build()) {
 
-                GalleonUtils.executeGalleon(options -> galleonEnv.getProvisioning().provision(metadataBundle.getGalleonProvisioningConfig(), options),
+                GalleonUtils.executeGalleon(options -> GalleonUtils.provision(galleonEnv.getProvisioning(), metadataBundle.getGalleonProvisioningConfig(), options),
                         mavenSessionManager.getProvisioningRepo().toAbsolutePath());
 
-                writeProsperoMetadata(galleonEnv.getChannelSession().getRecordedChannel(), originalChannels);
+                final ChannelManifest recordedManifest = galleonEnv.getChannelSession().getRecordedChannel();
+                writeProsperoMetadata(installDir, recordedManifest, originalChannels);
+
+                if (!replicas.isEmpty()) {
+                    replicate(replicas, linkArtifacts, recordedManifest, originalChannels);
+                }
             } catch (UnresolvedMavenArtifactException e) {
                 throw new ArtifactResolutionException(ProsperoLogger.ROOT_LOGGER.unableToResolve(), e, e.getUnresolvedArtifacts(),
                         e.getAttemptedRepositories(), mavenSessionManager.isOffline());
             }
+        } finally {
+            if (bundledRepository != null) {
+                FileUtils.deleteQuietly(bundledRepository.toFile());
+            }
+        }
+    }
+
+    /*
+     * The replicas are copied in parallel from the installation, so none of them can overlap with the installation or
+     * with another replica.
+     */
+    private List<Path> verifyReplicaDirs(List<Path> replicaDirs) throws ProvisioningException {
+        final Path installation = installDir.toAbsolutePath().normalize();
+        final List<Path> replicas = new ArrayList<>();
+        for (Path replicaDir : replicaDirs) {
+            final Path replica = InstallFolderUtils.toRealPath(replicaDir.toAbsolutePath().normalize());
+            if (replica.toFile().exists()) {
+                throw ProsperoLogger.ROOT_LOGGER.installationDirAlreadyExists(replica);
+            }
+            if (overlaps(replica, installation)) {
+                throw ProsperoLogger.ROOT_LOGGER.overlappingReplicaDir(replica, installation);
+            }
+            for (Path other : replicas) {
+                if (overlaps(replica, other)) {
+                    throw ProsperoLogger.ROOT_LOGGER.overlappingReplicaDir(replica, other);
+                }
+            }
+            replicas.add(replica);
+        }
+        return replicas;
+    }
+
+    private static boolean overlaps(Path first, Path second) {
+        return first.startsWith(second) || second.startsWith(first);
+    }
+
+    private void replicate(List<Path> replicas, boolean linkArtifacts, ChannelManifest manifest, List<Channel> channels)
+            throws ProvisioningException, IOException, MetadataException {
+        final InstallationReplicator replicator = new InstallationReplicator(installDir, linkArtifacts);
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min(replicas.size(), Runtime.getRuntime().availableProcessors()));
+        boolean replicated = false;
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (Path replica : replicas) {
+                results.add(executorService.submit(() -> {
+                    replicator.replicate(replica);
+                    writeProsperoMetadata(replica, manifest, channels);
+                    return null;
+                }));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof MetadataException) {
+                        throw (MetadataException) e.getCause();
+                    }
+                    throw ProsperoLogger.ROOT_LOGGER.unableToReplicateInstallation(installDir, replicas.get(i), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw ProsperoLogger.ROOT_LOGGER.unableToReplicateInstallation(installDir, replicas.get(i), e);
+                }
+            }
+            replicated = true;
+        } finally {
+            executorService.shutdownNow();
+            if (!replicated) {
+                awaitTermination(executorService);
+                // the replica directories didn't exist before the restore, remove the partial copies
+                for (Path replica : replicas) {
+                    FileUtils.deleteQuietly(replica.toFile());
+                }
+            }
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executorService) {
+        try {
+            executorService.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private void writeProsperoMetadata(ChannelManifest manifest, List<Channel> channels) throws MetadataException {
+    private static void writeProsperoMetadata(Path installDir, ChannelManifest manifest, List<Channel> channels) throws MetadataException {
         try (InstallationMetadata installationMetadata = InstallationMetadata.newInstallation(installDir, manifest,
                 new ProsperoConfig(channels), Optional.empty())) {
             installationMetadata.recordProvision(true, true);
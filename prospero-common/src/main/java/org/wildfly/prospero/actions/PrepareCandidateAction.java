@@ -28,6 +28,7 @@ import org.wildfly.channel.UnresolvedMavenArtifactException;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.ArtifactChange;
 import org.wildfly.prospero.api.InstallationMetadata;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.SavedState;
 import org.wildfly.prospero.api.exceptions.ArtifactResolutionException;
 import org.wildfly.prospero.api.exceptions.MetadataException;
@@ -36,6 +37,8 @@ import org.wildfly.prospero.galleon.ArtifactCache;
 import org.wildfly.prospero.galleon.GalleonEnvironment;
 import org.wildfly.prospero.galleon.GalleonFeaturePackAnalyzer;
 import org.wildfly.prospero.galleon.GalleonUtils;
+import org.wildfly.prospero.jfr.JfrSupport;
+import org.wildfly.prospero.jfr.CandidateBuildEvent;
 import org.wildfly.prospero.licenses.LicenseManager;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.metadata.ManifestVersionResolver;
@@ -66,6 +69,7 @@ class PrepareCandidateAction implements AutoCloseable {
     private final ProsperoConfig prosperoConfig;
     private final MavenSessionManager mavenSessionManager;
     private final Path installDir;
+    private boolean sparse;
 
     PrepareCandidateAction(Path installDir, MavenSessionManager mavenSessionManager, ProsperoConfig prosperoConfig)
             throws OperationException {
@@ -75,6 +79,17 @@ class PrepareCandidateAction implements AutoCloseable {
         this.mavenSessionManager = mavenSessionManager;
     }
 
+    /**
+     * If set, the files not changed from the base installation are removed from the candidate after it is provisioned.
+     *
+     * @param sparse - build a sparse candidate
+     * @return this action
+     */
+    PrepareCandidateAction setSparse(boolean sparse) {
+        this.sparse = sparse;
+        return this;
+    }
+
     boolean buildCandidate(Path targetDir, GalleonEnvironment galleonEnv, ApplyCandidateAction.Type operation,
                            GalleonProvisioningConfig config) throws ProvisioningException, OperationException {
         return this.buildCandidate(targetDir, galleonEnv, operation, config, new UpdateSet(Collections.emptyList()));
@@ -117,14 +132,27 @@ class PrepareCandidateAction implements AutoCloseable {
                            Supplier<Optional<ManifestVersionRecord>> manifestVersionRecordSupplier) throws ProvisioningException, OperationException {
         Objects.requireNonNull(manifestVersionRecordSupplier);
 
-        doBuildUpdate(targetDir, galleonEnv, config, manifestVersionRecordSupplier);
-
+        final CandidateBuildEvent event = JfrSupport.isAvailable() ? new CandidateBuildEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         try {
-            final SavedState savedState = metadata.getRevisions().get(0);
+            doBuildUpdate(targetDir, galleonEnv, config, manifestVersionRecordSupplier);
+
+            if (sparse) {
+                SparseCandidate.sparsify(installDir, targetDir);
+            }
+            final SavedState savedState = metadata.getLatestRevision();
             new MarkerFile(savedState.getName(), operation).write(targetDir);
             writeCandidateProperties(updateSet, targetDir);
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            if (event != null) {
+                event.candidate = targetDir.toString();
+                event.type = operation.name();
+                event.finish(installDir);
+            }
         }
 
         return true;
@@ -137,7 +165,7 @@ class PrepareCandidateAction implements AutoCloseable {
         try {
             GalleonUtils.executeGalleon((options) -> {
                         options.put(Constants.EXPORT_SYSTEM_PATHS, "true");
-                        provMgr.provision(provisioningConfig, options);
+                        GalleonUtils.provision(provMgr, provisioningConfig, options);
                     },
                     mavenSessionManager.getProvisioningRepo().toAbsolutePath());
         } catch (UnresolvedMavenArtifactException e) {
@@ -170,7 +198,7 @@ class PrepareCandidateAction implements AutoCloseable {
     }
 
     private Optional<ManifestVersionRecord> getManifestVersionRecord(GalleonEnvironment galleonEnv) {
-        try {
+        try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.CHANNEL_RESOLUTION)) {
             return Optional.of(ManifestVersionResolver.getCurrentVersions(galleonEnv.getChannelSession()));
         } catch (IOException e) {
             ProsperoLogger.ROOT_LOGGER.debug("Unable to retrieve current manifest versions", e);
@@ -62,6 +62,8 @@ public class PromoteArtifactBundleAction {
                 console.println("  * " + String.format("%s:%s:%s", artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion()));
             }
             final MavenSessionManager msm = new MavenSessionManager(MavenOptions.OFFLINE_NO_CACHE);
+            // remote targets need to be accessed to find and update the existing customization manifest
+            msm.setOffline("file".equals(targetRepository.getProtocol()));
             final RepositorySystem system = msm.newRepositorySystem();
             final DefaultRepositorySystemSession session = msm.newRepositorySystemSession(system);
 
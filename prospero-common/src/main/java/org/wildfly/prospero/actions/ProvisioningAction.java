@@ -31,6 +31,7 @@ import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.Console;
 import org.wildfly.prospero.api.InstallationMetadata;
 import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.RepositoryUtils;
 import org.wildfly.prospero.api.TemporaryRepositoriesHandler;
 import org.wildfly.prospero.api.exceptions.ArtifactResolutionException;
@@ -142,7 +143,7 @@ public class ProvisioningAction {
                     ProsperoLogger.ROOT_LOGGER.debug("Starting Galleon provisioning");
                 }
 
-                GalleonUtils.executeGalleon(options -> galleonEnv.getProvisioning().provision(provisioningConfig, options),
+                GalleonUtils.executeGalleon(options -> GalleonUtils.provision(galleonEnv.getProvisioning(), provisioningConfig, options),
                         mavenSessionManager.getProvisioningRepo().toAbsolutePath());
             } catch (UnresolvedMavenArtifactException e) {
                 throw new ArtifactResolutionException(ProsperoLogger.ROOT_LOGGER.unableToResolve(), e, e.getUnresolvedArtifacts(),
@@ -150,7 +151,7 @@ public class ProvisioningAction {
             }
 
             final ManifestVersionRecord manifestRecord;
-            try {
+            try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.CHANNEL_RESOLUTION)) {
                 if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.debug("Resolving installed manifest versions");
                 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.Constants;
+import org.wildfly.prospero.ProsperoLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.wildfly.prospero.metadata.ProsperoMetadataUtils.METADATA_DIR;
+
+/**
+ * A candidate server pruned to the files changed from the base installation.
+ *
+ * The candidate is provisioned in full first, because the Galleon metadata (hashes, generated configurations) of the
+ * new state can only be produced by provisioning. The metadata describes the complete new state of the server, but
+ * the files with the same hash as in the base installation are removed from the candidate afterwards. The pruning
+ * reduces the disk usage and the size of an exported candidate, not the time needed to build it. The removed files and directories are listed in
+ * {@code SPARSE_RECORD}, so that {@link ApplyCandidateAction} can distinguish files unchanged by the update from files
+ * removed by the update.
+ */
+class SparseCandidate {
+
+    static final Path SPARSE_RECORD = Path.of(METADATA_DIR, ".sparse-candidate.txt");
+
+    private static final SparseCandidate FULL = new SparseCandidate(Collections.emptySet());
+
+    private final Set<String> omitted;
+
+    private SparseCandidate(Set<String> omitted) {
+        this.omitted = omitted;
+    }
+
+    /**
+     * reads the sparse record of the candidate.
+     *
+     * @param candidateDir - root folder of the candidate
+     * @return the sparse candidate, or a candidate without any omitted files if {@code candidateDir} is a full candidate
+     * @throws IOException - if unable to read the sparse record
+     */
+    static SparseCandidate load(Path candidateDir) throws IOException {
+        final Path record = candidateDir.resolve(SPARSE_RECORD);
+        if (!Files.exists(record)) {
+            return FULL;
+        }
+        return new SparseCandidate(new HashSet<>(Files.readAllLines(record, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * removes files not changed from {@code installationDir} from a complete candidate in {@code candidateDir}.
+     * Files that the user removed from the installation are kept in the candidate, so that they can be restored.
+     *
+     * @param installationDir - root folder of the base installation
+     * @param candidateDir - root folder of a complete candidate
+     * @return number of files removed from the candidate
+     * @throws IOException - if unable to read the Galleon hashes or modify the candidate
+     */
+    static int sparsify(Path installationDir, Path candidateDir) throws IOException {
+        final Map<String, String> installationHashes = readHashes(installationDir);
+        final Map<String, String> candidateHashes = readHashes(candidateDir);
+
+        final List<String> omitted = new ArrayList<>();
+        for (Map.Entry<String, String> entry : candidateHashes.entrySet()) {
+            final String path = entry.getKey();
+            if (entry.getValue().equals(installationHashes.get(path))
+                    && Files.isRegularFile(installationDir.resolve(path))
+                    && Files.isRegularFile(candidateDir.resolve(path))) {
+                Files.delete(candidateDir.resolve(path));
+                omitted.add(path);
+            }
+        }
+        final int omittedFiles = omitted.size();
+
+        // remove directories left empty after removing the unchanged files
+        final Path galleonDir = candidateDir.resolve(Constants.PROVISIONED_STATE_DIR);
+        final Path metadataDir = candidateDir.resolve(METADATA_DIR);
+        Files.walkFileTree(candidateDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(galleonDir) || dir.equals(metadataDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                final String[] children = dir.toFile().list();
+                if (!dir.equals(candidateDir) && children != null && children.length == 0
+                        && Files.isDirectory(installationDir.resolve(candidateDir.relativize(dir)))) {
+                    Files.delete(dir);
+                    omitted.add(toKey(candidateDir.relativize(dir)) + "/");
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Collections.sort(omitted);
+        Files.createDirectories(metadataDir);
+        Files.write(candidateDir.resolve(SPARSE_RECORD), omitted, StandardCharsets.UTF_8);
+
+        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+            ProsperoLogger.ROOT_LOGGER.debugf("Removed %d unchanged files out of %d from the candidate %s",
+                    omittedFiles, candidateHashes.size(), candidateDir);
+        }
+        return omittedFiles;
+    }
+
+    /**
+     * @return true if the candidate doesn't contain unchanged files
+     */
+    boolean isSparse() {
+        return !omitted.isEmpty();
+    }
+
+    /**
+     * checks if the file or directory is part of the candidate server, but was omitted because it was not changed.
+     *
+     * @param relativePath - path relative to the candidate root
+     * @return true if the path is present in the candidate server
+     */
+    boolean isOmitted(Path relativePath) {
+        if (omitted.isEmpty()) {
+            return false;
+        }
+        final String key = toKey(relativePath);
+        return omitted.contains(key) || omitted.contains(key + "/");
+    }
+
+    /**
+     * reads the Galleon hashes record of a server into a map of relative paths and file hashes.
+     */
+    static Map<String, String> readHashes(Path serverDir) throws IOException {
+        final Path hashesRoot = serverDir.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES);
+        final Map<String, String> hashes = new HashMap<>();
+        if (!Files.exists(hashesRoot)) {
+            return hashes;
+        }
+
+        Files.walkFileTree(hashesRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!file.getFileName().toString().equals(Constants.HASHES)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                final Path dir = hashesRoot.relativize(file.getParent());
+                final String prefix = dir.toString().isEmpty() ? "" : toKey(dir) + "/";
+                final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                // the hashes file contains pairs of lines - file name and file hash
+                for (int i = 0; i + 1 < lines.size(); i += 2) {
+                    hashes.put(prefix + lines.get(i), lines.get(i + 1));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return hashes;
+    }
+
+    private static String toKey(Path relativePath) {
+        return relativePath.toString().replace(File.separatorChar, '/');
+    }
+}
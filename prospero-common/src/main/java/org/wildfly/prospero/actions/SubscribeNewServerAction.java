@@ -67,7 +67,7 @@ public class SubscribeNewServerAction {
               .includePackage("docs.examples.configs");
       final GalleonProvisioningConfig provisioningConfig = GalleonProvisioningConfig.builder().addFeaturePackDep(configBuilder.build()).build();
       try {
-        GalleonUtils.executeGalleon(options -> galleonEnv.getProvisioning().provision(provisioningConfig, options),
+        GalleonUtils.executeGalleon(options -> GalleonUtils.provision(galleonEnv.getProvisioning(), provisioningConfig, options),
                 mavenSessionManager.getProvisioningRepo().toAbsolutePath());
       } catch (UnresolvedMavenArtifactException e) {
         throw new ArtifactResolutionException(ProsperoLogger.ROOT_LOGGER.unableToResolve(), e, e.getUnresolvedArtifacts(),
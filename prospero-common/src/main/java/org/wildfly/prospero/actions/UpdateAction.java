@@ -39,6 +39,7 @@ import org.wildfly.prospero.api.Console;
 import org.wildfly.prospero.api.FileConflict;
 import org.wildfly.prospero.api.MavenOptions;
 import org.wildfly.prospero.api.InstallationMetadata;
+import org.wildfly.prospero.api.MetadataContext;
 import org.wildfly.prospero.api.TemporaryRepositoriesHandler;
 import org.wildfly.prospero.api.exceptions.MetadataException;
 import org.wildfly.prospero.api.exceptions.OperationException;
@@ -112,6 +113,7 @@ public class UpdateAction implements AutoCloseable {
             throw ProsperoLogger.ROOT_LOGGER.unableToCreateTemporaryDirectory(e);
         } finally {
             if (targetDir != null) {
+                MetadataContext.release(targetDir);
                 FileUtils.deleteQuietly(targetDir.toFile());
             }
         }
@@ -127,6 +129,21 @@ public class UpdateAction implements AutoCloseable {
      * @throws OperationException
      */
     public boolean buildUpdate(Path targetDir) throws ProvisioningException, OperationException {
+        return buildUpdate(targetDir, false);
+    }
+
+    /**
+     * builds an update candidate for {@code installDir}. The candidate is placed in {@code targetDir}.
+     * If {@code sparse} is set, the candidate is pruned after it is provisioned, so that it contains only files
+     * changed by the update and the Galleon metadata describing the complete updated server.
+     *
+     * @param targetDir path where the update candidate should be placed.
+     * @param sparse prune files not changed by the update from the provisioned candidate.
+     * @return true if the candidate was created, false if no updates were found.
+     * @throws ProvisioningException
+     * @throws OperationException
+     */
+    public boolean buildUpdate(Path targetDir, boolean sparse) throws ProvisioningException, OperationException {
         if (Files.exists(targetDir)) {
             InstallFolderUtils.verifyIsEmptyDir(targetDir);
         } else {
@@ -144,6 +161,7 @@ public class UpdateAction implements AutoCloseable {
         ProsperoLogger.ROOT_LOGGER.updateCandidateStarted(installDir);
         try (PrepareCandidateAction prepareCandidateAction = new PrepareCandidateAction(installDir, mavenSessionManager, prosperoConfig);
              GalleonEnvironment galleonEnv = getGalleonEnv(targetDir)) {
+            prepareCandidateAction.setSparse(sparse);
             try (Provisioning p = new GalleonBuilder().newProvisioningBuilder(PathsUtils.getProvisioningXml(installDir)).build()) {
                 final GalleonProvisioningConfig provisioningConfig = p.loadProvisioningConfig(PathsUtils.getProvisioningXml(installDir));
 
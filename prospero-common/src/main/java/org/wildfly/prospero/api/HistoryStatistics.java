@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+/**
+ * Size of the repository storing the installation history.
+ */
+public class HistoryStatistics {
+
+    private final int revisions;
+    private final long looseObjects;
+    private final long packedObjects;
+    private final long packFiles;
+    private final long sizeInBytes;
+
+    public HistoryStatistics(int revisions, long looseObjects, long packedObjects, long packFiles, long sizeInBytes) {
+        this.revisions = revisions;
+        this.looseObjects = looseObjects;
+        this.packedObjects = packedObjects;
+        this.packFiles = packFiles;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    /**
+     * @return number of recorded installation states
+     */
+    public int getRevisions() {
+        return revisions;
+    }
+
+    /**
+     * @return number of objects stored outside of pack files
+     */
+    public long getLooseObjects() {
+        return looseObjects;
+    }
+
+    /**
+     * @return number of objects stored in pack files
+     */
+    public long getPackedObjects() {
+        return packedObjects;
+    }
+
+    /**
+     * @return number of pack files
+     */
+    public long getPackFiles() {
+        return packFiles;
+    }
+
+    /**
+     * @return size of loose and packed objects in bytes
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryStatistics{" +
+                "revisions=" + revisions +
+                ", looseObjects=" + looseObjects +
+                ", packedObjects=" + packedObjects +
+                ", packFiles=" + packFiles +
+                ", sizeInBytes=" + sizeInBytes +
+                '}';
+    }
+}
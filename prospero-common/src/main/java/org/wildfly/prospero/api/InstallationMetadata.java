@@ -28,6 +28,7 @@ import org.wildfly.channel.ChannelMapper;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.installation.StateDigest;
 import org.wildfly.prospero.installation.git.GitStorage;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import org.wildfly.prospero.model.ManifestYamlSupport;
@@ -37,6 +38,8 @@ import org.eclipse.aether.artifact.DefaultArtifact;
 import org.jboss.galleon.ProvisioningException;
 import org.wildfly.channel.Stream;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -45,10 +48,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 import org.jboss.galleon.api.GalleonBuilder;
@@ -61,6 +69,7 @@ public class InstallationMetadata implements AutoCloseable {
 
     public static final String PROVISIONING_FILE_NAME = "provisioning.xml";
     public static final String GALLEON_INSTALLATION_DIR = ".galleon";
+    public static final String BUNDLE_REPOSITORY_DIR = "repository/";
     private final Path manifestFile;
     private final Path channelsFile;
     private final Path readmeFile;
@@ -72,6 +81,7 @@ public class InstallationMetadata implements AutoCloseable {
     private final GalleonProvisioningConfig provisioningConfig;
     private ProsperoConfig prosperoConfig;
     private ChannelManifest manifest;
+    private boolean closed;
 
     /**
      * load the metadata of an existing installation. If the history is not available, it will be started.
@@ -83,41 +93,35 @@ public class InstallationMetadata implements AutoCloseable {
     public static InstallationMetadata loadInstallation(Path base) throws MetadataException {
         final Path manifestFile = base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME);
 
-        ChannelManifest manifest;
-        ProsperoConfig prosperoConfig;
-        Optional<ManifestVersionRecord> currentVersion;
-
-        try {
-            manifest = ManifestYamlSupport.parse(manifestFile.toFile());
-        } catch (IOException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(manifestFile, e);
-        }
-        prosperoConfig = ProsperoConfig.readConfig(base.resolve(ProsperoMetadataUtils.METADATA_DIR));
-
-        final Path versionsFile = base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(CURRENT_VERSION_FILE);
-        try {
-            currentVersion = ManifestVersionRecord.read(versionsFile);
-        } catch (JsonMappingException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(versionsFile, e);
-        } catch (IOException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(versionsFile, e);
-        }
-
-        final Path provisioningRecordPath = base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML);
-        GalleonProvisioningConfig provisioningConfig = null;
-        if (Files.exists(provisioningRecordPath)) {
+        final Path metadataDir = base.resolve(ProsperoMetadataUtils.METADATA_DIR);
+        final ChannelManifest manifest = MetadataContext.read(ChannelManifest.class, () -> {
             try {
-                // XXX We should be able to resolve the version from something.
-                try(Provisioning p = new GalleonBuilder().newProvisioningBuilder().build()) {
-                    provisioningConfig = p.loadProvisioningConfig(provisioningRecordPath);
-                }
-            } catch (ProvisioningException e) {
-                throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(provisioningRecordPath, e);
+                return ManifestYamlSupport.parse(manifestFile.toFile());
+            } catch (IOException e) {
+                throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(manifestFile, e);
             }
-        }
+        }, InstallationMetadata::copyOf, manifestFile);
+        final ProsperoConfig prosperoConfig = MetadataContext.read(ProsperoConfig.class,
+                () -> ProsperoConfig.readConfig(metadataDir), InstallationMetadata::copyOf,
+                metadataDir.resolve(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME),
+                metadataDir.resolve(ProsperoMetadataUtils.MAVEN_OPTS_FILE));
+
+        final Path versionsFile = metadataDir.resolve(CURRENT_VERSION_FILE);
+        final Optional<ManifestVersionRecord> currentVersion = MetadataContext.read(ManifestVersionRecord.class, () -> {
+            try {
+                return ManifestVersionRecord.read(versionsFile);
+            } catch (JsonMappingException e) {
+                throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(versionsFile, e);
+            } catch (IOException e) {
+                throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(versionsFile, e);
+            }
+        }, versions -> versions.map(InstallationMetadata::copyOf), versionsFile);
+
+        final Path provisioningRecordPath = metadataDir.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML);
+        final GalleonProvisioningConfig provisioningConfig = readProvisioningConfig(provisioningRecordPath, false);
 
         try {
-            final GitStorage gitStorage = new GitStorage(base);
+            final GitStorage gitStorage = MetadataContext.openGitStorage(base);
             final InstallationMetadata metadata = new InstallationMetadata(base, manifest, prosperoConfig, gitStorage, currentVersion, provisioningConfig);
             if (!gitStorage.isStarted()) {
                 ProsperoLogger.ROOT_LOGGER.debugf("Initializing history storage in %s", base);
@@ -150,7 +154,7 @@ public class InstallationMetadata implements AutoCloseable {
         } catch (ProvisioningException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(PathsUtils.getProvisioningXml(base), e);
         }
-        return new InstallationMetadata(base, manifest, prosperoConfig, new GitStorage(base), currentVersions, provisioningConfig);
+        return new InstallationMetadata(base, manifest, prosperoConfig, MetadataContext.openGitStorage(base), currentVersions, provisioningConfig);
     }
 
     /**
@@ -224,58 +228,93 @@ public class InstallationMetadata implements AutoCloseable {
             throw ProsperoLogger.ROOT_LOGGER.emptyChannelName();
         }
 
-        try {
-            if(Files.exists(provisioningFile)) {
-                try (Provisioning p = new GalleonBuilder().newProvisioningBuilder().build()) {
-                    this.galleonProvisioningConfig = p.loadProvisioningConfig(provisioningFile);
-                }
-            } else {
-                this.galleonProvisioningConfig = null;
-            }
-        } catch (ProvisioningException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(provisioningFile, e);
-        }
+        this.galleonProvisioningConfig = readProvisioningConfig(provisioningFile, true);
 
         this.manifestVersion = currentVersions;
     }
 
     public Path exportMetadataBundle(Path location) throws IOException {
+        return exportMetadataBundle(location, Collections.emptyMap());
+    }
+
+    /**
+     * exports the installation metadata together with a Maven repository containing {@code artifacts}. The artifacts
+     * are stored under {@code BUNDLE_REPOSITORY_DIR} in the bundle.
+     *
+     * @param location - path of the created bundle
+     * @param artifacts - artifact files keyed by their path in the Maven repository layout
+     * @return path of the created bundle
+     * @throws IOException - if unable to write the bundle
+     */
+    public Path exportMetadataBundle(Path location, Map<String, Path> artifacts) throws IOException {
         final File file = location.toFile();
 
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file))) {
+        try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
             zos.putNextEntry(new ZipEntry(ProsperoMetadataUtils.MANIFEST_FILE_NAME));
-            try(FileInputStream fis = new FileInputStream(manifestFile.toFile())) {
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = fis.read(buffer)) > 0) {
-                    zos.write(buffer, 0, len);
-                }
-            }
+            Files.copy(manifestFile, zos);
             zos.closeEntry();
 
             zos.putNextEntry(new ZipEntry(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME));
-            try(FileInputStream fis = new FileInputStream(channelsFile.toFile())) {
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = fis.read(buffer)) > 0) {
-                    zos.write(buffer, 0, len);
-                }
-            }
+            Files.copy(channelsFile, zos);
             zos.closeEntry();
 
             zos.putNextEntry(new ZipEntry(PROVISIONING_FILE_NAME));
-            try(FileInputStream fis = new FileInputStream(provisioningFile.toFile())) {
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = fis.read(buffer)) > 0) {
-                    zos.write(buffer, 0, len);
-                }
-            }
+            Files.copy(provisioningFile, zos);
             zos.closeEntry();
+
+            // sort the entries, so that the directories of the repository are written together
+            for (Map.Entry<String, Path> artifact : new TreeMap<>(artifacts).entrySet()) {
+                zos.putNextEntry(new ZipEntry(BUNDLE_REPOSITORY_DIR + artifact.getKey()));
+                Files.copy(artifact.getValue(), zos);
+                zos.closeEntry();
+            }
         }
         return file.toPath();
     }
 
+    /**
+     * checks if the metadata bundle contains a Maven repository with the installed artifacts.
+     *
+     * @param archiveLocation - path of the metadata bundle
+     * @return {@code true} if the bundle contains any artifacts, {@code false} otherwise
+     * @throws IOException - if unable to read the bundle
+     */
+    public static boolean hasBundledRepository(Path archiveLocation) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archiveLocation.toFile())) {
+            return zipFile.stream()
+                    .anyMatch(entry -> !entry.isDirectory() && entry.getName().startsWith(BUNDLE_REPOSITORY_DIR));
+        }
+    }
+
+    /**
+     * extracts the Maven repository stored in the metadata bundle to {@code target}.
+     *
+     * @param archiveLocation - path of the metadata bundle
+     * @param target - folder the repository is extracted to
+     * @return {@code true} if the bundle contained any artifacts, {@code false} otherwise
+     * @throws IOException - if unable to read the bundle or write the artifacts
+     */
+    public static boolean extractBundledRepository(Path archiveLocation, Path target) throws IOException {
+        final Path root = target.toAbsolutePath().normalize();
+        boolean found = false;
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(archiveLocation.toFile())))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (entry.isDirectory() || !entry.getName().startsWith(BUNDLE_REPOSITORY_DIR)) {
+                    continue;
+                }
+                final Path artifact = root.resolve(entry.getName().substring(BUNDLE_REPOSITORY_DIR.length())).normalize();
+                if (!artifact.startsWith(root)) {
+                    throw ProsperoLogger.ROOT_LOGGER.invalidMetadataBundle(archiveLocation);
+                }
+                Files.createDirectories(artifact.getParent());
+                Files.copy(zis, artifact, StandardCopyOption.REPLACE_EXISTING);
+                found = true;
+            }
+        }
+        return found;
+    }
+
     public ChannelManifest getManifest() {
         return manifest;
     }
@@ -316,11 +355,25 @@ public class InstallationMetadata implements AutoCloseable {
             }
         }
 
+        recordStateDigest();
+
         if (gitRecord) {
             gitStorage.record();
         }
     }
 
+    private void recordStateDigest() {
+        if (!Files.exists(PathsUtils.getProvisionedStateDir(base).resolve(Constants.HASHES))) {
+            return;
+        }
+        try {
+            StateDigest.record(base);
+        } catch (IOException e) {
+            // the digest is only used to speed up comparing installation states, it will be re-computed if missing
+            ProsperoLogger.ROOT_LOGGER.debug("Unable to record the installation state digest", e);
+        }
+    }
+
     /**
      * check if the provisioning definition is present. If not add it to the history
      */
@@ -350,6 +403,62 @@ public class InstallationMetadata implements AutoCloseable {
         return gitStorage.getRevisions();
     }
 
+    /**
+     * lists a page of the installation history, latest state first.
+     *
+     * @param offset - number of the latest states to skip
+     * @param limit - maximum number of states to return
+     * @return list of installation states
+     * @throws MetadataException - if unable to read the history
+     */
+    public List<SavedState> getRevisions(int offset, int limit) throws MetadataException {
+        return gitStorage.getRevisions(offset, limit);
+    }
+
+    /**
+     * the current state of the installation. Unlike {@link #getRevisions()}, doesn't read the whole history.
+     *
+     * @return the latest state or {@code null} if no state was recorded
+     * @throws MetadataException - if unable to read the history
+     */
+    public SavedState getLatestRevision() throws MetadataException {
+        return gitStorage.getLatestRevision();
+    }
+
+    /**
+     * size of the repository storing the installation history.
+     *
+     * @return statistics of the history repository
+     * @throws MetadataException - if unable to read the history
+     */
+    public HistoryStatistics getHistoryStatistics() throws MetadataException {
+        return gitStorage.getStatistics();
+    }
+
+    /**
+     * removes all but the latest {@code keep} installation states from the history. The oldest kept state becomes
+     * the first recorded state of the installation.
+     *
+     * @param keep - number of the latest states to keep
+     * @return number of removed states
+     * @throws MetadataException - if unable to access the history
+     */
+    public int compactHistory(int keep) throws MetadataException {
+        return gitStorage.compact(keep);
+    }
+
+    /**
+     * translates the name of a recorded state to its current name, if the state was re-created by compacting the
+     * history.
+     *
+     * @param name - name of the state
+     * @return current name of the state, or {@code name} if the state was not re-created
+     * @throws MetadataException - if unable to read the history
+     */
+    public String getCurrentRevisionName(String name) throws MetadataException {
+        return gitStorage.getCurrentName(name);
+    }
+
     public InstallationMetadata getSavedState(SavedState savedState) throws MetadataException {
         // checkout previous version
         // record as rollback operation
@@ -362,6 +471,8 @@ public class InstallationMetadata implements AutoCloseable {
         } finally {
             gitStorage.reset();
             if (revert != null && Files.exists(revert)) {
+                // the returned metadata keeps its own reference to the history storage of the reverted state
+                MetadataContext.release(revert);
                 FileUtils.deleteQuietly(revert.toFile());
             }
         }
@@ -374,6 +485,17 @@ public class InstallationMetadata implements AutoCloseable {
                 gitStorage.getFeatureChanges(savedState));
     }
 
+    /**
+     * lists changes in each installation state recorded after {@code since}.
+     *
+     * @param since - the state to list changes after, or {@code null} to list changes in all states
+     * @return installation states and changes in them, latest state first
+     * @throws MetadataException - if unable to read the history
+     */
+    public Map<SavedState, InstallationChanges> getChangesInEachSince(SavedState since) throws MetadataException {
+        return gitStorage.getChangesSince(since);
+    }
+
     public InstallationChanges getChangesToCurrent(SavedState savedState) throws MetadataException {
         return new InstallationChanges(
                 gitStorage.getArtifactChangesSince(savedState),
@@ -381,6 +503,24 @@ public class InstallationMetadata implements AutoCloseable {
                 gitStorage.getFeatureChangesSince(savedState));
     }
 
+    private static GalleonProvisioningConfig readProvisioningConfig(Path file, boolean isProvisioningXml) throws MetadataException {
+        // the provisioning config is immutable and doesn't need to be copied
+        return MetadataContext.read(GalleonProvisioningConfig.class, () -> {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            try (Provisioning p = new GalleonBuilder().newProvisioningBuilder().build()) {
+                return p.loadProvisioningConfig(file);
+            } catch (ProvisioningException e) {
+                if (isProvisioningXml) {
+                    throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(file, e);
+                } else {
+                    throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(file, e);
+                }
+            }
+        }, UnaryOperator.identity(), file);
+    }
+
     public void setManifest(ChannelManifest resolvedChannel) {
         manifest = resolvedChannel;
     }
@@ -420,7 +560,8 @@ public class InstallationMetadata implements AutoCloseable {
 
     @Override
     public void close() {
-        if (gitStorage != null) {
+        if (gitStorage != null && !closed) {
+            closed = true;
             try {
                 gitStorage.close();
             } catch (Exception e) {
@@ -450,4 +591,22 @@ public class InstallationMetadata implements AutoCloseable {
             throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(channelsFile, e);
         }
     }
+
+    private static ChannelManifest copyOf(ChannelManifest manifest) {
+        if (manifest == null) {
+            return null;
+        }
+        return new ChannelManifest(manifest.getSchemaVersion(), manifest.getName(), manifest.getId(),
+                manifest.getLogicalVersion(), manifest.getDescription(), manifest.getManifestRequirements(),
+                manifest.getStreams());
+    }
+
+    private static ProsperoConfig copyOf(ProsperoConfig config) {
+        return new ProsperoConfig(new ArrayList<>(config.getChannels()), config.getMavenOptions());
+    }
+
+    private static ManifestVersionRecord copyOf(ManifestVersionRecord record) {
+        return new ManifestVersionRecord(record.getSchemaVersion(), new ArrayList<>(record.getMavenManifests()),
+                new ArrayList<>(record.getUrlManifests()), new ArrayList<>(record.getOpenManifests()));
+    }
 }
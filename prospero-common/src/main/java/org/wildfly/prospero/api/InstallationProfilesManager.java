@@ -22,7 +22,8 @@ import org.wildfly.prospero.model.InstallationProfile;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,22 +35,25 @@ public abstract class InstallationProfilesManager {
 
     private static final Logger logger = Logger.getLogger(InstallationProfilesManager.class);
 
-    private static final Map<String, InstallationProfile> nameMap = new HashMap<>();
-
     public static InstallationProfile getByName(String name) {
-        return nameMap.get(name);
+        return Profiles.BY_NAME.get(name);
     }
 
     public static boolean isWellKnownName(String name) {
-        return nameMap.containsKey(name);
+        return Profiles.BY_NAME.containsKey(name);
     }
 
     public static Set<String> getNames() {
-        return nameMap.keySet();
+        return Profiles.BY_NAME.keySet();
     }
 
-    static {
+    // the profiles are parsed when they are used for the first time, not when the manager class is loaded
+    private static final class Profiles {
+        private static final Map<String, InstallationProfile> BY_NAME = load();
+    }
 
+    private static Map<String, InstallationProfile> load() {
+        final Map<String, InstallationProfile> nameMap = new LinkedHashMap<>();
         final URL knownRepoUrl = findProfileDefinitions();
         if (knownRepoUrl == null) {
             logger.debug("No known repositories found");
@@ -66,6 +70,7 @@ public abstract class InstallationProfilesManager {
                 logger.debug("Error parsing provisioning configurations:", e);
             }
         }
+        return Collections.unmodifiableMap(nameMap);
     }
 
     private static URL findProfileDefinitions() {
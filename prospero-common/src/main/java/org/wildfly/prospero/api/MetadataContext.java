@@ -0,0 +1,263 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.installation.git.GitStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Operation-scoped cache of installation metadata.
+ *
+ * While the context is open, the history storage of each installation is opened only once and shared by all the
+ * {@link InstallationMetadata} and actions used by the current thread. The parsed metadata files are cached as well -
+ * a file is parsed again only if its size, modification time or file key changes. Each caller receives its own copy of
+ * the cached value. Storages of temporary installations have to be released with {@link #release(Path)} before the
+ * folder is removed.
+ *
+ * The context is bound to the thread that opened it. Opening a context while another one is already open on the same
+ * thread joins the outer context, which is closed only after all nested contexts are closed.
+ * <pre>
+ * try (MetadataContext ignored = MetadataContext.open()) {
+ *     // the installation metadata is loaded only once within the block
+ * }
+ * </pre>
+ *
+ * Long-running processes can keep the metadata between operations using a context created with {@link #create()}. Such
+ * context is attached to the thread executing an operation with {@link #attach()}, and is closed only when its owner
+ * calls {@link #close()} outside of any operation.
+ */
+public class MetadataContext implements AutoCloseable {
+
+    private static final ThreadLocal<MetadataContext> CURRENT = new ThreadLocal<>();
+
+    private final Map<Path, GitStorage> storages = new HashMap<>();
+    private final Map<List<Object>, ParsedFiles> parsed = new HashMap<>();
+    private final boolean detached;
+    private int depth = 1;
+    private int openedStorages;
+
+    private MetadataContext(boolean detached) {
+        this.detached = detached;
+    }
+
+    /**
+     * opens a new context on the current thread, or joins the context already open on the thread.
+     *
+     * @return the context, has to be closed after the operation is finished
+     */
+    public static MetadataContext open() {
+        final MetadataContext current = CURRENT.get();
+        if (current != null) {
+            current.depth++;
+            return current;
+        }
+        final MetadataContext context = new MetadataContext(false);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * creates a new context not bound to any thread. The context has to be attached to a thread using {@link #attach()}
+     * before it is used. The context can be attached to only one thread at a time.
+     *
+     * @return the context, has to be closed by the owner when it is no longer needed
+     */
+    public static MetadataContext create() {
+        return new MetadataContext(true);
+    }
+
+    /**
+     * binds a context created with {@link #create()} to the current thread. The context is detached from the thread
+     * when the returned context is closed, the cached metadata is kept for the next operation.
+     *
+     * @return the context, has to be closed after the operation is finished
+     * @throws IllegalStateException - if the context was not created with {@link #create()}, or another context is
+     * already open on the current thread
+     */
+    public MetadataContext attach() {
+        if (!detached || depth != 1 || CURRENT.get() != null) {
+            throw new IllegalStateException("Unable to attach the metadata context to the current thread");
+        }
+        depth++;
+        CURRENT.set(this);
+        return this;
+    }
+
+    /**
+     * opens the history storage of the installation at {@code base}. If a context is open on the current thread, the
+     * storage is shared within the context. Either way, the caller has to close the returned storage.
+     *
+     * @param base - root folder of the installation
+     * @return history storage
+     * @throws MetadataException - if unable to open the history storage
+     */
+    public static GitStorage openGitStorage(Path base) throws MetadataException {
+        final MetadataContext context = CURRENT.get();
+        if (context == null) {
+            return new GitStorage(base);
+        }
+        final Path key = base.toAbsolutePath().normalize();
+        GitStorage storage = context.storages.get(key);
+        if (storage == null) {
+            storage = new GitStorage(base);
+            context.storages.put(key, storage);
+            context.openedStorages++;
+        }
+        return storage.retain();
+    }
+
+    /**
+     * releases the history storages and cached metadata of installations in {@code dir}, e.g. before a temporary
+     * candidate is removed. The storages are closed once all their other users close them.
+     *
+     * @param dir - folder that is going to be removed
+     */
+    public static void release(Path dir) {
+        final MetadataContext context = CURRENT.get();
+        if (context == null) {
+            return;
+        }
+
+        final Path released = dir.toAbsolutePath().normalize();
+        final Iterator<Map.Entry<Path, GitStorage>> storages = context.storages.entrySet().iterator();
+        while (storages.hasNext()) {
+            final Map.Entry<Path, GitStorage> entry = storages.next();
+            if (entry.getKey().startsWith(released)) {
+                closeStorage(entry.getValue());
+                storages.remove();
+            }
+        }
+        context.parsed.keySet().removeIf(key -> key.stream()
+                .anyMatch(k -> k instanceof Path && ((Path) k).startsWith(released)));
+    }
+
+    /**
+     * reads a value from metadata {@code files}. If a context is open on the current thread and the files haven't
+     * changed since they were last read by the same {@code type} of reader, the cached value is used.
+     *
+     * @param type - type of the reader, used to distinguish values read from the same files
+     * @param reader - parses the value from the files
+     * @param copy - creates a copy of the value, so that changes made by the caller don't affect the cached value
+     * @param files - files the value is read from
+     * @return a copy of the parsed value
+     * @throws MetadataException - if unable to read the files
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T read(Class<?> type, Reader<T> reader, UnaryOperator<T> copy, Path... files) throws MetadataException {
+        final MetadataContext context = CURRENT.get();
+        if (context == null) {
+            return reader.read();
+        }
+
+        final List<Object> key = new ArrayList<>();
+        key.add(type);
+        for (Path file : files) {
+            key.add(file.toAbsolutePath().normalize());
+        }
+        final List<Object> fingerprint = fingerprint(files);
+
+        final ParsedFiles cached = context.parsed.get(key);
+        if (cached != null && cached.fingerprint.equals(fingerprint)) {
+            return copy.apply((T) cached.value);
+        }
+        final T value = reader.read();
+        context.parsed.put(key, new ParsedFiles(fingerprint, value));
+        return copy.apply(value);
+    }
+
+    /**
+     * number of history storages opened by this context
+     */
+    int getOpenedStorages() {
+        return openedStorages;
+    }
+
+    @Override
+    public void close() {
+        if (--depth > 0) {
+            if (detached && depth == 1) {
+                CURRENT.remove();
+            }
+            return;
+        }
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        for (GitStorage storage : storages.values()) {
+            closeStorage(storage);
+        }
+        storages.clear();
+        parsed.clear();
+    }
+
+    private static void closeStorage(GitStorage storage) {
+        try {
+            storage.close();
+        } catch (Exception e) {
+            ProsperoLogger.ROOT_LOGGER.unableToCloseStore(e);
+        }
+    }
+
+    private static List<Object> fingerprint(Path... files) throws MetadataException {
+        // the size and modification time detect rewritten files, the file key detects replaced files
+        final List<Object> fingerprint = new ArrayList<>(files.length * 3);
+        for (Path file : files) {
+            try {
+                if (Files.exists(file)) {
+                    final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    fingerprint.add(attrs.size());
+                    fingerprint.add(attrs.lastModifiedTime());
+                    fingerprint.add(attrs.fileKey());
+                } else {
+                    fingerprint.add(null);
+                    fingerprint.add(null);
+                    fingerprint.add(null);
+                }
+            } catch (IOException e) {
+                throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(file, e);
+            }
+        }
+        return fingerprint;
+    }
+
+    interface Reader<T> {
+        T read() throws MetadataException;
+    }
+
+    private static class ParsedFiles {
+        private final List<Object> fingerprint;
+        private final Object value;
+
+        ParsedFiles(List<Object> fingerprint, Object value) {
+            this.fingerprint = fingerprint;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.VersionLogger;
+import org.wildfly.prospero.metadata.ManifestVersionRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wildfly.prospero.metadata.ProsperoMetadataUtils.CURRENT_VERSION_FILE;
+
+/**
+ * Records how long each phase of an operation took.
+ *
+ * The timer is bound to the thread that started it. Code executed by the operation marks its phases using
+ * {@link #phase(String)}, which does nothing if no timer was started on the current thread:
+ * <pre>
+ * try (OperationTimer.Phase phase = OperationTimer.phase(OperationTimer.APPLY)) {
+ *     // ...
+ *     phase.addItems(changedFiles);
+ * }
+ * </pre>
+ *
+ * Each phase records its wall time, the CPU time of this process, and the number of transferred bytes and processed
+ * items, if any. Phases can be nested or repeated, every execution is reported separately in the order it was started.
+ * The Maven repository transfers of the whole operation are recorded in {@link #getTransferMetrics()}.
+ * When the timer is closed, the report is saved in the metadata folder of the installation changed by the operation.
+ * Resources shared by the whole operation can be registered with {@link #closeOnFinish(AutoCloseable)} to be closed
+ * together with the timer.
+ */
+public class OperationTimer implements AutoCloseable {
+
+    /**
+     * Name of the file in the installation metadata folder containing the report of the last operation.
+     */
+    public static final String TIMINGS_FILE = "operation_timings.json";
+
+    public static final String CHANNEL_RESOLUTION = "channel-resolution";
+    public static final String ARTIFACT_DOWNLOAD = "artifact-download";
+    public static final String LAYOUT_BUILD = "layout-build";
+    public static final String PACKAGE_INSTALL = "package-install";
+    public static final String MODULES_INSTALL = "modules-install";
+    public static final String CONFIG_GENERATION = "config-generation";
+    public static final String EXTRA_CONFIG_GENERATION = "extra-config-generation";
+    public static final String CACHE_POPULATION = "cache-population";
+    public static final String BACKUP = "backup";
+    public static final String APPLY = "apply";
+    public static final String HISTORY_RECORD = "history-record";
+
+    private static final ThreadLocal<OperationTimer> CURRENT = new ThreadLocal<>();
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final Phase NO_OP = new Phase(null, null, null);
+
+    private final String operation;
+    private final Instant startTime = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final long startCpuNanos = processCpuNanos();
+    private final List<Phase> phases = new ArrayList<>();
+    private final TransferMetrics transferMetrics = new TransferMetrics();
+    // guarded by this
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private long endNanos;
+    private long endCpuNanos;
+    private Path installationMetadataDir;
+    private OperationTimer previous;
+
+    private OperationTimer(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * starts timing an operation on the current thread. If an operation is already timed on the current thread, its
+     * timer is replaced until the returned timer is closed.
+     *
+     * @param operation - name of the operation used in the report
+     * @return the timer, has to be closed when the operation is finished
+     */
+    public static OperationTimer start(String operation) {
+        final OperationTimer timer = new OperationTimer(operation);
+        timer.previous = CURRENT.get();
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    /**
+     * @return the timer started on the current thread, if any
+     */
+    public static Optional<OperationTimer> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * starts a phase of the operation timed on the current thread. If a phase with the same name is already running,
+     * it is not started again - the returned phase adds its counters to the running phase instead.
+     *
+     * @param name - name of the phase
+     * @return the phase, has to be closed when finished
+     */
+    public static Phase phase(String name) {
+        final OperationTimer timer = CURRENT.get();
+        if (timer == null) {
+            return NO_OP;
+        }
+        return timer.startPhase(name);
+    }
+
+    /**
+     * marks the installation which metadata folder is {@code metadataDir} as changed by the operation on the current
+     * thread. The report is saved in that folder.
+     *
+     * @param metadataDir - the installation metadata folder
+     */
+    public static void installationChanged(Path metadataDir) {
+        final OperationTimer timer = CURRENT.get();
+        if (timer != null) {
+            synchronized (timer) {
+                timer.installationMetadataDir = metadataDir;
+            }
+        }
+    }
+
+    /**
+     * starts a phase of this operation. Unlike {@link #phase(String)}, can be called from any thread.
+     *
+     * @param name - name of the phase
+     * @return the phase, has to be closed when finished
+     */
+    public synchronized Phase startPhase(String name) {
+        for (Phase phase : phases) {
+            if (phase.name.equals(name) && phase.isRunning()) {
+                return new Phase(name, null, phase);
+            }
+        }
+        final Phase phase = new Phase(name, this, null);
+        phases.add(phase);
+        return phase;
+    }
+
+    /**
+     * registers a resource used by the whole operation, e.g. a cache shared by the Maven sessions of the operation. The
+     * resource is closed when this timer is closed, or immediately if the timer is already closed.
+     *
+     * @param resource - the resource to close when the operation finishes
+     */
+    public void closeOnFinish(AutoCloseable resource) {
+        synchronized (this) {
+            if (endNanos == 0) {
+                resources.add(resource);
+                return;
+            }
+        }
+        closeResource(resource);
+    }
+
+    private static void closeResource(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            ProsperoLogger.ROOT_LOGGER.debug("Unable to close a resource of the operation", e);
+        }
+    }
+
+    /**
+     * @return name of the operation
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return statistics of the artifacts transferred during the operation
+     */
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
+
+    /**
+     * @return metadata folder of the installation changed by the operation, if any
+     */
+    public synchronized Optional<Path> getInstallationMetadataDir() {
+        return Optional.ofNullable(installationMetadataDir);
+    }
+
+    /**
+     * @return the report in JSON format
+     */
+    public synchronized String toJson() {
+        final ObjectNode node = JSON_MAPPER.createObjectNode();
+        node.put("operation", operation);
+        node.put("version", prosperoVersion());
+        node.put("startTime", startTime.toString());
+        final long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        final long endCpu = endNanos == 0 ? processCpuNanos() : endCpuNanos;
+        node.put("wallTimeMs", toMillis(end - startNanos));
+        node.put("cpuTimeMs", toMillis(endCpu - startCpuNanos));
+        if (installationMetadataDir != null) {
+            final Optional<String> manifests = manifestVersions(installationMetadataDir);
+            manifests.ifPresent(m -> node.put("manifests", m));
+        }
+
+        final ArrayNode phasesNode = node.putArray("phases");
+        for (Phase phase : phases) {
+            final ObjectNode phaseNode = phasesNode.addObject();
+            phaseNode.put("name", phase.name);
+            phaseNode.put("startMs", toMillis(phase.startNanos - startNanos));
+            phaseNode.put("wallTimeMs", toMillis((phase.isRunning() ? end : phase.endNanos) - phase.startNanos));
+            phaseNode.put("cpuTimeMs", toMillis((phase.isRunning() ? endCpu : phase.endCpuNanos) - phase.startCpuNanos));
+            phaseNode.put("bytes", phase.bytes.get());
+            phaseNode.put("items", phase.items.get());
+        }
+        if (!transferMetrics.isEmpty()) {
+            writeTransfers(node.putObject("transfers"));
+        }
+        try {
+            return JSON_MAPPER.writeValueAsString(node);
+        } catch (IOException e) {
+            // the report contains only strings and numbers
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * writes the report to {@code file}.
+     *
+     * @param file - target file
+     * @throws IOException - if unable to write the file
+     */
+    public void write(Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Files.writeString(file, toJson());
+    }
+
+    /**
+     * stops the timer, closes the resources registered with {@link #closeOnFinish(AutoCloseable)} and saves the report
+     * in the metadata folder of the changed installation, if any.
+     */
+    @Override
+    public void close() {
+        final List<AutoCloseable> registered;
+        synchronized (this) {
+            if (endNanos != 0) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            endCpuNanos = processCpuNanos();
+            registered = new ArrayList<>(resources);
+            resources.clear();
+        }
+        registered.forEach(OperationTimer::closeResource);
+        if (CURRENT.get() == this) {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+
+        final Optional<Path> metadataDir = getInstallationMetadataDir();
+        if (metadataDir.isPresent() && Files.isDirectory(metadataDir.get())) {
+            try {
+                Files.writeString(metadataDir.get().resolve(TIMINGS_FILE), toJson());
+            } catch (IOException e) {
+                ProsperoLogger.ROOT_LOGGER.debug("Unable to save the operation timings", e);
+            }
+        }
+    }
+
+    private void writeTransfers(ObjectNode node) {
+        writeStatistics(node.putObject("totals"), transferMetrics.getTotals());
+        final ArrayNode repositoriesNode = node.putArray("repositories");
+        for (TransferMetrics.RepositoryStatistics statistics : transferMetrics.getRepositories().values()) {
+            final ObjectNode repositoryNode = repositoriesNode.addObject();
+            repositoryNode.put("id", statistics.getRepositoryId());
+            writeStatistics(repositoryNode, statistics);
+        }
+        final ArrayNode slowestNode = node.putArray("slowest");
+        for (TransferMetrics.Transfer transfer : transferMetrics.getSlowestTransfers()) {
+            final ObjectNode transferNode = slowestNode.addObject();
+            transferNode.put("resource", transfer.getResource());
+            transferNode.put("repository", transfer.getRepositoryId());
+            transferNode.put("bytes", transfer.getBytes());
+            transferNode.put("durationMs", transfer.getDuration().toMillis());
+        }
+        final ArrayNode resolvedElsewhereNode = node.putArray("resolvedElsewhere");
+        for (TransferMetrics.ResolvedElsewhere resolved : transferMetrics.getResolvedElsewhere()) {
+            final ObjectNode resolvedNode = resolvedElsewhereNode.addObject();
+            resolvedNode.put("resource", resolved.getResource());
+            final ArrayNode missingNode = resolvedNode.putArray("missingIn");
+            resolved.getMissingIn().forEach(missingNode::add);
+            resolvedNode.put("resolvedFrom", resolved.getResolvedFrom());
+        }
+    }
+
+    private static void writeStatistics(ObjectNode node, TransferMetrics.RepositoryStatistics statistics) {
+        node.put("transfers", statistics.getTransfers());
+        node.put("bytes", statistics.getBytes());
+        node.put("durationMs", statistics.getDuration().toMillis());
+        node.put("retries", statistics.getRetries());
+        node.put("checksumFailures", statistics.getChecksumFailures());
+        node.put("notFound", statistics.getNotFound());
+        node.put("resolvedElsewhere", statistics.getResolvedElsewhere());
+        node.put("failures", statistics.getFailures());
+        node.put("cacheHits", statistics.getCacheHits());
+    }
+
+    private static Optional<String> manifestVersions(Path metadataDir) {
+        try {
+            return ManifestVersionRecord.read(metadataDir.resolve(CURRENT_VERSION_FILE))
+                    .map(ManifestVersionRecord::getSummary);
+        } catch (IOException e) {
+            ProsperoLogger.ROOT_LOGGER.debug("Unable to read the installed manifest versions", e);
+            return Optional.empty();
+        }
+    }
+
+    private static String prosperoVersion() {
+        try {
+            return VersionLogger.getVersion();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    private static long processCpuNanos() {
+        // includes all threads of this process, but not the processes forked by the operation
+        return ProcessHandle.current().info().totalCpuDuration().map(Duration::toNanos).orElse(0L);
+    }
+
+    private static long toMillis(long nanos) {
+        return Duration.ofNanos(nanos).toMillis();
+    }
+
+    /**
+     * A single execution of a phase. The counters can be updated from any thread.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final OperationTimer timer;
+        // phase collecting the counters, null if the operation is not timed
+        private final Phase counted;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong items = new AtomicLong();
+        private long endNanos;
+        private long endCpuNanos;
+
+        private Phase(String name, OperationTimer timer, Phase running) {
+            this.name = name;
+            this.timer = timer;
+            this.counted = timer != null ? this : running;
+            this.startNanos = timer == null ? 0 : System.nanoTime();
+            this.startCpuNanos = timer == null ? 0 : processCpuNanos();
+        }
+
+        /**
+         * adds transferred bytes to this phase.
+         *
+         * @param count - number of bytes
+         */
+        public void addBytes(long count) {
+            if (counted != null) {
+                counted.bytes.addAndGet(count);
+            }
+        }
+
+        /**
+         * adds processed items to this phase.
+         *
+         * @param count - number of items
+         */
+        public void addItems(long count) {
+            if (counted != null) {
+                counted.items.addAndGet(count);
+            }
+        }
+
+        private boolean isRunning() {
+            return endNanos == 0;
+        }
+
+        @Override
+        public void close() {
+            if (timer == null) {
+                return;
+            }
+            synchronized (timer) {
+                if (isRunning()) {
+                    endNanos = System.nanoTime();
+                    endCpuNanos = processCpuNanos();
+                }
+            }
+        }
+    }
+}
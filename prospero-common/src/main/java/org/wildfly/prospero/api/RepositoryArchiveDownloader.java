@@ -0,0 +1,587 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.ProsperoLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Downloads remote repository archives into a local cache.
+ *
+ * The downloaded archives are cached in {@code CACHE_DIR_PROPERTY} keyed by the URL and the {@code ETag} (or the
+ * {@code Last-Modified} date and length) of the archive. If the archive hasn't changed since the last download, the
+ * cached copy is used without downloading it again. Only the latest version of each archive is kept in the cache.
+ *
+ * If the server supports byte ranges, the archive is downloaded in {@code CHUNK_SIZE} chunks by several threads in
+ * parallel. The finished chunks are recorded, so that an interrupted download is resumed the next time the same archive
+ * is requested. If the server publishes a {@code .sha256} or {@code .sha1} checksum next to the archive, the downloaded
+ * archive is verified before it is added to the cache, and the cached archive is verified again before it is re-used.
+ * The verified checksum is recorded next to the cached archive together with its size and modification time, so the
+ * cached archive is hashed again only if it was modified.
+ *
+ * Each chunk is retried up to {@code CHUNK_ATTEMPTS} times before the download fails. The cache entries are locked while
+ * they are being downloaded, so concurrent downloads of the same archive, in this or another process, wait for each
+ * other instead of writing to the same files. Outdated versions of an archive are removed only if they are not locked.
+ */
+public class RepositoryArchiveDownloader {
+
+    private static final Logger LOG = Logger.getLogger(RepositoryArchiveDownloader.class.getName());
+
+    public static final String CACHE_DIR_PROPERTY = "org.wildfly.prospero.archive.cache-dir";
+    public static final String PARALLELISM_PROPERTY = "org.wildfly.prospero.archive.download-threads";
+    public static final Path DEFAULT_CACHE_DIR = Paths.get(System.getProperty("user.home"), ".prospero", "archive-cache");
+    static final int DEFAULT_PARALLELISM = 4;
+    static final long CHUNK_SIZE = 16 * 1024 * 1024;
+    static final String ARCHIVE_SUFFIX = ".zip";
+    static final String PARTIAL_SUFFIX = ".part";
+    static final String CHUNKS_SUFFIX = ".chunks";
+    static final String LOCK_SUFFIX = ".lock";
+    static final String VERIFIED_SUFFIX = ".verified";
+    static final int CHUNK_ATTEMPTS = 3;
+    private static final int CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+    private static final int READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(60);
+    // FileLocks are held by the whole JVM, the threads of this JVM have to be serialized separately
+    private static final Map<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+    // published checksums, in the order of preference
+    private static final List<Map.Entry<String, String>> CHECKSUMS = List.of(
+            Map.entry(".sha256", "SHA-256"),
+            Map.entry(".sha1", "SHA-1"));
+    private static final String CHUNK_SIZE_HEADER = "chunk-size:";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path cacheDir;
+    private final int parallelism;
+    private final long chunkSize;
+
+    public RepositoryArchiveDownloader() {
+        this(Paths.get(System.getProperty(CACHE_DIR_PROPERTY, DEFAULT_CACHE_DIR.toString())),
+                Integer.getInteger(PARALLELISM_PROPERTY, DEFAULT_PARALLELISM), CHUNK_SIZE);
+    }
+
+    RepositoryArchiveDownloader(Path cacheDir, int parallelism, long chunkSize) {
+        this.cacheDir = cacheDir;
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * returns a local copy of the archive at {@code url}, downloading it if the archive is not cached yet.
+     *
+     * @param url - URL of the archive
+     * @return path to the cached archive
+     * @throws IOException - if unable to download the archive or the archive doesn't match the published checksum
+     */
+    public Path download(URL url) throws IOException {
+        return download(RemoteArchive.probe(url));
+    }
+
+    Path download(RemoteArchive remote) throws IOException {
+        final URL url = remote.url;
+        final Path urlDir = cacheDir.resolve(sha1(url.toString()));
+        final Path archive = urlDir.resolve(sha1(remote.version()) + ARCHIVE_SUFFIX);
+        Files.createDirectories(urlDir);
+
+        final Path lockFile = archive.resolveSibling(archive.getFileName() + LOCK_SUFFIX);
+        final ReentrantLock lock = getLock(lockFile);
+        lock.lock();
+        try {
+            try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+                if (remote.version().isEmpty()) {
+                    // the archive version cannot be identified, always download it
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("The archive " + url + " doesn't provide an ETag, it will not be cached.");
+                    }
+                } else if (Files.exists(archive)) {
+                    if (isValid(remote, archive)) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Using cached archive " + archive + " for " + url);
+                        }
+                        return archive;
+                    }
+                    Files.delete(archive);
+                }
+
+                removeOutdated(urlDir, archive.getFileName().toString());
+
+                final Path partial = archive.resolveSibling(archive.getFileName() + PARTIAL_SUFFIX);
+                final Path chunks = archive.resolveSibling(archive.getFileName() + CHUNKS_SUFFIX);
+                if (remote.acceptsRanges && remote.length > chunkSize && !remote.version().isEmpty()) {
+                    downloadChunks(remote, partial, chunks);
+                } else {
+                    downloadAll(url, partial);
+                }
+
+                final Map.Entry<String, String> verified = verifyChecksum(url, partial);
+                Files.move(partial, archive, StandardCopyOption.REPLACE_EXISTING);
+                Files.deleteIfExists(chunks);
+                if (verified != null) {
+                    writeVerified(archive, verified.getKey(), verified.getValue());
+                }
+                return archive;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static ReentrantLock getLock(Path lockFile) {
+        return LOCKS.computeIfAbsent(lockFile.toAbsolutePath().normalize(), p -> new ReentrantLock());
+    }
+
+    private void downloadChunks(RemoteArchive remote, Path partial, Path chunksFile) throws IOException {
+        final int chunkCount = (int) ((remote.length + chunkSize - 1) / chunkSize);
+        final String header = CHUNK_SIZE_HEADER + chunkSize;
+        final Set<Integer> finished = new TreeSet<>();
+        if (Files.exists(partial) && Files.exists(chunksFile)) {
+            finished.addAll(readFinishedChunks(chunksFile, header, chunkCount));
+            if (LOG.isDebugEnabled()) {
+                LOG.debugf("Resuming the download of %s, %d chunks already downloaded", remote.url, finished.size());
+            }
+        }
+        // rewrite the record, so that the new chunks are not appended to a partially written line
+        final StringBuilder record = new StringBuilder(header).append('\n');
+        finished.forEach(chunk -> record.append(chunk).append('\n'));
+        Files.writeString(chunksFile, record, StandardCharsets.UTF_8);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, chunkCount));
+        final List<Future<Void>> results = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            try {
+                for (int i = 0; i < chunkCount; i++) {
+                    if (finished.contains(i)) {
+                        continue;
+                    }
+                    final int chunk = i;
+                    results.add(executorService.submit(() -> {
+                        final long start = chunk * chunkSize;
+                        final long end = Math.min(start + chunkSize, remote.length) - 1;
+                        downloadRangeWithRetries(remote, channel, start, end);
+                        synchronized (results) {
+                            // record the finished chunk only after its content is stored
+                            channel.force(false);
+                            Files.writeString(chunksFile, chunk + "\n", StandardCharsets.UTF_8,
+                                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                        }
+                        return null;
+                    }));
+                }
+
+                for (Future<Void> result : results) {
+                    result.get();
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                // don't start new chunks after a failure, but let the running ones finish, so they can be reused
+                results.forEach(f -> f.cancel(false));
+                executorService.shutdown();
+                awaitTermination(executorService);
+            }
+        }
+    }
+
+    /*
+     * The chunks are recorded one per line. The last line might be incomplete if the previous download was killed while
+     * recording a chunk, so only complete lines with a valid chunk number are accepted.
+     */
+    private static Set<Integer> readFinishedChunks(Path chunksFile, String header, int chunkCount) throws IOException {
+        final String content = Files.readString(chunksFile, StandardCharsets.UTF_8);
+        final List<String> lines = List.of(content.split("\n", -1));
+        // chunks recorded with a different chunk size cannot be reused
+        if (lines.size() < 2 || !lines.get(0).equals(header)) {
+            return Collections.emptySet();
+        }
+        final Set<Integer> finished = new HashSet<>();
+        for (String line : lines.subList(1, lines.size() - 1)) {
+            try {
+                final int chunk = Integer.parseInt(line.trim());
+                if (chunk >= 0 && chunk < chunkCount) {
+                    finished.add(chunk);
+                }
+            } catch (NumberFormatException e) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Ignoring malformed chunk record '" + line + "' in " + chunksFile);
+                }
+            }
+        }
+        return finished;
+    }
+
+    private static void awaitTermination(ExecutorService executorService) {
+        try {
+            executorService.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void downloadRangeWithRetries(RemoteArchive remote, FileChannel channel, long start, long end) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // a retried range overwrites the data written by the failed attempt
+                downloadRange(remote, channel, start, end);
+                return;
+            } catch (IOException e) {
+                if (attempt >= CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+                if (LOG.isDebugEnabled()) {
+                    LOG.debugf(e, "Unable to download the range %d-%d of %s, retrying", start, end, remote.url);
+                }
+            }
+        }
+    }
+
+    private static void downloadRange(RemoteArchive remote, FileChannel channel, long start, long end) throws IOException {
+        final HttpURLConnection connection = openConnection(remote.url);
+        try {
+            connection.setRequestProperty("Range", "bytes=" + start + "-" + end);
+            if (remote.etag != null) {
+                // fail if the archive changes during the download
+                connection.setRequestProperty("If-Range", remote.etag);
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                throw ProsperoLogger.ROOT_LOGGER.unableToDownloadRepositoryArchive(remote.url,
+                        "unexpected response to a range request " + connection.getResponseCode());
+            }
+            long position = start;
+            try (InputStream is = connection.getInputStream()) {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = is.read(buffer)) > 0) {
+                    if (position + read > end + 1) {
+                        throw ProsperoLogger.ROOT_LOGGER.unableToDownloadRepositoryArchive(remote.url,
+                                "received more data than requested");
+                    }
+                    final ByteBuffer bb = ByteBuffer.wrap(buffer, 0, read);
+                    while (bb.hasRemaining()) {
+                        position += channel.write(bb, position);
+                    }
+                }
+            }
+            if (position != end + 1) {
+                throw ProsperoLogger.ROOT_LOGGER.unableToDownloadRepositoryArchive(remote.url,
+                        "incomplete range " + start + "-" + end);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void downloadAll(URL url, Path target) throws IOException {
+        final HttpURLConnection connection = openConnection(url);
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw ProsperoLogger.ROOT_LOGGER.unableToDownloadRepositoryArchive(url,
+                        "unexpected response " + connection.getResponseCode());
+            }
+            try (InputStream is = connection.getInputStream()) {
+                Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /*
+     * returns the algorithm and the verified checksum of the file, or null if no checksum is published
+     */
+    private static Map.Entry<String, String> verifyChecksum(URL url, Path file) throws IOException {
+        final Map.Entry<String, String> published = readPublishedChecksum(url);
+        if (published == null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("No checksum published for " + url + ", the archive is not verified.");
+            }
+            return null;
+        }
+        final String actual = digest(file, published.getKey());
+        if (!published.getValue().equalsIgnoreCase(actual)) {
+            Files.deleteIfExists(file);
+            throw ProsperoLogger.ROOT_LOGGER.repositoryArchiveChecksumMismatch(url, published.getValue(), actual);
+        }
+        return Map.entry(published.getKey(), actual);
+    }
+
+    /*
+     * the cached archive might have been truncated or modified since it was downloaded
+     */
+    private static boolean isValid(RemoteArchive remote, Path archive) throws IOException {
+        if (remote.length >= 0 && Files.size(archive) != remote.length) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("The size of the cached archive " + archive + " doesn't match " + remote.url + ", downloading it again.");
+            }
+            return false;
+        }
+        final Map.Entry<String, String> published = readPublishedChecksum(remote.url);
+        if (published == null) {
+            return true;
+        }
+        String actual = readVerified(archive, published.getKey());
+        if (actual == null) {
+            actual = digest(archive, published.getKey());
+            writeVerified(archive, published.getKey(), actual);
+        }
+        if (!published.getValue().equalsIgnoreCase(actual)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("The checksum of the cached archive " + archive + " doesn't match " + remote.url + ", downloading it again.");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * records the checksum of the archive together with its size and modification time
+     */
+    private static void writeVerified(Path archive, String algorithm, String checksum) throws IOException {
+        final Properties verified = new Properties();
+        verified.setProperty("algorithm", algorithm);
+        verified.setProperty("checksum", checksum);
+        verified.setProperty("size", Long.toString(Files.size(archive)));
+        verified.setProperty("lastModified", Files.getLastModifiedTime(archive).toString());
+        try (OutputStream os = Files.newOutputStream(archive.resolveSibling(archive.getFileName() + VERIFIED_SUFFIX))) {
+            verified.store(os, null);
+        }
+    }
+
+    /*
+     * returns the recorded checksum of the archive, or null if it wasn't recorded or the archive has been modified since
+     */
+    private static String readVerified(Path archive, String algorithm) throws IOException {
+        final Path verifiedFile = archive.resolveSibling(archive.getFileName() + VERIFIED_SUFFIX);
+        if (!Files.exists(verifiedFile)) {
+            return null;
+        }
+        final Properties verified = new Properties();
+        try (InputStream is = Files.newInputStream(verifiedFile)) {
+            verified.load(is);
+        } catch (IllegalArgumentException e) {
+            // malformed record, the archive has to be hashed again
+            return null;
+        }
+        if (!algorithm.equals(verified.getProperty("algorithm"))
+                || !Long.toString(Files.size(archive)).equals(verified.getProperty("size"))
+                || !Files.getLastModifiedTime(archive).toString().equals(verified.getProperty("lastModified"))) {
+            return null;
+        }
+        return verified.getProperty("checksum");
+    }
+
+    /**
+     * returns the algorithm and value of the preferred checksum published for the archive, or {@code null} if no
+     * checksum is published
+     */
+    private static Map.Entry<String, String> readPublishedChecksum(URL url) throws IOException {
+        for (Map.Entry<String, String> checksum : CHECKSUMS) {
+            final String published = readChecksumFile(new URL(url.toString() + checksum.getKey()));
+            if (published != null) {
+                return Map.entry(checksum.getValue(), published);
+            }
+        }
+        return null;
+    }
+
+    private static String readChecksumFile(URL url) throws IOException {
+        final HttpURLConnection connection = openConnection(url);
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+            try (InputStream is = connection.getInputStream()) {
+                // the checksum files may contain the file name after the checksum
+                final String content = new String(is.readAllBytes(), StandardCharsets.UTF_8).trim();
+                return content.isEmpty() ? null : content.split("\\s+")[0];
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection openConnection(URL url) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        return connection;
+    }
+
+    /*
+     * removes the other versions of the archive. A version that is locked by another download is kept and removed the
+     * next time the archive is downloaded. The lock files are kept, so that the processes waiting for the lock and the
+     * new ones use the same file.
+     */
+    private static void removeOutdated(Path urlDir, String current) throws IOException {
+        final Set<String> outdated = new TreeSet<>();
+        try (Stream<Path> files = Files.list(urlDir)) {
+            files.map(f -> f.getFileName().toString())
+                    .filter(name -> !name.startsWith(current))
+                    .forEach(name -> {
+                        final int end = name.indexOf(ARCHIVE_SUFFIX);
+                        if (end < 0) {
+                            FileUtils.deleteQuietly(urlDir.resolve(name).toFile());
+                        } else {
+                            outdated.add(name.substring(0, end + ARCHIVE_SUFFIX.length()));
+                        }
+                    });
+        }
+
+        for (String version : outdated) {
+            final Path lockFile = urlDir.resolve(version + LOCK_SUFFIX);
+            final ReentrantLock lock = getLock(lockFile);
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock fileLock = lockChannel.tryLock()) {
+                if (fileLock == null) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("The cached archive " + urlDir.resolve(version) + " is in use, it will be removed later.");
+                    }
+                    continue;
+                }
+                for (String suffix : List.of("", PARTIAL_SUFFIX, CHUNKS_SUFFIX, VERIFIED_SUFFIX)) {
+                    Files.deleteIfExists(urlDir.resolve(version + suffix));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static String digest(Path file, String algorithm) throws IOException {
+        final MessageDigest digest = newDigest(algorithm);
+        try (InputStream is = Files.newInputStream(file)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String sha1(String value) {
+        return HexFormat.of().formatHex(newDigest("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static final class RemoteArchive {
+        private final URL url;
+        private final String etag;
+        private final String lastModified;
+        private final long length;
+        private final boolean acceptsRanges;
+        private final String contentType;
+
+        private RemoteArchive(URL url, String etag, String lastModified, long length, boolean acceptsRanges, String contentType) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.acceptsRanges = acceptsRanges;
+            this.contentType = contentType;
+        }
+
+        static RemoteArchive probe(URL url) throws IOException {
+            final HttpURLConnection connection = openConnection(url);
+            try {
+                connection.setRequestMethod("HEAD");
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    throw ProsperoLogger.ROOT_LOGGER.unableToDownloadRepositoryArchive(url,
+                            "unexpected response " + connection.getResponseCode());
+                }
+                return new RemoteArchive(url,
+                        connection.getHeaderField("ETag"),
+                        connection.getHeaderField("Last-Modified"),
+                        connection.getContentLengthLong(),
+                        "bytes".equals(connection.getHeaderField("Accept-Ranges")),
+                        connection.getContentType());
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        /**
+         * checks if the content type of the response indicates a ZIP archive
+         */
+        boolean isZip() {
+            return "application/zip".equals(contentType);
+        }
+
+        /**
+         * identifies the content of the archive, or an empty string if the content cannot be identified
+         */
+        String version() {
+            if (etag != null) {
+                return etag;
+            }
+            if (lastModified != null && length >= 0) {
+                return lastModified + ":" + length;
+            }
+            return "";
+        }
+    }
+}
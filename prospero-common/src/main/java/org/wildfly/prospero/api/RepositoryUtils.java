@@ -17,26 +17,24 @@
 
 package org.wildfly.prospero.api;
 
-import org.apache.commons.io.IOUtils;
 import org.eclipse.aether.repository.RemoteRepository;
-import org.jboss.galleon.util.ZipUtils;
 import org.jboss.logging.Logger;
 import org.wildfly.channel.Repository;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.exceptions.InvalidRepositoryArchiveException;
 
-import java.io.File;
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
-import java.net.URLConnection;
+import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.wildfly.channel.maven.VersionResolverFactory.DEFAULT_REPOSITORY_POLICY;
 
@@ -57,14 +55,30 @@ public class RepositoryUtils {
     }
 
     /**
-     * extracts repositories provided as ZIP archives and produces a list of {@code Repositories} pointing to extracted folders.
+     * maps repositories provided as ZIP archives to {@code Repositories} reading the artifacts directly from the archives.
      *
      * @param repositories - list of repositories. Some of them might contain archives
-     * @param temporaryFiles - {@link TemporaryFilesManager} responsible for temporary files
-     * @return - list of repositories with extracted archives
+     * @param temporaryFiles - not used, the archives are no longer extracted
+     * @return - list of repositories with mapped archives
      * @throws InvalidRepositoryArchiveException - if the archive does not contain a valid repository.
+     * @deprecated use {@link #mapArchives(List)}
      */
+    @Deprecated
     public static List<Repository> unzipArchives(List<Repository> repositories, TemporaryFilesManager temporaryFiles) throws InvalidRepositoryArchiveException {
+        return mapArchives(repositories);
+    }
+
+    /**
+     * maps repositories provided as ZIP archives to {@code Repositories} reading the artifacts directly from the archives.
+     * The archives are not extracted - the mapped repositories use {@code jar:} URLs pointing to the repository folder
+     * within the archive and the artifacts are read on demand. Remote archives are downloaded first, see
+     * {@link RepositoryArchiveDownloader}.
+     *
+     * @param repositories - list of repositories. Some of them might contain archives
+     * @return - list of repositories with mapped archives
+     * @throws InvalidRepositoryArchiveException - if the archive does not contain a valid repository.
+     */
+    public static List<Repository> mapArchives(List<Repository> repositories) throws InvalidRepositoryArchiveException {
         Objects.requireNonNull(repositories);
 
         if (repositories.isEmpty()) {
@@ -79,24 +93,27 @@ public class RepositoryUtils {
                         LOG.debug("Treating " + repository.getUrl() + " as a local archive.");
                     }
                     final Path archivePath = Path.of(URI.create(repository.getUrl()));
-                    final String newUrl = extractArchive(archivePath, temporaryFiles);
+                    final String newUrl = mapArchive(archivePath);
                     if (LOG.isDebugEnabled()) {
-                        LOG.debug("Extracted " + repository.getUrl() + " to " + newUrl);
+                        LOG.debug("Mapped " + repository.getUrl() + " to " + newUrl);
                     }
                     mappedRepositories.add(new Repository(repository.getId(), newUrl));
-                } else if (isRemoteZipFile(repository)) {
+                    continue;
+                }
+                final RepositoryArchiveDownloader.RemoteArchive remoteArchive = probeRemoteZipFile(repository);
+                if (remoteArchive != null) {
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("Treating " + repository.getUrl() + " as a remote archive.");
                     }
-                    final Path archivePath = temporaryFiles.createTempFile("prospero-repository", ".zip");
+                    // re-use the probed headers instead of requesting them again
+                    final Path archivePath = new RepositoryArchiveDownloader().download(remoteArchive);
                     if (LOG.isDebugEnabled()) {
                         LOG.debug("Downloaded " + repository.getUrl() + " to " + archivePath);
                     }
-                    IOUtils.copy(new URL(repository.getUrl()), archivePath.toFile());
 
-                    final String newUrl = extractArchive(archivePath, temporaryFiles);
+                    final String newUrl = mapArchive(archivePath);
                     if (LOG.isDebugEnabled()) {
-                        LOG.debug("Extracted " + repository.getUrl() + " to " + newUrl);
+                        LOG.debug("Mapped " + repository.getUrl() + " to " + newUrl);
                     }
                     mappedRepositories.add(new Repository(repository.getId(), newUrl));
                 } else {
@@ -112,24 +129,26 @@ public class RepositoryUtils {
         return mappedRepositories;
     }
 
-    private static String extractArchive(Path archivePath, TemporaryFilesManager temporaryFiles) throws IOException, InvalidRepositoryArchiveException {
-        final Path tempRepo = temporaryFiles.createTempDirectory("prospero-repository");
-        ZipUtils.unzip(archivePath, tempRepo);
-
-        final Path mavenRepositoryFolder = findRepositoryFolder(tempRepo);
-        return mavenRepositoryFolder.toUri().toURL().toString();
+    private static String mapArchive(Path archivePath) throws IOException, InvalidRepositoryArchiveException {
+        try (FileSystem zipFs = FileSystems.newFileSystem(archivePath, (ClassLoader) null)) {
+            final Path mavenRepositoryFolder = findRepositoryFolder(zipFs.getPath("/"));
+            final String url = mavenRepositoryFolder.toUri().toString();
+            return url.endsWith("/") ? url : url + "/";
+        }
     }
 
-    private static Path findRepositoryFolder(Path tempRepo) throws InvalidRepositoryArchiveException {
-        final File[] repoChildren = tempRepo.toFile().listFiles(File::isDirectory);
-        if (repoChildren == null || repoChildren.length != 1) {
+    private static Path findRepositoryFolder(Path repoRoot) throws IOException, InvalidRepositoryArchiveException {
+        final List<Path> repoChildren;
+        try (Stream<Path> children = Files.list(repoRoot)) {
+            repoChildren = children.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        if (repoChildren.size() != 1) {
             if (LOG.isDebugEnabled()) {
-                LOG.debug("The repository archive has to contain a single root folder. " + tempRepo);
+                LOG.debug("The repository archive has to contain a single root folder. " + repoRoot);
             }
             throw ProsperoLogger.ROOT_LOGGER.invalidRepositoryArchive();
         }
-        File rootFile = repoChildren[0];
-        final Path mavenRepositoryFolder = rootFile.toPath().resolve("maven-repository");
+        final Path mavenRepositoryFolder = repoChildren.get(0).resolve("maven-repository");
         if (!Files.exists(mavenRepositoryFolder) || !Files.isDirectory(mavenRepositoryFolder)) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Sub-folder maven-repository not found under the root of the archive " + mavenRepositoryFolder.getParent());
@@ -167,27 +186,25 @@ public class RepositoryUtils {
         }
     }
 
-    private static boolean isRemoteZipFile(Repository repository) {
+    /*
+     * returns the probed remote archive if the repository URL points to a ZIP archive, null otherwise
+     */
+    private static RepositoryArchiveDownloader.RemoteArchive probeRemoteZipFile(Repository repository) {
         try {
             final URL url = new URL(repository.getUrl());
             if (!url.getFile().endsWith(".zip")) {
-                return false;
+                return null;
             }
             // check if the content type indicates an archive
             if (url.getProtocol().equals("http") || url.getProtocol().equals("https")) {
-                final URLConnection connection = url.openConnection();
-                if (connection instanceof HttpURLConnection) {
-                    ((HttpURLConnection) connection).setRequestMethod("HEAD");
-                    connection.connect();
-                    final String contentType = connection.getContentType();
-                    return "application/zip".equals(contentType);
-                }
+                final RepositoryArchiveDownloader.RemoteArchive remoteArchive = RepositoryArchiveDownloader.RemoteArchive.probe(url);
+                return remoteArchive.isZip() ? remoteArchive : null;
             }
         } catch (IOException e) {
             if (LOG.isTraceEnabled()) {
                 LOG.trace(repository.getUrl() + " unable to determine content type, treating as repository URL", e);
             }
         }
-        return false;
+        return null;
     }
 }
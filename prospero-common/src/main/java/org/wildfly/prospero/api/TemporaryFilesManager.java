@@ -56,6 +56,7 @@ public class TemporaryFilesManager implements AutoCloseable {
 
     @Override
     public void close() {
+        temporaryFiles.forEach(MetadataContext::release);
         temporaryFiles.stream()
                 .map(Path::toFile)
                 .forEach(FileUtils::deleteQuietly);
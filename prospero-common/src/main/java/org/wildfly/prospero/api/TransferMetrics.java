@@ -0,0 +1,408 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Statistics of the artifacts transferred from Maven repositories, grouped by the repository id.
+ *
+ * Besides the per-repository counters, the metrics keep the {@link #SLOWEST_TRANSFERS} slowest transfers and the first
+ * {@link #RESOLVED_ELSEWHERE} artifacts that were not found in some repositories, but were later resolved from another
+ * one. All methods are thread-safe.
+ */
+public class TransferMetrics {
+
+    /**
+     * Number of the slowest transfers kept by the metrics.
+     */
+    public static final int SLOWEST_TRANSFERS = 10;
+
+    /**
+     * Number of the resources resolved from another repository kept by the metrics. The counters include all of them.
+     */
+    public static final int RESOLVED_ELSEWHERE = 100;
+
+    // limits the resources tracked to detect they were resolved elsewhere
+    private static final int MAX_NOT_FOUND_TRACKED = 1000;
+
+    private final Map<String, Counters> repositories = new TreeMap<>();
+    private final List<Transfer> slowest = new ArrayList<>();
+    private final List<ResolvedElsewhere> resolvedElsewhere = new ArrayList<>();
+    // transfers that were started, but didn't finish yet, used to detect retries
+    private final Set<String> inProgress = new HashSet<>();
+    // repositories that didn't contain a resource
+    private final Map<String, Set<String>> notFoundIn = new HashMap<>();
+
+    /**
+     * records an attempt to transfer {@code resource} from the repository was started. Another attempt before the
+     * transfer finished (e.g. after a checksum failure) is recorded as a retry.
+     */
+    public synchronized void transferStarted(String repositoryId, String resource) {
+        if (!inProgress.add(transferKey(repositoryId, resource))) {
+            counters(repositoryId).retries++;
+        }
+    }
+
+    /**
+     * records a transfer of {@code resource} from the repository finished successfully.
+     */
+    public synchronized void transferSucceeded(String repositoryId, String resource, long bytes, Duration duration) {
+        inProgress.remove(transferKey(repositoryId, resource));
+        final Counters counters = counters(repositoryId);
+        counters.transfers++;
+        counters.bytes += bytes;
+        counters.duration = counters.duration.plus(duration);
+
+        final Transfer transfer = new Transfer(repositoryId, resource, bytes, duration);
+        int index = 0;
+        while (index < slowest.size() && slowest.get(index).getDuration().compareTo(duration) >= 0) {
+            index++;
+        }
+        if (index < SLOWEST_TRANSFERS) {
+            slowest.add(index, transfer);
+            if (slowest.size() > SLOWEST_TRANSFERS) {
+                slowest.remove(SLOWEST_TRANSFERS);
+            }
+        }
+
+        final Set<String> missingIn = notFoundIn.remove(resource);
+        if (missingIn != null) {
+            missingIn.remove(repositoryId);
+            if (!missingIn.isEmpty()) {
+                if (resolvedElsewhere.size() < RESOLVED_ELSEWHERE) {
+                    resolvedElsewhere.add(new ResolvedElsewhere(resource, new ArrayList<>(missingIn), repositoryId));
+                }
+                for (String missing : missingIn) {
+                    counters(missing).resolvedElsewhere++;
+                }
+            }
+        }
+    }
+
+    /**
+     * records the checksum of {@code resource} transferred from the repository didn't match.
+     */
+    public synchronized void checksumFailed(String repositoryId, String resource) {
+        counters(repositoryId).checksumFailures++;
+    }
+
+    /**
+     * records the repository doesn't contain {@code resource}.
+     */
+    public synchronized void notFound(String repositoryId, String resource) {
+        inProgress.remove(transferKey(repositoryId, resource));
+        counters(repositoryId).notFound++;
+        final Set<String> missingIn = notFoundIn.get(resource);
+        if (missingIn != null) {
+            missingIn.add(repositoryId);
+        } else if (notFoundIn.size() < MAX_NOT_FOUND_TRACKED) {
+            notFoundIn.put(resource, new LinkedHashSet<>(List.of(repositoryId)));
+        }
+    }
+
+    /**
+     * records a transfer of {@code resource} from the repository failed for a reason other than a missing resource.
+     */
+    public synchronized void transferFailed(String repositoryId, String resource) {
+        inProgress.remove(transferKey(repositoryId, resource));
+        counters(repositoryId).failures++;
+    }
+
+    /**
+     * records an artifact was found in a local cache with the id {@code repositoryId}.
+     */
+    public synchronized void cacheHit(String repositoryId) {
+        counters(repositoryId).cacheHits++;
+    }
+
+    /**
+     * adds all the statistics from {@code other} to these metrics.
+     *
+     * @param other - metrics to add
+     */
+    public void add(TransferMetrics other) {
+        final Map<String, RepositoryStatistics> otherRepositories = other.getRepositories();
+        final List<Transfer> otherSlowest = other.getSlowestTransfers();
+        final List<ResolvedElsewhere> otherResolvedElsewhere = other.getResolvedElsewhere();
+        synchronized (this) {
+            for (RepositoryStatistics statistics : otherRepositories.values()) {
+                counters(statistics.getRepositoryId()).add(statistics);
+            }
+            slowest.addAll(otherSlowest);
+            slowest.sort(Comparator.comparing(Transfer::getDuration).reversed());
+            while (slowest.size() > SLOWEST_TRANSFERS) {
+                slowest.remove(SLOWEST_TRANSFERS);
+            }
+            for (ResolvedElsewhere resolved : otherResolvedElsewhere) {
+                if (resolvedElsewhere.size() >= RESOLVED_ELSEWHERE) {
+                    break;
+                }
+                resolvedElsewhere.add(resolved);
+            }
+        }
+    }
+
+    /**
+     * @return statistics of each repository used, by the repository id
+     */
+    public synchronized Map<String, RepositoryStatistics> getRepositories() {
+        final Map<String, RepositoryStatistics> res = new TreeMap<>();
+        repositories.forEach((id, counters) -> res.put(id, counters.toStatistics(id)));
+        return res;
+    }
+
+    /**
+     * @return statistics of all the repositories combined
+     */
+    public synchronized RepositoryStatistics getTotals() {
+        final Counters totals = new Counters();
+        for (Map.Entry<String, Counters> entry : repositories.entrySet()) {
+            totals.add(entry.getValue().toStatistics(entry.getKey()));
+        }
+        return totals.toStatistics(null);
+    }
+
+    /**
+     * @return the slowest transfers, starting with the slowest one
+     */
+    public synchronized List<Transfer> getSlowestTransfers() {
+        return Collections.unmodifiableList(new ArrayList<>(slowest));
+    }
+
+    /**
+     * @return up to {@link #RESOLVED_ELSEWHERE} resources that were not found in some repositories, but were resolved
+     * from another one
+     */
+    public synchronized List<ResolvedElsewhere> getResolvedElsewhere() {
+        return Collections.unmodifiableList(new ArrayList<>(resolvedElsewhere));
+    }
+
+    /**
+     * @return true if no transfer or cache hit was recorded
+     */
+    public synchronized boolean isEmpty() {
+        return repositories.isEmpty();
+    }
+
+    private static String transferKey(String repositoryId, String resource) {
+        return repositoryId + "::" + resource;
+    }
+
+    private Counters counters(String repositoryId) {
+        return repositories.computeIfAbsent(repositoryId, k -> new Counters());
+    }
+
+    private static class Counters {
+        private long transfers;
+        private long bytes;
+        private Duration duration = Duration.ZERO;
+        private long retries;
+        private long checksumFailures;
+        private long notFound;
+        private long resolvedElsewhere;
+        private long failures;
+        private long cacheHits;
+
+        void add(RepositoryStatistics statistics) {
+            transfers += statistics.getTransfers();
+            bytes += statistics.getBytes();
+            duration = duration.plus(statistics.getDuration());
+            retries += statistics.getRetries();
+            checksumFailures += statistics.getChecksumFailures();
+            notFound += statistics.getNotFound();
+            resolvedElsewhere += statistics.getResolvedElsewhere();
+            failures += statistics.getFailures();
+            cacheHits += statistics.getCacheHits();
+        }
+
+        RepositoryStatistics toStatistics(String repositoryId) {
+            return new RepositoryStatistics(repositoryId, transfers, bytes, duration, retries, checksumFailures, notFound,
+                    resolvedElsewhere, failures, cacheHits);
+        }
+    }
+
+    /**
+     * Transfer statistics of a single repository.
+     */
+    public static class RepositoryStatistics {
+        private final String repositoryId;
+        private final long transfers;
+        private final long bytes;
+        private final Duration duration;
+        private final long retries;
+        private final long checksumFailures;
+        private final long notFound;
+        private final long resolvedElsewhere;
+        private final long failures;
+        private final long cacheHits;
+
+        RepositoryStatistics(String repositoryId, long transfers, long bytes, Duration duration, long retries,
+                             long checksumFailures, long notFound, long resolvedElsewhere, long failures, long cacheHits) {
+            this.repositoryId = repositoryId;
+            this.transfers = transfers;
+            this.bytes = bytes;
+            this.duration = duration;
+            this.retries = retries;
+            this.checksumFailures = checksumFailures;
+            this.notFound = notFound;
+            this.resolvedElsewhere = resolvedElsewhere;
+            this.failures = failures;
+            this.cacheHits = cacheHits;
+        }
+
+        /**
+         * @return id of the repository, or null for the combined statistics
+         */
+        public String getRepositoryId() {
+            return repositoryId;
+        }
+
+        /**
+         * @return number of successfully transferred resources
+         */
+        public long getTransfers() {
+            return transfers;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return combined duration of all the successful transfers. Concurrent transfers are counted separately.
+         */
+        public Duration getDuration() {
+            return duration;
+        }
+
+        /**
+         * @return number of transfer attempts started again before the transfer finished
+         */
+        public long getRetries() {
+            return retries;
+        }
+
+        public long getChecksumFailures() {
+            return checksumFailures;
+        }
+
+        public long getNotFound() {
+            return notFound;
+        }
+
+        /**
+         * @return number of resources not found in this repository, but resolved from another one
+         */
+        public long getResolvedElsewhere() {
+            return resolvedElsewhere;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        /**
+         * @return transfer rate in bytes per second, or 0 if nothing was transferred
+         */
+        public long getBytesPerSecond() {
+            final long millis = duration.toMillis();
+            return millis == 0 ? 0 : bytes * 1000 / millis;
+        }
+    }
+
+    /**
+     * A single successful transfer.
+     */
+    public static class Transfer {
+        private final String repositoryId;
+        private final String resource;
+        private final long bytes;
+        private final Duration duration;
+
+        Transfer(String repositoryId, String resource, long bytes, Duration duration) {
+            this.repositoryId = repositoryId;
+            this.resource = resource;
+            this.bytes = bytes;
+            this.duration = duration;
+        }
+
+        public String getRepositoryId() {
+            return repositoryId;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+    }
+
+    /**
+     * A resource missing in some repositories, resolved from another one.
+     */
+    public static class ResolvedElsewhere {
+        private final String resource;
+        private final List<String> missingIn;
+        private final String resolvedFrom;
+
+        ResolvedElsewhere(String resource, List<String> missingIn, String resolvedFrom) {
+            this.resource = resource;
+            this.missingIn = Collections.unmodifiableList(missingIn);
+            this.resolvedFrom = resolvedFrom;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        /**
+         * @return ids of the repositories that didn't contain the resource
+         */
+        public List<String> getMissingIn() {
+            return missingIn;
+        }
+
+        /**
+         * @return id of the repository the resource was resolved from
+         */
+        public String getResolvedFrom() {
+            return resolvedFrom;
+        }
+    }
+}
@@ -26,6 +26,10 @@ import org.jboss.logging.Logger;
 import org.wildfly.channel.ChannelManifest;
 import org.wildfly.channel.MavenArtifact;
 import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.OperationTimer;
+import org.wildfly.prospero.jfr.JfrSupport;
+import org.wildfly.prospero.jfr.ArtifactCacheLookupEvent;
+import org.wildfly.prospero.jfr.ArtifactCacheRehashEvent;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 
@@ -37,6 +41,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +68,10 @@ public class ArtifactCache {
     static final String CACHE_LINE_SEPARATOR = "::";
     static final String CACHE_FILENAME = "artifacts.txt";
     public static final Path CACHE_FOLDER = Path.of(ProsperoMetadataUtils.METADATA_DIR, ".cache");
+    /**
+     * Repository id used to record artifacts found in the cache in {@link org.wildfly.prospero.api.TransferMetrics}.
+     */
+    public static final String CACHE_REPOSITORY_ID = "installation-cache";
 
     private final Path cacheDir;
     private final Path installationDir;
@@ -115,16 +124,24 @@ public class ArtifactCache {
      */
     public Optional<File> getArtifact(String groupId, String artifactId, String extension, String classifier, String version) {
         final String key = asKey(groupId, artifactId, extension, classifier, version);
+        final ArtifactCacheLookupEvent event = JfrSupport.isAvailable() ? new ArtifactCacheLookupEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         try {
             lock.readLock().lock();
             if (paths.containsKey(key)) {
                 final Path path = paths.get(key);
                 try {
-                    final String hash = HashUtils.hashFile(path);
+                    final String hash = hashFile(key, path);
                     if (!hash.equals(hashes.get(key))) {
                         LOG.debug("Hashes don't match for " + key);
                         return Optional.empty();
                     }
+                    OperationTimer.current().ifPresent(t -> t.getTransferMetrics().cacheHit(CACHE_REPOSITORY_ID));
+                    if (event != null) {
+                        event.hit = true;
+                    }
                     return Optional.of(path.toFile());
                 } catch (IOException e) {
                     LOG.debug("Unable to calculate cached artifact hash " + key, e);
@@ -132,9 +149,42 @@ public class ArtifactCache {
                 }
             }
             return Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+            if (event != null) {
+                event.artifact = key;
+                event.finish(installationDir);
+            }
+        }
+    }
+
+    /**
+     * lists all the artifacts recorded in the cache descriptor. Only artifacts that have not been modified since the
+     * cache was created are listed.
+     *
+     * @return cached artifacts with their files
+     */
+    public List<MavenArtifact> listArtifacts() {
+        final List<MavenArtifact> artifacts = new ArrayList<>();
+        try {
+            lock.readLock().lock();
+            for (String key : paths.keySet()) {
+                final org.jboss.galleon.universe.maven.MavenArtifact gav;
+                try {
+                    gav = org.jboss.galleon.universe.maven.MavenArtifact.fromString(key);
+                } catch (MavenUniverseException e) {
+                    LOG.debug("Unable to parse cached artifact coordinates " + key, e);
+                    continue;
+                }
+                getArtifact(gav.getGroupId(), gav.getArtifactId(), gav.getExtension(), gav.getClassifier(), gav.getVersion())
+                        .map(f -> new MavenArtifact(gav.getGroupId(), gav.getArtifactId(), gav.getExtension(),
+                                gav.getClassifier(), gav.getVersion(), f))
+                        .ifPresent(artifacts::add);
+            }
         } finally {
             lock.readLock().unlock();
         }
+        return artifacts;
     }
 
     /**
@@ -150,7 +200,8 @@ public class ArtifactCache {
 
             final Path cacheList = cacheDir.resolve(CACHE_FILENAME);
 
-            final String hash = HashUtils.hashFile(artifact.getFile().toPath());
+            final String hash = hashFile(asKey(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(),
+                    artifact.getClassifier(), artifact.getVersion()), artifact.getFile().toPath());
 
             // make sure the latest version of the cache list is read
             init();
@@ -183,6 +234,31 @@ public class ArtifactCache {
         }
     }
 
+    private String hashFile(String key, Path file) throws IOException {
+        final ArtifactCacheRehashEvent event = JfrSupport.isAvailable() ? new ArtifactCacheRehashEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        try {
+            return HashUtils.hashFile(file);
+        } finally {
+            if (event != null) {
+                if (event.isEnabled()) {
+                    event.artifact = key;
+                    event.size = file.toFile().length();
+                }
+                event.finish(installationDir);
+            }
+        }
+    }
+
+    /**
+     * @return the installation this cache belongs to
+     */
+    Path getInstallationDir() {
+        return installationDir;
+    }
+
     /**
      * caches the artifact in {@code CACHE_FOLDER}. The cached artifact is then recorded in the cache list.
      *
@@ -190,9 +266,13 @@ public class ArtifactCache {
      * @throws IOException
      */
     public void cache(MavenArtifact artifact) throws IOException {
-        IoUtils.copy(artifact.getFile().toPath(), cacheDir.resolve(artifact.getFile().getName()), false);
+        try (OperationTimer.Phase phase = OperationTimer.phase(OperationTimer.CACHE_POPULATION)) {
+            IoUtils.copy(artifact.getFile().toPath(), cacheDir.resolve(artifact.getFile().getName()), false);
 
-        record(artifact, cacheDir.resolve(artifact.getFile().getName()));
+            record(artifact, cacheDir.resolve(artifact.getFile().getName()));
+            phase.addItems(1);
+            phase.addBytes(artifact.getFile().length());
+        }
     }
 
     /**
@@ -208,16 +288,18 @@ public class ArtifactCache {
         Objects.requireNonNull(manifestRecord);
         Objects.requireNonNull(localRepositoryManager);
 
-        for (ManifestVersionRecord.MavenManifest manifest : manifestRecord.getMavenManifests()) {
-            final MavenArtifact record = mapToFile(manifestRecord, localRepositoryManager, manifest.getGroupId(), manifest.getArtifactId());
-            if (record != null && record.getVersion().equals(manifest.getVersion())) {
-                if (LOG.isDebugEnabled()) {
-                    LOG.debugf("Adding manifest %s to the cache", record);
-                }
-                final File cachedManifest = record.getFile();
+        try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.CACHE_POPULATION)) {
+            for (ManifestVersionRecord.MavenManifest manifest : manifestRecord.getMavenManifests()) {
+                final MavenArtifact record = mapToFile(manifestRecord, localRepositoryManager, manifest.getGroupId(), manifest.getArtifactId());
+                if (record != null && record.getVersion().equals(manifest.getVersion())) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debugf("Adding manifest %s to the cache", record);
+                    }
+                    final File cachedManifest = record.getFile();
 
-                if (cachedManifest.exists()) {
-                    cache(record);
+                    if (cachedManifest.exists()) {
+                        cache(record);
+                    }
                 }
             }
         }
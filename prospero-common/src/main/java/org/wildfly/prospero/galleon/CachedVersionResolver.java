@@ -29,6 +29,9 @@ import org.wildfly.channel.ChannelManifest;
 import org.wildfly.channel.ChannelMetadataCoordinate;
 import org.wildfly.channel.UnresolvedMavenArtifactException;
 import org.wildfly.channel.spi.MavenVersionsResolver;
+import org.wildfly.prospero.jfr.JfrSupport;
+import org.wildfly.prospero.jfr.ArtifactResolutionEvent;
+import org.wildfly.prospero.jfr.ManifestResolutionEvent;
 
 import java.io.File;
 import java.net.MalformedURLException;
@@ -108,6 +111,10 @@ public class CachedVersionResolver implements MavenVersionsResolver {
 
     @Override
     public List<File> resolveArtifacts(List<ArtifactCoordinate> coordinates) throws UnresolvedMavenArtifactException {
+        final ArtifactResolutionEvent event = JfrSupport.isAvailable() ? new ArtifactResolutionEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         final List<Function<List<File>, File>> res = new ArrayList<>(coordinates.size());
         final List<ArtifactCoordinate> missingArtifacts = new ArrayList<>();
         int index = 0;
@@ -131,16 +138,31 @@ public class CachedVersionResolver implements MavenVersionsResolver {
             }
         }
 
-        final List<File> resolvedFromMaven = fallbackResolver.resolveArtifacts(missingArtifacts);
+        try {
+            final List<File> resolvedFromMaven = fallbackResolver.resolveArtifacts(missingArtifacts);
 
-        return res.stream().map(f->f.apply(resolvedFromMaven)).collect(Collectors.toList());
+            return res.stream().map(f->f.apply(resolvedFromMaven)).collect(Collectors.toList());
+        } finally {
+            if (event != null) {
+                event.artifacts = coordinates.size();
+                event.cacheHits = coordinates.size() - missingArtifacts.size();
+                event.finish(artifactCache.getInstallationDir());
+            }
+        }
     }
 
     @Override
     public List<URL> resolveChannelMetadata(List<? extends ChannelMetadataCoordinate> manifestCoords) throws UnresolvedMavenArtifactException {
+        final ManifestResolutionEvent event = JfrSupport.isAvailable() ? new ManifestResolutionEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         try {
             return fallbackResolver.resolveChannelMetadata(manifestCoords);
         } catch (ArtifactTransferException e) {
+            if (event != null) {
+                event.fromCache = true;
+            }
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Failed to resolve manifests, attempting to fall back to the cache.");
             }
@@ -216,6 +238,9 @@ public class CachedVersionResolver implements MavenVersionsResolver {
                 }
             }
             return Arrays.asList(cachedMetadata);
+        } finally {
+            event.manifests = manifestCoords.size();
+            event.finish(artifactCache.getInstallationDir());
         }
     }
 
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.galleon;
+
+import org.jboss.galleon.Constants;
+import org.jboss.galleon.ProvisioningException;
+import org.jboss.galleon.api.GalleonFeaturePackLayout;
+import org.jboss.galleon.api.GalleonProvisioningLayout;
+import org.jboss.galleon.api.Provisioning;
+import org.jboss.galleon.api.config.GalleonFeaturePackConfig;
+import org.jboss.galleon.api.config.GalleonProvisioningConfig;
+import org.jboss.galleon.universe.FeaturePackLocation;
+import org.jboss.galleon.util.IoUtils;
+import org.jboss.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of the server configurations generated during provisioning.
+ *
+ * Generating the configurations requires the WildFly Galleon plugin to boot an embedded server in a forked JVM. The
+ * cache entries are keyed by a digest of the provisioning configuration, the Galleon options and the content of the
+ * feature packs (feature specs, layers, config models and the Galleon plugins bundled in them), so an update that
+ * changes only the artifact versions re-uses the configurations generated before.
+ *
+ * The digest doesn't include the versions of the artifacts resolved from the channels. The configurations are
+ * generated by the subsystems of the provisioned server, so an updated artifact changing the persisted configuration
+ * (e.g. a new default attribute value) is not reflected in the cached configurations. Because of that, the cache is
+ * used only if enabled with {@code ENABLED_PROPERTY}.
+ *
+ * On a cache miss, the server is provisioned as usual and the generated configurations, together with the matching
+ * Galleon provisioned state and hashes, are stored in {@code CACHE_DIR_PROPERTY}. On a cache hit, the server is
+ * provisioned without any configurations - including all the packages recorded in the cached provisioned state
+ * instead - so that no embedded server is started, and the cached files are copied into the provisioned server.
+ */
+public class ConfigGenerationCache {
+
+    private static final Logger LOG = Logger.getLogger(ConfigGenerationCache.class.getName());
+
+    public static final String CACHE_DIR_PROPERTY = "org.wildfly.prospero.config-cache.dir";
+    public static final String ENABLED_PROPERTY = "org.wildfly.prospero.config-cache.enabled";
+    public static final Path DEFAULT_CACHE_DIR = Paths.get(System.getProperty("user.home"), ".prospero", "config-cache");
+    /**
+     * Directories the configurations are generated into, relative to the server root.
+     */
+    static final List<Path> CONFIG_DIRS = List.of(Path.of("standalone", "configuration"), Path.of("domain", "configuration"));
+    private static final Path GALLEON_DIR = Path.of(Constants.PROVISIONED_STATE_DIR);
+    private static final Path PROVISIONED_STATE = GALLEON_DIR.resolve(Constants.PROVISIONED_STATE_XML);
+    private static final Path PROVISIONING_XML = GALLEON_DIR.resolve(Constants.PROVISIONING_XML);
+    private static final String FEATURE_PACK_ELEMENT = "feature-pack";
+    private static final String PACKAGE_ELEMENT = "package";
+    private static final String CONFIG_ELEMENT = "config";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path cacheDir;
+
+    /**
+     * @return cache located in {@code CACHE_DIR_PROPERTY}, or {@code null} if the cache is not enabled by {@code ENABLED_PROPERTY}
+     */
+    public static ConfigGenerationCache getDefault() {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return null;
+        }
+        return new ConfigGenerationCache(Paths.get(System.getProperty(CACHE_DIR_PROPERTY, DEFAULT_CACHE_DIR.toString())));
+    }
+
+    public ConfigGenerationCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Provisions {@code config} using {@code provisioning}, re-using previously generated configurations if possible.
+     *
+     * If the cache cannot be used, e.g. the digest of the inputs cannot be calculated, the server is provisioned as usual.
+     *
+     * @param provisioning - Galleon provisioning of the target server
+     * @param config - provisioning configuration of the server
+     * @param options - Galleon options
+     * @throws ProvisioningException - if the provisioning fails
+     */
+    public void provision(Provisioning provisioning, GalleonProvisioningConfig config, Map<String, String> options)
+            throws ProvisioningException {
+        final String key;
+        try {
+            key = digest(provisioning, config, options);
+        } catch (IOException e) {
+            LOG.debug("Unable to calculate the digest of the provisioning inputs, the config generation cache is not used.", e);
+            provisioning.provision(config, options);
+            return;
+        }
+
+        final Path serverDir = provisioning.getInstallationHome();
+        final Path entry = cacheDir.resolve(key);
+        if (Files.exists(entry.resolve(PROVISIONED_STATE))) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Using cached server configurations " + entry);
+            }
+            final GalleonProvisioningConfig withoutConfigs;
+            try {
+                withoutConfigs = withoutConfigs(config, readPackages(entry.resolve(PROVISIONED_STATE)));
+            } catch (IOException | XMLStreamException e) {
+                throw new ProvisioningException("Unable to read cached provisioned state " + entry.resolve(PROVISIONED_STATE), e);
+            }
+            provisioning.provision(withoutConfigs, options);
+            try {
+                restore(entry, serverDir);
+            } catch (IOException e) {
+                throw new ProvisioningException("Unable to copy cached server configurations from " + entry, e);
+            }
+        } else {
+            provisioning.provision(config, options);
+            try {
+                store(serverDir, entry);
+            } catch (IOException | XMLStreamException e) {
+                LOG.debug("Unable to store generated server configurations in " + entry, e);
+            }
+        }
+    }
+
+    /**
+     * Calculates the digest of the inputs of the configuration generation - the provisioning configuration, the Galleon
+     * options and the content of all the feature packs it resolves to.
+     */
+    String digest(Provisioning provisioning, GalleonProvisioningConfig config, Map<String, String> options)
+            throws ProvisioningException, IOException {
+        final MessageDigest digest = newDigest();
+
+        for (Map.Entry<String, String> option : new TreeMap<>(options).entrySet()) {
+            digest.update((option.getKey() + "=" + option.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        final Path configFile = Files.createTempFile("prospero-provisioning", ".xml");
+        try {
+            provisioning.storeProvisioningConfig(config, configFile);
+            digest.update(Files.readAllBytes(configFile));
+        } finally {
+            Files.deleteIfExists(configFile);
+        }
+
+        try (GalleonProvisioningLayout layout = provisioning.newProvisioningLayout(config)) {
+            for (GalleonFeaturePackLayout featurePack : layout.getOrderedFeaturePacks()) {
+                update(digest, featurePack);
+                for (GalleonFeaturePackLayout patch : layout.getPatches(featurePack.getFPID())) {
+                    update(digest, patch);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, GalleonFeaturePackLayout featurePack) throws IOException {
+        digest.update(featurePack.getFPID().toString().getBytes(StandardCharsets.UTF_8));
+        final Path dir = featurePack.getDir();
+        final List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        for (Path file : files) {
+            digest.update(dir.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            try (InputStream is = Files.newInputStream(file)) {
+                int read;
+                while ((read = is.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of {@code config} that doesn't provision any configurations, but explicitly includes
+     * {@code packages} recorded for each feature pack producer. Without the configurations, packages required only by
+     * the features of the configurations would not be provisioned otherwise.
+     */
+    static GalleonProvisioningConfig withoutConfigs(GalleonProvisioningConfig config,
+                                                    Map<FeaturePackLocation.ProducerSpec, Set<String>> packages)
+            throws ProvisioningException {
+        final Map<FeaturePackLocation.ProducerSpec, Set<String>> remaining = new LinkedHashMap<>(packages);
+        final GalleonProvisioningConfig.Builder builder = GalleonProvisioningConfig.builder()
+                .initUniverses(config)
+                .addOptions(config.getOptions())
+                .setInheritConfigs(false)
+                .setInheritModelOnlyConfigs(false);
+
+        for (GalleonFeaturePackConfig fp : config.getTransitiveDeps()) {
+            builder.addFeaturePackDep(config.originOf(fp.getLocation().getProducer()),
+                    withoutConfigs(fp, remaining.remove(fp.getLocation().getProducer())));
+        }
+        for (GalleonFeaturePackConfig fp : config.getFeaturePackDeps()) {
+            builder.addFeaturePackDep(config.originOf(fp.getLocation().getProducer()),
+                    withoutConfigs(fp, remaining.remove(fp.getLocation().getProducer())));
+        }
+        // feature packs provisioned as dependencies of the configured ones
+        for (Map.Entry<FeaturePackLocation.ProducerSpec, Set<String>> fp : remaining.entrySet()) {
+            builder.addFeaturePackDep(GalleonFeaturePackConfig.transitiveBuilder(fp.getKey().getLocation())
+                    .setInheritConfigs(false)
+                    .setInheritModelOnlyConfigs(false)
+                    .includeAllPackages(fp.getValue())
+                    .build());
+        }
+        return builder.build();
+    }
+
+    private static GalleonFeaturePackConfig withoutConfigs(GalleonFeaturePackConfig fp, Set<String> packages)
+            throws ProvisioningException {
+        final GalleonFeaturePackConfig.Builder builder = fp.isTransitive()
+                ? GalleonFeaturePackConfig.transitiveBuilder(fp.getLocation())
+                : GalleonFeaturePackConfig.builder(fp.getLocation());
+        if (fp.getInheritPackages() != null) {
+            builder.setInheritPackages(fp.getInheritPackages());
+        }
+        builder.excludeAllPackages(fp.getExcludedPackages());
+        builder.includeAllPackages(fp.getIncludedPackages());
+        if (packages != null) {
+            for (String pkg : packages) {
+                if (!builder.isPackageIncluded(pkg) && !builder.isPackageExcluded(pkg)) {
+                    builder.includePackage(pkg);
+                }
+            }
+        }
+        for (FeaturePackLocation.FPID patch : fp.getPatches()) {
+            builder.addPatch(patch);
+        }
+        return builder
+                .setInheritConfigs(false)
+                .setInheritModelOnlyConfigs(false)
+                .build();
+    }
+
+    private void store(Path serverDir, Path entry) throws IOException, XMLStreamException {
+        final Path provisionedState = serverDir.resolve(PROVISIONED_STATE);
+        if (!Files.exists(provisionedState) || !hasConfigs(provisionedState)
+                || CONFIG_DIRS.stream().noneMatch(d -> Files.isDirectory(serverDir.resolve(d)))) {
+            // nothing was generated
+            return;
+        }
+
+        Files.createDirectories(cacheDir);
+        final Path tempEntry = Files.createTempDirectory(cacheDir, entry.getFileName() + ".");
+        try {
+            for (Path path : cachedPaths()) {
+                if (Files.exists(serverDir.resolve(path))) {
+                    Files.createDirectories(tempEntry.resolve(path).getParent());
+                    IoUtils.copy(serverDir.resolve(path), tempEntry.resolve(path));
+                }
+            }
+            // the provisioned state marks the entry as complete, copy it last
+            Files.createDirectories(tempEntry.resolve(PROVISIONED_STATE).getParent());
+            Files.copy(provisionedState, tempEntry.resolve(PROVISIONED_STATE));
+            try {
+                Files.move(tempEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // stored by another process in the meantime
+            }
+        } finally {
+            IoUtils.recursiveDelete(tempEntry);
+        }
+    }
+
+    private static void restore(Path entry, Path serverDir) throws IOException {
+        for (Path path : cachedPaths()) {
+            final Path target = serverDir.resolve(path);
+            IoUtils.recursiveDelete(target);
+            if (Files.exists(entry.resolve(path))) {
+                Files.createDirectories(target.getParent());
+                IoUtils.copy(entry.resolve(path), target);
+            }
+        }
+        Files.copy(entry.resolve(PROVISIONED_STATE), serverDir.resolve(PROVISIONED_STATE), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // the generated configurations, the hashes Galleon recorded for them and the input provisioning configuration
+    private static List<Path> cachedPaths() {
+        final List<Path> paths = new ArrayList<>();
+        for (Path configDir : CONFIG_DIRS) {
+            paths.add(configDir);
+            paths.add(GALLEON_DIR.resolve(Constants.HASHES).resolve(configDir));
+        }
+        paths.add(PROVISIONING_XML);
+        return paths;
+    }
+
+    private static boolean hasConfigs(Path provisionedState) throws IOException, XMLStreamException {
+        try (InputStream is = Files.newInputStream(provisionedState)) {
+            final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && CONFIG_ELEMENT.equals(reader.getLocalName())) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the packages provisioned from each feature pack producer from Galleon provisioned state.
+     */
+    static Map<FeaturePackLocation.ProducerSpec, Set<String>> readPackages(Path provisionedState)
+            throws IOException, XMLStreamException {
+        final Map<FeaturePackLocation.ProducerSpec, Set<String>> packages = new LinkedHashMap<>();
+        try (InputStream is = Files.newInputStream(provisionedState)) {
+            final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
+            try {
+                Set<String> current = null;
+                while (reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if (FEATURE_PACK_ELEMENT.equals(reader.getLocalName())) {
+                            final String location = reader.getAttributeValue(null, "location");
+                            current = packages.computeIfAbsent(FeaturePackLocation.fromString(location).getProducer(),
+                                    k -> new LinkedHashSet<>());
+                        } else if (PACKAGE_ELEMENT.equals(reader.getLocalName()) && current != null) {
+                            current.add(reader.getAttributeValue(null, "name"));
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && FEATURE_PACK_ELEMENT.equals(reader.getLocalName())) {
+                        current = null;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return packages;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -24,10 +24,12 @@ import org.jboss.galleon.progresstracking.ProgressTracker;
 import org.jboss.galleon.universe.maven.MavenArtifact;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.Console;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.ProvisioningProgressEvent;
 
 import java.io.File;
 import java.util.HashSet;
+import java.util.Optional;
 
 import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_JB_ARTIFACTS_RESOLVE;
 import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_RESOLVING_VERSIONS;
@@ -36,13 +38,15 @@ import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_RESOLVING_VE
  * Adapter combining Galleon ProgressCallback and Maven TransferListener to track number of already downloaded artifacts.
  *
  * It uses Galleon's TRACK_JB_ARTIFACTS_RESOLVE event to find number of artifacts and Maven's transferSucceeded to update completed
- * count.
+ * count. The downloads are recorded in the {@link OperationTimer} of the current operation.
  *
  * TODO: the total includes artifacts cached locally - find a way to exclude those or update when they are resolved.
  */
 class DownloadsCallbackAdapter extends AbstractTransferListener implements ProgressCallback<MavenArtifact> {
 
     private final Console console;
+    private final Optional<OperationTimer> timer;
+    private volatile OperationTimer.Phase phase;
     private HashSet<String> resolvedVersionKeys = new HashSet<>();
     private long totalVolume;
     private long processed;
@@ -51,6 +55,7 @@ class DownloadsCallbackAdapter extends AbstractTransferListener implements Progr
 
     public DownloadsCallbackAdapter(Console console) {
         this.console = console;
+        this.timer = OperationTimer.current();
     }
 
     @Override
@@ -65,6 +70,7 @@ class DownloadsCallbackAdapter extends AbstractTransferListener implements Progr
             this.console.progressUpdate(progress);
         }
         ProsperoLogger.ROOT_LOGGER.startedPhase("download artifacts", "" + processed);
+        timer.ifPresent(t -> phase = t.startPhase(OperationTimer.ARTIFACT_DOWNLOAD));
     }
 
     @Override
@@ -80,6 +86,11 @@ class DownloadsCallbackAdapter extends AbstractTransferListener implements Progr
             this.console.progressUpdate(progress);
         }
         ProsperoLogger.ROOT_LOGGER.completedPhase("download artifacts", "" + processed);
+        final OperationTimer.Phase phase = this.phase;
+        if (phase != null) {
+            phase.close();
+            this.phase = null;
+        }
         this.totalVolume = 0;
         this.processed = 0;
         this.currentPhase = false;
@@ -92,6 +103,12 @@ class DownloadsCallbackAdapter extends AbstractTransferListener implements Progr
             return;
         }
 
+        final OperationTimer.Phase phase = this.phase;
+        if (phase != null) {
+            phase.addBytes(event.getTransferredBytes());
+            phase.addItems(1);
+        }
+
         String item = event.getResource().getResourceName();
         if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
             ProsperoLogger.ROOT_LOGGER.debug("Downloaded artifact: " + item);
@@ -22,10 +22,12 @@ import org.jboss.galleon.progresstracking.ProgressTracker;
 import org.jboss.galleon.universe.FeaturePackLocation;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.Console;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.ProvisioningProgressEvent;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 
 import static org.jboss.galleon.Constants.TRACK_CONFIGS;
 import static org.jboss.galleon.Constants.TRACK_LAYOUT_BUILD;
@@ -35,7 +37,8 @@ import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_JBEXAMPLES;
 import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_JBMODULES;
 
 /**
- * Translates Galleon {@link ProgressCallback} into {@link Console#progressUpdate(ProvisioningProgressEvent)}.
+ * Translates Galleon {@link ProgressCallback} into {@link Console#progressUpdate(ProvisioningProgressEvent)}, and records
+ * the phase in the {@link OperationTimer} of the current operation.
  *
  * New {@code GalleonCallbackAdapter} has to be created for each event type registered for.
  */
@@ -44,12 +47,15 @@ public class GalleonCallbackAdapter implements ProgressCallback<Object> {
     private static final int PULSE_INTERVAL = 500;
     private static final int PULSE_PCT = 5;
     private final String id;
+    private final Optional<OperationTimer> timer;
+    private OperationTimer.Phase phase;
 
     private Console console;
 
     public GalleonCallbackAdapter(Console console, String id) {
         this.console = console;
         this.id = id;
+        this.timer = OperationTimer.current();
     }
 
     @Override
@@ -73,6 +79,7 @@ public class GalleonCallbackAdapter implements ProgressCallback<Object> {
                 tracker.getProcessedVolume(), tracker.getTotalVolume());
         final String total =  tracker.getTotalVolume()>0 ? ""+tracker.getTotalVolume() : "";
         ProsperoLogger.ROOT_LOGGER.startedPhase(name(id), total);
+        timer.ifPresent(t -> phase = t.startPhase(phaseName(id)));
 
         if (console != null) {
             this.console.progressUpdate(progress);
@@ -89,6 +96,11 @@ public class GalleonCallbackAdapter implements ProgressCallback<Object> {
                 tracker.getProcessedVolume(), tracker.getTotalVolume());
         final String processed = tracker.getProcessedVolume()>0 ? ""+tracker.getProcessedVolume() : "";
         ProsperoLogger.ROOT_LOGGER.completedPhase(name(id), processed);
+        if (phase != null) {
+            phase.addItems(tracker.getProcessedVolume());
+            phase.close();
+            phase = null;
+        }
 
         if (console != null) {
             this.console.progressUpdate(progress);
@@ -151,4 +163,21 @@ public class GalleonCallbackAdapter implements ProgressCallback<Object> {
                 return id;
         }
     }
+
+    private static String phaseName(String id) {
+        switch (id) {
+            case TRACK_LAYOUT_BUILD:
+                return OperationTimer.LAYOUT_BUILD;
+            case TRACK_PACKAGES:
+                return OperationTimer.PACKAGE_INSTALL;
+            case TRACK_JBMODULES:
+                return OperationTimer.MODULES_INSTALL;
+            case TRACK_CONFIGS:
+                return OperationTimer.CONFIG_GENERATION;
+            case TRACK_JBEXAMPLES:
+                return OperationTimer.EXTRA_CONFIG_GENERATION;
+            default:
+                return id;
+        }
+    }
 }
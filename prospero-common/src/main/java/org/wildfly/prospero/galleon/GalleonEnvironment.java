@@ -20,6 +20,7 @@ package org.wildfly.prospero.galleon;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.util.listener.ChainedTransferListener;
 import org.jboss.galleon.ProvisioningException;
 import org.jboss.galleon.universe.maven.repo.MavenRepoManager;
 import org.jboss.logging.Logger;
@@ -36,10 +37,13 @@ import org.wildfly.channel.maven.VersionResolverFactory;
 import org.wildfly.channel.spi.MavenVersionsResolver;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.Console;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.exceptions.ChannelDefinitionException;
 import org.wildfly.prospero.api.exceptions.MetadataException;
 import org.wildfly.prospero.api.exceptions.UnresolvedChannelMetadataException;
 import org.wildfly.prospero.api.exceptions.OperationException;
+import org.wildfly.prospero.jfr.JfrSupport;
+import org.wildfly.prospero.jfr.ChannelSessionEvent;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.wfchannel.MavenSessionManager;
 
@@ -110,14 +114,16 @@ public class GalleonEnvironment implements AutoCloseable {
             factory = new VersionResolverFactory(system, session, MavenProxyHandler::addProxySettings);
         }
 
-        channelSession = initChannelSession(session, factory);
+        try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.CHANNEL_RESOLUTION)) {
+            channelSession = initChannelSession(session, factory, builder.installDir);
 
-        if (restoreManifest.isPresent()) {
-            // try to load the manifests used by the state that's being reverted to
-            // they have to be in the maven cache for later version resolution
-            final ManifestVersionRecord manifestVersions = new ManifestVersionRecord("1.0.0",
-                    builder.restoredManifestVersions, Collections.emptyList(), Collections.emptyList());
-            storeOriginalChannelManifestAsResolved(builder, factory, manifestVersions.getMavenManifests());
+            if (restoreManifest.isPresent()) {
+                // try to load the manifests used by the state that's being reverted to
+                // they have to be in the maven cache for later version resolution
+                final ManifestVersionRecord manifestVersions = new ManifestVersionRecord("1.0.0",
+                        builder.restoredManifestVersions, Collections.emptyList(), Collections.emptyList());
+                storeOriginalChannelManifestAsResolved(builder, factory, manifestVersions.getMavenManifests());
+            }
         }
 
         if (builder.artifactDirectResolve) {
@@ -147,7 +153,7 @@ public class GalleonEnvironment implements AutoCloseable {
                 .forEach(t->provisioning.setProgressCallback(t, new GalleonCallbackAdapter(console.orElse(null), t)));
 
         final DownloadsCallbackAdapter callback = new DownloadsCallbackAdapter(console.orElse(null));
-        session.setTransferListener(callback);
+        session.setTransferListener(ChainedTransferListener.newInstance(session.getTransferListener(), callback));
         provisioning.setProgressCallback(TRACK_JB_ARTIFACTS_RESOLVE, callback);
     }
 
@@ -208,8 +214,13 @@ public class GalleonEnvironment implements AutoCloseable {
         return channels;
     }
 
-    private ChannelSession initChannelSession(DefaultRepositorySystemSession session, MavenVersionsResolver.Factory factory) throws UnresolvedChannelMetadataException, ChannelDefinitionException {
+    private ChannelSession initChannelSession(DefaultRepositorySystemSession session, MavenVersionsResolver.Factory factory,
+                                              Path installDir) throws UnresolvedChannelMetadataException, ChannelDefinitionException {
         final ChannelSession channelSession;
+        final ChannelSessionEvent event = JfrSupport.isAvailable() ? new ChannelSessionEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         try {
             channelSession = new ChannelSession(channels, factory);
         } catch (UnresolvedMavenArtifactException e) {
@@ -230,6 +241,11 @@ public class GalleonEnvironment implements AutoCloseable {
                 }
             }
             throw ProsperoLogger.ROOT_LOGGER.invalidManifest(e);
+        } finally {
+            if (event != null) {
+                event.channels = channels.size();
+                event.finish(installDir);
+            }
         }
         return channelSession;
     }
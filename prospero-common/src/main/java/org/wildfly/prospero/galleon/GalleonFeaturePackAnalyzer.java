@@ -25,6 +25,7 @@ import org.jboss.logging.Logger;
 import org.wildfly.channel.Channel;
 import org.wildfly.channel.MavenArtifact;
 import org.wildfly.channel.UnresolvedMavenArtifactException;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.exceptions.OperationException;
 import org.wildfly.prospero.wfchannel.MavenSessionManager;
 
@@ -65,7 +66,8 @@ public class GalleonFeaturePackAnalyzer {
         final Path tempInstallationPath = Files.createTempDirectory("temp");
         final Set<String> fps = new HashSet<>();
 
-        try (GalleonEnvironment galleonEnv = galleonEnvWithFpMapper(tempInstallationPath, installedDir, fps, provisioningConfig)) {
+        try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.CACHE_POPULATION);
+             GalleonEnvironment galleonEnv = galleonEnvWithFpMapper(tempInstallationPath, installedDir, fps, provisioningConfig)) {
             final ArtifactCache artifactCache = ArtifactCache.getInstance(installedDir);
             try (Provisioning pm = galleonEnv.getProvisioning()) {
                 final Set<String> pluginGavs = pm.getOrderedFeaturePackPluginLocations(provisioningConfig);
@@ -49,6 +49,8 @@ import org.jboss.galleon.api.config.GalleonProvisioningConfig;
 import org.wildfly.prospero.api.MavenOptions;
 import org.wildfly.prospero.api.exceptions.MetadataException;
 import org.wildfly.prospero.api.exceptions.OperationException;
+import org.wildfly.prospero.jfr.JfrSupport;
+import org.wildfly.prospero.jfr.FsDiffEvent;
 import org.wildfly.prospero.wfchannel.MavenSessionManager;
 
 public class GalleonUtils {
@@ -73,7 +75,17 @@ public class GalleonUtils {
 
     private static final Logger logger = Logger.getLogger(GalleonUtils.class.getName());
 
-    public static void executeGalleon(GalleonExecution execution, Path localRepository) throws ProvisioningException, UnresolvedMavenArtifactException {
+    /**
+     * executes a Galleon operation with the system properties required by the WildFly Galleon plugins.
+     *
+     * The properties (e.g. {@code maven.repo.local}) are JVM-wide and are replaced for the duration of the execution,
+     * so the executions are serialized - only one provisioning can run in a JVM at a time. In a long-running JVM, e.g.
+     * the CLI daemon, concurrent operations wait for each other here, even if they operate on different installations.
+     *
+     * @param execution - the Galleon operation
+     * @param localRepository - local Maven repository used by the Galleon plugins
+     */
+    public static synchronized void executeGalleon(GalleonExecution execution, Path localRepository) throws ProvisioningException, UnresolvedMavenArtifactException {
         final Map<String, String> substitutedProperties = new HashMap<>();
         try {
             substitutedProperties.putAll(substituteProvisioningProperties(localRepository));
@@ -124,6 +136,24 @@ public class GalleonUtils {
         }
     }
 
+    /**
+     * Provisions {@code config} re-using the server configurations cached by {@link ConfigGenerationCache}, if the cache
+     * is enabled.
+     *
+     * @param provisioning - Galleon provisioning of the target server
+     * @param config - provisioning configuration of the server
+     * @param options - Galleon options
+     * @throws ProvisioningException - if the provisioning fails
+     */
+    public static void provision(Provisioning provisioning, GalleonProvisioningConfig config, Map<String, String> options) throws ProvisioningException {
+        final ConfigGenerationCache configCache = ConfigGenerationCache.getDefault();
+        if (configCache == null) {
+            provisioning.provision(config, options);
+        } else {
+            configCache.provision(provisioning, config, options);
+        }
+    }
+
     private static Map<String, String> substituteProvisioningProperties(Path localRepository) throws ProvisioningException {
         Map<String, String> substitutedProperties = new HashMap<>();
         substitutedProperties.put(MAVEN_REPO_LOCAL, System.getProperty(MAVEN_REPO_LOCAL));
@@ -303,10 +333,24 @@ public class GalleonUtils {
                 .setOffline(true)
                 .setNoLocalCache(true)
                 .build();
+        final FsDiffEvent event = JfrSupport.isAvailable() ? new FsDiffEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         try (GalleonEnvironment galleonEnv = GalleonEnvironment.builder(root, Collections.emptyList(),
                         new MavenSessionManager(mavenOptions), true)
                 .build()) {
-            return galleonEnv.getProvisioning().getFsDiff();
+            final FsDiff fsDiff = galleonEnv.getProvisioning().getFsDiff();
+            if (event != null && event.isEnabled()) {
+                event.added = fsDiff.getAddedEntries().size();
+                event.modified = fsDiff.getModifiedEntries().size();
+                event.removed = fsDiff.getRemovedEntries().size();
+            }
+            return fsDiff;
+        } finally {
+            if (event != null) {
+                event.finish(root);
+            }
         }
     }
 
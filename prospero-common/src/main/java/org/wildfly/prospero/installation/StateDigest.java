@@ -0,0 +1,326 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.installation;
+
+import org.jboss.galleon.Constants;
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merkle tree digest of the installation state.
+ *
+ * The state of an installation is defined by the Galleon hashes record ({@code .galleon/hashes}) and the channels
+ * definition ({@code .installation/installer-channels.yaml}). Each directory of the hashes record is assigned a digest
+ * computed from the names and digests of its children. The root digest combines the digest of the hashes record
+ * and the digest of the channels definition, so two installations are in the same state only if their root digests match.
+ *
+ * The directory digests are persisted in {@code DIGEST_FILE} when the installation is provisioned or a candidate is applied,
+ * which allows the state to be compared without reading the hashes record. The persisted digest is used only if the
+ * fingerprint of the hashes record (the paths, sizes and modification times of its files) didn't change since it was
+ * recorded. The channels definition can be changed independently of provisioning, so its digest is always computed
+ * when the digest is loaded.
+ */
+public class StateDigest {
+
+    private static final Logger LOG = Logger.getLogger(StateDigest.class);
+
+    public static final Path DIGEST_FILE = Path.of(ProsperoMetadataUtils.METADATA_DIR, ".state-digest");
+    static final String DIGEST_LINE_SEPARATOR = "::";
+    static final String ROOT_PATH = ".";
+    // relative paths of the directories never start with a separator, so the key can't clash with them
+    static final String FINGERPRINT_KEY = "//fingerprint";
+    private static final String ALGORITHM = "SHA-256";
+    private static final byte FILE_ENTRY = 'F';
+    private static final byte DIR_ENTRY = 'D';
+
+    private final Map<String, String> directories;
+    private final String channelsDigest;
+    private final String root;
+
+    private StateDigest(Map<String, String> directories, String channelsDigest) {
+        this.directories = Collections.unmodifiableMap(directories);
+        this.channelsDigest = channelsDigest;
+        this.root = computeRoot(directories.get(ROOT_PATH), channelsDigest);
+    }
+
+    /**
+     * loads the digest of the installation at {@code installationDir}. If a persisted digest is available and the hashes
+     * record didn't change since it was recorded, it is used. Otherwise, the digest is computed from the hashes record.
+     *
+     * @param installationDir - root folder of the installation
+     * @return state digest of the installation
+     * @throws IOException - if unable to read the hashes record or the channels definition
+     */
+    public static StateDigest load(Path installationDir) throws IOException {
+        final Path digestFile = installationDir.resolve(DIGEST_FILE);
+        final Path hashesRoot = hashesRoot(installationDir);
+
+        if (Files.exists(digestFile) && Files.isDirectory(hashesRoot)) {
+            try {
+                final Map<String, String> recorded = read(digestFile);
+                if (fingerprint(hashesRoot).equals(recorded.remove(FINGERPRINT_KEY))) {
+                    return new StateDigest(recorded, channelsDigest(installationDir));
+                }
+            } catch (IOException e) {
+                LOG.debugf(e, "Unable to read the persisted state digest %s, recomputing", digestFile);
+            }
+        }
+        return compute(installationDir);
+    }
+
+    /**
+     * computes the digest of the installation at {@code installationDir} from the Galleon hashes record.
+     *
+     * @param installationDir - root folder of the installation
+     * @return state digest of the installation
+     * @throws IOException - if unable to read the hashes record or the channels definition
+     */
+    public static StateDigest compute(Path installationDir) throws IOException {
+        final Map<String, String> directories = new TreeMap<>();
+        final Path hashesRoot = hashesRoot(installationDir);
+        if (Files.isDirectory(hashesRoot)) {
+            digestDirectory(hashesRoot, hashesRoot, directories);
+        } else {
+            directories.put(ROOT_PATH, HexFormat.of().formatHex(newDigest().digest()));
+        }
+        return new StateDigest(directories, channelsDigest(installationDir));
+    }
+
+    /**
+     * computes the digest of the installation at {@code installationDir} and persists it in {@code DIGEST_FILE}.
+     *
+     * @param installationDir - root folder of the installation
+     * @return state digest of the installation
+     * @throws IOException - if unable to read the installation state or write the digest
+     */
+    public static StateDigest record(Path installationDir) throws IOException {
+        final StateDigest digest = compute(installationDir);
+        digest.write(installationDir);
+        return digest;
+    }
+
+    /**
+     * the root digest of the installation state.
+     *
+     * @return hex-encoded digest
+     */
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * digest of a directory in the Galleon hashes record.
+     *
+     * @param relativePath - path of the directory relative to the installation root, using {@code /} as a separator
+     * @return hex-encoded digest or {@code null} if the directory is not recorded
+     */
+    public String getDirectoryDigest(String relativePath) {
+        return directories.get(relativePath == null || relativePath.isEmpty() ? ROOT_PATH : relativePath);
+    }
+
+    /**
+     * lists directories of the Galleon hashes record with different content in {@code other}. Because the digest of
+     * a directory includes the digests of its sub-directories, the parents of each changed directory are listed as well.
+     *
+     * @param other - state digest to compare with
+     * @return set of relative paths, using {@code /} as a separator
+     */
+    public Set<String> differingDirectories(StateDigest other) {
+        final Set<String> allPaths = new TreeSet<>(directories.keySet());
+        allPaths.addAll(other.directories.keySet());
+
+        final Set<String> changed = new TreeSet<>();
+        for (String path : allPaths) {
+            if (!Objects.equals(directories.get(path), other.directories.get(path))) {
+                changed.add(path);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * checks if the channels definition is different in {@code other}.
+     *
+     * @param other - state digest to compare with
+     * @return true if the channels definitions differ
+     */
+    public boolean channelsDiffer(StateDigest other) {
+        return !Objects.equals(channelsDigest, other.channelsDigest);
+    }
+
+    /**
+     * persists this digest in {@code DIGEST_FILE} of {@code installationDir}. The Galleon hashes record of
+     * {@code installationDir} has to describe the same state as this digest, e.g. if it was copied from the installation
+     * this digest was loaded from.
+     *
+     * @param installationDir - root folder of the installation
+     * @throws IOException - if unable to read the hashes record or write the digest
+     */
+    public void write(Path installationDir) throws IOException {
+        final Path digestFile = installationDir.resolve(DIGEST_FILE);
+        final Path hashesRoot = hashesRoot(installationDir);
+        Files.createDirectories(digestFile.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(digestFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (Files.isDirectory(hashesRoot)) {
+                writer.write(fingerprint(hashesRoot) + DIGEST_LINE_SEPARATOR + FINGERPRINT_KEY + "\n");
+            }
+            for (Map.Entry<String, String> entry : directories.entrySet()) {
+                writer.write(entry.getValue() + DIGEST_LINE_SEPARATOR + entry.getKey() + "\n");
+            }
+        }
+    }
+
+    private static Map<String, String> read(Path digestFile) throws IOException {
+        final Map<String, String> directories = new TreeMap<>();
+        final List<String> lines = Files.readAllLines(digestFile, StandardCharsets.UTF_8);
+        for (int row = 0; row < lines.size(); row++) {
+            final String[] splitLine = lines.get(row).split(DIGEST_LINE_SEPARATOR, 2);
+            if (splitLine.length < 2) {
+                throw new IOException(String.format("Bad record format in %s, line %d: '%s'", digestFile, row + 1, lines.get(row)));
+            }
+            directories.put(splitLine[1], splitLine[0]);
+        }
+        if (!directories.containsKey(ROOT_PATH)) {
+            throw new IOException("Missing root record in " + digestFile);
+        }
+        return directories;
+    }
+
+    // cheap digest of the hashes record based only on the file attributes, used to detect changes since the digest was recorded
+    private static String fingerprint(Path hashesRoot) throws IOException {
+        final List<Path> files;
+        try (Stream<Path> stream = Files.walk(hashesRoot)) {
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        final MessageDigest digest = newDigest();
+        for (Path file : files) {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            digest.update(toKey(hashesRoot, file).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Long.toString(attributes.size()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Long.toString(attributes.lastModifiedTime().toMillis()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static byte[] digestDirectory(Path dir, Path hashesRoot, Map<String, String> directories) throws IOException {
+        final TreeMap<String, Path> children = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                children.put(child.getFileName().toString(), child);
+            }
+        }
+
+        final MessageDigest digest = newDigest();
+        for (Map.Entry<String, Path> child : children.entrySet()) {
+            final byte[] childDigest;
+            if (Files.isDirectory(child.getValue())) {
+                digest.update(DIR_ENTRY);
+                childDigest = digestDirectory(child.getValue(), hashesRoot, directories);
+            } else {
+                digest.update(FILE_ENTRY);
+                childDigest = digestFile(child.getValue());
+            }
+            digest.update(child.getKey().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(childDigest);
+        }
+
+        final byte[] result = digest.digest();
+        directories.put(toKey(hashesRoot, dir), HexFormat.of().formatHex(result));
+        return result;
+    }
+
+    private static String channelsDigest(Path installationDir) throws IOException {
+        final Path channelsFile = ProsperoMetadataUtils.configurationPath(installationDir);
+        if (!Files.exists(channelsFile)) {
+            return null;
+        }
+        return HexFormat.of().formatHex(digestFile(channelsFile));
+    }
+
+    private static byte[] digestFile(Path file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[8192];
+        try (InputStream is = Files.newInputStream(file)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static String computeRoot(String hashesDigest, String channelsDigest) {
+        final MessageDigest digest = newDigest();
+        digest.update(Constants.HASHES.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(hashesDigest.getBytes(StandardCharsets.UTF_8));
+        if (channelsDigest != null) {
+            digest.update(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(channelsDigest.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not supported by the JVM", e);
+        }
+    }
+
+    private static Path hashesRoot(Path installationDir) {
+        return installationDir.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES);
+    }
+
+    private static String toKey(Path hashesRoot, Path dir) {
+        if (dir.equals(hashesRoot)) {
+            return ROOT_PATH;
+        }
+        return hashesRoot.relativize(dir).toString().replace(File.separatorChar, '/');
+    }
+}
@@ -17,38 +17,46 @@
 
 package org.wildfly.prospero.installation.git;
 
+import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.CommitBuilder;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
-import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.SystemReader;
 import org.wildfly.channel.Channel;
-import org.wildfly.channel.ChannelManifest;
-import org.wildfly.channel.ChannelManifestMapper;
 import org.wildfly.channel.ChannelMapper;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.FeatureChange;
+import org.wildfly.prospero.api.HistoryStatistics;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.api.ChannelChange;
+import org.wildfly.prospero.api.InstallationChanges;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.exceptions.MetadataException;
 import org.wildfly.prospero.api.SavedState;
 import org.wildfly.prospero.api.ArtifactChange;
+import org.wildfly.prospero.jfr.JfrSupport;
+import org.wildfly.prospero.jfr.HistoryCommitEvent;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
-import org.eclipse.aether.artifact.Artifact;
-import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.wildfly.channel.Stream;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -56,22 +64,38 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Properties;
 
 import static org.wildfly.prospero.metadata.ProsperoMetadataUtils.CURRENT_VERSION_FILE;
 
 public class GitStorage implements AutoCloseable {
 
     public static final String GIT_HISTORY_USER = "Wildfly Installer";
+    /**
+     * number of recorded changes after which the history repository is packed. Set to 0 to disable the packing.
+     */
+    public static final String GC_INTERVAL_PROPERTY = "org.wildfly.prospero.history.gc-interval";
+    static final int DEFAULT_GC_INTERVAL = 50;
+    private static final String CONFIG_SECTION = "prospero";
+    private static final String COMMITS_SINCE_GC_KEY = "commitsSinceGc";
+    /*
+     * maps ids of the changes rewritten by compacting the history to their new ids, stored in the .git folder
+     */
+    static final String COMPACTED_REVISIONS_FILE = "compacted-revisions";
+    private static final int SHORT_ID_LENGTH = 8;
     private final Git git;
     private final Path base;
     private final SavedStateParser savedStateParser;
+    private final HistoryIndex historyIndex;
+    private final ManifestCache manifestCache = new ManifestCache(ManifestCache.DEFAULT_SIZE);
+    private int references = 1;
 
     static {
         // override the SystemReader to ignore git configuration files
@@ -87,27 +111,309 @@ public class GitStorage implements AutoCloseable {
             throw ProsperoLogger.ROOT_LOGGER.unableToCreateHistoryStorage(base, e);
         }
         this.savedStateParser = new SavedStateParser();
+        this.historyIndex = new HistoryIndex(git.getRepository(), savedStateParser);
     }
 
     public List<SavedState> getRevisions() throws MetadataException {
+        return getRevisions(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * lists a page of the recorded changes, latest first.
+     *
+     * @param offset - number of the latest changes to skip
+     * @param limit - maximum number of changes to return
+     * @return list of recorded changes
+     * @throws MetadataException - if unable to access the history
+     */
+    public List<SavedState> getRevisions(int offset, int limit) throws MetadataException {
         try {
-            final Iterable<RevCommit> call = git.log().call();
-            List<SavedState> history = new ArrayList<>();
-            for (RevCommit revCommit : call) {
-                final String commitMessage = revCommit.getFullMessage();
-                final Instant commitTime = Instant.ofEpochSecond(revCommit.getCommitTime());
-                final String commitHash = revCommit.getName().substring(0, 8);
-                history.add(savedStateParser.read(commitHash, commitTime, commitMessage));
+            return historyIndex.getRevisions(offset, limit);
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
+        }
+    }
+
+    /**
+     * the latest recorded change. Only the latest commit is parsed, the rest of the history is not read.
+     *
+     * @return the latest change or {@code null} if the history is empty
+     * @throws MetadataException - if unable to access the history
+     */
+    public SavedState getLatestRevision() throws MetadataException {
+        try (RevWalk revWalk = new RevWalk(git.getRepository())) {
+            final ObjectId head = git.getRepository().resolve(Constants.HEAD);
+            if (head == null) {
+                return null;
             }
+            final RevCommit revCommit = revWalk.parseCommit(head);
+            return savedStateParser.read(revCommit.getName().substring(0, 8),
+                    Instant.ofEpochSecond(revCommit.getCommitTime()), revCommit.getFullMessage());
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
+        }
+    }
 
-            return history;
-        } catch (GitAPIException | IOException e) {
+    /*
+     * adds the new commit to the history index. The index is only a cache, if it can't be updated,
+     * it will be re-created when it's read next time.
+     */
+    private void updateHistoryIndex() {
+        try {
+            historyIndex.update();
+        } catch (IOException e) {
+            if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.debugf(e, "Unable to update the history index in %s", base);
+            }
+            historyIndex.invalidate();
+        }
+    }
+
+    private void commit(PersonIdent author, String msg, SavedState.Type type) throws GitAPIException {
+        final HistoryCommitEvent event = JfrSupport.isAvailable() ? new HistoryCommitEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        try {
+            git.commit()
+                    .setAuthor(author)
+                    .setCommitter(author)
+                    .setMessage(msg)
+                    .call();
+        } finally {
+            if (event != null) {
+                event.type = type.name();
+                event.finish(base.getParent());
+            }
+        }
+    }
+
+    private void afterCommit() {
+        OperationTimer.installationChanged(base);
+        updateHistoryIndex();
+        packIfNeeded();
+    }
+
+    /*
+     * packs the repository every {@code GC_INTERVAL_PROPERTY} commits. The number of commits since the last packing is
+     * stored in the repository configuration. Failing to pack the repository doesn't affect the recorded history.
+     * The packing runs on the operation's critical path, so it only packs the objects and doesn't prune anything -
+     * unreachable objects are removed by {@link #compact(int)}.
+     */
+    private void packIfNeeded() {
+        final int interval = Integer.getInteger(GC_INTERVAL_PROPERTY, DEFAULT_GC_INTERVAL);
+        if (interval <= 0) {
+            return;
+        }
+        try {
+            final StoredConfig config = git.getRepository().getConfig();
+            final int commits = config.getInt(CONFIG_SECTION, null, COMMITS_SINCE_GC_KEY, 0) + 1;
+            if (commits >= interval) {
+                if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                    ProsperoLogger.ROOT_LOGGER.debugf("Packing the history repository in %s after %d changes", base, commits);
+                }
+                git.gc()
+                        .setAggressive(false)
+                        .setExpire(new Date(0))
+                        .call();
+                config.setInt(CONFIG_SECTION, null, COMMITS_SINCE_GC_KEY, 0);
+            } else {
+                config.setInt(CONFIG_SECTION, null, COMMITS_SINCE_GC_KEY, commits);
+            }
+            config.save();
+        } catch (IOException | GitAPIException e) {
+            if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.debugf(e, "Unable to pack the history repository in %s", base);
+            }
+        }
+    }
+
+    /**
+     * size of the history repository and the number of objects stored in it.
+     *
+     * @return statistics of the history repository
+     * @throws MetadataException - if unable to access the history
+     */
+    public HistoryStatistics getStatistics() throws MetadataException {
+        try {
+            final Properties stats = git.gc().getStatistics();
+            return new HistoryStatistics(historyIndex.getRevisions().size(),
+                    toLong(stats, "numberOfLooseObjects"),
+                    toLong(stats, "numberOfPackedObjects"),
+                    toLong(stats, "numberOfPackFiles"),
+                    toLong(stats, "sizeOfLooseObjects") + toLong(stats, "sizeOfPackedObjects"));
+        } catch (IOException | GitAPIException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
         }
     }
 
-    public void record() throws MetadataException {
+    private static long toLong(Properties stats, String key) {
+        final Object value = stats.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * squashes all but the latest {@code keep} recorded changes. The oldest kept change becomes the first change in
+     * the history and records the full state of the installation at that point. The kept changes can still be
+     * reverted to, but their ids change. The old ids of the kept changes are recorded and still resolve to the
+     * re-created changes, so that candidates prepared before the compaction can be applied. Objects no longer
+     * referenced by the history are removed from the repository.
+     *
+     * @param keep - number of the latest changes to keep, at least 1
+     * @return number of removed changes
+     * @throws MetadataException - if unable to access the history
+     */
+    public int compact(int keep) throws MetadataException {
+        if (keep < 1) {
+            throw new IllegalArgumentException("At least one change has to be kept");
+        }
+        final Repository repository = git.getRepository();
         try {
+            final ObjectId head = repository.resolve(Constants.HEAD);
+            if (head == null) {
+                return 0;
+            }
+
+            final List<RevCommit> commits = new ArrayList<>();
+            try (RevWalk revWalk = new RevWalk(repository)) {
+                revWalk.markStart(revWalk.parseCommit(head));
+                for (RevCommit commit : revWalk) {
+                    commits.add(commit);
+                }
+            }
+
+            int removed = 0;
+            if (commits.size() > keep) {
+                removed = commits.size() - keep;
+                // re-create the kept commits, oldest first, on top of a new root commit
+                ObjectId parent = null;
+                final Map<String, String> rewritten = new LinkedHashMap<>();
+                try (ObjectInserter inserter = repository.newObjectInserter()) {
+                    for (int i = keep - 1; i >= 0; i--) {
+                        final RevCommit commit = commits.get(i);
+                        final CommitBuilder builder = new CommitBuilder();
+                        builder.setTreeId(commit.getTree());
+                        if (parent != null) {
+                            builder.setParentId(parent);
+                        }
+                        builder.setAuthor(commit.getAuthorIdent());
+                        builder.setCommitter(commit.getCommitterIdent());
+                        builder.setMessage(commit.getFullMessage());
+                        parent = inserter.insert(builder);
+                        rewritten.put(commit.getName(), parent.getName());
+                    }
+                    inserter.flush();
+                }
+                // record the new ids before moving HEAD, so that the kept changes are resolvable by the old ids
+                updateCompactedRevisions(rewritten);
+
+                final RefUpdate refUpdate = repository.updateRef(Constants.HEAD);
+                refUpdate.setNewObjectId(parent);
+                refUpdate.setForceUpdate(true);
+                refUpdate.disableRefLog();
+                final RefUpdate.Result result = refUpdate.update();
+                if (result != RefUpdate.Result.FORCED && result != RefUpdate.Result.NEW) {
+                    throw new IOException("Unable to update the history HEAD: " + result);
+                }
+                // the reflog would keep the removed commits reachable
+                FileUtils.deleteQuietly(repository.getDirectory().toPath().resolve(Constants.LOGS).toFile());
+                historyIndex.invalidate();
+                updateHistoryIndex();
+            }
+
+            git.gc().setExpire(new Date()).call();
+            final StoredConfig config = repository.getConfig();
+            config.setInt(CONFIG_SECTION, null, COMMITS_SINCE_GC_KEY, 0);
+            config.save();
+            return removed;
+        } catch (IOException | GitAPIException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
+        }
+    }
+
+    /*
+     * stores the old -> new ids of the rewritten changes. Ids recorded by earlier compactions are re-pointed to the
+     * latest ids of the same change, or dropped if the change was removed from the history.
+     */
+    private void updateCompactedRevisions(Map<String, String> rewritten) throws IOException {
+        final Properties previous = readCompactedRevisions();
+        final Properties compacted = new Properties();
+        for (String oldId : previous.stringPropertyNames()) {
+            final String newId = rewritten.get(previous.getProperty(oldId));
+            if (newId != null) {
+                compacted.setProperty(oldId, newId);
+            }
+        }
+        rewritten.forEach(compacted::setProperty);
+
+        final Path file = git.getRepository().getDirectory().toPath().resolve(COMPACTED_REVISIONS_FILE);
+        try (OutputStream os = Files.newOutputStream(file)) {
+            compacted.store(os, "ids of the changes rewritten when compacting the history");
+        }
+    }
+
+    private Properties readCompactedRevisions() throws IOException {
+        final Path file = git.getRepository().getDirectory().toPath().resolve(COMPACTED_REVISIONS_FILE);
+        final Properties compacted = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream is = Files.newInputStream(file)) {
+                compacted.load(is);
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * translates the name of a recorded state that was rewritten by {@link #compact(int)} to its current name.
+     *
+     * @param name - the name of the state, e.g. recorded in a candidate marker
+     * @return the current name of the state, or {@code name} if the state was not rewritten
+     * @throws MetadataException - if unable to read the compacted ids
+     */
+    public String getCurrentName(String name) throws MetadataException {
+        try {
+            final String current = findCompacted(name);
+            return current == null ? name : current.substring(0, Math.min(name.length(), current.length()));
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
+        }
+    }
+
+    /*
+     * full new id of the change with the full or abbreviated old id, or null if it was not rewritten
+     */
+    private String findCompacted(String name) throws IOException {
+        if (name == null || name.length() < SHORT_ID_LENGTH || hexPrefixLength(name) != name.length()) {
+            return null;
+        }
+        final Properties compacted = readCompactedRevisions();
+        for (String oldId : compacted.stringPropertyNames()) {
+            if (oldId.startsWith(name)) {
+                return compacted.getProperty(oldId);
+            }
+        }
+        return null;
+    }
+
+    /*
+     * resolves a revision expression, e.g. {@code <id>^}, translating ids rewritten by compacting the history
+     */
+    private ObjectId resolveRevision(String revision) throws IOException {
+        final int idEnd = hexPrefixLength(revision);
+        final String current = findCompacted(revision.substring(0, idEnd));
+        return git.getRepository().resolve(current == null ? revision : current + revision.substring(idEnd));
+    }
+
+    private static int hexPrefixLength(String text) {
+        int length = 0;
+        while (length < text.length() && Character.digit(text.charAt(length), 16) >= 0) {
+            length++;
+        }
+        return length;
+    }
+
+    public void record() throws MetadataException {
+        try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.HISTORY_RECORD)) {
 
             if (isRepositoryEmpty(git)) {
                 final PersonIdent author = adjustCommitDateToCreationDate(getCommitter());
@@ -118,11 +424,8 @@ public class GitStorage implements AutoCloseable {
                 git.add().addFilepattern(CURRENT_VERSION_FILE).call();
                 git.add().addFilepattern(ProsperoMetadataUtils.PROVISIONING_RECORD_XML).call();
                 // adjust the date so that when taking over a non-prosper installation date matches creation
-                git.commit()
-                        .setAuthor(author)
-                        .setCommitter(author)
-                        .setMessage(msg)
-                        .call();
+                commit(author, msg, commitType);
+                afterCommit();
             } else {
                 recordChange(SavedState.Type.UPDATE);
             }
@@ -147,7 +450,7 @@ public class GitStorage implements AutoCloseable {
     }
 
     public void recordChange(SavedState.Type operation, String... files) throws MetadataException {
-        try {
+        try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.HISTORY_RECORD)) {
             if (isRepositoryEmpty(git)) {
                 throw new IllegalStateException("This operation cannot be performed on empty repository");
             }
@@ -161,12 +464,8 @@ public class GitStorage implements AutoCloseable {
 
             String msg = readCommitMessage(commitType);
 
-            git.commit()
-                    .setAuthor(author)
-                    .setCommitter(author)
-                    .setMessage(msg)
-                    .call();
-
+            commit(author, msg, commitType);
+            afterCommit();
         } catch (IOException | GitAPIException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
         }
@@ -185,62 +484,99 @@ public class GitStorage implements AutoCloseable {
     }
 
     public void recordConfigChange() throws MetadataException {
-        try {
+        try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.HISTORY_RECORD)) {
             git.add().addFilepattern(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME).call();
             final PersonIdent author = getCommitter();
-            git.commit()
-                    .setAuthor(author)
-                    .setCommitter(author)
-                    .setMessage(SavedState.Type.CONFIG_CHANGE.name())
-                    .call();
+            commit(author, SavedState.Type.CONFIG_CHANGE.name(), SavedState.Type.CONFIG_CHANGE);
+            afterCommit();
         } catch (GitAPIException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
         }
     }
 
+    /**
+     * writes the files recorded in {@code savedState} into a new temporary folder. The files are read directly from
+     * the history, the current state of the history is not changed.
+     *
+     * @param savedState - the recorded state to materialize
+     * @return temporary folder containing the {@code METADATA_DIR} with the recorded files
+     * @throws MetadataException - if unable to read the history or write the files
+     */
     public Path revert(SavedState savedState) throws MetadataException {
-        try {
-            Path hist = Files.createTempDirectory("hist").resolve(ProsperoMetadataUtils.METADATA_DIR);
-            try (Git temp =  Git.cloneRepository()
-                    .setDirectory(hist.toFile())
-                    .setRemote("origin")
-                    .setURI(base.toUri().toString())
-                    .call()) {
-                temp.reset()
-                        .setMode(ResetCommand.ResetType.HARD)
-                        .setRef(savedState.getName())
-                        .call();
-
-                if (!Files.exists(hist.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML))) {
-                    // find the latest persisted version of provisioning.xml
-                    final Iterable<RevCommit> provRecordHistory = this.git.log()
-                            .addPath(ProsperoMetadataUtils.PROVISIONING_RECORD_XML)
-                            .call();
+        final Repository repository = git.getRepository();
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            final ObjectId stateId = resolveRevision(savedState.getName());
+            if (stateId == null) {
+                throw ProsperoLogger.ROOT_LOGGER.savedStateNotFound(savedState.getName());
+            }
+            final RevCommit stateCommit = revWalk.parseCommit(stateId);
 
-                    final Iterator<RevCommit> iterator = provRecordHistory.iterator();
-                    RevCommit revCommit = null;
-                    while (iterator.hasNext()) {
-                        revCommit = iterator.next();
-                    }
+            final Path hist = Files.createTempDirectory("hist").resolve(ProsperoMetadataUtils.METADATA_DIR);
+            Files.createDirectories(hist);
 
-                    temp.checkout()
-                            .addPath(ProsperoMetadataUtils.PROVISIONING_RECORD_XML)
-                            .setAllPaths(false)
-                            .setStartPoint(revCommit)
-                            .call();
+            try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.addTree(stateCommit.getTree());
+                treeWalk.setRecursive(true);
+                while (treeWalk.next()) {
+                    final Path target = hist.resolve(treeWalk.getPathString());
+                    Files.createDirectories(target.getParent());
+                    writeObject(reader, treeWalk.getObjectId(0), target);
                 }
+            }
 
-                return hist.getParent();
+            final Path provisioningRecord = hist.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML);
+            if (!Files.exists(provisioningRecord)) {
+                // the state was recorded before the provisioning record was added to the history,
+                // use the earliest recorded version of the provisioning record
+                final RevCommit recordCommit = findFirstChangeAfter(revWalk, stateCommit, ProsperoMetadataUtils.PROVISIONING_RECORD_XML);
+                if (recordCommit != null) {
+                    try (TreeWalk treeWalk = TreeWalk.forPath(reader, ProsperoMetadataUtils.PROVISIONING_RECORD_XML, recordCommit.getTree())) {
+                        if (treeWalk != null) {
+                            writeObject(reader, treeWalk.getObjectId(0), provisioningRecord);
+                        }
+                    }
+                }
             }
-        } catch (GitAPIException | IOException e) {
+
+            return hist.getParent();
+        } catch (IOException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
         }
     }
 
+    /*
+     * finds the earliest commit between the {@code since} commit (exclusive) and HEAD that modified the {@code path}
+     */
+    private RevCommit findFirstChangeAfter(RevWalk revWalk, RevCommit since, String path) throws IOException {
+        revWalk.reset();
+        revWalk.markStart(revWalk.parseCommit(git.getRepository().resolve(Constants.HEAD)));
+        revWalk.markUninteresting(revWalk.parseCommit(since));
+        revWalk.setTreeFilter(AndTreeFilter.create(PathFilter.create(path), TreeFilter.ANY_DIFF));
+        revWalk.sort(RevSort.REVERSE);
+        return revWalk.next();
+    }
+
+    private static void writeObject(ObjectReader reader, ObjectId objectId, Path target) throws IOException {
+        try (OutputStream os = Files.newOutputStream(target)) {
+            reader.open(objectId).copyTo(os);
+        }
+    }
+
     public void reset() throws MetadataException {
+        reset(Constants.HEAD);
+    }
+
+    /**
+     * discards any changes made to the history and the recorded files after the {@code revision}.
+     *
+     * @param revision - full or abbreviated commit id
+     * @throws MetadataException - if unable to access the history
+     */
+    public void reset(String revision) throws MetadataException {
         try {
             git.reset()
-                    .setRef("HEAD")
+                    .setRef(revision)
                     .setMode(ResetCommand.ResetType.HARD)
                     .call();
         } catch (GitAPIException e) {
@@ -248,78 +584,188 @@ public class GitStorage implements AutoCloseable {
         }
     }
 
-    public List<ArtifactChange> getArtifactChanges(SavedState savedState) throws MetadataException {
-        final Parser<ArtifactChange> parser = new ArtifactChangeParser();
+    /**
+     * full commit id of the latest recorded change.
+     *
+     * @return commit id or {@code null} if the history is empty
+     * @throws MetadataException - if unable to access the history
+     */
+    public String getHeadRevision() throws MetadataException {
+        try {
+            final ObjectId head = git.getRepository().resolve(Constants.HEAD);
+            return head == null ? null : head.getName();
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
+        }
+    }
 
-        final SavedState other = getStateFromName(savedState.getName() + "^");
-        return getChanges(savedState, other, ProsperoMetadataUtils.MANIFEST_FILE_NAME, parser);
+    public List<ArtifactChange> getArtifactChanges(SavedState savedState) throws MetadataException {
+        return getArtifactChanges(savedState.getName(), savedState.getName() + "^");
     }
 
     public List<ArtifactChange> getArtifactChangesSince(SavedState savedState) throws MetadataException {
-        final Parser<ArtifactChange> parser = new ArtifactChangeParser();
-
-        final SavedState other = getStateFromName("HEAD");
-        return getChanges(other, savedState, ProsperoMetadataUtils.MANIFEST_FILE_NAME, parser);
+        return getArtifactChanges(Constants.HEAD, savedState.getName());
     }
 
     public List<ChannelChange> getChannelChanges(SavedState savedState) throws MetadataException {
-        Parser<ChannelChange> parser = new ChannelChangeParser();
-
-        final SavedState other = getStateFromName(savedState.getName() + "^");
-        return getChanges(savedState, other, ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME, parser);
+        return getChanges(savedState.getName(), savedState.getName() + "^", ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME, new ChannelChangeParser());
     }
 
     public List<ChannelChange> getChannelChangesSince(SavedState savedState) throws MetadataException {
-        final Parser<ChannelChange> parser = new ChannelChangeParser();
-
-        final SavedState other = getStateFromName("HEAD");
-        return getChanges(other, savedState, ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME, parser);
+        return getChanges(Constants.HEAD, savedState.getName(), ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME, new ChannelChangeParser());
     }
 
     public List<FeatureChange> getFeatureChanges(SavedState latestState) throws MetadataException {
-        final SavedState other = getStateFromName(latestState.getName() + "^");
-        return getChanges(latestState, other, ProsperoMetadataUtils.PROVISIONING_RECORD_XML, new FeatureChangeParser());
+        return getChanges(latestState.getName(), latestState.getName() + "^", ProsperoMetadataUtils.PROVISIONING_RECORD_XML, new FeatureChangeParser());
     }
 
     public List<FeatureChange> getFeatureChangesSince(SavedState latestState) throws MetadataException {
-        final SavedState other = getStateFromName("HEAD");
-        return getChanges(other, latestState, ProsperoMetadataUtils.PROVISIONING_RECORD_XML, new FeatureChangeParser());
+        return getChanges(Constants.HEAD, latestState.getName(), ProsperoMetadataUtils.PROVISIONING_RECORD_XML, new FeatureChangeParser());
     }
 
-    private <T> List<T> getChanges(SavedState savedState, SavedState other, String manifestFileName, Parser<T> parser) throws MetadataException {
-        try {
-            final String change = checkoutPastState(savedState, manifestFileName);
-            final String base;
-            if (other != null) {
-                base = checkoutPastState(other, manifestFileName);
-            } else {
-                base = null;
+    /**
+     * lists changes in each recorded state after {@code since}. The history is walked once, oldest state first, and
+     * each recorded file is parsed at most once.
+     *
+     * @param since - the state to list changes after, or {@code null} to list changes in all recorded states
+     * @return recorded states and changes in them, latest state first
+     * @throws MetadataException - if {@code since} is not part of the history or unable to read the history
+     */
+    public Map<SavedState, InstallationChanges> getChangesSince(SavedState since) throws MetadataException {
+        final Repository repository = git.getRepository();
+        // states of the installation, latest first
+        final List<RevCommit> commits = new ArrayList<>();
+        final List<SavedState> states = new ArrayList<>();
+        final RevCommit sinceCommit;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            final ObjectId head = repository.resolve(Constants.HEAD);
+            if (head == null) {
+                return Collections.emptyMap();
+            }
+            final ObjectId sinceId = since == null ? null : resolveRevision(since.getName());
+            if (since != null && sinceId == null) {
+                throw ProsperoLogger.ROOT_LOGGER.savedStateNotFound(since.getName());
             }
 
-            return parser.parse(change, base);
-        } catch (GitAPIException e) {
-            throw new RuntimeException(e);
+            // follow the first parents from HEAD, each commit is diffed against its parent
+            RevCommit commit = revWalk.parseCommit(head);
+            while (commit != null && !commit.equals(sinceId)) {
+                commits.add(commit);
+                states.add(historyIndex.getRevision(commit));
+                commit = commit.getParentCount() == 0 ? null : revWalk.parseCommit(commit.getParent(0));
+            }
+            if (sinceId != null && commit == null) {
+                throw ProsperoLogger.ROOT_LOGGER.savedStateNotFound(since.getName());
+            }
+            sinceCommit = commit;
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
+        }
+
+        final String[] files = {ProsperoMetadataUtils.MANIFEST_FILE_NAME, ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME,
+                ProsperoMetadataUtils.PROVISIONING_RECORD_XML};
+        final ChannelChangeParser channelParser = new ChannelChangeParser();
+        final FeatureChangeParser featureParser = new FeatureChangeParser();
+        final Map<SavedState, InstallationChanges> changes = new LinkedHashMap<>();
+        String currentFile = files[0];
+        try (ObjectReader reader = repository.newObjectReader()) {
+            ObjectId[] previous = new ObjectId[files.length];
+            if (sinceCommit != null) {
+                previous = findBlobs(reader, sinceCommit, files);
+            }
+
+            final List<InstallationChanges> results = new ArrayList<>();
+            for (int i = commits.size() - 1; i >= 0; i--) {
+                final ObjectId[] current = findBlobs(reader, commits.get(i), files);
+                currentFile = files[0];
+                final List<ArtifactChange> artifactChanges = diffManifests(reader, current[0], previous[0]);
+                currentFile = files[1];
+                final List<ChannelChange> channelChanges = diff(reader, current[1], previous[1], channelParser);
+                currentFile = files[2];
+                final List<FeatureChange> featureChanges = diff(reader, current[2], previous[2], featureParser);
+                results.add(new InstallationChanges(artifactChanges, channelChanges, featureChanges));
+                previous = current;
+            }
+
+            for (int i = 0; i < commits.size(); i++) {
+                changes.put(states.get(i), results.get(commits.size() - 1 - i));
+            }
+            return changes;
         } catch (IOException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(this.base.resolve(manifestFileName), e);
+            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(base.resolve(currentFile), e);
         }
     }
 
-    private SavedState getStateFromName(String savedState) throws MetadataException {
-        try {
-            final ObjectId parentRef = git.getRepository().resolve(savedState);
-            return parentRef == null ? null : new SavedState(parentRef.getName());
+    /*
+     * number of manifests parsed when listing changes
+     */
+    int getParsedManifests() {
+        return manifestCache.getParsedManifests();
+    }
+
+    private List<ArtifactChange> getArtifactChanges(String revision, String baseRevision) throws MetadataException {
+        try (ObjectReader reader = git.getRepository().newObjectReader()) {
+            final ObjectId changed = findBlob(reader, revision, ProsperoMetadataUtils.MANIFEST_FILE_NAME);
+            final ObjectId base = findBlob(reader, baseRevision, ProsperoMetadataUtils.MANIFEST_FILE_NAME);
+            return diffManifests(reader, changed, base);
         } catch (IOException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(this.base, e);
+            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(this.base.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME), e);
+        }
+    }
+
+    private <T> List<T> getChanges(String revision, String baseRevision, String fileName, Parser<T> parser) throws MetadataException {
+        try (ObjectReader reader = git.getRepository().newObjectReader()) {
+            final ObjectId changed = findBlob(reader, revision, fileName);
+            final ObjectId base = findBlob(reader, baseRevision, fileName);
+            return diff(reader, changed, base, parser);
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(this.base.resolve(fileName), e);
+        }
+    }
+
+    private List<ArtifactChange> diffManifests(ObjectReader reader, ObjectId changed, ObjectId base) throws IOException {
+        if (Objects.equals(changed, base)) {
+            return new ArrayList<>();
+        }
+        return ManifestCache.diff(manifestCache.get(reader, changed), manifestCache.get(reader, base));
+    }
+
+    private <T> List<T> diff(ObjectReader reader, ObjectId changed, ObjectId base, Parser<T> parser) throws IOException, MetadataException {
+        if (Objects.equals(changed, base)) {
+            // the file has not been modified
+            return new ArrayList<>();
+        }
+        return parser.parse(readBlob(reader, changed), readBlob(reader, base));
+    }
+
+    /*
+     * finds the id of the fileName blob in the revision. Returns null if the revision or the file doesn't exist.
+     */
+    private ObjectId findBlob(ObjectReader reader, String revision, String fileName) throws IOException {
+        final ObjectId commitId = resolveRevision(revision);
+        if (commitId == null) {
+            return null;
+        }
+        try (RevWalk revWalk = new RevWalk(reader)) {
+            return findBlobs(reader, revWalk.parseCommit(commitId), fileName)[0];
+        }
+    }
+
+    private static ObjectId[] findBlobs(ObjectReader reader, RevCommit commit, String... fileNames) throws IOException {
+        final ObjectId[] blobs = new ObjectId[fileNames.length];
+        for (int i = 0; i < fileNames.length; i++) {
+            try (TreeWalk treeWalk = TreeWalk.forPath(reader, fileNames[i], commit.getTree())) {
+                blobs[i] = treeWalk == null ? null : treeWalk.getObjectId(0);
+            }
         }
+        return blobs;
     }
 
-    private Map<String, Artifact> toMap(Collection<Stream> artifacts) {
-        final HashMap<String, Artifact> map = new HashMap<>();
-        for (Stream stream : artifacts) {
-            DefaultArtifact artifact = new DefaultArtifact(stream.getGroupId(), stream.getArtifactId(), "jar", stream.getVersion());
-            map.put(stream.getGroupId() + ":" + stream.getArtifactId(), artifact);
+    private static String readBlob(ObjectReader reader, ObjectId blobId) throws IOException {
+        if (blobId == null) {
+            return null;
         }
-        return map;
+        return new String(reader.open(blobId).getBytes(), StandardCharsets.UTF_8);
     }
 
     private boolean isRepositoryEmpty(Git git) throws IOException {
@@ -341,9 +787,19 @@ public class GitStorage implements AutoCloseable {
         return git;
     }
 
+    /**
+     * adds a reference to this storage. The storage is closed only after {@link #close()} is called for each reference.
+     *
+     * @return this storage
+     */
+    public synchronized GitStorage retain() {
+        references++;
+        return this;
+    }
+
     @Override
-    public void close() {
-        if (git != null) {
+    public synchronized void close() {
+        if (--references == 0 && git != null) {
             git.close();
         }
     }
@@ -352,40 +808,6 @@ public class GitStorage implements AutoCloseable {
         return !isRepositoryEmpty(git);
     }
 
-    private String checkoutPastState(SavedState savedState, String fileName) throws GitAPIException, IOException {
-        // we need to get historical data from git, but we don't really want to change currently checkout state
-        // so we're gonna find the commit in history, then load the file for it
-        final RevWalk revWalk = new RevWalk(git.getRepository());
-        try {
-            final RevCommit commit = revWalk.parseCommit(git.getRepository().resolve(savedState.getName()));
-            // the commit has an associated file tree. we need to find the fileName in it
-            final RevTree tree = commit.getTree();
-
-            try (TreeWalk treeWalk = new TreeWalk(git.getRepository())) {
-                treeWalk.addTree(tree);
-                treeWalk.setRecursive(true);
-                treeWalk.setFilter(PathFilter.create(fileName));
-                if (!treeWalk.next()) {
-                    // there is no such file - we return null and let the caller handle it
-                    return null;
-                }
-
-                // otherwise, let's read the file content
-                final ObjectId objectId = treeWalk.getObjectId(0);
-                final ObjectLoader loader = git.getRepository().open(objectId);
-
-                try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-                    loader.copyTo(os);
-                    os.flush();
-                    return os.toString(StandardCharsets.UTF_8);
-                }
-            }
-        } finally {
-            revWalk.dispose();
-            revWalk.close();
-        }
-    }
-
     interface Parser<T> {
         List<T> parse(String changedPath, String basePath) throws IOException, MetadataException;
     }
@@ -424,36 +846,4 @@ public class GitStorage implements AutoCloseable {
             return channelChanges;
         }
     }
-
-    private class ArtifactChangeParser implements Parser<ArtifactChange> {
-        @Override
-        public List<ArtifactChange> parse(String changed, String base) throws IOException, MetadataException {
-            final Map<String, Artifact> oldArtifacts;
-            if (base != null) {
-                final ChannelManifest parseOld = ChannelManifestMapper.fromString(base);
-                oldArtifacts = GitStorage.this.toMap(parseOld.getStreams());
-            } else {
-                oldArtifacts = Collections.emptyMap();
-            }
-
-            final ChannelManifest parseCurrent = ChannelManifestMapper.fromString(changed);
-            final Map<String, Artifact> currentArtifacts = GitStorage.this.toMap(parseCurrent.getStreams());
-
-            final ArrayList<ArtifactChange> artifactChanges = new ArrayList<>();
-            for (String ga : currentArtifacts.keySet()) {
-                if (!oldArtifacts.containsKey(ga)) {
-                    artifactChanges.add(ArtifactChange.added(currentArtifacts.get(ga)));
-                } else if (!currentArtifacts.get(ga).getVersion().equals(oldArtifacts.get(ga).getVersion())) {
-                    artifactChanges.add(ArtifactChange.updated(oldArtifacts.get(ga), currentArtifacts.get(ga)));
-                }
-            }
-            for (String ga : oldArtifacts.keySet()) {
-                if (!currentArtifacts.containsKey(ga)) {
-                    artifactChanges.add(ArtifactChange.removed(oldArtifacts.get(ga)));
-                }
-            }
-
-            return artifactChanges;
-        }
-    }
 }
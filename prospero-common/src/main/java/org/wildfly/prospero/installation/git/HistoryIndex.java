@@ -0,0 +1,312 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.installation.git;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.SavedState;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk cache of the parsed history records.
+ *
+ * Parsing a history record requires parsing and validating the JSON in the commit message, which gets expensive in
+ * installations with long history. The index stores the parsed records, oldest first, one JSON object per line, in
+ * {@code INDEX_FILE} inside the git directory. Before the index is used, it is validated against the current HEAD - if
+ * the HEAD is not the latest indexed record, the commits missing from the index are parsed and appended. If the HEAD
+ * was reset to an older record, the newer records are dropped from the index.
+ */
+class HistoryIndex {
+
+    static final String INDEX_FILE = "prospero-history.idx";
+    private static final String FORMAT_VERSION = "v1";
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private final Repository repository;
+    private final SavedStateParser savedStateParser;
+    private final Path indexFile;
+    // records in the order of commits, oldest first
+    private List<Entry> entries;
+    private Map<String, Integer> positions;
+    // the index file contains records not matching the history and has to be re-written
+    private boolean stale;
+
+    HistoryIndex(Repository repository, SavedStateParser savedStateParser) {
+        this.repository = repository;
+        this.savedStateParser = savedStateParser;
+        this.indexFile = repository.getDirectory().toPath().resolve(INDEX_FILE);
+    }
+
+    /**
+     * @return all the history records, latest first
+     * @throws IOException - if unable to read the history
+     */
+    List<SavedState> getRevisions() throws IOException {
+        return getRevisions(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param offset - number of the latest records to skip, negative values are treated as zero
+     * @param limit - maximum number of records to return, negative values are treated as zero
+     * @return the history records, latest first
+     * @throws IOException - if unable to read the history
+     */
+    List<SavedState> getRevisions(int offset, int limit) throws IOException {
+        update();
+
+        final List<SavedState> revisions = new ArrayList<>();
+        final int from = entries.size() - 1 - Math.min(Math.max(offset, 0), entries.size());
+        limit = Math.max(limit, 0);
+        for (int i = from; i >= 0 && revisions.size() < limit; i--) {
+            revisions.add(entries.get(i).state);
+        }
+        return revisions;
+    }
+
+    /**
+     * @param commit - commit recording the state
+     * @return the indexed history record, or the record parsed from {@code commit} if it is not indexed
+     * @throws IOException - if unable to read the history
+     */
+    SavedState getRevision(RevCommit commit) throws IOException {
+        update();
+
+        final Integer position = positions.get(commit.getName());
+        if (position != null) {
+            return entries.get(position).state;
+        }
+        return toEntry(commit).state;
+    }
+
+    /**
+     * synchronizes the index with the HEAD of the repository.
+     *
+     * @throws IOException - if unable to read the history or write the index
+     */
+    void update() throws IOException {
+        if (entries == null) {
+            load();
+        }
+
+        final ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null) {
+            if (!entries.isEmpty()) {
+                reset(Collections.emptyList());
+            }
+            return;
+        }
+        if (!entries.isEmpty() && entries.get(entries.size() - 1).id.equals(head.getName())) {
+            return;
+        }
+
+        // walk the history from HEAD until a commit already in the index is found
+        final List<RevCommit> missing = new ArrayList<>();
+        int known = -1;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            revWalk.markStart(revWalk.parseCommit(head));
+            for (RevCommit commit : revWalk) {
+                final Integer position = positions.get(commit.getName());
+                if (position != null) {
+                    known = position;
+                    break;
+                }
+                missing.add(commit);
+            }
+        }
+
+        final List<Entry> added = new ArrayList<>();
+        for (int i = missing.size() - 1; i >= 0; i--) {
+            added.add(toEntry(missing.get(i)));
+        }
+
+        if (known == entries.size() - 1 && !stale) {
+            append(added);
+        } else {
+            if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.debugf("Rebuilding the history index %s", indexFile);
+            }
+            final List<Entry> updated = new ArrayList<>(entries.subList(0, known + 1));
+            updated.addAll(added);
+            reset(updated);
+        }
+    }
+
+    /**
+     * discards the index, it will be rebuilt when it is accessed next time.
+     */
+    void invalidate() {
+        entries = null;
+        positions = null;
+        try {
+            Files.deleteIfExists(indexFile);
+        } catch (IOException e) {
+            if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.debugf(e, "Unable to remove the history index %s", indexFile);
+            }
+        }
+    }
+
+    private Entry toEntry(RevCommit commit) throws IOException {
+        final String parent = commit.getParentCount() == 0 ? null : commit.getParent(0).getName();
+        final SavedState state = savedStateParser.read(commit.getName().substring(0, 8),
+                Instant.ofEpochSecond(commit.getCommitTime()), commit.getFullMessage());
+        return new Entry(commit.getName(), parent, state);
+    }
+
+    private void load() throws IOException {
+        entries = new ArrayList<>();
+        positions = new HashMap<>();
+        stale = false;
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+
+        final List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !FORMAT_VERSION.equals(lines.get(0))) {
+            stale = true;
+            return;
+        }
+        try {
+            for (String line : lines.subList(1, lines.size())) {
+                final Entry entry = fromJson(line);
+                final String previous = entries.isEmpty() ? null : entries.get(entries.size() - 1).id;
+                if (previous != null && !previous.equals(entry.parent)) {
+                    // the rest of the index doesn't match the history, it will be re-indexed
+                    stale = true;
+                    break;
+                }
+                positions.put(entry.id, entries.size());
+                entries.add(entry);
+            }
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.debugf(e, "Unable to read the history index %s", indexFile);
+            }
+            // keep the records read before the corrupted line, the rest will be re-indexed
+            stale = true;
+        }
+    }
+
+    private void append(List<Entry> added) throws IOException {
+        if (added.isEmpty()) {
+            return;
+        }
+        if (!Files.exists(indexFile)) {
+            reset(added);
+            return;
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        for (Entry entry : added) {
+            positions.put(entry.id, entries.size());
+            entries.add(entry);
+            sb.append(toJson(entry)).append('\n');
+        }
+        Files.writeString(indexFile, sb, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+
+    private void reset(List<Entry> updated) throws IOException {
+        entries = new ArrayList<>();
+        positions = new HashMap<>();
+        stale = false;
+        final StringBuilder sb = new StringBuilder(FORMAT_VERSION).append('\n');
+        for (Entry entry : updated) {
+            positions.put(entry.id, entries.size());
+            entries.add(entry);
+            sb.append(toJson(entry)).append('\n');
+        }
+
+        final Path temp = indexFile.resolveSibling(INDEX_FILE + ".tmp");
+        Files.writeString(temp, sb, StandardCharsets.UTF_8);
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String toJson(Entry entry) throws JsonProcessingException {
+        final ObjectNode node = JSON_MAPPER.createObjectNode();
+        node.put("id", entry.id);
+        node.put("parent", entry.parent);
+        node.put("hash", entry.state.getName());
+        node.put("time", entry.state.getTimestamp().getEpochSecond());
+        node.put("type", entry.state.getType().name());
+        node.put("msg", entry.state.getMsg());
+        final ArrayNode versions = node.putArray("versions");
+        for (SavedState.Version version : entry.state.getManifestVersions()) {
+            versions.addObject()
+                    .put("identifier", version.getIdentifier())
+                    .put("physical", version.getPhysicalVersion())
+                    .put("logical", version.getLogicalVersion());
+        }
+        return JSON_MAPPER.writeValueAsString(node);
+    }
+
+    private static Entry fromJson(String line) throws JsonProcessingException {
+        final JsonNode node = JSON_MAPPER.readTree(line);
+        final List<SavedState.Version> versions = new ArrayList<>();
+        for (JsonNode version : node.path("versions")) {
+            versions.add(new SavedState.Version(version.path("identifier").asText(), version.path("physical").asText(),
+                    textOrNull(version.path("logical"))));
+        }
+        final SavedState state = new SavedState(node.path("hash").asText(),
+                Instant.ofEpochSecond(node.path("time").asLong()),
+                SavedState.Type.valueOf(node.path("type").asText()),
+                textOrNull(node.path("msg")),
+                versions);
+        final String id = node.path("id").asText();
+        if (id.isEmpty()) {
+            throw new IllegalArgumentException("Missing commit id");
+        }
+        return new Entry(id, textOrNull(node.path("parent")), state);
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node.isNull() || node.isMissingNode() ? null : node.asText();
+    }
+
+    private static class Entry {
+        private final String id;
+        private final String parent;
+        private final SavedState state;
+
+        Entry(String id, String parent, SavedState state) {
+            this.id = id;
+            this.parent = parent;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.installation.git;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.Stream;
+import org.wildfly.prospero.api.ArtifactChange;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * LRU cache of manifests recorded in the history, keyed by the id of the git blob containing the manifest.
+ *
+ * The manifest streams are kept sorted by their {@code groupId:artifactId}, so that two manifests can be compared with
+ * a single merge pass. The cache can be shared by concurrent readers of the history, e.g. in the daemon, so the access
+ * to it is synchronized.
+ */
+class ManifestCache {
+
+    static final int DEFAULT_SIZE = 16;
+
+    private final Map<ObjectId, Streams> cache;
+    private int parsedManifests;
+
+    ManifestCache(int size) {
+        this.cache = new LinkedHashMap<>(size, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ObjectId, Streams> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    /**
+     * returns the streams of a recorded manifest, parsing the manifest only if it's not cached already.
+     *
+     * @param reader - reader used to load the blob
+     * @param blobId - id of the manifest blob, or {@code null} if the manifest was not recorded
+     * @return streams sorted by GA
+     * @throws IOException - if unable to read the blob
+     */
+    synchronized Streams get(ObjectReader reader, ObjectId blobId) throws IOException {
+        if (blobId == null) {
+            return Streams.EMPTY;
+        }
+        Streams streams = cache.get(blobId);
+        if (streams == null) {
+            final String content = new String(reader.open(blobId).getBytes(), StandardCharsets.UTF_8);
+            streams = Streams.of(ChannelManifestMapper.fromString(content));
+            parsedManifests++;
+            cache.put(blobId.copy(), streams);
+        }
+        return streams;
+    }
+
+    /**
+     * number of manifests parsed by this cache
+     */
+    synchronized int getParsedManifests() {
+        return parsedManifests;
+    }
+
+    /**
+     * lists changes between two sets of streams.
+     *
+     * @param current - streams in the changed state
+     * @param old - streams in the base state
+     * @return changed artifacts in the order of their GA
+     */
+    static List<ArtifactChange> diff(Streams current, Streams old) {
+        final List<ArtifactChange> changes = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < current.keys.size() || j < old.keys.size()) {
+            final int cmp;
+            if (i == current.keys.size()) {
+                cmp = 1;
+            } else if (j == old.keys.size()) {
+                cmp = -1;
+            } else {
+                cmp = current.keys.get(i).compareTo(old.keys.get(j));
+            }
+
+            if (cmp < 0) {
+                changes.add(ArtifactChange.added(current.artifacts.get(i++)));
+            } else if (cmp > 0) {
+                changes.add(ArtifactChange.removed(old.artifacts.get(j++)));
+            } else {
+                final Artifact currentArtifact = current.artifacts.get(i++);
+                final Artifact oldArtifact = old.artifacts.get(j++);
+                if (!currentArtifact.getVersion().equals(oldArtifact.getVersion())) {
+                    changes.add(ArtifactChange.updated(oldArtifact, currentArtifact));
+                }
+            }
+        }
+        return changes;
+    }
+
+    static final class Streams {
+        static final Streams EMPTY = new Streams(Collections.emptyList(), Collections.emptyList());
+
+        private final List<String> keys;
+        private final List<Artifact> artifacts;
+
+        private Streams(List<String> keys, List<Artifact> artifacts) {
+            this.keys = keys;
+            this.artifacts = artifacts;
+        }
+
+        static Streams of(ChannelManifest manifest) {
+            final TreeMap<String, Artifact> sorted = new TreeMap<>();
+            for (Stream stream : manifest.getStreams()) {
+                sorted.put(stream.getGroupId() + ":" + stream.getArtifactId(),
+                        new DefaultArtifact(stream.getGroupId(), stream.getArtifactId(), "jar", stream.getVersion()));
+            }
+            return new Streams(new ArrayList<>(sorted.keySet()), new ArrayList<>(sorted.values()));
+        }
+    }
+}
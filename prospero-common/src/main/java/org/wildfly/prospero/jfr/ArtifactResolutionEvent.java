@@ -0,0 +1,37 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Resolution of a batch of artifacts, either from the installation cache or from Maven repositories.
+ */
+@Name("org.wildfly.prospero.ArtifactResolution")
+@Label("Artifact Resolution")
+@Category({"Prospero", "Resolution"})
+public class ArtifactResolutionEvent extends ProsperoEvent {
+
+    @Label("Artifacts")
+    public int artifacts;
+
+    @Label("Cache Hits")
+    public int cacheHits;
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Comparison of the installation files with the provisioned state, finding the changes made by the user.
+ */
+@Name("org.wildfly.prospero.FsDiff")
+@Label("Filesystem Diff")
+@Category({"Prospero", "Installation"})
+public class FsDiffEvent extends ProsperoEvent {
+
+    @Label("Added Files")
+    public int added;
+
+    @Label("Modified Files")
+    public int modified;
+
+    @Label("Removed Files")
+    public int removed;
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.jfr;
+
+/**
+ * Checks if the JDK Flight Recorder API is available to prospero.
+ *
+ * The {@link ProsperoEvent}s cannot be loaded if the runtime doesn't contain the {@code jdk.jfr} module, or if the
+ * module is not visible to prospero's class loader. The events have to be created only if {@link #isAvailable()}:
+ * <pre>
+ * final ApplyEvent event = JfrSupport.isAvailable() ? new ApplyEvent() : null;
+ * if (event != null) {
+ *     event.begin();
+ * }
+ * </pre>
+ * The emitting classes must not pass the events to methods accepting a supertype, because verifying such a call loads
+ * the event class.
+ */
+public final class JfrSupport {
+
+    private static final boolean AVAILABLE = isJfrAvailable();
+
+    private JfrSupport() {
+    }
+
+    /**
+     * @return true if the prospero events can be created
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
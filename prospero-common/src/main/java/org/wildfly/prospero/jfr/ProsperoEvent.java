@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.jfr;
+
+import java.nio.file.Path;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import org.wildfly.prospero.api.OperationTimer;
+
+/**
+ * Base of the JDK Flight Recorder events emitted by prospero.
+ *
+ * The event is created and begun before the recorded work and finished after it. If the event is not enabled in any
+ * running recording, {@link #finish(Path)} returns without computing the common fields, so the events have no
+ * measurable cost when JFR is not used. The events are created only if the JFR API is available, see
+ * {@link JfrSupport}:
+ * <pre>
+ * final ApplyEvent event = JfrSupport.isAvailable() ? new ApplyEvent() : null;
+ * if (event != null) {
+ *     event.begin();
+ * }
+ * // ...
+ * if (event != null) {
+ *     event.finish(installationDir);
+ * }
+ * </pre>
+ */
+@Category("Prospero")
+public abstract class ProsperoEvent extends Event {
+
+    @Label("Installation")
+    @Description("Path of the server installation")
+    String installation;
+
+    @Label("Operation")
+    @Description("Name of the operation timed on the emitting thread")
+    String operation;
+
+    /**
+     * ends the event and commits it if it is enabled and exceeds the configured threshold.
+     *
+     * @param installationDir - the installation the event relates to, can be null
+     */
+    public void finish(Path installationDir) {
+        end();
+        if (shouldCommit()) {
+            installation = installationDir == null ? null : installationDir.toAbsolutePath().toString();
+            operation = OperationTimer.current().map(OperationTimer::getOperation).orElse(null);
+            commit();
+        }
+    }
+}
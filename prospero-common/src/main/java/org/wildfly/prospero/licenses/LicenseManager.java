@@ -33,9 +33,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -50,14 +52,41 @@ public class LicenseManager {
     private static final String LICENSE_DEFINITION_EXTENSION = ".yaml";
     private static final String DEFAULT_LICENSE_DEFINITION = LICENSE_DEFINITION_NAME + LICENSE_DEFINITION_EXTENSION;
     protected static final String LICENSE_AGREEMENT_FILENAME= "license_accepted.properties";
-    private final HashMap<String, List<License>> nameMap = new HashMap<>();
+    // licenses read from the classpath, keyed by the language they were looked up for
+    private static final Map<String, Map<String, List<License>>> DEFAULT_LICENSES = new ConcurrentHashMap<>();
+    private final URL licensesUrl;
+    private final boolean useDefaultLicenses;
+    private Map<String, List<License>> nameMap;
 
+    /**
+     * uses the licenses defined on the classpath. The definitions are read once per JVM, when the licenses are needed
+     * for the first time.
+     */
     public LicenseManager() {
-        this(getLicensesFile());
+        this.licensesUrl = null;
+        this.useDefaultLicenses = true;
     }
 
     // package-access for tests
     LicenseManager(URL licensesUrl) {
+        this.licensesUrl = licensesUrl;
+        this.useDefaultLicenses = false;
+    }
+
+    private synchronized Map<String, List<License>> getNameMap() {
+        if (nameMap == null) {
+            if (useDefaultLicenses) {
+                nameMap = DEFAULT_LICENSES.computeIfAbsent(Locale.getDefault().getLanguage(),
+                        language -> readLicenses(getLicensesFile()));
+            } else {
+                nameMap = readLicenses(licensesUrl);
+            }
+        }
+        return nameMap;
+    }
+
+    private static Map<String, List<License>> readLicenses(URL licensesUrl) {
+        final Map<String, List<License>> nameMap = new HashMap<>();
         if (licensesUrl == null) {
             logger.debug("No known repositories found");
         } else {
@@ -76,6 +105,7 @@ public class LicenseManager {
                 logger.debug("Error parsing provisioning configurations:", e);
             }
         }
+        return nameMap;
     }
 
     /**
@@ -87,6 +117,7 @@ public class LicenseManager {
     public List<License> getLicenses(Set<String> fpls) {
         Objects.requireNonNull(fpls);
 
+        final Map<String, List<License>> nameMap = getNameMap();
         return fpls.stream()
                 .filter(nameMap::containsKey)
                 .map(nameMap::get)
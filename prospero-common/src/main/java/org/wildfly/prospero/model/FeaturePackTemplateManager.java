@@ -31,29 +31,27 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Matches provisioning configurations that need to be applied if a certain feature pack GAV is installed.
+ * The templates are indexed by the feature pack {@code groupId:artifactId} and their version ranges are parsed only
+ * once. The default templates are read once per JVM, when a manager is created for the first time.
  */
 public class FeaturePackTemplateManager {
 
     protected static final String FEATURE_PACK_TEMPLATES_YAML = "feature-pack-templates.yaml";
-    private final List<FeaturePackTemplate> recipes;
+    private static Map<String, List<IndexedTemplate>> defaultTemplates;
+    private final Map<String, List<IndexedTemplate>> templates;
 
     public FeaturePackTemplateManager() throws MetadataException {
-        final URL resource = FeaturesAddAction.class.getClassLoader().getResource(FEATURE_PACK_TEMPLATES_YAML);
-        try {
-            final String yaml = IOUtils.toString(resource, StandardCharsets.UTF_8);
-            this.recipes = FeaturePackTemplateList.read(yaml).getRecipes();
-        } catch (IOException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(Path.of(resource.getPath()), e);
-        }
+        this.templates = getDefaultTemplates();
     }
 
     public FeaturePackTemplateManager(FeaturePackTemplateList featurePackRecipeBook) {
-        recipes = featurePackRecipeBook.getRecipes();
+        this.templates = index(featurePackRecipeBook.getRecipes());
     }
 
     /**
@@ -69,33 +67,71 @@ public class FeaturePackTemplateManager {
     public FeaturePackTemplate find(String groupId, String artifactId, String version)
             throws FeatureTemplateVersionMismatchException {
 
-        final List<FeaturePackTemplate> matchingRecipes = recipes.stream()
-                .filter(r -> r.getGroupId().equals(groupId) &&
-                        r.getArtifactId().equals(artifactId))
-                .collect(Collectors.toList());
+        final List<IndexedTemplate> matchingRecipes = templates.get(groupId + ":" + artifactId);
 
-        if (matchingRecipes.isEmpty()) {
+        if (matchingRecipes == null) {
             return null;
         }
 
+        final DefaultArtifactVersion artifactVersion = new DefaultArtifactVersion(version);
         final List<String> ranges = new ArrayList<>();
-        for (FeaturePackTemplate recipe : matchingRecipes) {
-            if (versionMatches(recipe.getVersion(), version)) {
-                return recipe;
+        for (IndexedTemplate recipe : matchingRecipes) {
+            if (recipe.matches(artifactVersion)) {
+                return recipe.template;
             }
-            ranges.add(recipe.getVersion());
+            ranges.add(recipe.template.getVersion());
         }
 
         throw new FeatureTemplateVersionMismatchException(
                 String.format("Provisioning template for %s:%s is defined only for versions ranges %s", groupId, artifactId, String.join(",", ranges)));
     }
 
-    private static boolean versionMatches(String recipeVersion, String version) {
-        try {
-            final VersionRange versionRange = VersionRange.createFromVersionSpec(recipeVersion);
-            return versionRange.containsVersion(new DefaultArtifactVersion(version));
-        } catch (InvalidVersionSpecificationException e) {
-            throw new RuntimeException("Invalid version pattern in the provisioning template file", e);
+    private static synchronized Map<String, List<IndexedTemplate>> getDefaultTemplates() throws MetadataException {
+        if (defaultTemplates == null) {
+            final URL resource = FeaturesAddAction.class.getClassLoader().getResource(FEATURE_PACK_TEMPLATES_YAML);
+            try {
+                final String yaml = IOUtils.toString(resource, StandardCharsets.UTF_8);
+                defaultTemplates = index(FeaturePackTemplateList.read(yaml).getRecipes());
+            } catch (IOException e) {
+                throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(Path.of(resource.getPath()), e);
+            }
+        }
+        return defaultTemplates;
+    }
+
+    private static Map<String, List<IndexedTemplate>> index(List<FeaturePackTemplate> recipes) {
+        final Map<String, List<IndexedTemplate>> index = new HashMap<>();
+        for (FeaturePackTemplate recipe : recipes) {
+            index.computeIfAbsent(recipe.getGroupId() + ":" + recipe.getArtifactId(), k -> new ArrayList<>())
+                    .add(new IndexedTemplate(recipe));
+        }
+        return index;
+    }
+
+    private static class IndexedTemplate {
+        private final FeaturePackTemplate template;
+        private final VersionRange versionRange;
+        private final InvalidVersionSpecificationException invalidVersion;
+
+        IndexedTemplate(FeaturePackTemplate template) {
+            this.template = template;
+            VersionRange versionRange = null;
+            InvalidVersionSpecificationException invalidVersion = null;
+            try {
+                versionRange = VersionRange.createFromVersionSpec(template.getVersion());
+            } catch (InvalidVersionSpecificationException e) {
+                // reported only if the template is matched, so that it doesn't affect other feature packs
+                invalidVersion = e;
+            }
+            this.versionRange = versionRange;
+            this.invalidVersion = invalidVersion;
+        }
+
+        boolean matches(DefaultArtifactVersion version) {
+            if (invalidVersion != null) {
+                throw new RuntimeException("Invalid version pattern in the provisioning template file", invalidVersion);
+            }
+            return versionRange.containsVersion(version);
         }
     }
 
@@ -48,15 +48,25 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class ArtifactPromoter {
 
     private static final Logger log = Logger.getLogger(ArtifactPromoter.class);
+    private static final Set<String> SUPPORTED_PROTOCOLS = Set.of("file", "http", "https");
+    static final int DEPLOY_PARALLELISM = 8;
+    static final int DEPLOY_BATCH_SIZE = 50;
 
     private RepositorySystem system;
     private DefaultRepositorySystemSession session;
@@ -67,7 +77,7 @@ public class ArtifactPromoter {
         this.session = session;
         this.targetRepository = targetRepository;
 
-        if (!targetRepository.getProtocol().equals("file")) {
+        if (!SUPPORTED_PROTOCOLS.contains(targetRepository.getProtocol())) {
             throw ProsperoLogger.ROOT_LOGGER.unsupportedPromotionTarget();
         }
     }
@@ -125,12 +135,69 @@ public class ArtifactPromoter {
 
     private void deployResolvedArtifacts(List<ArtifactResult> results) throws DeploymentException {
         log.debugf("Deploying %s artifacts from custom bundle to %s", results.size(), targetRepository.getUrl());
+        final List<List<Artifact>> batches = toBatches(results);
+        if (batches.size() == 1) {
+            deploy(batches.get(0));
+            return;
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.min(DEPLOY_PARALLELISM, batches.size()));
+        try {
+            final List<Future<Void>> deployments = new ArrayList<>();
+            for (List<Artifact> batch : batches) {
+                deployments.add(executorService.submit(() -> {
+                    deploy(batch);
+                    return null;
+                }));
+            }
+            for (Future<Void> deployment : deployments) {
+                deployment.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DeploymentException) {
+                throw (DeploymentException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void deploy(List<Artifact> artifacts) throws DeploymentException {
         final DeployRequest deployRequest = new DeployRequest();
         deployRequest.setRepository(targetRepository);
-        results.forEach(result -> deployRequest.setArtifacts(Arrays.asList(result.getArtifact())));
+        deployRequest.setArtifacts(artifacts);
         system.deploy(session, deployRequest);
     }
 
+    /*
+     * Splits the artifacts into batches deployed in parallel. Artifacts with the same groupId:artifactId are always
+     * deployed in the same batch, so that their maven-metadata.xml is not updated concurrently.
+     */
+    private static List<List<Artifact>> toBatches(List<ArtifactResult> results) {
+        final Map<String, List<Artifact>> artifactsByGa = new LinkedHashMap<>();
+        for (ArtifactResult result : results) {
+            final Artifact artifact = result.getArtifact();
+            artifactsByGa.computeIfAbsent(artifact.getGroupId() + ":" + artifact.getArtifactId(), k -> new ArrayList<>())
+                    .add(artifact);
+        }
+
+        final List<List<Artifact>> batches = new ArrayList<>();
+        List<Artifact> batch = new ArrayList<>();
+        for (List<Artifact> artifacts : artifactsByGa.values()) {
+            if (!batch.isEmpty() && batch.size() + artifacts.size() > DEPLOY_BATCH_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+            batch.addAll(artifacts);
+        }
+        batches.add(batch);
+        return batches;
+    }
+
     private Optional<String> latestAvailableChannelVersion(VersionRangeRequest vr) {
         try {
             final VersionRangeResult result = system.resolveVersionRange(session, vr);
@@ -24,11 +24,17 @@ import org.wildfly.prospero.actions.InstallationHistoryAction;
 import org.wildfly.prospero.actions.MetadataAction;
 import org.wildfly.prospero.actions.UpdateAction;
 import org.wildfly.prospero.api.MavenOptions.Builder;
+import org.wildfly.prospero.api.OperationTimer;
 import org.wildfly.prospero.api.TemporaryRepositoriesHandler;
+import org.wildfly.prospero.api.TransferMetrics;
 import org.wildfly.prospero.api.exceptions.InvalidUpdateCandidateException;
 import org.wildfly.prospero.galleon.GalleonCallbackAdapter;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.spi.internal.CliProvider;
+import org.wildfly.prospero.spi.metrics.MetricsListener;
+import org.wildfly.prospero.spi.metrics.OperationFinishedEvent;
+import org.wildfly.prospero.spi.metrics.OperationStartedEvent;
+import org.wildfly.prospero.api.MetadataContext;
 import org.wildfly.prospero.api.SavedState;
 import org.wildfly.prospero.api.exceptions.MetadataException;
 import org.wildfly.prospero.api.exceptions.OperationException;
@@ -36,6 +42,8 @@ import org.wildfly.prospero.updates.UpdateSet;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -46,6 +54,7 @@ import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -55,9 +64,19 @@ public class ProsperoInstallationManager implements InstallationManager {
     private static final Logger logger = Logger.getLogger(GalleonCallbackAdapter.class);
 
     private final ActionFactory actionFactory;
+    private final TransferMetrics transferMetrics = new TransferMetrics();
+    private final List<MetricsListener> metricsListeners;
     private Path installationDir;
 
     public ProsperoInstallationManager(Path installationDir, MavenOptions mavenOptions) throws Exception {
+        this(installationDir, mavenOptions, Collections.emptyList());
+    }
+
+    /**
+     * @param metricsListeners - listeners notified about every operation. The list is not copied, listeners added to it
+     *                         later are notified as well.
+     */
+    ProsperoInstallationManager(Path installationDir, MavenOptions mavenOptions, List<MetricsListener> metricsListeners) throws Exception {
         final Builder options = org.wildfly.prospero.api.MavenOptions.builder()
                 .setOffline(mavenOptions.isOffline());
         if (mavenOptions.getLocalRepository() != null) {
@@ -66,98 +85,120 @@ public class ProsperoInstallationManager implements InstallationManager {
         }
         actionFactory = new ActionFactory(installationDir, options.build());
         this.installationDir = installationDir;
+        this.metricsListeners = metricsListeners;
     }
 
     // Used for tests to mock up action creation
     protected ProsperoInstallationManager(ActionFactory actionFactory) {
+        this(actionFactory, Collections.emptyList());
+    }
+
+    protected ProsperoInstallationManager(ActionFactory actionFactory, List<MetricsListener> metricsListeners) {
         this.actionFactory = actionFactory;
+        this.metricsListeners = metricsListeners;
     }
 
     @Override
     public List<HistoryResult> history() throws Exception {
-        logger.info("Listing installation history");
-        final InstallationHistoryAction historyAction = actionFactory.getHistoryAction();
-        final List<SavedState> revisions = historyAction.getRevisions();
-        final List<HistoryResult> results = new ArrayList<>();
-
-        for (SavedState savedState : revisions) {
-            results.add(new HistoryResult(savedState.getName(), savedState.getTimestamp(), savedState.getType().toString(),
-                    savedState.getMsg(),
-                    map(savedState.getManifestVersions(), ProsperoInstallationManager::mapManifestVersion)));
-        }
-        return results;
+        return execute("history", () -> {
+            logger.info("Listing installation history");
+            final InstallationHistoryAction historyAction = actionFactory.getHistoryAction();
+            final List<SavedState> revisions = historyAction.getRevisions();
+            final List<HistoryResult> results = new ArrayList<>();
+
+            for (SavedState savedState : revisions) {
+                results.add(new HistoryResult(savedState.getName(), savedState.getTimestamp(), savedState.getType().toString(),
+                        savedState.getMsg(),
+                        map(savedState.getManifestVersions(), ProsperoInstallationManager::mapManifestVersion)));
+            }
+            return results;
+        });
     }
 
     @Override
     public InstallationChanges revisionDetails(String revision) throws MetadataException {
         Objects.requireNonNull(revision);
-        final InstallationHistoryAction historyAction = actionFactory.getHistoryAction();
-        final org.wildfly.prospero.api.InstallationChanges changes = historyAction.getRevisionChanges(new SavedState(revision));
+        return execute("revision-details", () -> {
+            final InstallationHistoryAction historyAction = actionFactory.getHistoryAction();
+            final org.wildfly.prospero.api.InstallationChanges changes = historyAction.getRevisionChanges(new SavedState(revision));
 
-        if (changes.isEmpty()) {
-            return new InstallationChanges(Collections.emptyList(), Collections.emptyList());
-        } else {
-            final List<ArtifactChange> artifacts = changes.getArtifactChanges().stream()
-                    .map(ProsperoInstallationManager::mapArtifactChange)
-                    .collect(Collectors.toList());
-
-            final List<ChannelChange> channels = changes.getChannelChanges().stream()
-                    .map(ProsperoInstallationManager::mapChannelChange)
-                    .collect(Collectors.toList());
-            return new InstallationChanges(artifacts, channels);
-        }
+            if (changes.isEmpty()) {
+                return new InstallationChanges(Collections.emptyList(), Collections.emptyList());
+            } else {
+                final List<ArtifactChange> artifacts = changes.getArtifactChanges().stream()
+                        .map(ProsperoInstallationManager::mapArtifactChange)
+                        .collect(Collectors.toList());
+
+                final List<ChannelChange> channels = changes.getChannelChanges().stream()
+                        .map(ProsperoInstallationManager::mapChannelChange)
+                        .collect(Collectors.toList());
+                return new InstallationChanges(artifacts, channels);
+            }
+        });
     }
 
     @Override
     public void prepareRevert(String revision, Path targetDir, List<Repository> repositories) throws Exception {
         Objects.requireNonNull(revision);
         Objects.requireNonNull(targetDir);
-        final InstallationHistoryAction historyAction = actionFactory.getHistoryAction();
-        historyAction.prepareRevert(new SavedState(revision), actionFactory.mavenOptions,
-                map(repositories, ProsperoInstallationManager::mapRepository), targetDir);
+        execute("prepare-revert", () -> {
+            try (MetadataContext ignored = MetadataContext.open()) {
+                final InstallationHistoryAction historyAction = actionFactory.getHistoryAction();
+                historyAction.prepareRevert(new SavedState(revision), actionFactory.mavenOptions,
+                        map(repositories, ProsperoInstallationManager::mapRepository), targetDir);
+            }
+            return null;
+        });
     }
 
     @Override
     public boolean prepareUpdate(Path targetDir, List<Repository> repositories) throws Exception {
-        try (UpdateAction prepareUpdateAction = actionFactory.getUpdateAction(map(repositories, ProsperoInstallationManager::mapRepository))) {
-            return prepareUpdateAction.buildUpdate(targetDir);
-        }
+        return execute("prepare-update", () -> {
+            try (MetadataContext ignored = MetadataContext.open();
+                 UpdateAction prepareUpdateAction = actionFactory.getUpdateAction(map(repositories, ProsperoInstallationManager::mapRepository))) {
+                return prepareUpdateAction.buildUpdate(targetDir);
+            }
+        });
     }
 
     @Override
     public Collection<FileConflict> verifyCandidate(Path candidatePath, CandidateType candidateType) throws Exception {
-        final ApplyCandidateAction applyCandidateAction = actionFactory.getApplyCandidateAction(candidatePath);
-        final ApplyCandidateAction.Type operation;
-        switch (candidateType) {
-            case UPDATE:
-                operation = ApplyCandidateAction.Type.UPDATE;
-                break;
-            case REVERT:
-                operation = ApplyCandidateAction.Type.REVERT;
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported candidate type: " + candidateType);
-        }
+        return execute("verify-candidate", () -> {
+            try (MetadataContext ignored = MetadataContext.open()) {
+                final ApplyCandidateAction applyCandidateAction = actionFactory.getApplyCandidateAction(candidatePath);
+                final ApplyCandidateAction.Type operation;
+                switch (candidateType) {
+                    case UPDATE:
+                        operation = ApplyCandidateAction.Type.UPDATE;
+                        break;
+                    case REVERT:
+                        operation = ApplyCandidateAction.Type.REVERT;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported candidate type: " + candidateType);
+                }
 
-        final ApplyCandidateAction.ValidationResult validationResult = applyCandidateAction.verifyCandidate(operation);
-        switch (validationResult) {
-            case OK:
-                // we're good, continue
-                break;
-            case STALE:
-                throw ProsperoLogger.ROOT_LOGGER.staleCandidate(installationDir, candidatePath);
-            case NO_CHANGES:
-                throw ProsperoLogger.ROOT_LOGGER.noChangesAvailable(installationDir, candidatePath);
-            case NOT_CANDIDATE:
-                throw ProsperoLogger.ROOT_LOGGER.notCandidate(candidatePath);
-            case WRONG_TYPE:
-                throw ProsperoLogger.ROOT_LOGGER.wrongCandidateOperation(candidatePath, operation);
-            default:
-                // unexpected validation type - include the error in the description
-                throw new InvalidUpdateCandidateException(String.format("The candidate server %s is invalid - %s.", candidatePath, validationResult));
-        }
+                final ApplyCandidateAction.ValidationResult validationResult = applyCandidateAction.verifyCandidate(operation);
+                switch (validationResult) {
+                    case OK:
+                        // we're good, continue
+                        break;
+                    case STALE:
+                        throw ProsperoLogger.ROOT_LOGGER.staleCandidate(installationDir, candidatePath);
+                    case NO_CHANGES:
+                        throw ProsperoLogger.ROOT_LOGGER.noChangesAvailable(installationDir, candidatePath);
+                    case NOT_CANDIDATE:
+                        throw ProsperoLogger.ROOT_LOGGER.notCandidate(candidatePath);
+                    case WRONG_TYPE:
+                        throw ProsperoLogger.ROOT_LOGGER.wrongCandidateOperation(candidatePath, operation);
+                    default:
+                        // unexpected validation type - include the error in the description
+                        throw new InvalidUpdateCandidateException(String.format("The candidate server %s is invalid - %s.", candidatePath, validationResult));
+                }
 
-        return map(applyCandidateAction.getConflicts(), ProsperoInstallationManager::mapFileConflict);
+                return map(applyCandidateAction.getConflicts(), ProsperoInstallationManager::mapFileConflict);
+            }
+        });
     }
 
     private static FileConflict mapFileConflict(org.wildfly.prospero.api.FileConflict fileConflict) {
@@ -181,35 +222,94 @@ public class ProsperoInstallationManager implements InstallationManager {
 
     @Override
     public List<ArtifactChange> findUpdates(List<Repository> repositories) throws Exception {
-        try (UpdateAction updateAction = actionFactory.getUpdateAction(map(repositories, ProsperoInstallationManager::mapRepository))) {
-            final UpdateSet updates = updateAction.findUpdates();
-            return updates.getArtifactUpdates().stream()
-                    .map(ProsperoInstallationManager::mapArtifactChange)
-                    .collect(Collectors.toList());
+        return execute("find-updates", () -> {
+            try (MetadataContext ignored = MetadataContext.open();
+                 UpdateAction updateAction = actionFactory.getUpdateAction(map(repositories, ProsperoInstallationManager::mapRepository))) {
+                final UpdateSet updates = updateAction.findUpdates();
+                return updates.getArtifactUpdates().stream()
+                        .map(ProsperoInstallationManager::mapArtifactChange)
+                        .collect(Collectors.toList());
+            }
+        });
+    }
+
+    /**
+     * statistics of the artifacts downloaded by all the operations of this manager that resolve artifacts - preparing
+     * update and revert candidates and finding updates.
+     *
+     * @return transfer statistics
+     */
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
+
+    /**
+     * times the {@code action} and notifies the metrics listeners before and after it is executed.
+     */
+    private <T, E extends Exception> T execute(String operation, Operation<T, E> action) throws E {
+        final Instant startTime = Instant.now();
+        final long start = System.nanoTime();
+        notifyListeners(l -> l.operationStarted(new OperationStartedEvent(operation, installationDir, startTime)));
+
+        final OperationTimer timer = OperationTimer.start(operation);
+        Throwable failure = null;
+        try (timer) {
+            return action.execute();
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            transferMetrics.add(timer.getTransferMetrics());
+            final OperationFinishedEvent event = new OperationFinishedEvent(operation, installationDir, startTime,
+                    Duration.ofNanos(System.nanoTime() - start), failure, timer.getTransferMetrics().getTotals());
+            notifyListeners(l -> l.operationFinished(event));
+        }
+    }
+
+    private void notifyListeners(Consumer<MetricsListener> notification) {
+        for (MetricsListener listener : metricsListeners) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                logger.warn("Metrics listener " + listener + " failed", e);
+            }
         }
     }
 
+    @FunctionalInterface
+    private interface Operation<T, E extends Exception> {
+        T execute() throws E;
+    }
+
     @Override
     public Collection<Channel> listChannels() throws OperationException {
-        try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
-            return metadataAction.getChannels().stream()
-                    .map(ProsperoInstallationManager::mapChannel)
-                    .collect(Collectors.toList());
-        }
+        return execute("list-channels", () -> {
+            try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
+                return metadataAction.getChannels().stream()
+                        .map(ProsperoInstallationManager::mapChannel)
+                        .collect(Collectors.toList());
+            }
+        });
     }
 
     @Override
     public void removeChannel(String channelName) throws OperationException {
-        try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
-            metadataAction.removeChannel(channelName);
-        }
+        execute("remove-channel", () -> {
+            try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
+                metadataAction.removeChannel(channelName);
+            }
+            return null;
+        });
     }
 
     @Override
     public void addChannel(Channel channel) throws OperationException {
-        try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
-            metadataAction.addChannel(mapChannel(channel));
-        }
+        execute("add-channel", () -> {
+            try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
+                metadataAction.addChannel(mapChannel(channel));
+            }
+            return null;
+        });
     }
 
     @Override
@@ -217,9 +317,12 @@ public class ProsperoInstallationManager implements InstallationManager {
         if (newChannel.getName() == null || newChannel.getName().isEmpty()) {
             throw ProsperoLogger.ROOT_LOGGER.emptyChannelName();
         }
-        try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
-            metadataAction.changeChannel(newChannel.getName(), mapChannel(newChannel));
-        }
+        execute("change-channel", () -> {
+            try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
+                metadataAction.changeChannel(newChannel.getName(), mapChannel(newChannel));
+            }
+            return null;
+        });
     }
 
     @Override
@@ -239,10 +342,12 @@ public class ProsperoInstallationManager implements InstallationManager {
             throw ProsperoLogger.ROOT_LOGGER.fileAlreadyExists(targetPath);
         }
 
-        final InstallationExportAction installationExportAction = actionFactory.getInstallationExportAction();
-        installationExportAction.export(snapshotPath);
+        return execute("create-snapshot", () -> {
+            final InstallationExportAction installationExportAction = actionFactory.getInstallationExportAction();
+            installationExportAction.export(snapshotPath);
 
-        return snapshotPath;
+            return snapshotPath;
+        });
     }
 
     @Override
@@ -291,16 +396,18 @@ public class ProsperoInstallationManager implements InstallationManager {
 
     @Override
     public Collection<ManifestVersion> getInstalledVersions() throws MetadataException {
-        try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
-            final ManifestVersionRecord versionRecord = metadataAction.getChannelVersions();
-            return Stream.concat(
-                    versionRecord.getMavenManifests().stream()
-                            .map(m->new ManifestVersion(m.getGroupId()+":"+m.getArtifactId(), m.getDescription(), m.getVersion(), ManifestVersion.Type.MAVEN)),
-                    versionRecord.getUrlManifests().stream()
-                            .map(m->new ManifestVersion(m.getUrl(), m.getDescription(), m.getHash(), ManifestVersion.Type.URL))
-                    )
-                    .collect(Collectors.toList());
-        }
+        return execute("installed-versions", () -> {
+            try (MetadataAction metadataAction = actionFactory.getMetadataAction()) {
+                final ManifestVersionRecord versionRecord = metadataAction.getChannelVersions();
+                return Stream.concat(
+                        versionRecord.getMavenManifests().stream()
+                                .map(m->new ManifestVersion(m.getGroupId()+":"+m.getArtifactId(), m.getDescription(), m.getVersion(), ManifestVersion.Type.MAVEN)),
+                        versionRecord.getUrlManifests().stream()
+                                .map(m->new ManifestVersion(m.getUrl(), m.getDescription(), m.getHash(), ManifestVersion.Type.URL))
+                        )
+                        .collect(Collectors.toList());
+            }
+        });
     }
 
     private String escape(Path absolutePath) {
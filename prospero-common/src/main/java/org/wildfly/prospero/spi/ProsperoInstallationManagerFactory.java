@@ -26,9 +26,13 @@ import org.wildfly.installationmanager.spi.InstallationManagerFactory;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.VersionLogger;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+import org.wildfly.prospero.spi.metrics.InMemoryMetricsAggregator;
+import org.wildfly.prospero.spi.metrics.MetricsListener;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 public class ProsperoInstallationManagerFactory implements InstallationManagerFactory {
@@ -37,6 +41,10 @@ public class ProsperoInstallationManagerFactory implements InstallationManagerFa
         VersionLogger.logVersionOnStartup();
     }
 
+    // the factory is usually instantiated by a ServiceLoader, the listeners have to be shared by all its instances
+    private static final InMemoryMetricsAggregator METRICS = new InMemoryMetricsAggregator();
+    private static final List<MetricsListener> METRICS_LISTENERS = new CopyOnWriteArrayList<>(List.of(METRICS));
+
     protected static final List<Path> REQUIRED_FILES = List.of(
             Path.of(Constants.PROVISIONED_STATE_DIR, Constants.PROVISIONING_XML),
             Path.of(ProsperoMetadataUtils.METADATA_DIR, ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME),
@@ -46,7 +54,32 @@ public class ProsperoInstallationManagerFactory implements InstallationManagerFa
     @Override
     public InstallationManager create(Path installationDir, MavenOptions mavenOptions) throws Exception {
         verifyInstallationDirectory(installationDir);
-        return new ProsperoInstallationManager(installationDir, mavenOptions);
+        return new ProsperoInstallationManager(installationDir, mavenOptions, METRICS_LISTENERS);
+    }
+
+    /**
+     * registers a listener notified about the operations of all the installation managers created by this factory,
+     * including the managers created before the listener was registered.
+     *
+     * @param listener - the listener
+     */
+    public static void addMetricsListener(MetricsListener listener) {
+        Objects.requireNonNull(listener);
+        METRICS_LISTENERS.add(listener);
+    }
+
+    /**
+     * @param listener - listener registered with {@link #addMetricsListener(MetricsListener)}
+     */
+    public static void removeMetricsListener(MetricsListener listener) {
+        METRICS_LISTENERS.remove(listener);
+    }
+
+    /**
+     * @return the default aggregator of the operations executed by the installation managers created by this factory
+     */
+    public static InMemoryMetricsAggregator getMetrics() {
+        return METRICS;
     }
 
     @Override
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.spi.metrics;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.wildfly.prospero.api.TransferMetrics;
+
+/**
+ * {@link MetricsListener} keeping counters of all the received events in memory.
+ *
+ * The counters are meant to be polled by the host process and exported to a monitoring system. All methods are
+ * thread-safe, the returned values are snapshots not affected by later operations.
+ */
+public class InMemoryMetricsAggregator implements MetricsListener {
+
+    private final Map<String, Counters> operations = new TreeMap<>();
+    private long inProgress;
+    private long bytesDownloaded;
+    private long artifactsDownloaded;
+    private Duration downloadDuration = Duration.ZERO;
+    private long downloadFailures;
+    private long cacheHits;
+
+    @Override
+    public synchronized void operationStarted(OperationStartedEvent event) {
+        inProgress++;
+    }
+
+    @Override
+    public synchronized void operationFinished(OperationFinishedEvent event) {
+        inProgress = Math.max(0, inProgress - 1);
+
+        final Counters counters = operations.computeIfAbsent(event.getOperation(), k -> new Counters());
+        counters.count++;
+        if (event.isFailed()) {
+            counters.failures++;
+        }
+        counters.totalDuration = counters.totalDuration.plus(event.getDuration());
+        if (event.getDuration().compareTo(counters.maxDuration) > 0) {
+            counters.maxDuration = event.getDuration();
+        }
+
+        final TransferMetrics.RepositoryStatistics transfers = event.getTransfers();
+        if (transfers != null) {
+            bytesDownloaded += transfers.getBytes();
+            artifactsDownloaded += transfers.getTransfers();
+            downloadDuration = downloadDuration.plus(transfers.getDuration());
+            downloadFailures += transfers.getFailures() + transfers.getChecksumFailures();
+            cacheHits += transfers.getCacheHits();
+        }
+    }
+
+    /**
+     * @return statistics of each executed operation, by the operation name
+     */
+    public synchronized Map<String, OperationStatistics> getOperations() {
+        final Map<String, OperationStatistics> res = new TreeMap<>();
+        operations.forEach((name, counters) -> res.put(name, new OperationStatistics(name, counters.count,
+                counters.failures, counters.totalDuration, counters.maxDuration)));
+        return res;
+    }
+
+    /**
+     * @return number of operations started, but not yet finished
+     */
+    public synchronized long getOperationsInProgress() {
+        return inProgress;
+    }
+
+    /**
+     * @return number of finished operations
+     */
+    public synchronized long getOperationCount() {
+        return operations.values().stream().mapToLong(c -> c.count).sum();
+    }
+
+    /**
+     * @return number of operations finished with an error
+     */
+    public synchronized long getFailedOperationCount() {
+        return operations.values().stream().mapToLong(c -> c.failures).sum();
+    }
+
+    public synchronized long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    public synchronized long getArtifactsDownloaded() {
+        return artifactsDownloaded;
+    }
+
+    /**
+     * @return combined duration of all the downloads. Concurrent downloads are counted separately.
+     */
+    public synchronized Duration getDownloadDuration() {
+        return downloadDuration;
+    }
+
+    /**
+     * @return number of failed downloads, including checksum failures. Artifacts missing in a repository are not
+     * counted.
+     */
+    public synchronized long getDownloadFailures() {
+        return downloadFailures;
+    }
+
+    /**
+     * @return number of artifacts resolved from the local Maven cache or the installation cache
+     */
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return ratio of artifacts resolved from local caches to all resolved artifacts, or 0 if no artifact was resolved
+     */
+    public synchronized double getCacheHitRatio() {
+        final long resolved = cacheHits + artifactsDownloaded;
+        return resolved == 0 ? 0 : (double) cacheHits / resolved;
+    }
+
+    /**
+     * clears all the counters, except for the operations in progress.
+     */
+    public synchronized void reset() {
+        operations.clear();
+        bytesDownloaded = 0;
+        artifactsDownloaded = 0;
+        downloadDuration = Duration.ZERO;
+        downloadFailures = 0;
+        cacheHits = 0;
+    }
+
+    private static class Counters {
+        private long count;
+        private long failures;
+        private Duration totalDuration = Duration.ZERO;
+        private Duration maxDuration = Duration.ZERO;
+    }
+
+    /**
+     * Statistics of a single type of operation.
+     */
+    public static class OperationStatistics {
+        private final String operation;
+        private final long count;
+        private final long failures;
+        private final Duration totalDuration;
+        private final Duration maxDuration;
+
+        OperationStatistics(String operation, long count, long failures, Duration totalDuration, Duration maxDuration) {
+            this.operation = operation;
+            this.count = count;
+            this.failures = failures;
+            this.totalDuration = totalDuration;
+            this.maxDuration = maxDuration;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return number of finished executions of the operation
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return number of executions finished with an error
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        public Duration getTotalDuration() {
+            return totalDuration;
+        }
+
+        public Duration getMaxDuration() {
+            return maxDuration;
+        }
+
+        public Duration getAverageDuration() {
+            return count == 0 ? Duration.ZERO : totalDuration.dividedBy(count);
+        }
+    }
+}
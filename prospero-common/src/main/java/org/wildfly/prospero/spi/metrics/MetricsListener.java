@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.spi.metrics;
+
+/**
+ * Receives events about the operations executed by {@link org.wildfly.prospero.spi.ProsperoInstallationManager}s.
+ *
+ * Listeners are registered with {@link org.wildfly.prospero.spi.ProsperoInstallationManagerFactory#addMetricsListener(MetricsListener)}
+ * and are called synchronously on the thread executing the operation, so they should return quickly. Exceptions thrown
+ * by the listener are logged and don't affect the operation.
+ */
+public interface MetricsListener {
+
+    /**
+     * called before the operation starts.
+     *
+     * @param event - the started operation
+     */
+    default void operationStarted(OperationStartedEvent event) {
+    }
+
+    /**
+     * called after the operation finished, whether successfully or not.
+     *
+     * @param event - the finished operation
+     */
+    default void operationFinished(OperationFinishedEvent event) {
+    }
+}
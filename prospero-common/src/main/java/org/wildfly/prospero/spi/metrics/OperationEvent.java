@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.spi.metrics;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Base of the events received by {@link MetricsListener}s.
+ */
+public abstract class OperationEvent {
+
+    private final String operation;
+    private final Path installationDir;
+    private final Instant startTime;
+
+    OperationEvent(String operation, Path installationDir, Instant startTime) {
+        this.operation = operation;
+        this.installationDir = installationDir;
+        this.startTime = startTime;
+    }
+
+    /**
+     * @return name of the operation, e.g. {@code prepare-update}
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the installation the operation was executed on
+     */
+    public Path getInstallationDir() {
+        return installationDir;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.spi.metrics;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import org.wildfly.prospero.api.TransferMetrics;
+
+/**
+ * An operation finished, either successfully or with an error.
+ */
+public class OperationFinishedEvent extends OperationEvent {
+
+    private final Duration duration;
+    private final Throwable failure;
+    private final TransferMetrics.RepositoryStatistics transfers;
+
+    public OperationFinishedEvent(String operation, Path installationDir, Instant startTime, Duration duration,
+                                  Throwable failure, TransferMetrics.RepositoryStatistics transfers) {
+        super(operation, installationDir, startTime);
+        this.duration = duration;
+        this.failure = failure;
+        this.transfers = transfers;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return true if the operation finished with an error
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * @return the error the operation finished with, if any
+     */
+    public Optional<Throwable> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * @return combined statistics of the artifacts downloaded by the operation and resolved from local caches
+     */
+    public TransferMetrics.RepositoryStatistics getTransfers() {
+        return transfers;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationFinishedEvent{" +
+                "operation='" + getOperation() + '\'' +
+                ", installationDir=" + getInstallationDir() +
+                ", duration=" + duration +
+                ", failure=" + failure +
+                '}';
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.updates;
+
+import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.exceptions.OperationException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A single-file, content-deduplicated representation of a candidate server.
+ *
+ * The archive is a ZIP file. The first entry, {@code FILES_ENTRY}, lists every directory, file and symbolic link of
+ * the candidate together with the SHA-256 hash of the file content, POSIX permissions and modification time. Each
+ * distinct file content is stored only once, in a {@code content/<hash>} entry. The archive can be extracted in a
+ * single pass, the content is verified against the recorded hash as it is written.
+ */
+public class CandidateArchive {
+
+    static final String FILES_ENTRY = "candidate-files.txt";
+    static final String CONTENT_PREFIX = "content/";
+    private static final String SEPARATOR = "::";
+    private static final String FILE = "F";
+    private static final String DIRECTORY = "D";
+    private static final String LINK = "L";
+    private static final String NO_PERMISSIONS = "-";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CandidateArchive() {
+    }
+
+    /**
+     * creates an archive of the candidate server at {@code candidateDir}.
+     *
+     * @param candidateDir - root folder of the candidate server
+     * @param archive - path of the archive to create
+     * @throws OperationException - if unable to read the candidate or write the archive
+     */
+    public static void create(Path candidateDir, Path archive) throws OperationException {
+        final List<String> files = new ArrayList<>();
+        // content hash -> first file with the content
+        final Map<String, Path> contents = new LinkedHashMap<>();
+
+        try (Stream<Path> paths = Files.walk(candidateDir)) {
+            for (Path path : paths.sorted().collect(Collectors.toList())) {
+                if (path.equals(candidateDir)) {
+                    continue;
+                }
+                final String relative = toKey(candidateDir.relativize(path));
+                // the path is always the last field of the record, so that it can contain the separator
+                if (Files.isSymbolicLink(path)) {
+                    final String linkTarget = toKey(Files.readSymbolicLink(path));
+                    files.add(String.join(SEPARATOR, LINK,
+                            Base64.getEncoder().encodeToString(linkTarget.getBytes(StandardCharsets.UTF_8)), relative));
+                } else if (Files.isDirectory(path)) {
+                    files.add(String.join(SEPARATOR, DIRECTORY, permissions(path), modified(path), relative));
+                } else {
+                    final String hash = hash(path);
+                    contents.putIfAbsent(hash, path);
+                    files.add(String.join(SEPARATOR, FILE, hash, permissions(path), modified(path), relative));
+                }
+            }
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(candidateDir, e);
+        }
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zos.putNextEntry(new ZipEntry(FILES_ENTRY));
+            zos.write(String.join("\n", files).getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+
+            for (Map.Entry<String, Path> content : contents.entrySet()) {
+                zos.putNextEntry(new ZipEntry(CONTENT_PREFIX + content.getKey()));
+                Files.copy(content.getValue(), zos);
+                zos.closeEntry();
+            }
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToWriteFile(archive, e);
+        }
+
+        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+            ProsperoLogger.ROOT_LOGGER.debugf("Created candidate archive %s with %d entries and %d distinct files",
+                    archive, files.size(), contents.size());
+        }
+    }
+
+    /**
+     * extracts the candidate archive into {@code targetDir}, verifying the content hashes while the files are written.
+     *
+     * @param archive - the candidate archive
+     * @param targetDir - empty directory to extract the candidate into
+     * @throws OperationException - if the archive is not valid or unable to write the candidate
+     */
+    public static void extract(Path archive, Path targetDir) throws OperationException {
+        final Path root = targetDir.toAbsolutePath().normalize();
+        // content hash -> files with the content
+        final Map<String, List<Path>> pending = new HashMap<>();
+        final Map<Path, Attributes> attributes = new LinkedHashMap<>();
+        final Map<Path, String> links = new LinkedHashMap<>();
+
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(archive))) {
+            ZipEntry entry = zis.getNextEntry();
+            if (entry == null || !FILES_ENTRY.equals(entry.getName())) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "missing " + FILES_ENTRY);
+            }
+            readFiles(zis, archive, root, pending, attributes, links);
+
+            while ((entry = zis.getNextEntry()) != null) {
+                if (!entry.getName().startsWith(CONTENT_PREFIX)) {
+                    throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "unexpected entry " + entry.getName());
+                }
+                final String hash = entry.getName().substring(CONTENT_PREFIX.length());
+                final List<Path> targets = pending.remove(hash);
+                if (targets == null) {
+                    throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "unexpected entry " + entry.getName());
+                }
+
+                final Path first = targets.get(0);
+                if (!hash.equals(write(zis, first))) {
+                    Files.deleteIfExists(first);
+                    throw ProsperoLogger.ROOT_LOGGER.candidateArchiveHashMismatch(toKey(root.relativize(first)), archive);
+                }
+                for (Path target : targets.subList(1, targets.size())) {
+                    Files.copy(first, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToWriteFile(targetDir, e);
+        }
+
+        if (!pending.isEmpty()) {
+            final Path missing = pending.values().iterator().next().get(0);
+            throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "missing content of " + toKey(root.relativize(missing)));
+        }
+
+        try {
+            // create the links after the files were written, so that no content is written through them
+            for (Map.Entry<Path, String> link : links.entrySet()) {
+                Files.createSymbolicLink(link.getKey(), Path.of(link.getValue()));
+            }
+
+            // apply the attributes last, in case some of the directories are read-only, and in reverse order,
+            // so that the directory modification times are not changed by writing their children
+            final List<Map.Entry<Path, Attributes>> entries = new ArrayList<>(attributes.entrySet());
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                final Path path = entries.get(i).getKey();
+                setPermissions(path, entries.get(i).getValue().permissions);
+                Files.setLastModifiedTime(path, entries.get(i).getValue().modified);
+            }
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToWriteFile(targetDir, e);
+        }
+    }
+
+    private static void readFiles(InputStream zis, Path archive, Path root, Map<String, List<Path>> pending,
+                                  Map<Path, Attributes> attributes, Map<Path, String> links) throws IOException, OperationException {
+        // don't close the reader, it would close the archive stream
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(zis, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final String[] record = line.split(SEPARATOR, 2);
+            final int fieldCount = record.length == 2 ? fieldCount(record[0]) : 0;
+            // limit the split, the path is the last field and can contain the separator
+            final String[] fields = fieldCount > 0 ? record[1].split(SEPARATOR, fieldCount) : new String[0];
+            if (fieldCount == 0 || fields.length != fieldCount) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "invalid record " + line);
+            }
+
+            final String relative = fields[fields.length - 1];
+            final Path target = root.resolve(relative).normalize();
+            if (!target.startsWith(root) || target.equals(root)) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "invalid path " + relative);
+            }
+
+            try {
+                if (LINK.equals(record[0])) {
+                    links.put(target, new String(Base64.getDecoder().decode(fields[0]), StandardCharsets.UTF_8));
+                } else if (DIRECTORY.equals(record[0])) {
+                    Files.createDirectories(target);
+                    attributes.put(target, new Attributes(fields[0], fields[1]));
+                } else {
+                    pending.computeIfAbsent(fields[0], h -> new ArrayList<>()).add(target);
+                    attributes.put(target, new Attributes(fields[1], fields[2]));
+                }
+            } catch (IllegalArgumentException e) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "invalid record " + line);
+            }
+        }
+    }
+
+    private static int fieldCount(String type) {
+        switch (type) {
+            case FILE:
+                return 4;
+            case DIRECTORY:
+                return 3;
+            case LINK:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    private static String write(InputStream in, Path target) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String hash(Path file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static String modified(Path path) throws IOException {
+        return Long.toString(Files.getLastModifiedTime(path).toMillis());
+    }
+
+    private static String permissions(Path path) throws IOException {
+        final PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (view == null) {
+            return NO_PERMISSIONS;
+        }
+        return PosixFilePermissions.toString(view.readAttributes().permissions());
+    }
+
+    private static void setPermissions(Path path, String permissions) throws IOException {
+        final PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (view != null && !NO_PERMISSIONS.equals(permissions)) {
+            view.setPermissions(PosixFilePermissions.fromString(permissions));
+        }
+    }
+
+    private static String toKey(Path relativePath) {
+        return relativePath.toString().replace(File.separatorChar, '/');
+    }
+
+    private static class Attributes {
+        private final String permissions;
+        private final FileTime modified;
+
+        Attributes(String permissions, String modified) {
+            if (!NO_PERMISSIONS.equals(permissions)) {
+                // validate the permissions before anything is written
+                PosixFilePermissions.fromString(permissions);
+            }
+            this.permissions = permissions;
+            this.modified = FileTime.fromMillis(Long.parseLong(modified));
+        }
+    }
+}
@@ -37,12 +37,15 @@ import org.eclipse.aether.transport.http.HttpTransporterFactory;
 import org.jboss.galleon.ProvisioningException;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.OperationTimer;
 
 public class MavenSessionManager {
 
     public static final Path LOCAL_MAVEN_REPO = Paths.get(System.getProperty("user.home"), ".m2", "repository");
     private static final String AETHER_OFFLINE_PROTOCOLS_PROPERTY = "aether.offline.protocols";
-    public static final String AETHER_OFFLINE_PROTOCOLS_VALUE = "file";
+    public static final String AETHER_OFFLINE_PROTOCOLS_VALUE = "file," + ZipTransporterFactory.PROTOCOL;
+    private static boolean shareRepositorySystem;
+    private static RepositorySystem sharedRepositorySystem;
     private final Path provisioningRepo;
     private boolean offline;
 
@@ -75,11 +78,34 @@ public class MavenSessionManager {
         this(MavenOptions.DEFAULT_OPTIONS);
     }
 
+    /**
+     * Makes all the session managers in this JVM return the same {@code RepositorySystem} from {@link #newRepositorySystem()}.
+     *
+     * The repository system is thread-safe and doesn't hold any state of the operation, so long-running processes can
+     * re-use it instead of building the resolver components for every operation.
+     */
+    public static synchronized void shareRepositorySystem() {
+        shareRepositorySystem = true;
+    }
+
     public RepositorySystem newRepositorySystem() {
+        synchronized (MavenSessionManager.class) {
+            if (shareRepositorySystem) {
+                if (sharedRepositorySystem == null) {
+                    sharedRepositorySystem = createRepositorySystem();
+                }
+                return sharedRepositorySystem;
+            }
+        }
+        return createRepositorySystem();
+    }
+
+    private static RepositorySystem createRepositorySystem() {
         final DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
         locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
         locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
         locator.addService(TransporterFactory.class, FileTransporterFactory.class);
+        locator.addService(TransporterFactory.class, ZipTransporterFactory.class);
         locator.setErrorHandler(new DefaultServiceLocator.ErrorHandler() {
             @Override
             public void serviceCreationFailed(Class<?> type, Class<?> impl, Throwable exception) {
@@ -96,6 +122,17 @@ public class MavenSessionManager {
         session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, localRepo));
         session.setConfigProperty(AETHER_OFFLINE_PROTOCOLS_PROPERTY, AETHER_OFFLINE_PROTOCOLS_VALUE);
         session.setOffline(offline);
+        // record the transfers in the metrics of the current operation. The listener is called by the resolver threads,
+        // so the metrics have to be captured when the session is created
+        OperationTimer.current().ifPresent(timer -> {
+            final TransferMetricsListener listener = new TransferMetricsListener(timer.getTransferMetrics());
+            session.setTransferListener(listener);
+            session.setRepositoryListener(listener.repositoryListener());
+            // keep the repository archives open between the resolution requests of the operation
+            final ZipTransporter.SessionArchives archives = new ZipTransporter.SessionArchives();
+            session.getData().set(ZipTransporter.SessionArchives.class, archives);
+            timer.closeOnFinish(archives);
+        });
         return session;
     }
 
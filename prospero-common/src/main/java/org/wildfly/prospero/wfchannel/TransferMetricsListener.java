@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import java.time.Duration;
+
+import org.eclipse.aether.AbstractRepositoryListener;
+import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.RepositoryListener;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.transfer.AbstractTransferListener;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferResource;
+import org.wildfly.prospero.api.TransferMetrics;
+
+/**
+ * Records the Maven resolver transfers in {@link TransferMetrics}.
+ *
+ * Artifacts resolved from the local repository without a transfer are recorded as cache hits of the local repository
+ * using the {@link #repositoryListener()}.
+ */
+class TransferMetricsListener extends AbstractTransferListener {
+
+    private final TransferMetrics metrics;
+
+    TransferMetricsListener(TransferMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // started for every attempt of the transfer, unlike transferInitiated
+    @Override
+    public void transferStarted(TransferEvent event) {
+        metrics.transferStarted(repositoryId(event.getResource()), event.getResource().getResourceName());
+    }
+
+    @Override
+    public void transferSucceeded(TransferEvent event) {
+        final TransferResource resource = event.getResource();
+        final long duration = Math.max(0, System.currentTimeMillis() - resource.getTransferStartTime());
+        metrics.transferSucceeded(repositoryId(resource), resource.getResourceName(), event.getTransferredBytes(),
+                Duration.ofMillis(duration));
+    }
+
+    @Override
+    public void transferCorrupted(TransferEvent event) {
+        metrics.checksumFailed(repositoryId(event.getResource()), event.getResource().getResourceName());
+    }
+
+    @Override
+    public void transferFailed(TransferEvent event) {
+        final Exception exception = event.getException();
+        if (exception instanceof ArtifactNotFoundException || exception instanceof MetadataNotFoundException) {
+            metrics.notFound(repositoryId(event.getResource()), event.getResource().getResourceName());
+        } else {
+            metrics.transferFailed(repositoryId(event.getResource()), event.getResource().getResourceName());
+        }
+    }
+
+    RepositoryListener repositoryListener() {
+        return new AbstractRepositoryListener() {
+            @Override
+            public void artifactResolved(RepositoryEvent event) {
+                if (event.getException() == null && event.getRepository() instanceof LocalRepository) {
+                    metrics.cacheHit(event.getRepository().getId());
+                }
+            }
+        };
+    }
+
+    private static String repositoryId(TransferResource resource) {
+        // older connectors don't provide the repository id
+        final String id = resource.getRepositoryId();
+        return id == null || id.isEmpty() ? resource.getRepositoryUrl() : id;
+    }
+}
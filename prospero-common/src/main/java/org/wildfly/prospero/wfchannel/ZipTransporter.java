@@ -0,0 +1,220 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.transport.AbstractTransporter;
+import org.eclipse.aether.spi.connector.transport.GetTask;
+import org.eclipse.aether.spi.connector.transport.PeekTask;
+import org.eclipse.aether.spi.connector.transport.PutTask;
+import org.wildfly.prospero.ProsperoLogger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads artifacts from a Maven repository stored in a ZIP archive.
+ *
+ * The archives are opened as ZIP file systems shared by all the transporters reading the same archive. The open
+ * archives are reference counted and closed when nothing uses them. If the archive is modified, it is opened again.
+ *
+ * The resolver closes the transporter after each resolution request. To avoid reading the archive's directory for
+ * each request, the session can hold the archives opened by its transporters using {@link SessionArchives}.
+ * Otherwise the archive is closed when the last transporter using it is closed.
+ */
+class ZipTransporter extends AbstractTransporter {
+
+    private static final Map<Path, OpenArchive> ARCHIVES = new HashMap<>();
+
+    private final Path archive;
+    private final String basePath;
+    private final SessionArchives sessionArchives;
+    // guarded by this
+    private OpenArchive openArchive;
+    private boolean closed;
+
+    ZipTransporter(RemoteRepository repository, SessionArchives sessionArchives) {
+        final String url = repository.getUrl();
+        final String location = URI.create(url).getRawSchemeSpecificPart();
+        final int separator = location.indexOf("!/");
+        if (separator < 0) {
+            throw new IllegalArgumentException("The repository URL " + url + " doesn't specify a path within the archive");
+        }
+        this.archive = Path.of(URI.create(location.substring(0, separator))).toAbsolutePath().normalize();
+        final String path = URI.create(location.substring(separator + 1)).getPath();
+        this.basePath = path.endsWith("/") ? path : path + "/";
+        this.sessionArchives = sessionArchives;
+    }
+
+    @Override
+    public int classify(Throwable error) {
+        if (error instanceof NoSuchFileException) {
+            return ERROR_NOT_FOUND;
+        }
+        return ERROR_OTHER;
+    }
+
+    @Override
+    protected void implPeek(PeekTask task) throws Exception {
+        final Path path = resolve(task.getLocation());
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(path.toString());
+        }
+    }
+
+    @Override
+    protected void implGet(GetTask task) throws Exception {
+        final Path path = resolve(task.getLocation());
+        utilGet(task, Files.newInputStream(path), true, Files.size(path), false);
+    }
+
+    @Override
+    protected void implPut(PutTask task) throws Exception {
+        throw new IOException("The repository archive " + archive + " is read-only");
+    }
+
+    @Override
+    protected synchronized void implClose() {
+        closed = true;
+        if (openArchive != null) {
+            release(openArchive);
+            openArchive = null;
+        }
+    }
+
+    private Path resolve(URI location) throws IOException {
+        return getFileSystem().getPath(basePath + location.getPath());
+    }
+
+    private synchronized FileSystem getFileSystem() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The transporter of " + archive + " has been closed");
+        }
+        final FileTime lastModified = Files.getLastModifiedTime(archive);
+        if (openArchive != null && !openArchive.lastModified.equals(lastModified)) {
+            release(openArchive);
+            openArchive = null;
+        }
+        if (openArchive == null) {
+            openArchive = acquire(archive, lastModified);
+            if (sessionArchives != null) {
+                sessionArchives.retain(openArchive);
+            }
+        }
+        return openArchive.fileSystem;
+    }
+
+    private static OpenArchive acquire(Path archive, FileTime lastModified) throws IOException {
+        synchronized (ARCHIVES) {
+            OpenArchive open = ARCHIVES.get(archive);
+            if (open == null || !open.lastModified.equals(lastModified)) {
+                if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                    ProsperoLogger.ROOT_LOGGER.debugf("Opening repository archive %s", archive);
+                }
+                // an outdated archive is closed when the transporters still using it release it
+                open = new OpenArchive(archive, FileSystems.newFileSystem(archive, (ClassLoader) null), lastModified);
+                ARCHIVES.put(archive, open);
+            }
+            open.references++;
+            return open;
+        }
+    }
+
+    private static void release(OpenArchive open) {
+        synchronized (ARCHIVES) {
+            if (--open.references > 0) {
+                return;
+            }
+            ARCHIVES.remove(open.archive, open);
+        }
+        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+            ProsperoLogger.ROOT_LOGGER.debugf("Closing repository archive %s", open.archive);
+        }
+        try {
+            open.fileSystem.close();
+        } catch (IOException e) {
+            if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.debug("Unable to close repository archive", e);
+            }
+        }
+    }
+
+    static boolean isOpen(Path archive) {
+        synchronized (ARCHIVES) {
+            return ARCHIVES.containsKey(archive.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * Keeps the archives used by the transporters of a session open until closed. Stored in the session's data under
+     * the {@code SessionArchives} class and closed when the operation using the session finishes.
+     */
+    static final class SessionArchives implements AutoCloseable {
+        // guarded by this
+        private final Set<OpenArchive> retained = new HashSet<>();
+        private boolean closed;
+
+        private void retain(OpenArchive open) {
+            synchronized (this) {
+                if (closed || !retained.add(open)) {
+                    return;
+                }
+            }
+            synchronized (ARCHIVES) {
+                open.references++;
+            }
+        }
+
+        @Override
+        public void close() {
+            final List<OpenArchive> released;
+            synchronized (this) {
+                closed = true;
+                released = new ArrayList<>(retained);
+                retained.clear();
+            }
+            released.forEach(ZipTransporter::release);
+        }
+    }
+
+    private static class OpenArchive {
+        private final Path archive;
+        private final FileSystem fileSystem;
+        private final FileTime lastModified;
+        // guarded by ARCHIVES
+        private int references;
+
+        OpenArchive(Path archive, FileSystem fileSystem, FileTime lastModified) {
+            this.archive = archive;
+            this.fileSystem = fileSystem;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.transfer.NoTransporterException;
+
+/**
+ * Provides access to Maven repositories stored in local ZIP archives. The repository URL has to use the {@code jar} scheme
+ * and point to the repository folder within the archive, e.g. {@code jar:file:///tmp/repository.zip!/root/maven-repository/}.
+ *
+ * The archive is not extracted, the artifacts are read directly from the archive when requested. The sessions created
+ * during an operation keep the archive open until the operation finishes.
+ */
+public class ZipTransporterFactory implements TransporterFactory {
+
+    /**
+     * protocol of the {@code jar:file:} repository URLs, as parsed by the resolver
+     */
+    public static final String PROTOCOL = "jar:file";
+
+    @Override
+    public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository) throws NoTransporterException {
+        if (!PROTOCOL.equals(repository.getProtocol())) {
+            throw new NoTransporterException(repository);
+        }
+        try {
+            final ZipTransporter.SessionArchives sessionArchives = session == null ? null
+                    : (ZipTransporter.SessionArchives) session.getData().get(ZipTransporter.SessionArchives.class);
+            return new ZipTransporter(repository, sessionArchives);
+        } catch (IllegalArgumentException e) {
+            throw new NoTransporterException(repository, e);
+        }
+    }
+
+    @Override
+    public float getPriority() {
+        return 5.0f;
+    }
+}
@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.jboss.galleon.Constants;
 import org.jboss.galleon.ProvisioningException;
@@ -51,9 +52,11 @@ import org.wildfly.channel.Repository;
 import org.wildfly.channel.Stream;
 import org.wildfly.prospero.api.ArtifactChange;
 import org.wildfly.prospero.api.FileConflict;
+import org.wildfly.prospero.api.InstallationMetadata;
 import org.wildfly.prospero.api.SavedState;
 import org.wildfly.prospero.api.exceptions.InvalidUpdateCandidateException;
 import org.wildfly.prospero.galleon.ArtifactCache;
+import org.wildfly.prospero.installation.StateDigest;
 import org.wildfly.prospero.installation.git.GitStorage;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
@@ -110,6 +113,115 @@ public class ApplyCandidateActionTest {
         assertThat(conflicts).isEmpty();
     }
 
+    @Test
+    public void testUpdateWithJournalBackup() throws Exception {
+        final DirState expectedState = dirBuilder
+                .addFile("prod1/p1.txt", "p1 1.0.1")
+                .build();
+
+        createSimpleFeaturePacks();
+
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        final List<FileConflict> conflicts = new ApplyCandidateAction(installationPath, updatePath, ApplyCandidateAction.BackupMode.JOURNAL)
+                .applyUpdate(ApplyCandidateAction.Type.UPDATE);
+
+        expectedState.assertState(installationPath);
+        assertThat(conflicts).isEmpty();
+        assertThat(installationPath.resolve(ApplyStageJournal.JOURNAL_FOLDER)).doesNotExist();
+        assertThat(installationPath.resolve(ApplyStageBackup.BACKUP_FOLDER)).doesNotExist();
+    }
+
+    @Test
+    public void invalidBackupModeListsValidModes() throws Exception {
+        createSimpleFeaturePacks();
+
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+
+        System.setProperty(ApplyCandidateAction.BACKUP_MODE_PROPERTY, "idontexist");
+        try {
+            assertThatThrownBy(() -> new ApplyCandidateAction(installationPath, updatePath))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("idontexist")
+                    .hasMessageContaining("full, journal");
+        } finally {
+            System.clearProperty(ApplyCandidateAction.BACKUP_MODE_PROPERTY);
+        }
+    }
+
+    @Test
+    public void interruptedJournalApplyIsRolledBack() throws Exception {
+        createSimpleFeaturePacks();
+
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        final String manifest = Files.readString(installationPath.resolve(METADATA_DIR).resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME));
+
+        // simulate an apply interrupted after the first file and the history were changed
+        final ApplyStageJournal journal = new ApplyStageJournal(installationPath, updatePath, ApplyCandidateAction.Type.UPDATE);
+        journal.prepare();
+        journal.beforeWrite(Path.of("prod1", "p1.txt"));
+        writeContent("prod1/p1.txt", "p1 1.0.1");
+        journal.beforeWrite(Path.of(METADATA_DIR, ProsperoMetadataUtils.MANIFEST_FILE_NAME));
+        Files.writeString(installationPath.resolve(METADATA_DIR).resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME), manifest("changed"));
+        try (GitStorage git = new GitStorage(installationPath)) {
+            git.recordChange(SavedState.Type.UPDATE);
+        }
+
+        assertThat(ApplyCandidateAction.recoverInterruptedApply(installationPath)).isTrue();
+
+        assertThat(installationPath.resolve("prod1/p1.txt")).hasContent("p1 1.0.0");
+        assertThat(installationPath.resolve(METADATA_DIR).resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME)).hasContent(manifest);
+        try (GitStorage git = new GitStorage(installationPath)) {
+            assertThat(git.getRevisions()).hasSize(1);
+        }
+        assertThat(installationPath.resolve(ApplyStageJournal.JOURNAL_FOLDER)).doesNotExist();
+        assertThat(ApplyCandidateAction.recoverInterruptedApply(installationPath)).isFalse();
+
+        // the candidate is still valid after the rollback
+        new ApplyCandidateAction(installationPath, updatePath).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+        assertThat(installationPath.resolve("prod1/p1.txt")).hasContent("p1 1.0.1");
+    }
+
+    @Test
+    public void testSparseUpdate() throws Exception {
+        final DirState expectedState = dirBuilder
+                .addFile("prod1/p1.txt", "p1 1.0.1")
+                .addFile("prod1/unchanged.txt", "user changes")
+                .addFile("prod2/common.txt", "common")
+                .build();
+
+        creator.newFeaturePack(FeaturePackLocation.fromString(FPL_100).getFPID())
+                .newPackage("p1", true)
+                .writeContent("prod1/p1.txt", "p1 1.0.0")
+                .writeContent("prod1/unchanged.txt", "unchanged")
+                .writeContent("prod2/common.txt", "common")
+                .writeContent("prod3/removed.txt", "removed")
+                .getFeaturePack();
+        creator.newFeaturePack(FeaturePackLocation.fromString(FPL_101).getFPID())
+                .newPackage("p1", true)
+                .writeContent("prod1/p1.txt", "p1 1.0.1")
+                .writeContent("prod1/unchanged.txt", "unchanged")
+                .writeContent("prod2/common.txt", "common")
+                .getFeaturePack();
+        creator.install();
+
+        install(installationPath, FPL_100);
+        writeContent("prod1/unchanged.txt", "user changes");
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        assertThat(SparseCandidate.sparsify(installationPath, updatePath)).isEqualTo(2);
+        assertThat(updatePath.resolve("prod1/p1.txt")).exists();
+        assertThat(updatePath.resolve("prod1/unchanged.txt")).doesNotExist();
+        assertThat(updatePath.resolve("prod2")).doesNotExist();
+
+        final List<FileConflict> conflicts = new ApplyCandidateAction(installationPath, updatePath).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+
+        expectedState.assertState(installationPath);
+        assertThat(conflicts).isEmpty();
+        assertThat(installationPath.resolve(SparseCandidate.SPARSE_RECORD)).doesNotExist();
+    }
+
     public void testUpdateWithSymlink() throws Exception {
         final DirState expectedState = dirBuilder
                 .addFile("prod1/p1.txt", "p1 1.0.1")
@@ -260,6 +372,7 @@ public class ApplyCandidateActionTest {
                         channel("channels " + FPL_100).trim())
                 .addFile(ArtifactCache.CACHE_FOLDER.toString().replace(File.separatorChar, '/') + "/" + "artifacts.txt" , FPL_101+"::abcd::foo/bar")
                 .skip(METADATA_DIR + "/" + ProsperoMetadataUtils.PROVISIONING_RECORD_XML)
+                .skip(StateDigest.DIGEST_FILE.toString().replace(File.separatorChar, '/'))
                 .build();
 
         // build test packages
@@ -272,6 +385,9 @@ public class ApplyCandidateActionTest {
 
         // verify
         expectedState.assertState(installationPath);
+        assertTrue(Files.exists(installationPath.resolve(StateDigest.DIGEST_FILE)));
+        // the channels are not changed by the update, only the Galleon hashes are replaced
+        assertEquals(StateDigest.compute(updatePath).getDirectoryDigest(""), StateDigest.load(installationPath).getDirectoryDigest(""));
         assertTrue(Files.readString(installationPath.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONING_XML))
                 .contains(FPL_101));
         assertTrue(Files.readString(installationPath.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONED_STATE_XML))
@@ -446,6 +562,29 @@ public class ApplyCandidateActionTest {
         assertEquals(ApplyCandidateAction.ValidationResult.OK, validationResult);
     }
 
+    @Test
+    public void verifyCandidatePreparedBeforeHistoryCompaction() throws Exception {
+        createSimpleFeaturePacks();
+        final ApplyCandidateAction applyCandidateAction = new ApplyCandidateAction(installationPath, updatePath);
+
+        install(installationPath, FPL_100);
+        Files.writeString(installationPath.resolve(METADATA_DIR).resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME), manifest("manifest 01",
+                List.of(new Stream("org.test", "foo", "1.0.0"))));
+        try (GitStorage gitStorage = new GitStorage(installationPath)) {
+            gitStorage.record();
+        }
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        // compacting the history changes the id of the state recorded in the candidate
+        try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installationPath)) {
+            assertThat(metadata.compactHistory(1)).isEqualTo(1);
+        }
+
+        final ApplyCandidateAction.ValidationResult validationResult = applyCandidateAction
+                .verifyCandidate(ApplyCandidateAction.Type.UPDATE);
+
+        assertEquals(ApplyCandidateAction.ValidationResult.OK, validationResult);
+    }
+
     @Test
     public void findUpdatesModified() throws Exception {
         createSimpleFeaturePacks();
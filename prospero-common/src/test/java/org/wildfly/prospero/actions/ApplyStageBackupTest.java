@@ -355,6 +355,100 @@ public class ApplyStageBackupTest {
                 .hasContent("changed text");
     }
 
+    @Test
+    public void restoreTrackedChangedAndRemovedFiles() throws Exception {
+        final Path changed = createFile("test/changed.txt");
+        final Path removed = createFile("test/removed.txt");
+        createCandidateFile("test/changed.txt");
+
+        backup.recordAll();
+        backup.beforeWrite(Path.of("test", "changed.txt"));
+        writeFile(changed);
+        backup.beforeDelete(Path.of("test", "removed.txt"));
+        Files.delete(removed);
+        backup.restore();
+
+        assertThat(changed)
+                .hasContent("test text");
+        assertThat(removed)
+                .hasContent("test text");
+    }
+
+    @Test
+    public void removeTrackedAddedFileAndDirectories() throws Exception {
+        final Path existing = createFile("test/existing.txt");
+        final Path added = server.resolve("test/foo/bar/added.txt");
+
+        backup.recordAll();
+        backup.beforeWrite(server.relativize(added));
+        Files.createDirectories(added.getParent());
+        writeFile(added);
+        backup.restore();
+
+        assertThat(added)
+                .doesNotExist();
+        assertThat(server.resolve("test/foo"))
+                .doesNotExist();
+        assertThat(existing)
+                .hasContent("test text");
+    }
+
+    @Test
+    public void restoreTrackedUnmanagedFile() throws Exception {
+        // e.g. a .glnew file left by a previous update
+        final Path unmanaged = server.resolve("test.txt.glnew");
+        writeFile(unmanaged, "user text");
+
+        backup.recordAll();
+        backup.beforeWrite(Path.of("test.txt.glnew"));
+        writeFile(unmanaged, "update text");
+        backup.restore();
+
+        assertThat(unmanaged)
+                .hasContent("user text");
+    }
+
+    @Test
+    public void restoreOnlyVisitsTrackedPaths() throws Exception {
+        final Path tracked = createFile("test/tracked.txt");
+        final Path untracked = server.resolve("test/untracked.txt");
+        createCandidateFile("test/untracked.txt");
+
+        backup.recordAll();
+        backup.beforeWrite(Path.of("test", "tracked.txt"));
+        writeFile(tracked);
+        // not reported by the apply operation, so it is not part of the restore plan
+        writeFile(untracked);
+        backup.restore();
+
+        assertThat(tracked)
+                .hasContent("test text");
+        assertThat(untracked)
+                .hasContent("changed text");
+    }
+
+    @Test
+    public void restoreReplacedMetadataFolder() throws Exception {
+        createFile("test/tracked.txt");
+        final Path provisioning = server.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONING_XML);
+        final String provisioningXml = Files.readString(provisioning);
+
+        backup.recordAll();
+        backup.beforeReplace(Path.of(Constants.PROVISIONED_STATE_DIR));
+        FileUtils.deleteDirectory(server.resolve(Constants.PROVISIONED_STATE_DIR).toFile());
+        Files.createDirectories(provisioning.getParent());
+        Files.writeString(provisioning, "changed");
+        Files.writeString(provisioning.resolveSibling("added.txt"), "added");
+        backup.restore();
+
+        assertThat(provisioning)
+                .hasContent(provisioningXml);
+        assertThat(provisioning.resolveSibling("added.txt"))
+                .doesNotExist();
+        assertThat(server.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES).resolve("test").resolve(Constants.HASHES))
+                .exists();
+    }
+
     private static void writeFile(Path testFile) throws IOException {
         writeFile(testFile, "changed text");
     }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.Constants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ApplyStageJournalTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private ApplyStageJournal journal;
+    private Path server;
+    private Path candidate;
+
+    @Before
+    public void setUp() throws Exception {
+        server = temp.newFolder().toPath();
+        candidate = temp.newFolder().toPath();
+        journal = new ApplyStageJournal(server, candidate, ApplyCandidateAction.Type.UPDATE);
+        journal.prepare();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    @Test
+    public void closeRemovesJournalFolder() throws Exception {
+        assertThat(server.resolve(ApplyStageJournal.JOURNAL_FOLDER)).exists();
+
+        journal.close();
+
+        assertThat(server.resolve(ApplyStageJournal.JOURNAL_FOLDER)).doesNotExist();
+        assertThat(ApplyStageJournal.exists(server)).isFalse();
+    }
+
+    @Test
+    public void restoreModifiedFile() throws Exception {
+        final Path testFile = createFile("test/test.txt", "test text");
+
+        journal.beforeWrite(Path.of("test", "test.txt"));
+        Files.writeString(testFile, "changed");
+        journal.restore();
+
+        assertThat(testFile).hasContent("test text");
+    }
+
+    @Test
+    public void recordOriginalOnlyOnce() throws Exception {
+        final Path testFile = createFile("test.txt", "test text");
+
+        journal.beforeWrite(Path.of("test.txt"));
+        Files.writeString(testFile, "changed");
+        journal.beforeWrite(Path.of("test.txt"));
+        Files.writeString(testFile, "changed again");
+        journal.restore();
+
+        assertThat(testFile).hasContent("test text");
+    }
+
+    @Test
+    public void restoreDeletedFileAndDirectory() throws Exception {
+        final Path testFile = createFile("test/test.txt", "test text");
+
+        journal.beforeDelete(Path.of("test", "test.txt"));
+        Files.delete(testFile);
+        journal.beforeDelete(Path.of("test"));
+        Files.delete(testFile.getParent());
+        journal.restore();
+
+        assertThat(testFile).hasContent("test text");
+    }
+
+    @Test
+    public void removeCreatedFileAndDirectories() throws Exception {
+        final Path existing = createFile("test/existing.txt", "test text");
+        final Path testFile = server.resolve("test/foo/bar/test.txt");
+
+        journal.beforeWrite(server.relativize(testFile));
+        createFile("test/foo/bar/test.txt", "new");
+        journal.beforeWrite(Path.of("test", "foo", "other.txt"));
+        createFile("test/foo/other.txt", "new");
+        journal.restore();
+
+        assertThat(server.resolve("test/foo")).doesNotExist();
+        assertThat(existing).hasContent("test text");
+    }
+
+    @Test
+    public void restoreReplacedDirectory() throws Exception {
+        createFile(Constants.PROVISIONED_STATE_DIR + "/hashes/p1", "old");
+
+        journal.beforeReplace(Path.of(Constants.PROVISIONED_STATE_DIR));
+        assertThat(server.resolve(Constants.PROVISIONED_STATE_DIR)).doesNotExist();
+        createFile(Constants.PROVISIONED_STATE_DIR + "/hashes/p2", "new");
+        journal.restore();
+
+        assertThat(server.resolve(Constants.PROVISIONED_STATE_DIR + "/hashes/p1")).hasContent("old");
+        assertThat(server.resolve(Constants.PROVISIONED_STATE_DIR + "/hashes/p2")).doesNotExist();
+    }
+
+    @Test
+    public void rollbackInterruptedJournal() throws Exception {
+        final Path modified = createFile("modified.txt", "test text");
+        final Path deleted = createFile("deleted.txt", "test text");
+
+        journal.beforeWrite(Path.of("modified.txt"));
+        Files.writeString(modified, "changed");
+        journal.beforeDelete(Path.of("deleted.txt"));
+        Files.delete(deleted);
+        journal.beforeWrite(Path.of("added.txt"));
+        createFile("added.txt", "new");
+
+        // simulate a crash - the journal is left in the server
+        assertThat(ApplyStageJournal.exists(server)).isTrue();
+        assertThat(ApplyStageJournal.isCommitted(server)).isFalse();
+
+        ApplyStageJournal.rollback(server);
+
+        assertThat(modified).hasContent("test text");
+        assertThat(deleted).hasContent("test text");
+        assertThat(server.resolve("added.txt")).doesNotExist();
+        assertThat(ApplyStageJournal.exists(server)).isFalse();
+    }
+
+    @Test
+    public void committedJournalIsReported() throws Exception {
+        journal.commit();
+
+        assertThat(ApplyStageJournal.isCommitted(server)).isTrue();
+    }
+
+    private Path createFile(String path, String content) throws IOException {
+        final Path file = server.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
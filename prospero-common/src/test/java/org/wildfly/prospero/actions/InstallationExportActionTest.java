@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.Constants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.channel.MavenArtifact;
+import org.wildfly.channel.Stream;
+import org.wildfly.prospero.api.InstallationMetadata;
+import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.galleon.ArtifactCache;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+import org.wildfly.prospero.test.MetadataTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstallationExportActionTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private Path installation;
+    private Path bundle;
+
+    @Before
+    public void setUp() throws Exception {
+        installation = temp.newFolder().toPath();
+        bundle = temp.getRoot().toPath().resolve("bundle.zip");
+        final Path provisioningXml = installation.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONING_XML);
+        Files.createDirectories(provisioningXml.getParent());
+        Files.writeString(provisioningXml, "<installation xmlns=\"urn:jboss:galleon:provisioning:3.0\"/>");
+        MetadataTestUtils.createInstallationMetadata(installation,
+                MetadataTestUtils.createManifest(List.of(
+                        new Stream("org.test", "foo", "1.0.0"),
+                        new Stream("org.test", "bar", "1.0.0"))),
+                Collections.emptyList()).close();
+
+        Files.createDirectories(installation.resolve(ArtifactCache.CACHE_FOLDER));
+        recordArtifact("foo", "1.0.0", "modules/foo-1.0.0.jar");
+        // outdated cache record, doesn't match the manifest
+        recordArtifact("bar", "0.9.0", "modules/bar-0.9.0.jar");
+    }
+
+    @After
+    public void tearDown() {
+        ArtifactCache.cleanInstancesCache();
+    }
+
+    @Test
+    public void exportWithoutArtifactsContainsOnlyMetadata() throws Exception {
+        new InstallationExportAction(installation).export(bundle);
+
+        assertThat(listEntries(bundle))
+                .noneMatch(e -> e.startsWith(InstallationMetadata.BUNDLE_REPOSITORY_DIR));
+    }
+
+    @Test
+    public void exportWithArtifactsIncludesCachedManifestArtifacts() throws Exception {
+        new InstallationExportAction(installation).export(bundle, true);
+
+        assertThat(listEntries(bundle))
+                .filteredOn(e -> e.startsWith(InstallationMetadata.BUNDLE_REPOSITORY_DIR))
+                .containsExactly(InstallationMetadata.BUNDLE_REPOSITORY_DIR + "org/test/foo/1.0.0/foo-1.0.0.jar");
+    }
+
+    @Test
+    public void exportWithArtifactsIncludesOnlyMainArtifactsFromLocalRepository() throws Exception {
+        final Path localRepository = temp.newFolder("local-repository").toPath();
+        MavenOptions.builder().setLocalCachePath(localRepository).build()
+                .write(installation.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.MAVEN_OPTS_FILE));
+        final Path barDir = Files.createDirectories(localRepository.resolve("org/test/bar/1.0.0"));
+        Files.writeString(barDir.resolve("bar-1.0.0.jar"), "bar-1.0.0");
+        Files.writeString(barDir.resolve("bar-1.0.0-sources.jar"), "sources");
+        Files.writeString(barDir.resolve("bar-1.0.0.jar.sha1"), "checksum");
+
+        new InstallationExportAction(installation).export(bundle, true);
+
+        assertThat(listEntries(bundle))
+                .filteredOn(e -> e.startsWith(InstallationMetadata.BUNDLE_REPOSITORY_DIR))
+                .containsExactlyInAnyOrder(InstallationMetadata.BUNDLE_REPOSITORY_DIR + "org/test/foo/1.0.0/foo-1.0.0.jar",
+                        InstallationMetadata.BUNDLE_REPOSITORY_DIR + "org/test/bar/1.0.0/bar-1.0.0.jar");
+    }
+
+    @Test
+    public void bundledRepositoryIsDetected() throws Exception {
+        new InstallationExportAction(installation).export(bundle);
+        assertThat(InstallationMetadata.hasBundledRepository(bundle)).isFalse();
+
+        Files.delete(bundle);
+        new InstallationExportAction(installation).export(bundle, true);
+        assertThat(InstallationMetadata.hasBundledRepository(bundle)).isTrue();
+    }
+
+    @Test
+    public void extractBundledRepository() throws Exception {
+        new InstallationExportAction(installation).export(bundle, true);
+        final Path repository = temp.newFolder().toPath();
+
+        assertThat(InstallationMetadata.extractBundledRepository(bundle, repository)).isTrue();
+        assertThat(repository.resolve("org/test/foo/1.0.0/foo-1.0.0.jar"))
+                .hasContent("foo-1.0.0");
+    }
+
+    private void recordArtifact(String artifactId, String version, String path) throws Exception {
+        final Path file = installation.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, artifactId + "-" + version);
+        ArtifactCache.getInstance(installation).record(
+                new MavenArtifact("org.test", artifactId, "jar", null, version, file.toFile()), file);
+    }
+
+    private static List<String> listEntries(Path zip) throws Exception {
+        final List<String> entries = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            zipFile.stream().forEach(e -> entries.add(e.getName()));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.channel.MavenArtifact;
+import org.wildfly.prospero.galleon.ArtifactCache;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstallationReplicatorTest {
+
+    private static final String ARTIFACT_PATH = "modules/foo-1.0.0.jar";
+    private static final String CONFIG_PATH = "standalone/configuration/standalone.xml";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private Path installation;
+    private Path replica;
+
+    @Before
+    public void setUp() throws Exception {
+        installation = temp.newFolder("source").toPath();
+        replica = temp.getRoot().toPath().resolve("replica");
+
+        writeFile(CONFIG_PATH, "<server/>");
+        writeFile(ProsperoMetadataUtils.METADATA_DIR + "/.git/HEAD", "ref: refs/heads/master");
+        final Path artifact = writeFile(ARTIFACT_PATH, "foo-1.0.0");
+        Files.createDirectories(installation.resolve(ArtifactCache.CACHE_FOLDER));
+        ArtifactCache.getInstance(installation).record(
+                new MavenArtifact("org.test", "foo", "jar", null, "1.0.0", artifact.toFile()), artifact);
+    }
+
+    @After
+    public void tearDown() {
+        ArtifactCache.cleanInstancesCache();
+    }
+
+    @Test
+    public void copyInstallationWithoutHistory() throws Exception {
+        new InstallationReplicator(installation, false).replicate(replica);
+
+        assertThat(replica.resolve(CONFIG_PATH)).hasContent("<server/>");
+        assertThat(replica.resolve(ARTIFACT_PATH)).hasContent("foo-1.0.0");
+        assertThat(replica.resolve(ArtifactCache.CACHE_FOLDER)).isDirectory();
+        assertThat(replica.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(".git")).doesNotExist();
+        assertThat(isSameFile(ARTIFACT_PATH)).isFalse();
+    }
+
+    @Test
+    public void linkCachedArtifacts() throws Exception {
+        new InstallationReplicator(installation, true).replicate(replica);
+
+        assertThat(isSameFile(ARTIFACT_PATH)).isTrue();
+        assertThat(isSameFile(CONFIG_PATH)).isFalse();
+    }
+
+    @Test
+    public void modifiedArtifactsAreCopied() throws Exception {
+        writeFile(ARTIFACT_PATH, "modified");
+
+        new InstallationReplicator(installation, true).replicate(replica);
+
+        assertThat(isSameFile(ARTIFACT_PATH)).isFalse();
+        assertThat(replica.resolve(ARTIFACT_PATH)).hasContent("modified");
+    }
+
+    private boolean isSameFile(String path) throws Exception {
+        final Object sourceKey = Files.readAttributes(installation.resolve(path), BasicFileAttributes.class).fileKey();
+        final Object replicaKey = Files.readAttributes(replica.resolve(path), BasicFileAttributes.class).fileKey();
+        return sourceKey.equals(replicaKey);
+    }
+
+    private Path writeFile(String path, String content) throws Exception {
+        final Path file = installation.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
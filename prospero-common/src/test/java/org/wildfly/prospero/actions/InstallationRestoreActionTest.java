@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.ProvisioningException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.prospero.api.Console;
+import org.wildfly.prospero.api.MavenOptions;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class InstallationRestoreActionTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private Path installation;
+    private Path bundle;
+
+    @Before
+    public void setUp() throws Exception {
+        installation = temp.getRoot().toPath().resolve("server");
+        bundle = temp.getRoot().toPath().resolve("bundle.zip");
+    }
+
+    @Test
+    public void replicaCannotBeTheInstallationDir() throws Exception {
+        assertOverlappingReplicas(List.of(installation.resolve("..").resolve("server")));
+    }
+
+    @Test
+    public void replicaCannotBeNestedInTheInstallationDir() throws Exception {
+        assertOverlappingReplicas(List.of(installation.resolve("replica")));
+    }
+
+    @Test
+    public void replicasHaveToBeDistinct() throws Exception {
+        final Path replica = temp.getRoot().toPath().resolve("replica");
+
+        assertOverlappingReplicas(List.of(replica, replica.resolve(".").resolve("nested").resolve("..")));
+    }
+
+    private void assertOverlappingReplicas(List<Path> replicas) throws Exception {
+        final InstallationRestoreAction action = new InstallationRestoreAction(installation, MavenOptions.OFFLINE,
+                mock(Console.class));
+
+        assertThatThrownBy(() -> action.restore(bundle, Collections.emptyList(), replicas, false))
+                .isInstanceOf(ProvisioningException.class)
+                .hasMessageContaining("overlaps with");
+        assertThat(installation).doesNotExist();
+    }
+}
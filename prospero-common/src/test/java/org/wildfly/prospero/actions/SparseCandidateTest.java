@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.Constants;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SparseCandidateTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private Path installation;
+    private Path candidate;
+
+    @Before
+    public void setUp() throws Exception {
+        installation = temp.newFolder().toPath();
+        candidate = temp.newFolder().toPath();
+    }
+
+    @Test
+    public void fullCandidateHasNoOmittedFiles() throws Exception {
+        final SparseCandidate sparseCandidate = SparseCandidate.load(candidate);
+
+        assertThat(sparseCandidate.isSparse()).isFalse();
+        assertThat(sparseCandidate.isOmitted(Path.of("test.txt"))).isFalse();
+    }
+
+    @Test
+    public void readHashesRecord() throws Exception {
+        writeHashes(installation, "", "a.txt", "1111");
+        writeHashes(installation, "modules/foo", "b.jar", "2222");
+
+        assertThat(SparseCandidate.readHashes(installation))
+                .containsEntry("a.txt", "1111")
+                .containsEntry("modules/foo/b.jar", "2222")
+                .hasSize(2);
+    }
+
+    @Test
+    public void removeUnchangedFilesAndEmptyDirectories() throws Exception {
+        createFile(installation, "modules/foo/b.jar", "1111", "b");
+        createFile(candidate, "modules/foo/b.jar", "1111", "b");
+        createFile(installation, "bin/run.sh", "2222", "run");
+        createFile(candidate, "bin/run.sh", "3333", "run updated");
+
+        assertThat(SparseCandidate.sparsify(installation, candidate)).isEqualTo(1);
+
+        assertThat(candidate.resolve("modules")).doesNotExist();
+        assertThat(candidate.resolve("bin/run.sh")).hasContent("run updated");
+        final SparseCandidate sparseCandidate = SparseCandidate.load(candidate);
+        assertThat(sparseCandidate.isSparse()).isTrue();
+        assertThat(sparseCandidate.isOmitted(Path.of("modules", "foo", "b.jar"))).isTrue();
+        assertThat(sparseCandidate.isOmitted(Path.of("modules", "foo"))).isTrue();
+        assertThat(sparseCandidate.isOmitted(Path.of("bin", "run.sh"))).isFalse();
+    }
+
+    @Test
+    public void keepFilesRemovedFromInstallation() throws Exception {
+        createFile(installation, "modules/foo/b.jar", "1111", "b");
+        createFile(candidate, "modules/foo/b.jar", "1111", "b");
+        Files.delete(installation.resolve("modules/foo/b.jar"));
+
+        assertThat(SparseCandidate.sparsify(installation, candidate)).isEqualTo(0);
+
+        assertThat(candidate.resolve("modules/foo/b.jar")).exists();
+    }
+
+    private static void createFile(Path server, String path, String hash, String content) throws IOException {
+        final Path file = server.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        final Path relative = Path.of(path);
+        writeHashes(server, relative.getParent() == null ? "" : relative.getParent().toString(), relative.getFileName().toString(), hash);
+    }
+
+    private static void writeHashes(Path server, String dir, String name, String hash) throws IOException {
+        final Path hashesDir = server.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES).resolve(dir);
+        Files.createDirectories(hashesDir);
+        Files.writeString(hashesDir.resolve(Constants.HASHES), name + "\n" + hash + "\n");
+    }
+}
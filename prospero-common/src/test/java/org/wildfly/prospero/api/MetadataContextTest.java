@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.Stream;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+import org.wildfly.prospero.test.MetadataTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MetadataContextTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private Path installation;
+
+    @Before
+    public void setUp() throws Exception {
+        installation = temp.newFolder().toPath();
+        MetadataTestUtils.createInstallationMetadata(installation).close();
+    }
+
+    @Test
+    public void historyStorageIsOpenedOncePerContext() throws Exception {
+        try (MetadataContext context = MetadataContext.open()) {
+            try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installation)) {
+                assertThat(metadata.getRevisions()).hasSize(1);
+            }
+            try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installation);
+                 InstallationMetadata other = InstallationMetadata.loadInstallation(installation)) {
+                assertThat(metadata.getRevisions()).hasSize(1);
+                other.close();
+                // closing one of the handles doesn't close the shared storage
+                assertThat(metadata.getLatestRevision()).isNotNull();
+            }
+
+            assertThat(context.getOpenedStorages()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void changedFilesAreParsedAgain() throws Exception {
+        final Path manifestFile = installation.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME);
+        final AtomicInteger parsed = new AtomicInteger();
+        final MetadataContext.Reader<String> reader = () -> {
+            parsed.incrementAndGet();
+            return "parsed";
+        };
+        try (MetadataContext ignored = MetadataContext.open()) {
+            MetadataContext.read(String.class, reader, UnaryOperator.identity(), manifestFile);
+            MetadataContext.read(String.class, reader, UnaryOperator.identity(), manifestFile);
+            assertThat(parsed).hasValue(1);
+
+            Files.writeString(manifestFile,
+                    ChannelManifestMapper.toYaml(new ChannelManifest("test", "test-id", "", List.of(new Stream("org.test", "test", "1.0.1")))));
+
+            MetadataContext.read(String.class, reader, UnaryOperator.identity(), manifestFile);
+            assertThat(parsed).hasValue(2);
+
+            try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installation)) {
+                assertThat(metadata.getManifest().getStreams())
+                        .map(Stream::getVersion)
+                        .containsExactly("1.0.1");
+            }
+        }
+    }
+
+    @Test
+    public void nestedContextJoinsOuterContext() throws Exception {
+        try (MetadataContext outer = MetadataContext.open()) {
+            try (MetadataContext inner = MetadataContext.open()) {
+                assertThat(inner).isSameAs(outer);
+                InstallationMetadata.loadInstallation(installation).close();
+            }
+            InstallationMetadata.loadInstallation(installation).close();
+
+            assertThat(outer.getOpenedStorages()).isEqualTo(1);
+        }
+
+        try (MetadataContext context = MetadataContext.open()) {
+            assertThat(context.getOpenedStorages()).isZero();
+        }
+    }
+
+    @Test
+    public void detachedContextKeepsMetadataBetweenAttachments() throws Exception {
+        final MetadataContext context = MetadataContext.create();
+        try {
+            final ChannelManifest manifest;
+            try (MetadataContext ignored = context.attach();
+                 InstallationMetadata metadata = InstallationMetadata.loadInstallation(installation)) {
+                manifest = metadata.getManifest();
+            }
+
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final Thread thread = new Thread(() -> {
+                try (MetadataContext ignored = context.attach();
+                     InstallationMetadata metadata = InstallationMetadata.loadInstallation(installation)) {
+                    assertThat(metadata.getManifest()).isEqualTo(manifest);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            thread.start();
+            thread.join();
+            if (failure.get() != null) {
+                throw new AssertionError("Reading the metadata in another thread failed", failure.get());
+            }
+
+            assertThat(context.getOpenedStorages()).isEqualTo(1);
+            // the context is detached from the thread after the operation
+            try (MetadataContext other = MetadataContext.open()) {
+                assertThat(other).isNotSameAs(context);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test
+    public void cachedValuesAreCopied() throws Exception {
+        try (MetadataContext ignored = MetadataContext.open()) {
+            try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installation)) {
+                metadata.getProsperoConfig().getChannels().clear();
+            }
+            try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installation)) {
+                assertThat(metadata.getProsperoConfig().getChannels()).isNotEmpty();
+            }
+        }
+    }
+
+    @Test
+    public void releasedStorageIsOpenedAgain() throws Exception {
+        try (MetadataContext context = MetadataContext.open()) {
+            final InstallationMetadata metadata = InstallationMetadata.loadInstallation(installation);
+
+            MetadataContext.release(installation);
+            // the storage is still used by the metadata
+            assertThat(metadata.getLatestRevision()).isNotNull();
+            metadata.close();
+
+            InstallationMetadata.loadInstallation(installation).close();
+            assertThat(context.getOpenedStorages()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void contextCannotBeAttachedTwice() {
+        final MetadataContext context = MetadataContext.create();
+        try (MetadataContext ignored = context.attach()) {
+            assertThatThrownBy(context::attach).isInstanceOf(IllegalStateException.class);
+        } finally {
+            context.close();
+        }
+    }
+}
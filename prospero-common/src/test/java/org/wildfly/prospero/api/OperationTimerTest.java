@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OperationTimerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @After
+    public void tearDown() {
+        OperationTimer.current().ifPresent(OperationTimer::close);
+    }
+
+    @Test
+    public void phasesAreReportedInStartOrder() throws Exception {
+        final OperationTimer timer = OperationTimer.start("test");
+        try (OperationTimer.Phase phase = OperationTimer.phase(OperationTimer.ARTIFACT_DOWNLOAD)) {
+            phase.addBytes(100);
+            phase.addItems(2);
+        }
+        try (OperationTimer.Phase ignored = OperationTimer.phase(OperationTimer.APPLY)) {
+            // no counters
+        }
+        timer.close();
+
+        final JsonNode report = mapper.readTree(timer.toJson());
+        assertThat(report.get("operation").asText()).isEqualTo("test");
+        assertThat(report.get("phases")).hasSize(2);
+        assertThat(report.get("phases").get(0).get("name").asText()).isEqualTo(OperationTimer.ARTIFACT_DOWNLOAD);
+        assertThat(report.get("phases").get(0).get("bytes").asLong()).isEqualTo(100);
+        assertThat(report.get("phases").get(0).get("items").asLong()).isEqualTo(2);
+        assertThat(report.get("phases").get(1).get("name").asText()).isEqualTo(OperationTimer.APPLY);
+        assertThat(report.get("phases").get(1).get("bytes").asLong()).isEqualTo(0);
+    }
+
+    @Test
+    public void nestedPhaseWithSameNameAddsToRunningPhase() throws Exception {
+        final OperationTimer timer = OperationTimer.start("test");
+        try (OperationTimer.Phase outer = OperationTimer.phase(OperationTimer.CACHE_POPULATION)) {
+            outer.addItems(1);
+            try (OperationTimer.Phase inner = OperationTimer.phase(OperationTimer.CACHE_POPULATION)) {
+                inner.addItems(1);
+            }
+            try (OperationTimer.Phase other = OperationTimer.phase(OperationTimer.CHANNEL_RESOLUTION)) {
+                other.addItems(5);
+            }
+        }
+        timer.close();
+
+        final JsonNode phases = mapper.readTree(timer.toJson()).get("phases");
+        assertThat(phases).hasSize(2);
+        assertThat(phases.get(0).get("name").asText()).isEqualTo(OperationTimer.CACHE_POPULATION);
+        assertThat(phases.get(0).get("items").asLong()).isEqualTo(2);
+        assertThat(phases.get(1).get("items").asLong()).isEqualTo(5);
+    }
+
+    @Test
+    public void phasesAreIgnoredWithoutTimer() {
+        try (OperationTimer.Phase phase = OperationTimer.phase(OperationTimer.APPLY)) {
+            phase.addItems(1);
+        }
+
+        assertThat(OperationTimer.current()).isEmpty();
+    }
+
+    @Test
+    public void reportIsSavedInChangedInstallation() throws Exception {
+        final Path metadataDir = temp.newFolder().toPath();
+
+        try (OperationTimer ignored = OperationTimer.start("test")) {
+            try (OperationTimer.Phase phase = OperationTimer.phase(OperationTimer.HISTORY_RECORD)) {
+                OperationTimer.installationChanged(metadataDir);
+            }
+        }
+
+        assertThat(OperationTimer.current()).isEmpty();
+        final JsonNode report = mapper.readTree(Files.readString(metadataDir.resolve(OperationTimer.TIMINGS_FILE)));
+        assertThat(report.get("phases").get(0).get("name").asText()).isEqualTo(OperationTimer.HISTORY_RECORD);
+    }
+
+    @Test
+    public void reportIsNotSavedIfNoInstallationChanged() throws Exception {
+        final Path metadataDir = temp.newFolder().toPath();
+
+        try (OperationTimer timer = OperationTimer.start("test")) {
+            assertThat(timer.getInstallationMetadataDir()).isEmpty();
+        }
+
+        assertThat(metadataDir.resolve(OperationTimer.TIMINGS_FILE)).doesNotExist();
+    }
+
+    @Test
+    public void registeredResourcesAreClosedWithTimer() {
+        final AtomicInteger closed = new AtomicInteger();
+        final OperationTimer timer = OperationTimer.start("test");
+
+        timer.closeOnFinish(closed::incrementAndGet);
+        assertThat(closed).hasValue(0);
+
+        timer.close();
+        assertThat(closed).hasValue(1);
+
+        // the operation is already finished
+        timer.closeOnFinish(closed::incrementAndGet);
+        assertThat(closed).hasValue(2);
+    }
+}
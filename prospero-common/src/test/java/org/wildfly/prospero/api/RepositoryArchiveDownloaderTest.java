@@ -0,0 +1,297 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import io.undertow.Undertow;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RepositoryArchiveDownloaderTest {
+
+    private static final int PORT = 8889;
+    private static final String ARCHIVE = "/repo.zip";
+    private static final int CHUNK_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final byte[] content = new byte[10 * CHUNK_SIZE + 100];
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private final AtomicInteger fullRequests = new AtomicInteger();
+    private volatile int failingChunk = -1;
+    private final AtomicInteger chunkFailures = new AtomicInteger();
+    private volatile boolean supportsRanges = true;
+    private volatile String etag = "\"v1\"";
+    private volatile String checksum;
+    private Undertow server;
+    private Path cacheDir;
+    private URL url;
+
+    @Before
+    public void setUp() throws Exception {
+        new Random(1).nextBytes(content);
+        checksum = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        cacheDir = temp.newFolder("cache").toPath();
+        url = new URL("http://localhost:" + PORT + ARCHIVE);
+        server = Undertow.builder()
+                .addHttpListener(PORT, "localhost")
+                .setHandler(this::handle)
+                .build();
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void downloadArchiveInParallelChunks() throws Exception {
+        final Path archive = downloader().download(url);
+
+        assertThat(Files.readAllBytes(archive)).isEqualTo(content);
+        assertThat(rangeRequests.get()).isEqualTo(11);
+        assertThat(fullRequests.get()).isZero();
+    }
+
+    @Test
+    public void reuseCachedArchiveWithSameETag() throws Exception {
+        final Path archive = downloader().download(url);
+        rangeRequests.set(0);
+
+        assertThat(downloader().download(url)).isEqualTo(archive);
+        assertThat(rangeRequests.get()).isZero();
+    }
+
+    @Test
+    public void downloadAgainIfETagChanges() throws Exception {
+        final Path old = downloader().download(url);
+        rangeRequests.set(0);
+        etag = "\"v2\"";
+
+        final Path archive = downloader().download(url);
+
+        assertThat(archive).isNotEqualTo(old);
+        assertThat(old).doesNotExist();
+        assertThat(rangeRequests.get()).isEqualTo(11);
+    }
+
+    @Test
+    public void resumeInterruptedDownload() throws Exception {
+        failingChunk = 5;
+        chunkFailures.set(Integer.MAX_VALUE);
+        assertThatThrownBy(() -> new RepositoryArchiveDownloader(cacheDir, 1, CHUNK_SIZE).download(url))
+                .isInstanceOf(IOException.class);
+        // the chunks started before the failure are finished and recorded
+        final int downloadedChunks = rangeRequests.get() - RepositoryArchiveDownloader.CHUNK_ATTEMPTS;
+        assertThat(downloadedChunks).isGreaterThanOrEqualTo(5);
+        failingChunk = -1;
+        rangeRequests.set(0);
+
+        final Path archive = downloader().download(url);
+
+        assertThat(Files.readAllBytes(archive)).isEqualTo(content);
+        assertThat(rangeRequests.get()).isEqualTo(11 - downloadedChunks);
+    }
+
+    @Test
+    public void retryFailedChunk() throws Exception {
+        failingChunk = 5;
+        chunkFailures.set(RepositoryArchiveDownloader.CHUNK_ATTEMPTS - 1);
+
+        final Path archive = downloader().download(url);
+
+        assertThat(Files.readAllBytes(archive)).isEqualTo(content);
+        assertThat(rangeRequests.get()).isEqualTo(11 + RepositoryArchiveDownloader.CHUNK_ATTEMPTS - 1);
+    }
+
+    @Test
+    public void ignoreMalformedChunkRecords() throws Exception {
+        failingChunk = 5;
+        chunkFailures.set(Integer.MAX_VALUE);
+        assertThatThrownBy(() -> new RepositoryArchiveDownloader(cacheDir, 1, CHUNK_SIZE).download(url))
+                .isInstanceOf(IOException.class);
+        final Path chunks;
+        try (var files = Files.walk(cacheDir)) {
+            chunks = files.filter(f -> f.toString().endsWith(RepositoryArchiveDownloader.CHUNKS_SUFFIX)).findFirst().orElseThrow();
+        }
+        // a chunk number out of range, a malformed line and a line torn by an interrupted write
+        Files.writeString(chunks, "99\nfoo\n1", StandardOpenOption.APPEND);
+        failingChunk = -1;
+
+        final Path archive = downloader().download(url);
+
+        assertThat(Files.readAllBytes(archive)).isEqualTo(content);
+    }
+
+    @Test
+    public void downloadAgainIfCachedArchiveIsCorrupted() throws Exception {
+        final Path archive = downloader().download(url);
+        final byte[] corrupted = content.clone();
+        corrupted[0]++;
+        Files.write(archive, corrupted);
+        rangeRequests.set(0);
+
+        assertThat(downloader().download(url)).isEqualTo(archive);
+        assertThat(Files.readAllBytes(archive)).isEqualTo(content);
+        assertThat(rangeRequests.get()).isEqualTo(11);
+    }
+
+    @Test
+    public void verifiedChecksumIsReusedUntilArchiveIsModified() throws Exception {
+        final Path archive = downloader().download(url);
+        assertThat(archive.resolveSibling(archive.getFileName() + RepositoryArchiveDownloader.VERIFIED_SUFFIX))
+                .content().contains(checksum);
+        // modify the content, but keep the size and the modification time of the verified archive
+        final FileTime lastModified = Files.getLastModifiedTime(archive);
+        final byte[] modified = content.clone();
+        modified[0]++;
+        Files.write(archive, modified);
+        Files.setLastModifiedTime(archive, lastModified);
+        rangeRequests.set(0);
+
+        assertThat(downloader().download(url)).isEqualTo(archive);
+        assertThat(rangeRequests.get()).isZero();
+        assertThat(Files.readAllBytes(archive)).isEqualTo(modified);
+    }
+
+    @Test
+    public void lockedOutdatedArchiveIsNotRemoved() throws Exception {
+        final Path old = downloader().download(url);
+        final ReentrantLock lock = RepositoryArchiveDownloader.getLock(old.resolveSibling(old.getFileName() + RepositoryArchiveDownloader.LOCK_SUFFIX));
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread holder = new Thread(() -> {
+            lock.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            etag = "\"v2\"";
+            downloader().download(url);
+            assertThat(old).exists();
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        etag = "\"v3\"";
+        downloader().download(url);
+        assertThat(old).doesNotExist();
+    }
+
+    @Test
+    public void downloadWholeArchiveIfRangesAreNotSupported() throws Exception {
+        supportsRanges = false;
+
+        final Path archive = downloader().download(url);
+
+        assertThat(Files.readAllBytes(archive)).isEqualTo(content);
+        assertThat(fullRequests.get()).isEqualTo(1);
+        assertThat(rangeRequests.get()).isZero();
+    }
+
+    @Test
+    public void failIfChecksumDoesNotMatch() throws Exception {
+        checksum = "abcd";
+
+        assertThatThrownBy(() -> downloader().download(url))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("abcd");
+        try (var files = Files.walk(cacheDir)) {
+            assertThat(files.filter(f -> f.toString().endsWith(RepositoryArchiveDownloader.ARCHIVE_SUFFIX))).isEmpty();
+        }
+    }
+
+    private RepositoryArchiveDownloader downloader() {
+        return new RepositoryArchiveDownloader(cacheDir, 4, CHUNK_SIZE);
+    }
+
+    private void handle(HttpServerExchange exchange) {
+        if (exchange.getRequestPath().equals(ARCHIVE + ".sha256")) {
+            exchange.getResponseSender().send(checksum + "  repo.zip");
+            return;
+        }
+        if (!exchange.getRequestPath().equals(ARCHIVE)) {
+            exchange.setStatusCode(404);
+            exchange.endExchange();
+            return;
+        }
+
+        exchange.getResponseHeaders().put(Headers.ETAG, etag);
+        if (supportsRanges) {
+            exchange.getResponseHeaders().put(Headers.ACCEPT_RANGES, "bytes");
+        }
+        if (exchange.getRequestMethod().equals(Methods.HEAD)) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, content.length);
+            exchange.endExchange();
+            return;
+        }
+
+        final String range = exchange.getRequestHeaders().getFirst(Headers.RANGE);
+        if (supportsRanges && range != null) {
+            rangeRequests.incrementAndGet();
+            final String[] bounds = range.substring("bytes=".length()).split("-");
+            final int start = Integer.parseInt(bounds[0]);
+            final int end = Integer.parseInt(bounds[1]);
+            if (start == failingChunk * CHUNK_SIZE && chunkFailures.getAndDecrement() > 0) {
+                exchange.setStatusCode(500);
+                exchange.endExchange();
+                return;
+            }
+            exchange.setStatusCode(206);
+            exchange.getResponseHeaders().put(new HttpString("Content-Range"), "bytes " + start + "-" + end + "/" + content.length);
+            exchange.getResponseSender().send(ByteBuffer.wrap(content, start, end - start + 1));
+        } else {
+            fullRequests.incrementAndGet();
+            exchange.getResponseSender().send(ByteBuffer.wrap(content));
+        }
+    }
+}
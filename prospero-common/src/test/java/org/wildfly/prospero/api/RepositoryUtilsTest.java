@@ -29,9 +29,12 @@ import org.wildfly.prospero.api.exceptions.InvalidRepositoryArchiveException;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
 
 import static io.undertow.Handlers.resource;
@@ -45,14 +48,27 @@ public class RepositoryUtilsTest {
     public TemporaryFolder temp = new TemporaryFolder();
 
     @Test
-    public void unzipArchiveBeforeUsingIt() throws Exception {
+    public void mapArchiveWithoutExtractingIt() throws Exception {
         final Path repoRoot = temp.newFolder("repo").toPath();
         final Path zipFile = createRepository(repoRoot);
 
         final List<Repository> repositories = applyOverride(List.of(repo("temp-0", zipFile.toUri().toString())));
 
-        assertThat(Path.of(new URL(repositories.get(0).getUrl()).toURI()).resolve("test.txt"))
-                .hasContent("test text");
+        assertThat(repositories.get(0).getUrl()).startsWith("jar:" + zipFile.toUri());
+        assertThat(readFromArchive(repositories.get(0).getUrl(), "test.txt"))
+                .isEqualTo("test text");
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void deprecatedUnzipArchivesMapsArchive() throws Exception {
+        final Path zipFile = createRepository(temp.newFolder("repo").toPath());
+
+        try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.newInstance()) {
+            final List<Repository> repositories = RepositoryUtils.unzipArchives(List.of(repo("temp-0", zipFile.toUri().toString())), temporaryFiles);
+
+            assertThat(repositories.get(0).getUrl()).startsWith("jar:" + zipFile.toUri());
+        }
     }
 
     @Test
@@ -98,15 +114,17 @@ public class RepositoryUtilsTest {
                         .setMimeMappings(MimeMappings.DEFAULT)
                         .setDirectoryListingEnabled(true))
                 .build();
+        System.setProperty(RepositoryArchiveDownloader.CACHE_DIR_PROPERTY, temp.newFolder("archive-cache").toString());
         try {
             server.start();
 
             final List<Repository> repositories = applyOverride(List.of(repo("temp-0", "http://localhost:8888/test.zip")));
 
-            assertThat(Path.of(new URL(repositories.get(0).getUrl()).toURI()).resolve("test.txt"))
-                    .hasContent("test text");
+            assertThat(readFromArchive(repositories.get(0).getUrl(), "test.txt"))
+                    .isEqualTo("test text");
         } finally {
             server.stop();
+            System.clearProperty(RepositoryArchiveDownloader.CACHE_DIR_PROPERTY);
         }
     }
 
@@ -158,6 +176,13 @@ public class RepositoryUtilsTest {
                 .isInstanceOf(InvalidRepositoryArchiveException.class);
     }
 
+    private static String readFromArchive(String url, String file) throws IOException {
+        final URI uri = URI.create(url);
+        try (FileSystem zipFs = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
+            return Files.readString(zipFs.provider().getPath(uri).resolve(file));
+        }
+    }
+
     private Path createRepository(Path repoRoot) throws IOException {
         Files.createDirectory(repoRoot.resolve("test-repository"));
         Files.createDirectory(repoRoot.resolve("test-repository").resolve("maven-repository"));
@@ -180,6 +205,6 @@ public class RepositoryUtilsTest {
     }
 
     private static List<Repository> applyOverride(List<Repository> overrideRepositories) throws InvalidRepositoryArchiveException {
-        return RepositoryUtils.unzipArchives(overrideRepositories, TemporaryFilesManager.newInstance());
+        return RepositoryUtils.mapArchives(overrideRepositories);
     }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class TransferMetricsTest {
+
+    private static final String RESOURCE = "org/test/foo/1.0.0/foo-1.0.0.jar";
+
+    @Test
+    public void repeatedTransferIsRecordedAsRetry() {
+        final TransferMetrics metrics = new TransferMetrics();
+
+        metrics.transferStarted("central", RESOURCE);
+        metrics.checksumFailed("central", RESOURCE);
+        metrics.transferStarted("central", RESOURCE);
+        metrics.transferSucceeded("central", RESOURCE, 100, Duration.ofMillis(10));
+
+        final TransferMetrics.RepositoryStatistics statistics = metrics.getRepositories().get("central");
+        assertEquals(1, statistics.getTransfers());
+        assertEquals(1, statistics.getRetries());
+        assertEquals(1, statistics.getChecksumFailures());
+        assertEquals(100, statistics.getBytes());
+    }
+
+    @Test
+    public void repeatedFetchOfFinishedTransferIsNotRetry() {
+        final TransferMetrics metrics = new TransferMetrics();
+
+        metrics.transferStarted("central", RESOURCE);
+        metrics.transferSucceeded("central", RESOURCE, 100, Duration.ofMillis(10));
+        metrics.transferStarted("central", RESOURCE);
+        metrics.transferSucceeded("central", RESOURCE, 100, Duration.ofMillis(10));
+        metrics.transferStarted("central", "org/test/bar/1.0.0/bar-1.0.0.jar");
+        metrics.notFound("central", "org/test/bar/1.0.0/bar-1.0.0.jar");
+        metrics.transferStarted("central", "org/test/bar/1.0.0/bar-1.0.0.jar");
+        metrics.notFound("central", "org/test/bar/1.0.0/bar-1.0.0.jar");
+
+        assertEquals(0, metrics.getRepositories().get("central").getRetries());
+        assertEquals(2, metrics.getRepositories().get("central").getTransfers());
+    }
+
+    @Test
+    public void keepOnlyFirstResolvedElsewhere() {
+        final TransferMetrics metrics = new TransferMetrics();
+
+        for (int i = 0; i < TransferMetrics.RESOLVED_ELSEWHERE + 5; i++) {
+            metrics.notFound("mirror", "artifact-" + i);
+            metrics.transferSucceeded("central", "artifact-" + i, 1, Duration.ofMillis(1));
+        }
+        final TransferMetrics other = new TransferMetrics();
+        other.notFound("mirror", "other");
+        other.transferSucceeded("central", "other", 1, Duration.ofMillis(1));
+        metrics.add(other);
+
+        assertThat(metrics.getResolvedElsewhere())
+                .hasSize(TransferMetrics.RESOLVED_ELSEWHERE)
+                .first()
+                .hasFieldOrPropertyWithValue("resource", "artifact-0");
+        assertEquals(TransferMetrics.RESOLVED_ELSEWHERE + 6, metrics.getRepositories().get("mirror").getResolvedElsewhere());
+    }
+
+    @Test
+    public void keepOnlySlowestTransfers() {
+        final TransferMetrics metrics = new TransferMetrics();
+
+        for (int i = 0; i < TransferMetrics.SLOWEST_TRANSFERS + 5; i++) {
+            metrics.transferSucceeded("central", "artifact-" + i, 1, Duration.ofMillis(i));
+        }
+
+        assertThat(metrics.getSlowestTransfers())
+                .hasSize(TransferMetrics.SLOWEST_TRANSFERS)
+                .first()
+                .hasFieldOrPropertyWithValue("resource", "artifact-" + (TransferMetrics.SLOWEST_TRANSFERS + 4));
+        assertThat(metrics.getSlowestTransfers().get(TransferMetrics.SLOWEST_TRANSFERS - 1).getResource())
+                .isEqualTo("artifact-5");
+    }
+
+    @Test
+    public void notFoundResourceResolvedFromAnotherRepository() {
+        final TransferMetrics metrics = new TransferMetrics();
+
+        metrics.notFound("mirror-one", RESOURCE);
+        metrics.notFound("mirror-two", RESOURCE);
+        metrics.notFound("mirror-one", "org/test/bar/1.0.0/bar-1.0.0.jar");
+        metrics.transferSucceeded("central", RESOURCE, 100, Duration.ofMillis(10));
+
+        assertThat(metrics.getResolvedElsewhere()).singleElement()
+                .satisfies(r -> {
+                    assertEquals(RESOURCE, r.getResource());
+                    assertThat(r.getMissingIn()).containsExactly("mirror-one", "mirror-two");
+                    assertEquals("central", r.getResolvedFrom());
+                });
+        assertEquals(2, metrics.getRepositories().get("mirror-one").getNotFound());
+        assertEquals(1, metrics.getRepositories().get("mirror-one").getResolvedElsewhere());
+    }
+
+    @Test
+    public void addMetrics() {
+        final TransferMetrics metrics = new TransferMetrics();
+        metrics.transferSucceeded("central", RESOURCE, 100, Duration.ofMillis(10));
+        final TransferMetrics other = new TransferMetrics();
+        other.transferSucceeded("central", "org/test/bar/1.0.0/bar-1.0.0.jar", 50, Duration.ofMillis(20));
+        other.cacheHit("local");
+
+        metrics.add(other);
+
+        assertEquals(2, metrics.getRepositories().get("central").getTransfers());
+        assertEquals(1, metrics.getRepositories().get("local").getCacheHits());
+        assertEquals(150, metrics.getTotals().getBytes());
+        assertEquals(Duration.ofMillis(30), metrics.getTotals().getDuration());
+        assertThat(metrics.getSlowestTransfers()).extracting(TransferMetrics.Transfer::getBytes).containsExactly(50L, 100L);
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.galleon;
+
+import org.jboss.galleon.Constants;
+import org.jboss.galleon.ProvisioningException;
+import org.jboss.galleon.api.GalleonBuilder;
+import org.jboss.galleon.api.Provisioning;
+import org.jboss.galleon.api.config.GalleonProvisioningConfig;
+import org.jboss.galleon.config.ConfigModel;
+import org.jboss.galleon.config.FeatureConfig;
+import org.jboss.galleon.creator.FeaturePackCreator;
+import org.jboss.galleon.diff.FsDiff;
+import org.jboss.galleon.plugin.InstallPlugin;
+import org.jboss.galleon.repo.RepositoryArtifactResolver;
+import org.jboss.galleon.runtime.ProvisioningRuntime;
+import org.jboss.galleon.spec.FeatureParameterSpec;
+import org.jboss.galleon.spec.FeatureSpec;
+import org.jboss.galleon.state.ProvisionedConfig;
+import org.jboss.galleon.universe.FeaturePackLocation;
+import org.jboss.galleon.universe.maven.repo.SimplisticMavenRepoManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConfigGenerationCacheTest {
+
+    private static final String GENERATION_LOG_PROPERTY = "prospero.test.generation-log";
+    private static final GalleonProvisioningConfig PROVISIONING_CONFIG = provisioningConfig("org.test:pack-two:1.0.0");
+    private static final Path STANDALONE_XML = Path.of("standalone", "configuration", "standalone.xml");
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private RepositoryArtifactResolver repo;
+    private Path generationLog;
+    private ConfigGenerationCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        repo = SimplisticMavenRepoManager.getInstance(temp.newFolder("repository").toPath());
+        generationLog = temp.newFile("generation.log").toPath();
+        System.setProperty(GENERATION_LOG_PROPERTY, generationLog.toString());
+        cache = new ConfigGenerationCache(temp.newFolder("config-cache").toPath());
+
+        createFeaturePacks("1.0.0", "config 1.0.0");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(GENERATION_LOG_PROPERTY);
+    }
+
+    @Test
+    public void cacheMissGeneratesConfigs() throws Exception {
+        final Path server = provision(PROVISIONING_CONFIG);
+
+        assertThat(Files.readAllLines(generationLog)).containsExactly("standalone.xml");
+        assertThat(server.resolve(STANDALONE_XML)).hasContent("standalone.xml");
+        assertThat(server.resolve("modules/subsystem.txt")).exists();
+    }
+
+    @Test
+    public void cacheHitCopiesConfigsWithoutGeneratingThem() throws Exception {
+        final Path first = provision(PROVISIONING_CONFIG);
+        final Path second = provision(PROVISIONING_CONFIG);
+
+        assertThat(Files.readAllLines(generationLog)).containsExactly("standalone.xml");
+        assertThat(second.resolve(STANDALONE_XML)).hasSameTextualContentAs(first.resolve(STANDALONE_XML));
+        // the package is required only by the feature of the excluded config
+        assertThat(second.resolve("modules/subsystem.txt")).exists();
+        assertThat(second.resolve("bin/run.sh")).exists();
+        assertThat(second.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONED_STATE_XML))
+                .hasSameTextualContentAs(first.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONED_STATE_XML));
+        assertThat(second.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONING_XML))
+                .hasSameTextualContentAs(first.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONING_XML));
+
+        final FsDiff fsDiff = getFsDiff(second);
+        assertThat(fsDiff.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void changedFeaturePackGeneratesConfigsAgain() throws Exception {
+        provision(PROVISIONING_CONFIG);
+        createFeaturePacks("1.0.1", "config 1.0.1");
+
+        provision(provisioningConfig("org.test:pack-two:1.0.1"));
+
+        assertThat(Files.readAllLines(generationLog)).containsExactly("standalone.xml", "standalone.xml");
+    }
+
+    @Test
+    public void cacheHitMatchesFreshProvisioning() throws Exception {
+        provision(PROVISIONING_CONFIG);
+        final Path cached = provision(PROVISIONING_CONFIG);
+        final Path fresh = temp.newFolder().toPath();
+        try (Provisioning provisioning = newProvisioning(fresh)) {
+            provisioning.provision(PROVISIONING_CONFIG, Collections.emptyMap());
+        }
+
+        assertThat(Files.readAllLines(generationLog)).containsExactly("standalone.xml", "standalone.xml");
+        assertThat(listFiles(cached)).isEqualTo(listFiles(fresh));
+        for (Path file : listFiles(fresh)) {
+            assertThat(cached.resolve(file)).hasSameBinaryContentAs(fresh.resolve(file));
+        }
+    }
+
+    @Test
+    public void digestDependsOnProvisioningConfig() throws Exception {
+        try (Provisioning provisioning = newProvisioning(temp.newFolder().toPath())) {
+            final String digest = cache.digest(provisioning, PROVISIONING_CONFIG, Collections.emptyMap());
+
+            assertThat(cache.digest(provisioning, PROVISIONING_CONFIG, Collections.emptyMap())).isEqualTo(digest);
+            assertThat(cache.digest(provisioning, GalleonProvisioningConfig.builder(PROVISIONING_CONFIG)
+                    .addOption("test-option", "true")
+                    .build(), Collections.emptyMap()))
+                    .isNotEqualTo(digest);
+        }
+    }
+
+    @Test
+    public void digestDependsOnOptions() throws Exception {
+        try (Provisioning provisioning = newProvisioning(temp.newFolder().toPath())) {
+            final String digest = cache.digest(provisioning, PROVISIONING_CONFIG, Map.of("test-option", "true"));
+
+            assertThat(cache.digest(provisioning, PROVISIONING_CONFIG, Map.of("test-option", "true"))).isEqualTo(digest);
+            assertThat(cache.digest(provisioning, PROVISIONING_CONFIG, Map.of("test-option", "false"))).isNotEqualTo(digest);
+            assertThat(cache.digest(provisioning, PROVISIONING_CONFIG, Collections.emptyMap())).isNotEqualTo(digest);
+        }
+    }
+
+    @Test
+    public void cacheIsDisabledByDefault() {
+        assertThat(ConfigGenerationCache.getDefault()).isNull();
+
+        System.setProperty(ConfigGenerationCache.ENABLED_PROPERTY, "true");
+        System.setProperty(ConfigGenerationCache.CACHE_DIR_PROPERTY, temp.getRoot().toString());
+        try {
+            assertThat(ConfigGenerationCache.getDefault()).isNotNull();
+        } finally {
+            System.clearProperty(ConfigGenerationCache.ENABLED_PROPERTY);
+            System.clearProperty(ConfigGenerationCache.CACHE_DIR_PROPERTY);
+        }
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).map(dir::relativize).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private Path provision(GalleonProvisioningConfig config) throws Exception {
+        final Path server = temp.newFolder().toPath();
+        try (Provisioning provisioning = newProvisioning(server)) {
+            cache.provision(provisioning, config, Collections.emptyMap());
+        }
+        return server;
+    }
+
+    private FsDiff getFsDiff(Path server) throws Exception {
+        try (Provisioning provisioning = newProvisioning(server)) {
+            return provisioning.getFsDiff();
+        }
+    }
+
+    private Provisioning newProvisioning(Path server) throws ProvisioningException {
+        return new GalleonBuilder()
+                .addArtifactResolver(repo)
+                .newProvisioningBuilder()
+                .setInstallationHome(server)
+                .setRecordState(true)
+                .build();
+    }
+
+    private static GalleonProvisioningConfig provisioningConfig(String fpl) {
+        try {
+            return GalleonProvisioningConfig.builder()
+                    .addFeaturePackDep(FeaturePackLocation.fromString(fpl))
+                    .build();
+        } catch (ProvisioningException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void createFeaturePacks(String version, String packageContent) throws Exception {
+        final FeaturePackCreator creator = FeaturePackCreator.getInstance().addArtifactResolver(repo);
+        creator.newFeaturePack(FeaturePackLocation.fromString("org.test:pack-one:" + version).getFPID())
+                .addFeatureSpec(FeatureSpec.builder("subsystem")
+                        .addParam(FeatureParameterSpec.createId("name"))
+                        .addPackageDep("subsystem")
+                        .build())
+                .addConfig(ConfigModel.builder("standalone", "standalone.xml")
+                        .addFeature(new FeatureConfig("subsystem").setParam("name", "test"))
+                        .build())
+                .addPlugin(GeneratingPlugin.class)
+                .newPackage("base", true)
+                    .writeContent("bin/run.sh", packageContent)
+                    .getFeaturePack()
+                .newPackage("subsystem")
+                    .writeContent("modules/subsystem.txt", packageContent);
+        creator.newFeaturePack(FeaturePackLocation.fromString("org.test:pack-two:" + version).getFPID())
+                .addDependency(FeaturePackLocation.fromString("org.test:pack-one:" + version))
+                .newPackage("extra", true)
+                    .writeContent("extra.txt", packageContent);
+        creator.install();
+    }
+
+    /**
+     * Mimics the config generation of WildFly Galleon plugin and logs the generated configs.
+     */
+    public static class GeneratingPlugin implements InstallPlugin {
+        @Override
+        public void postInstall(ProvisioningRuntime runtime) throws ProvisioningException {
+            for (ProvisionedConfig config : runtime.getConfigs()) {
+                try {
+                    final Path configDir = runtime.getStagedDir().resolve(config.getModel()).resolve("configuration");
+                    Files.createDirectories(configDir);
+                    Files.writeString(configDir.resolve(config.getName()), config.getName());
+                    Files.write(Path.of(System.getProperty(GENERATION_LOG_PROPERTY)), List.of(config.getName()),
+                            StandardOpenOption.APPEND);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.installation;
+
+import org.jboss.galleon.Constants;
+import org.jboss.galleon.util.IoUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StateDigestTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private Path installationOne;
+    private Path installationTwo;
+
+    @Before
+    public void setUp() throws Exception {
+        installationOne = temp.newFolder().toPath();
+        installationTwo = temp.newFolder().toPath();
+
+        for (Path installation : new Path[]{installationOne, installationTwo}) {
+            writeHashes(installation, "hashes", "p1.txt\nabcd\n");
+            writeHashes(installation, "modules/hashes", "m1.jar\n1234\n");
+            writeHashes(installation, "bin/hashes", "standalone.sh\nef01\n");
+            writeChannels(installation, "channel-one");
+        }
+    }
+
+    @Test
+    public void sameStateHasSameRoot() throws Exception {
+        assertThat(StateDigest.compute(installationOne).getRoot())
+                .isEqualTo(StateDigest.compute(installationTwo).getRoot());
+    }
+
+    @Test
+    public void changedHashesAreReportedInSubtree() throws Exception {
+        writeHashes(installationTwo, "modules/hashes", "m1.jar\n5678\n");
+
+        final StateDigest one = StateDigest.compute(installationOne);
+        final StateDigest two = StateDigest.compute(installationTwo);
+
+        assertThat(one.getRoot()).isNotEqualTo(two.getRoot());
+        assertThat(one.differingDirectories(two)).containsExactly(".", "modules");
+        assertThat(one.getDirectoryDigest("bin")).isEqualTo(two.getDirectoryDigest("bin"));
+        assertThat(one.channelsDiffer(two)).isFalse();
+    }
+
+    @Test
+    public void addedDirectoryIsReported() throws Exception {
+        writeHashes(installationTwo, "modules/system/hashes", "m2.jar\n5678\n");
+
+        final StateDigest one = StateDigest.compute(installationOne);
+        final StateDigest two = StateDigest.compute(installationTwo);
+
+        assertThat(one.differingDirectories(two)).containsExactly(".", "modules", "modules/system");
+    }
+
+    @Test
+    public void changedChannelsChangeRoot() throws Exception {
+        writeChannels(installationTwo, "channel-two");
+
+        final StateDigest one = StateDigest.compute(installationOne);
+        final StateDigest two = StateDigest.compute(installationTwo);
+
+        assertThat(one.getRoot()).isNotEqualTo(two.getRoot());
+        assertThat(one.differingDirectories(two)).isEmpty();
+        assertThat(one.channelsDiffer(two)).isTrue();
+    }
+
+    @Test
+    public void loadUsesRecordedDigest() throws Exception {
+        StateDigest.record(installationOne);
+        assertThat(installationOne.resolve(StateDigest.DIGEST_FILE)).exists();
+
+        // replace the recorded digest of a directory, if the record is used the value is loaded
+        final Path digestFile = installationOne.resolve(StateDigest.DIGEST_FILE);
+        final String bin = StateDigest.compute(installationOne).getDirectoryDigest("bin");
+        Files.writeString(digestFile, Files.readString(digestFile).replace(bin, "recorded"));
+
+        assertThat(StateDigest.load(installationOne).getDirectoryDigest("bin")).isEqualTo("recorded");
+    }
+
+    @Test
+    public void loadRecomputesDigestAfterNestedChange() throws Exception {
+        final StateDigest recorded = StateDigest.record(installationOne);
+
+        // change the hashes without touching the hashes root
+        final Path hashesRoot = installationOne.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES);
+        final FileTime rootTime = Files.getLastModifiedTime(hashesRoot);
+        writeHashes(installationOne, "modules/hashes", "m1.jar\n5678\n");
+        Files.setLastModifiedTime(hashesRoot, rootTime);
+
+        assertThat(StateDigest.load(installationOne).getRoot())
+                .isNotEqualTo(recorded.getRoot())
+                .isEqualTo(StateDigest.compute(installationOne).getRoot());
+    }
+
+    @Test
+    public void digestWrittenAfterCopyIsUsed() throws Exception {
+        final StateDigest recorded = StateDigest.record(installationOne);
+        final Path galleonTwo = installationTwo.resolve(Constants.PROVISIONED_STATE_DIR);
+        IoUtils.recursiveDelete(galleonTwo);
+        IoUtils.copy(installationOne.resolve(Constants.PROVISIONED_STATE_DIR), galleonTwo);
+
+        StateDigest.load(installationOne).write(installationTwo);
+
+        final Path digestFile = installationTwo.resolve(StateDigest.DIGEST_FILE);
+        Files.writeString(digestFile, Files.readString(digestFile).replace(recorded.getDirectoryDigest("bin"), "recorded"));
+        assertThat(StateDigest.load(installationTwo).getDirectoryDigest("bin")).isEqualTo("recorded");
+    }
+
+    @Test
+    public void loadAlwaysReadsCurrentChannels() throws Exception {
+        final StateDigest recorded = StateDigest.record(installationOne);
+
+        writeChannels(installationOne, "channel-two");
+
+        final StateDigest loaded = StateDigest.load(installationOne);
+        assertThat(loaded.getRoot()).isNotEqualTo(recorded.getRoot());
+        assertThat(loaded.channelsDiffer(recorded)).isTrue();
+    }
+
+    @Test
+    public void missingHashesRecordProducesDigest() throws Exception {
+        final Path empty = temp.newFolder().toPath();
+
+        assertThat(StateDigest.compute(empty).getRoot()).isNotNull();
+        assertThat(StateDigest.load(empty).getRoot()).isEqualTo(StateDigest.compute(empty).getRoot());
+    }
+
+    private static void writeHashes(Path installation, String relativePath, String content) throws Exception {
+        final Path hashesFile = installation.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES).resolve(relativePath);
+        Files.createDirectories(hashesFile.getParent());
+        Files.writeString(hashesFile, content);
+    }
+
+    private static void writeChannels(Path installation, String name) throws Exception {
+        final Path channelsFile = ProsperoMetadataUtils.configurationPath(installation);
+        Files.createDirectories(channelsFile.getParent());
+        Files.writeString(channelsFile, "---\nschemaVersion: \"2.0.0\"\nname: \"" + name + "\"\n");
+    }
+}
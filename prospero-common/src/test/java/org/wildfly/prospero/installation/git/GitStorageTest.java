@@ -18,9 +18,11 @@
 package org.wildfly.prospero.installation.git;
 
 import org.apache.commons.io.FileUtils;
+import org.eclipse.aether.artifact.DefaultArtifact;
 import org.assertj.core.api.iterable.ThrowingExtractor;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.merge.MergeStrategy;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.jboss.galleon.config.ConfigModel;
@@ -34,10 +36,13 @@ import org.wildfly.channel.ChannelManifestCoordinate;
 import org.wildfly.channel.Repository;
 import org.wildfly.prospero.api.Diff;
 import org.wildfly.prospero.api.FeatureChange;
+import org.wildfly.prospero.api.HistoryStatistics;
+import org.wildfly.prospero.api.InstallationChanges;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.api.ArtifactChange;
 import org.wildfly.prospero.api.ChannelChange;
 import org.wildfly.prospero.api.SavedState;
+import org.wildfly.prospero.api.exceptions.MetadataException;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import org.wildfly.prospero.model.ManifestYamlSupport;
 import org.junit.Before;
@@ -58,10 +63,12 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.wildfly.prospero.api.FeatureChange.Type.CONFIG;
@@ -616,6 +623,26 @@ public class GitStorageTest {
                 .hasContent("second");
     }
 
+    @Test
+    public void revertReadsFilesWithoutCopyingHistory() throws Exception {
+        setArtifact(manifest, "org.test:test:1.2.3");
+        Files.writeString(base.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML), "first");
+        gitStorage.record();
+
+        setArtifact(manifest, "org.test:test:1.2.4");
+        Files.writeString(base.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML), "second");
+        gitStorage.record();
+        final String head = gitStorage.getHeadRevision();
+
+        revertPath = gitStorage.revert(gitStorage.getRevisions().get(1));
+
+        final Path revertedMetadata = revertPath.resolve(ProsperoMetadataUtils.METADATA_DIR);
+        assertThat(revertedMetadata.resolve(".git")).doesNotExist();
+        assertThat(revertedMetadata.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML)).hasContent("first");
+        assertThat(revertedMetadata.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME)).content().contains("1.2.3");
+        assertEquals(head, gitStorage.getHeadRevision());
+    }
+
     @Test
     public void storeOnlySelectedFiles() throws Exception {
         setArtifact(manifest, "org.test:test:1.2.3");
@@ -715,6 +742,236 @@ public class GitStorageTest {
                         new FeatureChange(FEATURE, "org.test:feature-four:zip", Diff.Status.ADDED));
     }
 
+    @Test
+    public void historyIndexIsUpdatedOnRecord() throws Exception {
+        recordVersions("1.0.0", "1.0.1", "1.0.2");
+        final List<SavedState> revisions = gitStorage.getRevisions();
+
+        final Path index = base.resolve(".git").resolve(HistoryIndex.INDEX_FILE);
+        assertThat(index).exists();
+        // format version and three records
+        assertThat(Files.readAllLines(index)).hasSize(4);
+
+        try (GitStorage other = new GitStorage(base.getParent())) {
+            assertThat(other.getRevisions()).containsExactlyElementsOf(revisions);
+        }
+        Files.delete(index);
+        try (GitStorage other = new GitStorage(base.getParent())) {
+            assertThat(other.getRevisions()).containsExactlyElementsOf(revisions);
+        }
+        assertThat(revisions)
+                .map(SavedState::getMsg)
+                .containsExactly("[foo:bar::1.0.2]", "[foo:bar::1.0.1]", "[foo:bar::1.0.0]");
+    }
+
+    @Test
+    public void listPageOfRevisions() throws Exception {
+        recordVersions("1.0.0", "1.0.1", "1.0.2");
+        final List<SavedState> revisions = gitStorage.getRevisions();
+
+        assertThat(gitStorage.getRevisions(1, 1)).containsExactly(revisions.get(1));
+        assertThat(gitStorage.getRevisions(1, 10)).containsExactly(revisions.get(1), revisions.get(2));
+        assertThat(gitStorage.getRevisions(5, 10)).isEmpty();
+        assertThat(gitStorage.getRevisions(-1, 1)).containsExactly(revisions.get(0));
+        assertThat(gitStorage.getRevisions(0, -1)).isEmpty();
+    }
+
+    @Test
+    public void historyIndexFollowsReset() throws Exception {
+        recordVersions("1.0.0", "1.0.1", "1.0.2");
+        final List<SavedState> revisions = gitStorage.getRevisions();
+
+        gitStorage.reset(revisions.get(1).getName());
+
+        assertThat(gitStorage.getRevisions()).containsExactly(revisions.get(1), revisions.get(2));
+        try (GitStorage other = new GitStorage(base.getParent())) {
+            assertThat(other.getRevisions()).containsExactly(revisions.get(1), revisions.get(2));
+        }
+    }
+
+    @Test
+    public void corruptedHistoryIndexIsRebuilt() throws Exception {
+        recordVersions("1.0.0", "1.0.1");
+        final List<SavedState> revisions = gitStorage.getRevisions();
+
+        final Path index = base.resolve(".git").resolve(HistoryIndex.INDEX_FILE);
+        final List<String> lines = Files.readAllLines(index);
+        Files.write(index, List.of(lines.get(0), "{not json"));
+
+        try (GitStorage other = new GitStorage(base.getParent())) {
+            assertThat(other.getRevisions()).containsExactlyElementsOf(revisions);
+        }
+        assertThat(Files.readAllLines(index)).hasSize(3);
+    }
+
+    @Test
+    public void latestRevisionIsTheHead() throws Exception {
+        assertThat(gitStorage.getLatestRevision()).isNull();
+
+        recordVersions("1.0.0", "1.0.1");
+
+        assertThat(gitStorage.getLatestRevision()).isEqualTo(gitStorage.getRevisions().get(0));
+    }
+
+    @Test
+    public void listChangesInEachStateSinceRevision() throws Exception {
+        recordVersions("1.0.0", "1.0.1", "1.0.2");
+        final List<SavedState> revisions = gitStorage.getRevisions();
+
+        final Map<SavedState, InstallationChanges> changes = gitStorage.getChangesSince(revisions.get(2));
+
+        assertThat(changes.keySet()).containsExactly(revisions.get(0), revisions.get(1));
+        assertThat(changes.get(revisions.get(0)).getArtifactChanges())
+                .containsExactly(ArtifactChange.updated(new DefaultArtifact("org.test", "test", "jar", "1.0.1"),
+                        new DefaultArtifact("org.test", "test", "jar", "1.0.2")));
+        assertThat(changes.get(revisions.get(1)).getArtifactChanges())
+                .containsExactly(ArtifactChange.updated(new DefaultArtifact("org.test", "test", "jar", "1.0.0"),
+                        new DefaultArtifact("org.test", "test", "jar", "1.0.1")));
+        assertThat(changes.get(revisions.get(0)).getChannelChanges()).isEmpty();
+        // each recorded manifest is parsed only once
+        assertThat(gitStorage.getParsedManifests()).isEqualTo(3);
+
+        final Map<SavedState, InstallationChanges> allChanges = gitStorage.getChangesSince(null);
+        assertThat(allChanges.keySet()).containsExactlyElementsOf(revisions);
+        assertThat(allChanges.get(revisions.get(2)).getArtifactChanges())
+                .containsExactly(ArtifactChange.added(new DefaultArtifact("org.test", "test", "jar", "1.0.0")));
+    }
+
+    @Test
+    public void listChangesFollowsFirstParents() throws Exception {
+        recordVersions("1.0.0");
+        try (Git git = Git.open(base.resolve(".git").toFile())) {
+            final String mainBranch = git.getRepository().getBranch();
+            git.branchCreate().setName("side").call();
+            git.checkout().setName("side").call();
+            recordVersions("2.0.0");
+            git.checkout().setName(mainBranch).call();
+            recordVersions("1.0.1");
+            git.merge().include(git.getRepository().resolve("side")).setStrategy(MergeStrategy.OURS)
+                    .setMessage("UPDATE merged").call();
+        }
+
+        final Map<SavedState, InstallationChanges> changes = gitStorage.getChangesSince(null);
+
+        final List<SavedState> states = new ArrayList<>(changes.keySet());
+        assertThat(states).map(SavedState::getMsg)
+                .containsExactly("merged", "[foo:bar::1.0.1]", "[foo:bar::1.0.0]");
+        assertThat(changes.get(states.get(0)).getArtifactChanges()).isEmpty();
+        assertThat(changes.get(states.get(1)).getArtifactChanges())
+                .containsExactly(ArtifactChange.updated(new DefaultArtifact("org.test", "test", "jar", "1.0.0"),
+                        new DefaultArtifact("org.test", "test", "jar", "1.0.1")));
+    }
+
+    @Test
+    public void diffManifestStreamsInOrder() throws Exception {
+        final ManifestCache.Streams old = ManifestCache.Streams.of(new ChannelManifest("test", "test-id", "", List.of(
+                new Stream("org.test", "a", "1.0.0"),
+                new Stream("org.test", "b", "1.0.0"),
+                new Stream("org.test", "c", "1.0.0"))));
+        final ManifestCache.Streams current = ManifestCache.Streams.of(new ChannelManifest("test", "test-id", "", List.of(
+                new Stream("org.test", "d", "1.0.0"),
+                new Stream("org.test", "c", "1.0.1"),
+                new Stream("org.test", "a", "1.0.0"))));
+
+        assertThat(ManifestCache.diff(current, old)).containsExactly(
+                ArtifactChange.removed(new DefaultArtifact("org.test", "b", "jar", "1.0.0")),
+                ArtifactChange.updated(new DefaultArtifact("org.test", "c", "jar", "1.0.0"), new DefaultArtifact("org.test", "c", "jar", "1.0.1")),
+                ArtifactChange.added(new DefaultArtifact("org.test", "d", "jar", "1.0.0")));
+    }
+
+    @Test
+    public void packRepositoryAfterConfiguredNumberOfChanges() throws Exception {
+        System.setProperty(GitStorage.GC_INTERVAL_PROPERTY, "2");
+        try {
+            recordVersions("1.0.0");
+            assertThat(gitStorage.getStatistics().getPackFiles()).isZero();
+
+            recordVersions("1.0.1");
+            final HistoryStatistics statistics = gitStorage.getStatistics();
+            assertThat(statistics.getPackFiles()).isEqualTo(1);
+            assertThat(statistics.getLooseObjects()).isZero();
+            assertThat(statistics.getRevisions()).isEqualTo(2);
+        } finally {
+            System.clearProperty(GitStorage.GC_INTERVAL_PROPERTY);
+        }
+    }
+
+    @Test
+    public void compactKeepsLatestStates() throws Exception {
+        recordVersions("1.0.0", "1.0.1", "1.0.2", "1.0.3");
+        assertThat(gitStorage.getStatistics().getLooseObjects()).isPositive();
+
+        assertThat(gitStorage.compact(2)).isEqualTo(2);
+
+        final List<SavedState> revisions = gitStorage.getRevisions();
+        assertThat(revisions)
+                .map(SavedState::getMsg)
+                .containsExactly("[foo:bar::1.0.3]", "[foo:bar::1.0.2]");
+        // the oldest kept state is the new baseline
+        assertThat(gitStorage.getArtifactChanges(revisions.get(1)))
+                .containsExactly(ArtifactChange.added(new DefaultArtifact("org.test", "test", "jar", "1.0.2")));
+        assertThat(gitStorage.getArtifactChanges(revisions.get(0)))
+                .containsExactly(ArtifactChange.updated(new DefaultArtifact("org.test", "test", "jar", "1.0.2"),
+                        new DefaultArtifact("org.test", "test", "jar", "1.0.3")));
+
+        revertPath = gitStorage.revert(revisions.get(1));
+        assertThat(ManifestYamlSupport.parse(revertPath.resolve(ProsperoMetadataUtils.METADATA_DIR)
+                .resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME).toFile()).getStreams())
+                .map(Stream::getVersion)
+                .containsExactly("1.0.2");
+
+        final HistoryStatistics statistics = gitStorage.getStatistics();
+        assertThat(statistics.getRevisions()).isEqualTo(2);
+        assertThat(statistics.getLooseObjects()).isZero();
+
+        // nothing to remove if the history is shorter than the kept window
+        assertThat(gitStorage.compact(5)).isZero();
+        assertThat(gitStorage.getRevisions()).containsExactlyElementsOf(revisions);
+    }
+
+    @Test
+    public void statesKeptByCompactAreResolvableByOldIds() throws Exception {
+        recordVersions("1.0.0", "1.0.1", "1.0.2", "1.0.3");
+        final List<SavedState> oldRevisions = gitStorage.getRevisions();
+
+        gitStorage.compact(2);
+        final List<SavedState> revisions = gitStorage.getRevisions();
+        assertThat(revisions.get(0).getName()).isNotEqualTo(oldRevisions.get(0).getName());
+        assertThat(gitStorage.getCurrentName(oldRevisions.get(0).getName())).isEqualTo(revisions.get(0).getName());
+        assertThat(gitStorage.getCurrentName(oldRevisions.get(1).getName())).isEqualTo(revisions.get(1).getName());
+        // removed states are not re-mapped
+        assertThat(gitStorage.getCurrentName(oldRevisions.get(2).getName())).isEqualTo(oldRevisions.get(2).getName());
+
+        revertPath = gitStorage.revert(oldRevisions.get(1));
+        assertThat(ManifestYamlSupport.parse(revertPath.resolve(ProsperoMetadataUtils.METADATA_DIR)
+                .resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME).toFile()).getStreams())
+                .map(Stream::getVersion)
+                .containsExactly("1.0.2");
+        assertThat(gitStorage.getArtifactChanges(oldRevisions.get(0)))
+                .containsExactly(ArtifactChange.updated(new DefaultArtifact("org.test", "test", "jar", "1.0.2"),
+                        new DefaultArtifact("org.test", "test", "jar", "1.0.3")));
+        assertThatThrownBy(() -> gitStorage.revert(oldRevisions.get(3)))
+                .isInstanceOf(MetadataException.class);
+
+        // the old ids are re-pointed when the history is compacted again
+        recordVersions("1.0.4");
+        gitStorage.compact(2);
+        final List<SavedState> compactedAgain = gitStorage.getRevisions();
+        assertThat(gitStorage.getCurrentName(oldRevisions.get(0).getName())).isEqualTo(compactedAgain.get(1).getName());
+        assertThat(gitStorage.getCurrentName(revisions.get(0).getName())).isEqualTo(compactedAgain.get(1).getName());
+        assertThat(gitStorage.getCurrentName(oldRevisions.get(1).getName())).isEqualTo(oldRevisions.get(1).getName());
+    }
+
+    private void recordVersions(String... versions) throws Exception {
+        for (String version : versions) {
+            setArtifact(manifest, "org.test:test:" + version);
+            final ManifestVersionRecord record = new ManifestVersionRecord();
+            record.addManifest(new ManifestVersionRecord.MavenManifest("foo", "bar", version));
+            ProsperoMetadataUtils.writeVersionRecord(base.resolve(ProsperoMetadataUtils.CURRENT_VERSION_FILE), record);
+            gitStorage.record();
+        }
+    }
+
     private HashSet<String> getPathsInCommit() throws IOException, GitAPIException {
         final Git git = Git.open(base.resolve(".git").toFile());
         HashSet<String> paths = new HashSet<>();
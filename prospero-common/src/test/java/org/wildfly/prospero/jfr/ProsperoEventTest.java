@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.channel.MavenArtifact;
+import org.wildfly.prospero.api.OperationTimer;
+import org.wildfly.prospero.galleon.ArtifactCache;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.Assert.assertEquals;
+
+public class ProsperoEventTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void recordedEventContainsInstallationAndOperation() throws Exception {
+        final Path installation = temp.newFolder("server").toPath();
+
+        final List<RecordedEvent> events = record(() -> {
+            try (OperationTimer ignored = OperationTimer.start("update perform")) {
+                final ArtifactResolutionEvent event = new ArtifactResolutionEvent();
+                event.begin();
+                event.artifacts = 5;
+                event.cacheHits = 3;
+                event.finish(installation);
+            }
+        });
+
+        assertThat(events).hasSize(1);
+        final RecordedEvent event = events.get(0);
+        assertEquals("org.wildfly.prospero.ArtifactResolution", event.getEventType().getName());
+        assertEquals(installation.toAbsolutePath().toString(), event.getString("installation"));
+        assertEquals("update perform", event.getString("operation"));
+        assertEquals(5, event.getInt("artifacts"));
+        assertEquals(3, event.getInt("cacheHits"));
+    }
+
+    @Test
+    public void eventWithoutOperation() throws Exception {
+        final List<RecordedEvent> events = record(() -> {
+            final HistoryCommitEvent event = new HistoryCommitEvent();
+            event.begin();
+            event.type = "UPDATE";
+            event.finish(null);
+        });
+
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getString("installation")).isNull();
+        assertThat(events.get(0).getString("operation")).isNull();
+        assertEquals("UPDATE", events.get(0).getString("type"));
+    }
+
+    @Test
+    public void artifactCacheLookupIsRecorded() throws Exception {
+        assertThat(JfrSupport.isAvailable()).isTrue();
+        final Path installation = temp.newFolder("server").toPath();
+        Files.createDirectories(installation.resolve(ArtifactCache.CACHE_FOLDER));
+        final ArtifactCache cache = ArtifactCache.getInstance(installation);
+        cache.cache(new MavenArtifact("org.test", "foo", "jar", null, "1.0.0", temp.newFile("foo.jar")));
+
+        final List<RecordedEvent> events = record(() -> {
+            assertThat(cache.getArtifact("org.test", "foo", "jar", null, "1.0.0")).isPresent();
+            assertThat(cache.getArtifact("org.test", "bar", "jar", null, "1.0.0")).isEmpty();
+        });
+
+        assertThat(events)
+                .filteredOn(e -> e.getEventType().getName().equals("org.wildfly.prospero.ArtifactCacheLookup"))
+                .extracting(e -> e.getString("artifact"), e -> e.getBoolean("hit"), e -> e.getString("installation"))
+                .containsExactly(
+                        tuple("org.test:foo:jar:1.0.0", true, installation.toAbsolutePath().toString()),
+                        tuple("org.test:bar:jar:1.0.0", false, installation.toAbsolutePath().toString()));
+    }
+
+    @Test
+    public void disabledEventIsNotRecorded() throws Exception {
+        final Path file = temp.newFile("disabled.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.disable(ApplyEvent.class);
+            recording.start();
+            final ApplyEvent event = new ApplyEvent();
+            event.begin();
+            event.finish(temp.getRoot().toPath());
+            recording.stop();
+            recording.dump(file);
+        }
+
+        assertThat(RecordingFile.readAllEvents(file)).noneMatch(e -> e.getEventType().getName().startsWith("org.wildfly.prospero"));
+    }
+
+    private List<RecordedEvent> record(Runnable action) throws Exception {
+        final Path file = temp.newFile().toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable(ArtifactResolutionEvent.class).withoutThreshold();
+            recording.enable(HistoryCommitEvent.class).withoutThreshold();
+            recording.enable(ArtifactCacheLookupEvent.class).withoutThreshold();
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("org.wildfly.prospero"))
+                .collect(Collectors.toList());
+    }
+}
@@ -104,4 +104,19 @@ public class FeaturePackTemplateManagerTest {
                 .hasFieldOrPropertyWithValue("artifactId", "addOnOne")
                 .hasFieldOrPropertyWithValue("version", "[1.1,)");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void invalidVersionRangeFailsOnlyWhenMatched() throws Exception {
+        final FeaturePackTemplateManager featurePackTemplateManager = new FeaturePackTemplateManager(
+                new FeaturePackTemplateList(List.of(
+                        new FeaturePackTemplate.Builder("org.test", "addOnOne", "[1.0.0").build(),
+                        new FeaturePackTemplate.Builder("org.test", "addOnTwo", "[0,)").build()
+                ))
+        );
+
+        assertNotNull(featurePackTemplateManager.find("org.test", "addOnTwo", "1.0.0"));
+        assertThatThrownBy(() -> featurePackTemplateManager.find("org.test", "addOnOne", "1.0.0"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Invalid version pattern");
+    }
+}
@@ -17,6 +17,11 @@
 
 package org.wildfly.prospero.promotion;
 
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.artifact.DefaultArtifact;
@@ -49,13 +54,17 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -131,6 +140,56 @@ public class ArtifactPromoterTest {
         system.deploy(session, deployRequest);
     }
 
+    @Test
+    public void testPromoteMultipleBatchesUpdatesManifestOnce() throws Exception {
+        final List<CustomArtifact> artifacts = mockDeployArtifacts(ArtifactPromoter.DEPLOY_BATCH_SIZE * 2 + 10);
+
+        final ChannelCoordinate channelGa = new ChannelCoordinate("test", "channel");
+        promote(new CustomArtifactList(artifacts), channelGa);
+
+        for (CustomArtifact artifact : artifacts) {
+            assertArtifactInRepository(artifact);
+        }
+        assertThat(getManifest(channelGa).getStreams()).hasSize(artifacts.size());
+        assertThat(deployedManifestVersions()).containsExactly("1.0.0.Final-rev00000002");
+    }
+
+    @Test
+    public void testPromoteToHttpRepository() throws Exception {
+        final List<CustomArtifact> artifacts = mockDeployArtifacts(ArtifactPromoter.DEPLOY_BATCH_SIZE + 10);
+        mockDeployedManifest(List.of(new Stream("stream", "one", "1.2.3")), "1.0.0.Final-rev00000001");
+
+        final Undertow server = Undertow.builder()
+                .addHttpListener(8890, "localhost")
+                .setHandler(new RepositoryHandler(targetRepositoryPath))
+                .build();
+        try {
+            server.start();
+            final RemoteRepository httpRepository = new RemoteRepository.Builder("target", "default", "http://localhost:8890/").build();
+
+            final ChannelCoordinate channelGa = new ChannelCoordinate("test", "channel");
+            new ArtifactPromoter(system, session, httpRepository)
+                    .promote(new CustomArtifactList(artifacts).getArtifactCoordinates(), channelGa, sourceRepository);
+        } finally {
+            server.stop();
+        }
+
+        for (CustomArtifact artifact : artifacts) {
+            assertArtifactInRepository(artifact);
+        }
+        final ChannelManifest manifest = getManifest(new ChannelCoordinate("test", "channel"));
+        assertThat(manifest.getStreams()).hasSize(artifacts.size() + 1);
+        assertThat(deployedManifestVersions()).containsExactly("1.0.0.Final-rev00000001", "1.0.0.Final-rev00000002");
+    }
+
+    @Test
+    public void testUnsupportedTargetRepository() {
+        final RemoteRepository repository = new RemoteRepository.Builder("target", "default", "ftp://localhost/repo").build();
+
+        assertThatThrownBy(() -> new ArtifactPromoter(system, session, repository))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     public void testPromoteNoArtifacts() throws Exception {
         final ChannelCoordinate channelGa = new ChannelCoordinate("test", "channel");
@@ -224,6 +283,25 @@ public class ArtifactPromoterTest {
         }
     }
 
+    private List<CustomArtifact> mockDeployArtifacts(int count) throws Exception {
+        final List<CustomArtifact> artifacts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final CustomArtifact artifact = new CustomArtifact("org.test", "artifact-" + i, null, "jar", "1.0.0");
+            mockDeployArtifact(artifact, sourceRepositoryPath);
+            artifacts.add(artifact);
+        }
+        return artifacts;
+    }
+
+    private List<String> deployedManifestVersions() throws Exception {
+        final VersionRangeRequest request = new VersionRangeRequest(
+                new DefaultArtifact("test", "channel",  ChannelManifest.CLASSIFIER, ChannelManifest.EXTENSION, "[0,)"),
+                Arrays.asList(targetRepository), null);
+        return system.resolveVersionRange(session, request).getVersions().stream()
+                .map(Version::toString)
+                .collect(Collectors.toList());
+    }
+
     private void mockDeployedManifest(List<Stream> streams, String version) throws IOException, DeploymentException {
         ChannelManifest manifest = new ChannelManifest("custom-channel", null, null, streams);
 
@@ -289,6 +367,40 @@ public class ArtifactPromoterTest {
                         artifactCoordinate.getExtension()));
     }
 
+    /**
+     * Minimal stand-in for a remote Maven repository, storing the uploaded files in a folder.
+     */
+    private static class RepositoryHandler implements HttpHandler {
+        private final Path root;
+
+        RepositoryHandler(Path root) {
+            this.root = root;
+        }
+
+        @Override
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            if (exchange.isInIoThread()) {
+                exchange.dispatch(this);
+                return;
+            }
+            exchange.startBlocking();
+            final Path file = root.resolve(exchange.getRelativePath().substring(1)).normalize();
+            if (exchange.getRequestMethod().equals(Methods.PUT)) {
+                Files.createDirectories(file.getParent());
+                Files.copy(exchange.getInputStream(), file, StandardCopyOption.REPLACE_EXISTING);
+                exchange.setStatusCode(201);
+            } else if (Files.isRegularFile(file)) {
+                exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, Files.size(file));
+                if (exchange.getRequestMethod().equals(Methods.GET)) {
+                    Files.copy(file, exchange.getOutputStream());
+                }
+            } else {
+                exchange.setStatusCode(404);
+            }
+            exchange.endExchange();
+        }
+    }
+
     private void promote(CustomArtifactList artifacts, ChannelCoordinate coordinate) throws IOException, ArtifactResolutionException, DeploymentException {
         final ArtifactPromoter artifactPromoter = new ArtifactPromoter(system, session, targetRepository);
         artifactPromoter.promote(artifacts.getArtifactCoordinates(), coordinate, sourceRepository);
@@ -35,6 +35,9 @@ import org.wildfly.prospero.actions.InstallationHistoryAction;
 import org.wildfly.prospero.actions.UpdateAction;
 import org.wildfly.prospero.api.ChannelChange;
 import org.wildfly.prospero.api.SavedState;
+import org.wildfly.prospero.spi.metrics.InMemoryMetricsAggregator;
+import org.wildfly.prospero.spi.metrics.MetricsListener;
+import org.wildfly.prospero.spi.metrics.OperationStartedEvent;
 import org.wildfly.prospero.updates.UpdateSet;
 
 import java.nio.file.Path;
@@ -287,4 +290,40 @@ public class ProsperoInstallationManagerTest {
                 .hasMessageContaining("has been modified after the candidate has been created");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void metricsListenersAreNotifiedAboutOperations() throws Exception {
+        final InMemoryMetricsAggregator aggregator = new InMemoryMetricsAggregator();
+        final ProsperoInstallationManager mgr = new ProsperoInstallationManager(actionFactory, List.of(aggregator));
+        when(actionFactory.getUpdateAction(Collections.emptyList())).thenReturn(updateAction);
+        when(updateAction.findUpdates()).thenReturn(new UpdateSet(Collections.emptyList()));
+        when(actionFactory.getApplyCandidateAction(any())).thenReturn(applyCandidateAction);
+        when(applyCandidateAction.verifyCandidate(any())).thenReturn(ApplyCandidateAction.ValidationResult.STALE);
+
+        mgr.findUpdates(null);
+        mgr.findUpdates(null);
+        assertThatThrownBy(() -> mgr.verifyCandidate(Path.of("candidate"), CandidateType.UPDATE));
+
+        assertEquals(3, aggregator.getOperationCount());
+        assertEquals(1, aggregator.getFailedOperationCount());
+        assertEquals(0, aggregator.getOperationsInProgress());
+        assertThat(aggregator.getOperations()).containsOnlyKeys("find-updates", "verify-candidate");
+        assertEquals(2, aggregator.getOperations().get("find-updates").getCount());
+        assertEquals(1, aggregator.getOperations().get("verify-candidate").getFailures());
+    }
+
+    @Test
+    public void failingMetricsListenerDoesntAffectOperation() throws Exception {
+        final MetricsListener listener = new MetricsListener() {
+            @Override
+            public void operationStarted(OperationStartedEvent event) {
+                throw new RuntimeException("test");
+            }
+        };
+        final ProsperoInstallationManager mgr = new ProsperoInstallationManager(actionFactory, List.of(listener));
+        when(actionFactory.getUpdateAction(Collections.emptyList())).thenReturn(updateAction);
+        when(updateAction.buildUpdate(any())).thenReturn(true);
+
+        assertTrue(mgr.prepareUpdate(Path.of("test"), null));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.spi.metrics;
+
+import org.junit.Test;
+import org.wildfly.prospero.api.TransferMetrics;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+
+public class InMemoryMetricsAggregatorTest {
+
+    private static final Path INSTALLATION = Path.of("server");
+
+    @Test
+    public void aggregateOperationDurations() {
+        final InMemoryMetricsAggregator aggregator = new InMemoryMetricsAggregator();
+
+        aggregator.operationStarted(new OperationStartedEvent("prepare-update", INSTALLATION, Instant.now()));
+        assertEquals(1, aggregator.getOperationsInProgress());
+        aggregator.operationFinished(finished("prepare-update", Duration.ofSeconds(3), null, new TransferMetrics()));
+        aggregator.operationFinished(finished("prepare-update", Duration.ofSeconds(1), new RuntimeException(), new TransferMetrics()));
+
+        final InMemoryMetricsAggregator.OperationStatistics statistics = aggregator.getOperations().get("prepare-update");
+        assertEquals(0, aggregator.getOperationsInProgress());
+        assertEquals(2, statistics.getCount());
+        assertEquals(1, statistics.getFailures());
+        assertEquals(Duration.ofSeconds(4), statistics.getTotalDuration());
+        assertEquals(Duration.ofSeconds(3), statistics.getMaxDuration());
+        assertEquals(Duration.ofSeconds(2), statistics.getAverageDuration());
+    }
+
+    @Test
+    public void aggregateTransfers() {
+        final InMemoryMetricsAggregator aggregator = new InMemoryMetricsAggregator();
+        final TransferMetrics transfers = new TransferMetrics();
+        transfers.transferSucceeded("central", "foo.jar", 100, Duration.ofMillis(10));
+        transfers.checksumFailed("central", "bar.jar");
+        transfers.cacheHit("local");
+        transfers.cacheHit("local");
+        transfers.cacheHit("installation-cache");
+
+        aggregator.operationFinished(finished("find-updates", Duration.ofSeconds(1), null, transfers));
+
+        assertEquals(100, aggregator.getBytesDownloaded());
+        assertEquals(1, aggregator.getArtifactsDownloaded());
+        assertEquals(1, aggregator.getDownloadFailures());
+        assertEquals(3, aggregator.getCacheHits());
+        assertEquals(0.75, aggregator.getCacheHitRatio(), 0.001);
+
+        aggregator.reset();
+
+        assertEquals(0, aggregator.getOperationCount());
+        assertEquals(0, aggregator.getBytesDownloaded());
+        assertEquals(0, aggregator.getCacheHitRatio(), 0.001);
+    }
+
+    private static OperationFinishedEvent finished(String operation, Duration duration, Throwable failure,
+                                                   TransferMetrics transfers) {
+        return new OperationFinishedEvent(operation, INSTALLATION, Instant.now(), duration, failure, transfers.getTotals());
+    }
+}
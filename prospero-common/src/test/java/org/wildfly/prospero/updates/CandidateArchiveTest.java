@@ -0,0 +1,175 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.updates;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.prospero.api.exceptions.InvalidUpdateCandidateException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CandidateArchiveTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private Path candidate;
+    private Path archive;
+    private Path target;
+
+    @Before
+    public void setUp() throws Exception {
+        candidate = temp.newFolder("candidate").toPath();
+        target = temp.newFolder("target").toPath();
+        archive = temp.getRoot().toPath().resolve("candidate.zip");
+    }
+
+    @Test
+    public void extractArchivedCandidate() throws Exception {
+        createFile("bin/run.sh", "run");
+        createFile("modules/foo/foo.jar", "foo");
+        Files.createDirectories(candidate.resolve("empty"));
+        Files.setPosixFilePermissions(candidate.resolve("bin/run.sh"), PosixFilePermissions.fromString("rwxr-x---"));
+
+        CandidateArchive.create(candidate, archive);
+        CandidateArchive.extract(archive, target);
+
+        assertThat(target.resolve("bin/run.sh")).hasContent("run");
+        assertThat(target.resolve("modules/foo/foo.jar")).hasContent("foo");
+        assertThat(target.resolve("empty")).isEmptyDirectory();
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(target.resolve("bin/run.sh"))))
+                .isEqualTo("rwxr-x---");
+    }
+
+    @Test
+    public void identicalFilesAreStoredOnce() throws Exception {
+        createFile("modules/foo/lib.jar", "lib");
+        createFile("modules/bar/lib.jar", "lib");
+
+        CandidateArchive.create(candidate, archive);
+
+        final List<String> contentEntries = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            zipFile.stream()
+                    .map(ZipEntry::getName)
+                    .filter(n -> n.startsWith(CandidateArchive.CONTENT_PREFIX))
+                    .forEach(contentEntries::add);
+        }
+        assertThat(contentEntries).hasSize(1);
+
+        CandidateArchive.extract(archive, target);
+        assertThat(target.resolve("modules/foo/lib.jar")).hasContent("lib");
+        assertThat(target.resolve("modules/bar/lib.jar")).hasContent("lib");
+    }
+
+    @Test
+    public void modifiedContentIsRejected() throws Exception {
+        createFile("test.txt", "test");
+        CandidateArchive.create(candidate, archive);
+
+        final String files;
+        final String hash;
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            files = new String(zipFile.getInputStream(zipFile.getEntry(CandidateArchive.FILES_ENTRY)).readAllBytes(),
+                    StandardCharsets.UTF_8);
+            hash = zipFile.stream()
+                    .map(ZipEntry::getName)
+                    .filter(n -> n.startsWith(CandidateArchive.CONTENT_PREFIX))
+                    .findFirst().orElseThrow();
+        }
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            writeEntry(zos, CandidateArchive.FILES_ENTRY, files);
+            writeEntry(zos, hash, "changed");
+        }
+
+        assertThatThrownBy(() -> CandidateArchive.extract(archive, target))
+                .isInstanceOf(InvalidUpdateCandidateException.class)
+                .hasMessageContaining("test.txt");
+        assertThat(target.resolve("test.txt")).doesNotExist();
+    }
+
+    @Test
+    public void pathsOutsideOfTargetAreRejected() throws Exception {
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            writeEntry(zos, CandidateArchive.FILES_ENTRY, "D::-::0::../outside");
+        }
+
+        assertThatThrownBy(() -> CandidateArchive.extract(archive, target))
+                .isInstanceOf(InvalidUpdateCandidateException.class);
+        assertThat(target.getParent().resolve("outside")).doesNotExist();
+    }
+
+    @Test
+    public void preserveSymbolicLinksAndModificationTimes() throws Exception {
+        createFile("modules/foo/foo.jar", "foo");
+        createFile("bin/odd::name.txt", "odd");
+        Files.createSymbolicLink(candidate.resolve("bin/foo.jar"), Path.of("../modules/foo/foo.jar"));
+        Files.createSymbolicLink(candidate.resolve("foo"), Path.of("modules/foo"));
+        final FileTime modified = FileTime.fromMillis(1_600_000_000_000L);
+        Files.setLastModifiedTime(candidate.resolve("modules/foo/foo.jar"), modified);
+        Files.setLastModifiedTime(candidate.resolve("modules/foo"), modified);
+
+        CandidateArchive.create(candidate, archive);
+        CandidateArchive.extract(archive, target);
+
+        assertThat(Files.isSymbolicLink(target.resolve("bin/foo.jar"))).isTrue();
+        assertThat(Files.readSymbolicLink(target.resolve("bin/foo.jar"))).isEqualTo(Path.of("../modules/foo/foo.jar"));
+        assertThat(Files.isSymbolicLink(target.resolve("foo"))).isTrue();
+        assertThat(target.resolve("foo/foo.jar")).hasContent("foo");
+        assertThat(target.resolve("bin/odd::name.txt")).hasContent("odd");
+        assertThat(Files.getLastModifiedTime(target.resolve("modules/foo/foo.jar"))).isEqualTo(modified);
+        assertThat(Files.getLastModifiedTime(target.resolve("modules/foo"))).isEqualTo(modified);
+    }
+
+    @Test
+    public void malformedRecordIsRejected() throws Exception {
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            writeEntry(zos, CandidateArchive.FILES_ENTRY, "D::-::not-a-time::test");
+        }
+
+        assertThatThrownBy(() -> CandidateArchive.extract(archive, target))
+                .isInstanceOf(InvalidUpdateCandidateException.class)
+                .hasMessageContaining("not-a-time");
+    }
+
+    private void createFile(String path, String content) throws IOException {
+        final Path file = candidate.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static void writeEntry(ZipOutputStream zos, String name, String content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content.getBytes(StandardCharsets.UTF_8));
+        zos.closeEntry();
+    }
+}
@@ -17,12 +17,20 @@
 
 package org.wildfly.prospero.wfchannel;
 
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferResource;
 import org.junit.Test;
 import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.OperationTimer;
+import org.wildfly.prospero.api.TransferMetrics;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.*;
 
 public class MavenSessionManagerTest {
@@ -45,4 +53,43 @@ public class MavenSessionManagerTest {
 
         assertEquals(MavenSessionManager.LOCAL_MAVEN_REPO, msm.getProvisioningRepo());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sessionRecordsTransfersInCurrentOperation() throws Exception {
+        final MavenSessionManager msm = new MavenSessionManager(MavenOptions.DEFAULT_OPTIONS);
+        final RepositorySystem system = msm.newRepositorySystem();
+        final String resourceName = "org/test/foo/1.0.0/foo-1.0.0.jar";
+
+        final TransferMetrics metrics;
+        try (OperationTimer timer = OperationTimer.start("test")) {
+            final DefaultRepositorySystemSession session = msm.newRepositorySystemSession(system);
+            final TransferResource missing = new TransferResource("mirror", "http://mirror.test", resourceName, null, null);
+            final TransferResource found = new TransferResource("central", "http://central.test", resourceName, null, null);
+
+            session.getTransferListener().transferStarted(new TransferEvent.Builder(session, missing).build());
+            session.getTransferListener().transferFailed(new TransferEvent.Builder(session, missing)
+                    .setException(new ArtifactNotFoundException(null, null)).build());
+            session.getTransferListener().transferStarted(new TransferEvent.Builder(session, found).build());
+            session.getTransferListener().transferSucceeded(new TransferEvent.Builder(session, found)
+                    .setTransferredBytes(1024).build());
+            metrics = timer.getTransferMetrics();
+        }
+
+        assertThat(metrics.getRepositories()).containsOnlyKeys("mirror", "central");
+        assertEquals(1, metrics.getRepositories().get("mirror").getNotFound());
+        assertEquals(1, metrics.getRepositories().get("mirror").getResolvedElsewhere());
+        assertEquals(1, metrics.getRepositories().get("central").getTransfers());
+        assertEquals(1024, metrics.getRepositories().get("central").getBytes());
+        assertThat(metrics.getResolvedElsewhere())
+                .singleElement()
+                .hasFieldOrPropertyWithValue("resource", resourceName)
+                .hasFieldOrPropertyWithValue("resolvedFrom", "central");
+    }
+
+    @Test
+    public void sessionDoesntRecordTransfersWithoutOperation() throws Exception {
+        final MavenSessionManager msm = new MavenSessionManager(MavenOptions.DEFAULT_OPTIONS);
+
+        assertNull(msm.newRepositorySystemSession(msm.newRepositorySystem()).getTransferListener());
+    }
+}
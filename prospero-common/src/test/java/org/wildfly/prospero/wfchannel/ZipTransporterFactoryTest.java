@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.spi.connector.transport.PeekTask;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+import org.jboss.galleon.util.HashUtils;
+import org.jboss.galleon.util.ZipUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.channel.Repository;
+import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.OperationTimer;
+import org.wildfly.prospero.api.RepositoryUtils;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ZipTransporterFactoryTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    private Repository repository;
+    private Path zipFile;
+
+    @Before
+    public void setUp() throws Exception {
+        final Path repoRoot = temp.newFolder("repo").toPath();
+        final Path artifact = repoRoot.resolve("test-repository/maven-repository/org/test/foo/1.0.0/foo-1.0.0.jar");
+        Files.createDirectories(artifact.getParent());
+        Files.writeString(artifact, "foo-1.0.0");
+        Files.writeString(artifact.resolveSibling("foo-1.0.0.jar.sha1"), HashUtils.hashFile(artifact));
+        zipFile = temp.getRoot().toPath().resolve("repo.zip");
+        ZipUtils.zip(repoRoot, zipFile);
+
+        repository = RepositoryUtils.mapArchives(List.of(new Repository("test-repo", zipFile.toUri().toString()))).get(0);
+    }
+
+    @Test
+    public void resolveArtifactFromArchiveInOfflineMode() throws Exception {
+        final ArtifactResult result = resolve("1.0.0");
+
+        assertThat(result.getArtifact().getFile().toPath())
+                .startsWith(temp.getRoot().toPath().resolve("local-repo"))
+                .hasContent("foo-1.0.0");
+    }
+
+    @Test
+    public void missingArtifactIsNotFound() {
+        assertThatThrownBy(() -> resolve("1.0.1"))
+                .isInstanceOf(ArtifactResolutionException.class)
+                .hasMessageContaining("org.test:foo:jar:1.0.1");
+    }
+
+    @Test
+    public void archiveIsClosedAfterResolution() throws Exception {
+        resolve("1.0.0");
+
+        assertThat(ZipTransporter.isOpen(zipFile)).isFalse();
+    }
+
+    @Test
+    public void archiveIsSharedUntilLastTransporterIsClosed() throws Exception {
+        final RemoteRepository remoteRepository = RepositoryUtils.toRemoteRepository(repository);
+        final Transporter first = new ZipTransporterFactory().newInstance(null, remoteRepository);
+        final Transporter second = new ZipTransporterFactory().newInstance(null, remoteRepository);
+
+        first.peek(new PeekTask(URI.create("org/test/foo/1.0.0/foo-1.0.0.jar")));
+        second.peek(new PeekTask(URI.create("org/test/foo/1.0.0/foo-1.0.0.jar")));
+        assertThat(ZipTransporter.isOpen(zipFile)).isTrue();
+
+        first.close();
+        assertThat(ZipTransporter.isOpen(zipFile)).isTrue();
+        second.close();
+        assertThat(ZipTransporter.isOpen(zipFile)).isFalse();
+    }
+
+    @Test
+    public void archiveIsKeptOpenUntilOperationFinishes() throws Exception {
+        try (OperationTimer ignored = OperationTimer.start("test")) {
+            final MavenSessionManager msm = new MavenSessionManager(MavenOptions.builder()
+                    .setOffline(true)
+                    .setLocalCachePath(temp.getRoot().toPath().resolve("local-repo"))
+                    .build());
+            final RepositorySystem system = msm.newRepositorySystem();
+            final DefaultRepositorySystemSession session = msm.newRepositorySystemSession(system);
+            final Transporter transporter = new ZipTransporterFactory().newInstance(session, RepositoryUtils.toRemoteRepository(repository));
+
+            transporter.peek(new PeekTask(URI.create("org/test/foo/1.0.0/foo-1.0.0.jar")));
+            transporter.close();
+            assertThat(ZipTransporter.isOpen(zipFile)).isTrue();
+        }
+
+        assertThat(ZipTransporter.isOpen(zipFile)).isFalse();
+    }
+
+    private ArtifactResult resolve(String version) throws Exception {
+        final MavenSessionManager msm = new MavenSessionManager(MavenOptions.builder()
+                .setOffline(true)
+                .setLocalCachePath(temp.getRoot().toPath().resolve("local-repo"))
+                .build());
+        final RepositorySystem system = msm.newRepositorySystem();
+        final DefaultRepositorySystemSession session = msm.newRepositorySystemSession(system);
+
+        final ArtifactRequest request = new ArtifactRequest(new DefaultArtifact("org.test", "foo", "jar", version),
+                List.of(RepositoryUtils.toRemoteRepository(repository)), null);
+        return system.resolveArtifact(session, request);
+    }
+}